@@ -57,9 +57,10 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 
 import org.osmdroid.config.Configuration;
+import org.y20k.trackbook.core.LogHelper;
 import org.y20k.trackbook.helpers.DialogHelper;
 import org.y20k.trackbook.helpers.ExportHelper;
-import org.y20k.trackbook.helpers.LogHelper;
+import org.y20k.trackbook.helpers.MetricsDialogHelper;
 import org.y20k.trackbook.helpers.NightModeHelper;
 import org.y20k.trackbook.helpers.TrackbookKeys;
 import org.y20k.trackbook.layout.NonSwipeableViewPager;
@@ -547,6 +548,15 @@ public class MainActivity extends AppCompatActivity implements TrackbookKeys {
             }
         });
 
+        // secret metrics screen
+        mFloatingActionButtonToggleTracks.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                MetricsDialogHelper.newInstance().show(getSupportFragmentManager(), "MetricsDialog");
+                return true;
+            }
+        });
+
         // secret night mode switch
         mFloatingActionButtonLocation.setOnLongClickListener(new View.OnLongClickListener() {
             @Override
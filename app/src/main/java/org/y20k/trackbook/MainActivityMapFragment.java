@@ -17,10 +17,10 @@
 package org.y20k.trackbook;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.content.SharedPreferences;
 import android.database.ContentObserver;
 import android.graphics.Color;
@@ -31,6 +31,7 @@ import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.view.LayoutInflater;
@@ -48,26 +49,40 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import com.google.android.material.snackbar.Snackbar;
 
 import org.osmdroid.api.IMapController;
+import org.osmdroid.events.DelayedMapListener;
+import org.osmdroid.events.MapListener;
+import org.osmdroid.events.ScrollEvent;
+import org.osmdroid.events.ZoomEvent;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.ItemizedIconOverlay;
+import org.osmdroid.views.overlay.Overlay;
 import org.osmdroid.views.overlay.Polyline;
 import org.osmdroid.views.overlay.TilesOverlay;
 import org.osmdroid.views.overlay.compass.CompassOverlay;
 import org.osmdroid.views.overlay.compass.InternalCompassOrientationProvider;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.SimplifiedPath;
 import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackSummary;
+import org.y20k.trackbook.core.TrackUpdate;
 import org.y20k.trackbook.helpers.DialogHelper;
 import org.y20k.trackbook.helpers.LocationHelper;
-import org.y20k.trackbook.helpers.LogHelper;
 import org.y20k.trackbook.helpers.MapHelper;
 import org.y20k.trackbook.helpers.NightModeHelper;
+import org.y20k.trackbook.helpers.PersistenceScheduler;
 import org.y20k.trackbook.helpers.StorageHelper;
 import org.y20k.trackbook.helpers.TrackbookKeys;
+import org.y20k.trackbook.layout.TrackCrumbOverlay;
+import org.y20k.trackbook.layout.TrackPathOverlay;
 
-import java.io.File;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -84,7 +99,9 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     private Track mTrack;
     private boolean mFirstStart;
     private Snackbar mLocationOffBar;
-    private BroadcastReceiver mTrackUpdatedReceiver;
+    private TrackerService.LocalBinder mTrackerServiceBinder;
+    private TrackerService.TrackUpdateListener mTrackUpdateListener;
+    private long mTrackUpdateSequence;
     private SettingsContentObserver mSettingsContentObserver;
     private MapView mMapView;
     private IMapController mController;
@@ -93,7 +110,7 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     private LocationListener mGPSListener;
     private LocationListener mNetworkListener;
     private ItemizedIconOverlay mMyLocationOverlay;
-    private ItemizedIconOverlay mTrackOverlay;
+    private Overlay mTrackOverlay;
     private Location mCurrentBestLocation;
     private boolean mTrackerServiceRunning;
     private boolean mLocalTrackerRunning;
@@ -101,8 +118,8 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     private boolean mFragmentVisible;
 
     private boolean tracksOverlayVisible;
-    private List<Track> tracksCache;
-    private List<Polyline> pathsCache;
+    private Map<String, TrackPathOverlay> pathsCache;
+    private LoadTrackPathsAsyncHelper mLoadTrackPathsTask;
 
 
     /* Constructor (default) */
@@ -132,7 +149,7 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         }
 
         // create storage helper
-        mStorageHelper = new StorageHelper(mActivity);
+        mStorageHelper = StorageHelper.getInstance(mActivity);
 
         // acquire reference to Location Manager
         mLocationManager = (LocationManager) mActivity.getSystemService(Context.LOCATION_SERVICE);
@@ -166,10 +183,9 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         // create content observer for changes in System Settings
         mSettingsContentObserver = new SettingsContentObserver( new Handler());
 
-        // register broadcast receiver for new WayPoints
-        mTrackUpdatedReceiver = createTrackUpdatedReceiver();
-        IntentFilter trackUpdatedIntentFilter = new IntentFilter(ACTION_TRACK_UPDATED);
-        LocalBroadcastManager.getInstance(mActivity).registerReceiver(mTrackUpdatedReceiver, trackUpdatedIntentFilter);
+        // create listener for new WayPoints - the track is not in sync with the service yet
+        mTrackUpdateListener = createTrackUpdateListener();
+        mTrackUpdateSequence = -1;
     }
 
 
@@ -201,6 +217,9 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         compassOverlay.enableCompass();
         mMapView.getOverlays().add(compassOverlay);
 
+        // update tracks of all recordings when map is moved or zoomed
+        mMapView.addMapListener(createViewportChangedListener());
+
         // initiate map state
         if (savedInstanceState != null) {
             // restore saved instance of map
@@ -237,6 +256,16 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     }
 
 
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        // bind to TrackerService - it sends the recorded track once connected
+        Intent intent = new Intent(mActivity, TrackerService.class);
+        mActivity.bindService(intent, mTrackerServiceConnection, Context.BIND_AUTO_CREATE);
+    }
+
+
     @Override
     public void onResume() {
         super.onResume();
@@ -253,7 +282,8 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         // load track from temp file if it exists
         if (mStorageHelper.tempFileExists()) {
             LoadTempTrackAsyncHelper loadTempTrackAsyncHelper = new LoadTempTrackAsyncHelper();
-            loadTempTrackAsyncHelper.execute();
+            // use the thread pool - the serial executor may be busy with other tasks
+            loadTempTrackAsyncHelper.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         }
 
 //        // CASE 1: recording active
@@ -303,6 +333,20 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     }
 
 
+    @Override
+    public void onStop() {
+        super.onStop();
+
+        // stop receiving track updates and unbind from TrackerService
+        if (mTrackerServiceBinder != null) {
+            mTrackerServiceBinder.removeTrackUpdateListener(mTrackUpdateListener);
+            mTrackerServiceBinder = null;
+        }
+        mActivity.unbindService(mTrackerServiceConnection);
+        mTrackUpdateSequence = -1;
+    }
+
+
     @Override
     public void onDestroyView(){
         super.onDestroyView();
@@ -319,9 +363,6 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         // reset first start state
         mFirstStart = true;
 
-        // disable  broadcast receivers
-        LocalBroadcastManager.getInstance(mActivity).unregisterReceiver(mTrackUpdatedReceiver);
-
         super.onDestroy();
     }
 
@@ -428,7 +469,7 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
         // get current position
         if (mTrackerServiceRunning && mTrack != null && mTrack.getSize() > 0) {
             // get current Location from tracker service
-            mCurrentBestLocation = mTrack.getWayPointLocation(mTrack.getSize() - 1);
+            mCurrentBestLocation = LocationHelper.toLocation(mTrack.getWayPointFix(mTrack.getSize() - 1));
         } else if (mCurrentBestLocation == null) {
             // app does not have any location fix
             mCurrentBestLocation = LocationHelper.determineLastKnownLocation(mLocationManager);
@@ -489,19 +530,21 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
 
         if (saveTrack) {
             // save track object if requested
-            SaveTrackAsyncHelper saveTrackAsyncHelper = new SaveTrackAsyncHelper();
-            saveTrackAsyncHelper.execute();
+            PersistenceScheduler.getInstance(mActivity).saveTrack(mTrack.snapshot(), FILE_MOST_CURRENT_TRACK, createSaveTrackCallback());
             Toast.makeText(mActivity, mActivity.getString(R.string.toast_message_save_track), Toast.LENGTH_LONG).show();
         } else {
             // clear track object and delete temp file
             mTrack = null;
-            mStorageHelper.deleteTempFile();
+            mTrackUpdateSequence = -1;
+            PersistenceScheduler.getInstance(mActivity).deleteTempFile(null);
         }
 
     }
 
     private void clearAllTracks() {
         // We do never want to save all tracks again
+        // Discard tracks that are still loading
+        mLoadTrackPathsTask = null;
         // Clear all track overlays
         if(mMapView != null) {
             mMapView.getOverlays().clear();
@@ -603,7 +646,14 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
 
     /* Draws track onto overlay */
     private void drawTrackOverlay(Track track) {
-        //mMapView.getOverlays().remove(mTrackOverlay);
+        // update existing crumb overlay in place
+        if (track != null && track.getSize() > 0 && mTrackOverlay instanceof TrackCrumbOverlay && mMapView.getOverlays().contains(mTrackOverlay)) {
+            ((TrackCrumbOverlay) mTrackOverlay).setTrack(track, mTrackerServiceRunning);
+            mMapView.invalidate();
+            return;
+        }
+
+        mMapView.getOverlays().remove(mTrackOverlay);
         mTrackOverlay = null;
         if (track == null || track.getSize() == 0) {
             LogHelper.i(LOG_TAG, "Waiting for a track. Showing preliminary location.");
@@ -637,71 +687,73 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
 
     }
 
-    private void drawTrackPathOverlay(Polyline track) {
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void displayAllTracks() {
+        // Function for drawing all tracks within the visible part of the map as an overlay
 
-        Polyline path = null;
-        if (track == null || track.getPoints().size() == 0) {
-            LogHelper.i(LOG_TAG, "Waiting for a track. Showing preliminary location.");
-            mTrackOverlay = MapHelper.createMyLocationOverlay(mActivity, mCurrentBestLocation, false, mTrackerServiceRunning);
-            mMapView.getOverlays().add(mTrackOverlay);
-            Toast.makeText(mActivity, mActivity.getString(R.string.toast_message_acquiring_location), Toast.LENGTH_LONG).show();
-        } else {
-            LogHelper.v(LOG_TAG, "Drawing track path overlay.");
-            path = track;
+        if (pathsCache == null) {
+            pathsCache = new HashMap<>();
         }
 
-        mMapView.getOverlays().add(path);
-
+        // Query the track index in background - paths already in the cache are not loaded again
+        BoundingBox boundingBox = mMapView.getBoundingBox();
+        mLoadTrackPathsTask = new LoadTrackPathsAsyncHelper(boundingBox, new HashSet<>(pathsCache.keySet()));
+        mLoadTrackPathsTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     @RequiresApi(api = Build.VERSION_CODES.O)
-    private void displayAllTracks() {
-        // Function for drawing all tracks as an overlay to the map fragment
-
-        if(tracksCache == null || tracksCache.isEmpty()) {
-            // If cache is not loaded, load all tracks from filesystem
-            LogHelper.v(LOG_TAG, "Initializing all tracks cache");
-            tracksCache = loadAllTracks();
-        }
-        // If there exists no cache with paths or paths cache and total number of tracks does not
-        // match ..
-        if(pathsCache == null || pathsCache.size() != tracksCache.size()) {
-            LogHelper.v(LOG_TAG, "Trying to draw all overlays onto map");
-            pathsCache = new ArrayList<>();
-            for (Track track : tracksCache) {
-                // Assign a random color to a path
-                Math.random();
-                float r = (float) (Math.random()) * 255 + 1;
-                float g = (float) (Math.random()) * 255 + 1;
-                float b = (float) (Math.random()) * 255 + 1;
-
-                Color pathColor = Color.valueOf(r, g, b);
-
-                Polyline newPath = MapHelper.createOverlayPath(track);
-                newPath.setColor(pathColor.toArgb());
-                pathsCache.add(newPath);
+    private void drawAllTracks(List<TrackSummary> trackSummaries) {
+        LogHelper.v(LOG_TAG, "Trying to draw " + trackSummaries.size() + " track overlays onto map");
+
+        for (TrackSummary trackSummary : trackSummaries) {
+            TrackPathOverlay path = pathsCache.get(trackSummary.getFileName());
+            if (path == null) {
+                continue;
+            }
+            // Simplify path for current zoom level and clip it to the visible part of the map
+            path.update(mMapView);
+            // Draw track as an overlay - if it is not already on the map
+            if (!mMapView.getOverlays().contains(path)) {
+                mMapView.getOverlays().add(path);
             }
         }
-        // Draw all tracks as an overlay
-        for(Polyline path : pathsCache) {
-            drawTrackPathOverlay(path);
-        }
+        mMapView.invalidate();
     }
 
-    private List<Track> loadAllTracks() {
-        // Create a storage helper for loading track files
-        StorageHelper storageHelper = new StorageHelper(mActivity);
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private TrackPathOverlay createTrackPath(SimplifiedPath simplifiedPath) {
+        // Assign a random color to a path
+        float r = (float) (Math.random()) * 255 + 1;
+        float g = (float) (Math.random()) * 255 + 1;
+        float b = (float) (Math.random()) * 255 + 1;
 
-        File[] listOfTrackbookFiles = storageHelper.getListOfTrackbookFiles();
-        List<Track> loadedTracks = new ArrayList<>();
+        Color pathColor = Color.valueOf(r, g, b);
+
+        return new TrackPathOverlay(simplifiedPath, pathColor.toArgb());
+    }
 
-        LogHelper.v(LOG_TAG, "Trying to all tracks from file system");
-        // Try and read all track files into memory
-        for(File trackbookFile : listOfTrackbookFiles) {
-            loadedTracks.add(storageHelper.loadTrack(trackbookFile));
-        }
 
-        return loadedTracks;
+    /* Creates listener that draws the tracks of all recordings when the visible part of the map changes */
+    private MapListener createViewportChangedListener() {
+        return new DelayedMapListener(new MapListener() {
+            @Override
+            public boolean onScroll(ScrollEvent event) {
+                return updateAllTracks();
+            }
+
+            @Override
+            public boolean onZoom(ZoomEvent event) {
+                return updateAllTracks();
+            }
+
+            private boolean updateAllTracks() {
+                if (tracksOverlayVisible && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    displayAllTracks();
+                    return true;
+                }
+                return false;
+            }
+        }, VIEWPORT_CHANGED_DELAY);
     }
 
 
@@ -730,26 +782,75 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
     }
 
 
-    /* Creates receiver for new WayPoints */
-    private BroadcastReceiver createTrackUpdatedReceiver() {
-        return new BroadcastReceiver() {
+    /* Creates callback that clears the track once it has been saved */
+    private PersistenceScheduler.Callback createSaveTrackCallback() {
+        return new PersistenceScheduler.Callback() {
             @Override
-            public void onReceive(Context context, Intent intent) {
-                if (intent.hasExtra(EXTRA_TRACK) && intent.hasExtra(EXTRA_LAST_LOCATION)) {
-                    // draw track on map
-                    mTrack = intent.getParcelableExtra(EXTRA_TRACK);
-                    drawTrackOverlay(mTrack);
-                    // center map over last location
-                    mCurrentBestLocation = intent.getParcelableExtra(EXTRA_LAST_LOCATION);
+            public void onFinished(boolean success) {
+                // clear track object
+                LogHelper.v(LOG_TAG, "Saving finished.");
+                mTrack = null;
+                mTrackUpdateSequence = -1;
+
+                // notify track fragment that save is finished
+                Intent i = new Intent();
+                i.setAction(ACTION_TRACK_SAVE);
+                i.putExtra(EXTRA_SAVE_FINISHED, true);
+                LocalBroadcastManager.getInstance(mActivity).sendBroadcast(i);
+            }
+        };
+    }
+
+
+    /* Creates listener for new WayPoints */
+    private TrackerService.TrackUpdateListener createTrackUpdateListener() {
+        return new TrackerService.TrackUpdateListener() {
+            @Override
+            public void onTrackUpdated(TrackUpdate update, Location lastLocation) {
+                if (update.isSnapshot()) {
+                    // take over complete track
+                    mTrack = update.toTrack();
+                } else if (mTrack != null && update.follows(mTrackUpdateSequence)) {
+                    // append new WayPoints
+                    mTrack.applyUpdate(update);
+                } else {
+                    // missed an update - request complete track
+                    LogHelper.w(LOG_TAG, "Missed track update " + (mTrackUpdateSequence + 1) + ". Requesting complete track.");
+                    mTrackUpdateSequence = -1;
+                    if (mTrackerServiceBinder != null) {
+                        mTrackerServiceBinder.requestTrackSnapshot(this);
+                    }
+                    return;
+                }
+                mTrackUpdateSequence = update.getSequence();
+                // draw track on map
+                drawTrackOverlay(mTrack);
+                // center map over last location
+                if (lastLocation != null) {
+                    mCurrentBestLocation = lastLocation;
                     mController.setCenter(convertToGeoPoint(mCurrentBestLocation));
-                    // clear intent
-                    intent.setAction(ACTION_DEFAULT);
                 }
             }
         };
     }
 
 
+    /* Defines callbacks for service binding */
+    private final ServiceConnection mTrackerServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName className, IBinder service) {
+            mTrackerServiceBinder = (TrackerService.LocalBinder) service;
+            mTrackerServiceBinder.addTrackUpdateListener(mTrackUpdateListener);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName className) {
+            mTrackerServiceBinder = null;
+            mTrackUpdateSequence = -1;
+        }
+    };
+
+
     /* Converts Location to GeoPoint */
     private GeoPoint convertToGeoPoint (Location location) {
         if (location != null) {
@@ -808,30 +909,35 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
 
 
     /**
-     * Inner class: Saves track to external storage using AsyncTask
+     * Inner class: Loads track from external storage using AsyncTask
      */
-    private class SaveTrackAsyncHelper extends AsyncTask<Void, Void, Void> {
+    private class LoadTempTrackAsyncHelper extends AsyncTask<Void, Void, Track> {
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            LogHelper.v(LOG_TAG, "Saving track object in background.");
-            // save track object
-            mStorageHelper.saveTrack(mTrack, FILE_MOST_CURRENT_TRACK);
-            return null;
+        protected Track doInBackground(Void... voids) {
+            LogHelper.v(LOG_TAG, "Loading temporary track object in background.");
+            // load track object
+            return mStorageHelper.loadTrack(FILE_TEMP_TRACK);
         }
 
         @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            // clear track object
-            LogHelper.v(LOG_TAG, "Saving finished.");
-            mTrack = null;
+        protected void onPostExecute(Track track) {
+            super.onPostExecute(track);
+            LogHelper.v(LOG_TAG, "Loading finished.");
+
+            // keep track received from TrackerService - it is more recent
+            if (mTrackUpdateSequence >= 0) {
+                return;
+            }
+
+            // draw track on map
+            mTrack = track;
+            if (mTrack != null) {
+                drawTrackOverlay(mTrack);
+            }
 
-            // notify track fragment that save is finished
-            Intent i = new Intent();
-            i.setAction(ACTION_TRACK_SAVE);
-            i.putExtra(EXTRA_SAVE_FINISHED, true);
-            LocalBroadcastManager.getInstance(mActivity).sendBroadcast(i);
+            // delete temp file
+//            mStorageHelper.deleteTempFile(); // todo check if necessary
         }
     }
     /**
@@ -840,34 +946,59 @@ public class MainActivityMapFragment extends Fragment implements TrackbookKeys {
 
 
     /**
-     * Inner class: Loads track from external storage using AsyncTask
+     * Inner class: Loads the tracks intersecting with the visible part of the map using AsyncTask
      */
-    private class LoadTempTrackAsyncHelper extends AsyncTask<Void, Void, Void> {
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private class LoadTrackPathsAsyncHelper extends AsyncTask<Void, Void, List<TrackSummary>> {
+
+        private final BoundingBox mBoundingBox;
+        private final Set<String> mCachedFileNames;
+        private final Map<String, SimplifiedPath> mLoadedPaths = new HashMap<>();
+
+        LoadTrackPathsAsyncHelper(BoundingBox boundingBox, Set<String> cachedFileNames) {
+            mBoundingBox = boundingBox;
+            mCachedFileNames = cachedFileNames;
+        }
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            LogHelper.v(LOG_TAG, "Loading temporary track object in background.");
-            // load track object
-            mTrack = mStorageHelper.loadTrack(FILE_TEMP_TRACK);
-            return null;
+        protected List<TrackSummary> doInBackground(Void... voids) {
+            // Query the track index for tracks intersecting with the visible part of the map
+            List<TrackSummary> trackSummaries = mStorageHelper.getTrackSummaries(mBoundingBox.getLatNorth(), mBoundingBox.getLonEast(), mBoundingBox.getLatSouth(), mBoundingBox.getLonWest());
+            for (TrackSummary trackSummary : trackSummaries) {
+                // Load path only once - only the coordinates are read from the track file
+                if (mCachedFileNames.contains(trackSummary.getFileName())) {
+                    continue;
+                }
+                int size = trackSummary.getSize();
+                double[] latitudes = new double[size];
+                double[] longitudes = new double[size];
+                if (mStorageHelper.loadTrackCoordinates(trackSummary, latitudes, longitudes)) {
+                    mLoadedPaths.put(trackSummary.getFileName(), new SimplifiedPath(latitudes, longitudes, size));
+                }
+            }
+            return trackSummaries;
         }
 
         @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            LogHelper.v(LOG_TAG, "Loading finished.");
+        protected void onPostExecute(List<TrackSummary> trackSummaries) {
+            super.onPostExecute(trackSummaries);
 
-            // draw track on map
-            if (mTrack != null) {
-                drawTrackOverlay(mTrack);
+            // keep loaded paths - even if the map has moved on in the meantime
+            for (Map.Entry<String, SimplifiedPath> loadedPath : mLoadedPaths.entrySet()) {
+                if (!pathsCache.containsKey(loadedPath.getKey())) {
+                    pathsCache.put(loadedPath.getKey(), createTrackPath(loadedPath.getValue()));
+                }
             }
 
-            // delete temp file
-//            mStorageHelper.deleteTempFile(); // todo check if necessary
+            // draw tracks - unless a newer request is pending or the overlay has been switched off
+            if (mLoadTrackPathsTask == this && tracksOverlayVisible && mMapView != null) {
+                mLoadTrackPathsTask = null;
+                drawAllTracks(trackSummaries);
+            }
         }
     }
     /**
      * End of inner class
      */
 
-}
\ No newline at end of file
+}
@@ -21,7 +21,6 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.location.Location;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
@@ -53,24 +52,29 @@ import org.osmdroid.api.IMapController;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
-import org.osmdroid.views.overlay.ItemizedIconOverlay;
 import org.osmdroid.views.overlay.Polyline;
 import org.osmdroid.views.overlay.TilesOverlay;
 import org.osmdroid.views.overlay.compass.CompassOverlay;
 import org.osmdroid.views.overlay.compass.InternalCompassOrientationProvider;
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.LogHelper;
 import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackCodec;
 import org.y20k.trackbook.helpers.DialogHelper;
 import org.y20k.trackbook.helpers.DropdownAdapter;
 import org.y20k.trackbook.helpers.ExportHelper;
 import org.y20k.trackbook.helpers.LengthUnitHelper;
 import org.y20k.trackbook.helpers.LocationHelper;
-import org.y20k.trackbook.helpers.LogHelper;
 import org.y20k.trackbook.helpers.MapHelper;
 import org.y20k.trackbook.helpers.NightModeHelper;
 import org.y20k.trackbook.helpers.StorageHelper;
 import org.y20k.trackbook.helpers.TrackbookKeys;
+import org.y20k.trackbook.layout.TrackCrumbOverlay;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.util.Locale;
 
@@ -78,7 +82,7 @@ import java.util.Locale;
 /**
  * MainActivityTrackFragment class
  */
-public class MainActivityTrackFragment extends Fragment implements AdapterView.OnItemSelectedListener, TrackbookKeys {
+public class MainActivityTrackFragment extends Fragment implements AdapterView.OnItemSelectedListener, DropdownAdapter.RefreshListener, TrackbookKeys {
 
     /* Define log tag */
     private static final String LOG_TAG = MainActivityTrackFragment.class.getSimpleName();
@@ -90,7 +94,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
     private MapView mMapView;
     private LinearLayout mOnboardingView;
     private IMapController mController;
-    private ItemizedIconOverlay mTrackOverlay;
+    private TrackCrumbOverlay mTrackOverlay;
     private DropdownAdapter mDropdownAdapter;
     private ConstraintLayout mTrackManagementLayout;
     private Spinner mDropdown;
@@ -110,6 +114,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
     private Group mStatisticsHeaderViews;
     private BottomSheetBehavior mStatisticsSheetBehavior;
     private int mCurrentTrack;
+    private boolean mSelectFirstTrackOnRefresh;
     private Track mTrack;
     private BroadcastReceiver mTrackSavedReceiver;
     private Polyline mTrackPathOverlay;
@@ -139,7 +144,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
         }
 
         // create drop-down adapter
-        mDropdownAdapter = new DropdownAdapter(mActivity);
+        mDropdownAdapter = new DropdownAdapter(mActivity, this);
 
         // listen for finished save operation
         mTrackSavedReceiver = new BroadcastReceiver() {
@@ -148,14 +153,9 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
                 if (intent.hasExtra(EXTRA_SAVE_FINISHED) && intent.getBooleanExtra(EXTRA_SAVE_FINISHED, false)) {
                     LogHelper.v(LOG_TAG, "Save operation detected. Start loading the new track.");
 
-                    // update dropdown menu (and load track in onItemSelected)
+                    // update dropdown menu (and load track in onItemSelected) - see onRefreshed
+                    mSelectFirstTrackOnRefresh = true;
                     mDropdownAdapter.refresh();
-                    mDropdownAdapter.notifyDataSetChanged();
-                    mDropdown.setAdapter(mDropdownAdapter);
-                    mDropdown.setSelection(0, true);
-
-                    // remove onboarding if necessary
-                    switchOnboardingLayout();
                 }
             }
         };
@@ -245,7 +245,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
         // display map and statistics
         if (savedInstanceState != null) {
             // get track from saved instance and display map and statistics
-            mTrack = savedInstanceState.getParcelable(INSTANCE_TRACK_TRACK_MAP);
+            mTrack = decodeTrack(savedInstanceState.getByteArray(INSTANCE_TRACK_TRACK_MAP));
             displayTrack();
         } else if (mTrack == null) {
             // load track and display map and statistics
@@ -334,12 +334,32 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
     }
 
 
+    @Override
+    public void onRefreshed() {
+        // views may not exist yet - onViewCreated and onResume use the loaded list
+        if (mDropdown == null || !isAdded()) {
+            return;
+        }
+
+        // update dropdown menu (and load track in onItemSelected)
+        mDropdown.setAdapter(mDropdownAdapter);
+        if (mSelectFirstTrackOnRefresh && !mDropdownAdapter.isEmpty()) {
+            mDropdown.setSelection(0, true);
+            mCurrentTrack = 0;
+        }
+        mSelectFirstTrackOnRefresh = false;
+
+        // show or remove onboarding if necessary
+        switchOnboardingLayout();
+    }
+
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         outState.putDouble(INSTANCE_LATITUDE_TRACK_MAP, mMapView.getMapCenter().getLatitude());
         outState.putDouble(INSTANCE_LONGITUDE_TRACK_MAP, mMapView.getMapCenter().getLongitude());
         outState.putDouble(INSTANCE_ZOOM_LEVEL_TRACK_MAP, mMapView.getZoomLevelDouble());
-        outState.putParcelable(INSTANCE_TRACK_TRACK_MAP, mTrack);
+        outState.putByteArray(INSTANCE_TRACK_TRACK_MAP, encodeTrack(mTrack));
         outState.putInt(INSTANCE_CURRENT_TRACK, mCurrentTrack);
         super.onSaveInstanceState(outState);
     }
@@ -376,7 +396,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
 
         if (mTrack != null && mTrack.getSize() > 0) {
             // set end of track as position
-            Location lastLocation = mTrack.getWayPointLocation(mTrack.getSize() -1);
+            GeoFix lastLocation = mTrack.getWayPointFix(mTrack.getSize() -1);
             position = new GeoPoint(lastLocation.getLatitude(), lastLocation.getLongitude());
 
             String recordingStart = DateFormat.getDateInstance(DateFormat.SHORT, Locale.getDefault()).format(mTrack.getRecordingStart()) + " " +
@@ -394,7 +414,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
             displayCurrentLengthUnits();
             // populate other views
             double speed = (mTrack.getTrackDistance()/1000)/(mTrack.getTrackDuration()/60);
-            mWaypointsView.setText(String.valueOf(mTrack.getWayPoints().size()));
+            mWaypointsView.setText(String.valueOf(mTrack.getSize()));
             mDurationView.setText(LocationHelper.convertToReadableTime(mTrack.getTrackDuration(), true));
             mRecordingStartView.setText(recordingStart);
             mRecordingStopView.setText(recordingStop);
@@ -430,6 +450,36 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
     }
     
 
+    /* Encodes track for the saved instance state - null if there is no track */
+    private byte[] encodeTrack(Track track) {
+        if (track == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TrackCodec.encode(track, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to save track to instance state: " + e);
+            return null;
+        }
+    }
+
+
+    /* Decodes track from the saved instance state - null if there is no track */
+    private Track decodeTrack(byte[] encodedTrack) {
+        if (encodedTrack == null) {
+            return null;
+        }
+        try {
+            return TrackCodec.decode(new ByteArrayInputStream(encodedTrack), encodedTrack.length).toTrack();
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to restore track from instance state: " + e);
+            return null;
+        }
+    }
+
+
     /* Draws track onto overlay */
     private void drawTrackOverlay(Track track) {
         mMapView.getOverlays().remove(mTrackOverlay);
@@ -440,7 +490,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
 
     /* show the onboarding layout, if no track has been recorded yet */
     private void switchOnboardingLayout() {
-        if (mDropdownAdapter.isEmpty()){
+        if (mDropdownAdapter.isLoaded() && mDropdownAdapter.isEmpty()){
             // show onboarding layout
             mMapView.setVisibility(View.GONE);
             mOnboardingView.setVisibility(View.VISIBLE);
@@ -496,23 +546,13 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
     /* Deletes currently visible track */
     private void deleteCurrentTrack() {
 
-        // delete track file and refresh dropdown adapter
-        if (mDropdownAdapter.getItem(mCurrentTrack).getTrackFile().delete()) {
+        // delete track file (and its index entry) and refresh dropdown adapter - shows the next track or the onboarding, see onRefreshed
+        StorageHelper storageHelper = StorageHelper.getInstance(mActivity);
+        if (storageHelper.deleteTrack(mDropdownAdapter.getItem(mCurrentTrack).getTrackFile())) {
+            mSelectFirstTrackOnRefresh = true;
             mDropdownAdapter.refresh();
-            mDropdownAdapter.notifyDataSetChanged();
-            mDropdown.setAdapter(mDropdownAdapter);
         } else {
             LogHelper.e(LOG_TAG, "Unable to delete recording.");
-            return;
-        }
-
-        if (mDropdownAdapter.isEmpty()) {
-            // show onboarding
-            switchOnboardingLayout();
-        } else {
-            // show next track
-            mDropdown.setSelection(0, true);
-            mCurrentTrack = 0;
         }
 
     }
@@ -701,7 +741,7 @@ public class MainActivityTrackFragment extends Fragment implements AdapterView.O
         protected Void doInBackground(Integer... ints) {
             LogHelper.v(LOG_TAG, "Loading track object in background.");
 
-            StorageHelper storageHelper = new StorageHelper(mActivity);
+            StorageHelper storageHelper = StorageHelper.getInstance(mActivity);
             if (ints.length > 0) {
                 // get track file from dropdown adapter
                 int item = ints[0];
@@ -18,7 +18,8 @@ package org.y20k.trackbook;
 
 import android.app.Application;
 
-import org.y20k.trackbook.helpers.LogHelper;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.helpers.AndroidLogSink;
 import org.y20k.trackbook.helpers.NightModeHelper;
 
 
@@ -35,6 +36,9 @@ public class Trackbook extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // send log messages to the Android log - verbose and debug messages only in debug versions
+        LogHelper.setSink(new AndroidLogSink(), BuildConfig.DEBUG);
+
         // set Day / Night theme state
         NightModeHelper.restoreSavedState(this);
 
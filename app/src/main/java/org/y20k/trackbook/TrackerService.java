@@ -16,8 +16,6 @@
 
 package org.y20k.trackbook;
 
-import android.app.Notification;
-import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -25,31 +23,39 @@ import android.content.SharedPreferences;
 import android.database.ContentObserver;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
-import android.location.Address;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
-import android.os.AsyncTask;
 import android.os.Binder;
 import android.os.Bundle;
-import android.os.CountDownTimer;
 import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.widget.Toast;
 
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.PipelineMetrics;
+import org.y20k.trackbook.core.SamplingController;
+import org.y20k.trackbook.core.StepCounter;
 import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackRecorder;
+import org.y20k.trackbook.core.TrackUpdate;
+import org.y20k.trackbook.helpers.AddressResolver;
 import org.y20k.trackbook.helpers.LocationHelper;
-import org.y20k.trackbook.helpers.LogHelper;
-import org.y20k.trackbook.helpers.NotificationHelper;
+import org.y20k.trackbook.helpers.NotificationController;
+import org.y20k.trackbook.helpers.PersistenceScheduler;
+import org.y20k.trackbook.helpers.RecordingEngine;
 import org.y20k.trackbook.helpers.StorageHelper;
 import org.y20k.trackbook.helpers.TrackbookKeys;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import androidx.core.app.NotificationCompat;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import static android.hardware.Sensor.TYPE_STEP_COUNTER;
@@ -57,8 +63,12 @@ import static android.hardware.Sensor.TYPE_STEP_COUNTER;
 
 /**
  * TrackerService class
+ *
+ * The recording runs on the thread of a RecordingEngine: public methods post to
+ * it, location and sensor callbacks are delivered to it. TrackUpdateListeners
+ * are managed and called on the main thread.
  */
-public class TrackerService extends Service implements TrackbookKeys, SensorEventListener {
+public class TrackerService extends Service implements TrackbookKeys, SensorEventListener2 {
 
     /* Define log tag */
     private static final String LOG_TAG = TrackerService.class.getSimpleName();
@@ -66,21 +76,23 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
 
     /* Main class variables */
     private Track mTrack;
-    private CountDownTimer mTimer;
+    private RecordingEngine mRecordingEngine;
+    private Handler mMainHandler;
     private LocationManager mLocationManager;
     private SensorManager mSensorManager;
-    private float mStepCountOffset;
+    private StepCounter mStepCounter;
+    private boolean mStepCounterRegistered;
     private LocationListener mGPSListener = null;
     private LocationListener mNetworkListener = null;
+    private TrackRecorder mTrackRecorder;
     private SettingsContentObserver mSettingsContentObserver;
-    private Location mCurrentBestLocation;
-    private Address mcurrentBestAdress;
-    private Notification mNotification;
-    private NotificationCompat.Builder mNotificationBuilder;
-    private NotificationManager mNotificationManager;
+    private NotificationController mNotificationController;
     private boolean mTrackerServiceRunning;
     private boolean mLocationSystemSetting;
-    private boolean mResumedFlag;
+    private final List<TrackUpdateListener> mTrackUpdateListeners = new ArrayList<>();
+    private Track mLastSentTrack;
+    private int mLastSentSize;
+    private long mTrackUpdateSequence;
 
     private final IBinder mBinder = new LocalBinder(); // todo move to onCreate
 
@@ -89,9 +101,8 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     public void onCreate() {
         super.onCreate();
 
-        // prepare notification channel and get NotificationManager
-        mNotificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        NotificationHelper.createNotificationChannel(this);
+        // prepare notification channel and controller
+        mNotificationController = new NotificationController(this);
 
         // acquire reference to Location Manager
         mLocationManager = (LocationManager) this.getSystemService(Context.LOCATION_SERVICE);
@@ -102,11 +113,12 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
         // get state of location system setting
         mLocationSystemSetting = LocationHelper.checkLocationSystemSetting(getApplicationContext());
 
-        // create content observer for changes in System Settings
-        mSettingsContentObserver = new SettingsContentObserver(new Handler());
+        // start recording thread - and keep a handler for delivering updates on the main thread
+        mRecordingEngine = new RecordingEngine();
+        mMainHandler = new Handler(Looper.getMainLooper());
 
-        // initialize the resume flag
-        mResumedFlag = false;
+        // create content observer for changes in System Settings
+        mSettingsContentObserver = new SettingsContentObserver(mRecordingEngine.getHandler());
     }
 
 
@@ -165,9 +177,18 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     public void onDestroy() {
         LogHelper.v(LOG_TAG, "onDestroy called.");
 
-        if (mTrackerServiceRunning) {
-            stopTracking();
-        }
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mTrackerServiceRunning) {
+                    stopTrackingOnRecordingThread();
+                }
+            }
+        });
+        mRecordingEngine.quit();
+
+        // a step counter flush may still be pending - its completion would go to the stopped thread
+        mSensorManager.unregisterListener(this);
 
         // remove TrackerService from foreground state
         stopForeground(true);
@@ -178,16 +199,21 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
 
     @Override
     public void onSensorChanged(SensorEvent sensorEvent) {
-        // save the step count offset (steps previously recorded by the system) and subtract any steps recorded during this session in case the app was killed
-        if (mStepCountOffset == 0) {
-            mStepCountOffset = (sensorEvent.values[0] - 1) - mTrack.getStepCount();
+        // only register the reading - steps are folded into the track on the next tick
+        if (mStepCounter != null) {
+            mStepCounter.onReading(sensorEvent.values[0], SystemClock.elapsedRealtime());
         }
+    }
 
-        // calculate step count
-        float stepCount = sensorEvent.values[0] - mStepCountOffset;
 
-        // set step count in track
-        mTrack.setStepCount(stepCount);
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        // batched readings of a stopped recording have arrived - fold them in and stop counting
+        if (!mTrackerServiceRunning && mStepCounterRegistered) {
+            stopStepCounter();
+            foldStepCount();
+            sendTrackUpdate();
+        }
     }
 
 
@@ -196,22 +222,56 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
 
     }
 
-    private Address getCurrentAddress() throws Exception {
-        // Try and get the street address
-        if(mCurrentBestLocation != null) {
-            double latitude = mCurrentBestLocation.getLatitude();
-            double longitude = mCurrentBestLocation.getLongitude();
-            return LocationHelper.getCurrentAddress(this.getBaseContext(), latitude, longitude);
-        } else {
-            // ! :((
-            throw new Exception("Could not find street adress!");
-        }
+    /* Start tracking location */
+    public void startTracking(final Location lastLocation) {
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                startTrackingOnRecordingThread(lastLocation);
+            }
+        });
+    }
+
 
+    /* Resume tracking after stop/pause */
+    public void resumeTracking(final Location lastLocation) {
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                resumeTrackingOnRecordingThread(lastLocation);
+            }
+        });
     }
 
 
-    /* Start tracking location */
-    public void startTracking(Location lastLocation) {
+    /* Stop tracking location */
+    public void stopTracking() {
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                stopTrackingOnRecordingThread();
+            }
+        });
+    }
+
+
+    /* Dismiss notification */
+    public void dismissNotification() {
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                // save state
+                saveTrackerServiceState(mTrackerServiceRunning, FAB_STATE_DEFAULT);
+                // cancel notification
+                mNotificationController.cancel(); // todo check if necessary?
+                stopForeground(true);
+            }
+        });
+    }
+
+
+    /* Starts a new recording - runs on recording thread */
+    private void startTrackingOnRecordingThread(Location lastLocation) {
         if (mLocationSystemSetting) {
             LogHelper.v(LOG_TAG, "Start tracking");
 
@@ -219,50 +279,41 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
             mTrack = new Track();
 
             // get last location
-            if (lastLocation != null) {
-                mCurrentBestLocation = lastLocation;
-            } else {
-                mCurrentBestLocation = LocationHelper.determineLastKnownLocation(mLocationManager);
-            }
-
-            // Try and get the street address
-            try {
-                mcurrentBestAdress = getCurrentAddress();
-                LogHelper.v(LOG_TAG, "Starting street address: " + mcurrentBestAdress);
-                mTrack.setmStartAdress(mcurrentBestAdress.getAddressLine(0));
-            } catch (Exception e) {
-                LogHelper.v(LOG_TAG, "Could not get current street address :" + e);
+            if (lastLocation == null) {
+                lastLocation = LocationHelper.determineLastKnownLocation(mLocationManager);
             }
+            GeoFix lastFix = LocationHelper.toGeoFix(lastLocation);
 
-
+            // look up street address of start
+            resolveAddress(lastFix, true);
 
             // begin recording
-            startMovementRecording();
+            startMovementRecording(lastFix, false);
 
         } else {
             LogHelper.i(LOG_TAG, "Location Setting is turned off.");
-            Toast.makeText(getApplicationContext(), R.string.toast_message_location_offline, Toast.LENGTH_LONG).show();
+            showLocationOfflineToast();
         }
     }
 
 
-    /* Resume tracking after stop/pause */
-    public void resumeTracking(Location lastLocation) {
+    /* Resumes recording after stop/pause - runs on recording thread */
+    private void resumeTrackingOnRecordingThread(Location lastLocation) {
         if (mLocationSystemSetting) {
             LogHelper.v(LOG_TAG, "Recording resumed");
 
-            // switch the resume flag
-            mResumedFlag = true;
-
             // create a new track - if requested
-            StorageHelper storageHelper = new StorageHelper(this);
+            mTrack = null;
+            StorageHelper storageHelper = StorageHelper.getInstance(this);
             if (storageHelper.tempFileExists()) {
-                // load temp track file
+                // replay journal of previous recording
                 mTrack = storageHelper.loadTrack(FILE_TEMP_TRACK);
+            }
+            if (mTrack != null) {
                 // try to mark last waypoint as stopover
                 int lastWayPoint = mTrack.getSize() - 1;
                 if (lastWayPoint >= 0) {
-                    mTrack.getWayPoints().get(lastWayPoint).setIsStopOver(true);
+                    mTrack.setWayPointStopOver(lastWayPoint, true);
                 }
             } else {
                 // fallback, if tempfile did not exist
@@ -270,25 +321,29 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
                 mTrack = new Track();
             }
 
-            // get last location
-            mCurrentBestLocation = lastLocation;
-            // FALLBACK: use last recorded location
-            if (mCurrentBestLocation == null && mTrack.getSize() > 0) {
-                mCurrentBestLocation = mTrack.getWayPointLocation(mTrack.getSize() -1);
-            }
-
-            // begin recording
-            startMovementRecording();
+            // begin recording - the first new WayPoint is marked as stop over
+            startMovementRecording(LocationHelper.toGeoFix(lastLocation), true);
 
         } else {
             LogHelper.i(LOG_TAG, "Location Setting is turned off.");
-            Toast.makeText(getApplicationContext(), R.string.toast_message_location_offline, Toast.LENGTH_LONG).show();
+            showLocationOfflineToast();
         }
     }
 
 
-    /* Stop tracking location */
-    public void stopTracking() {
+    /* Tells the user that location is turned off - toasts need a looper, shown on the main thread */
+    private void showLocationOfflineToast() {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Toast.makeText(getApplicationContext(), R.string.toast_message_location_offline, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+
+    /* Stops recording - runs on recording thread */
+    private void stopTrackingOnRecordingThread() {
         LogHelper.v(LOG_TAG, "Recording stopped");
 
         // catches a bug that leaves the ui in a incorrect state after a crash
@@ -301,33 +356,36 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
         // store current date and time
         mTrack.setRecordingEnd();
 
-        // Store current address
-        try {
-            mcurrentBestAdress = getCurrentAddress();
-        } catch (Exception e) {
-
+        // look up street address of end - fall back to last recorded location
+        GeoFix endLocation = mTrackRecorder.getCurrentBestFix();
+        if (endLocation == null && mTrack.getSize() > 0) {
+            endLocation = mTrack.getWayPointFix(mTrack.getSize() - 1);
         }
-        mTrack.setmEndAdress(mcurrentBestAdress.getAddressLine(0));
+        resolveAddress(endLocation, false);
 
-        // stop timer
-        mTimer.cancel();
+        // stop ticking
+        mRecordingEngine.stopTicking();
+        LogHelper.v(LOG_TAG, "Ticks: " + mRecordingEngine.getTickCount() + ", skipped: " + mRecordingEngine.getSkippedTicks() + ", average delay: " + mRecordingEngine.getAverageJitter() + " ms, maximum delay: " + mRecordingEngine.getMaximumJitter() + " ms");
+        LogHelper.v(LOG_TAG, "Notification posts: " + mNotificationController.getPostCount() + ", skipped updates: " + mNotificationController.getSkippedUpdateCount());
 
-        // broadcast an updated track
-        broadcastTrackUpdate();
+        // fold in the steps received so far
+        foldStepCount();
+
+        // send an updated track
+        sendTrackUpdate();
 
         // save a temp file in case the activity has been killed
-        SaveTempTrackAsyncHelper saveTempTrackAsyncHelper = new SaveTempTrackAsyncHelper();
-        saveTempTrackAsyncHelper.execute();
+        PersistenceScheduler.getInstance(this).saveTrack(mTrack.snapshot(), FILE_TEMP_TRACK, null);
 
         // change notification
         displayNotification(false);
 
-        // reset resume flag
-        mResumedFlag = false;
-
         // remove listeners
         stopFindingLocation();
-        mSensorManager.unregisterListener(this);
+        if (mStepCounterRegistered && !mSensorManager.flush(this)) {
+            // no batched readings to wait for
+            stopStepCounter();
+        }
 
         // disable content observer for changes in System Settings
         this.getContentResolver().unregisterContentObserver(mSettingsContentObserver);
@@ -339,23 +397,30 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     }
 
 
-    /* Dismiss notification */
-    public void dismissNotification() {
-        // save state
-        saveTrackerServiceState(mTrackerServiceRunning, FAB_STATE_DEFAULT);
-        // cancel notification
-        mNotificationManager.cancel(TRACKER_SERVICE_NOTIFICATION_ID); // todo check if necessary?
-        stopForeground(true);
-    }
+    /* Starts to record movements - lastFix may be null */
+    private void startMovementRecording(GeoFix lastFix, boolean resumed) {
+        // initialize step counter - continues with the steps of a resumed track
+        mStepCounter = new StepCounter(mTrack.getStepCount());
 
+        // set up compression of straight stretches
+        float compressionTolerance = PreferenceManager.getDefaultSharedPreferences(this).getFloat(PREFS_COMPRESSION_TOLERANCE, DEFAULT_COMPRESSION_TOLERANCE);
+        mTrack.setCompressionTolerance(compressionTolerance);
 
-    /* Starts to record movements */
-    private void startMovementRecording() {
-        // initialize step counter
-        mStepCountOffset = 0;
+        // set up recording pipeline
+        mTrackRecorder = new TrackRecorder(mTrack, lastFix, resumed, SystemClock.elapsedRealtimeNanos(), new TrackRecorder.Listener() {
+            @Override
+            public void onTrackChanged() {
+                sendTrackUpdate();
+            }
+
+            @Override
+            public void onLocationRequestsChanged() {
+                updateLocationRequests();
+            }
+        });
 
         // add last location as WayPoint to track
-        addWayPointToTrack();
+        mTrackRecorder.addWayPoint(SystemClock.elapsedRealtimeNanos());
 
         // put up notification
         displayNotification(true);
@@ -373,15 +438,17 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
         this.getContentResolver().registerContentObserver(android.provider.Settings.Secure.CONTENT_URI, true, mSettingsContentObserver);
 
         // start service in foreground
-        startForeground(TRACKER_SERVICE_NOTIFICATION_ID, mNotification);
+        startForeground(TRACKER_SERVICE_NOTIFICATION_ID, mNotificationController.getNotification());
     }
 
 
-    /* Registers a step counter listener */
+    /* Registers a step counter listener - readings may be batched for up to one tick, so the sensor does not wake up the device for every step */
     private void startStepCounter() {
-        boolean stepCounterAvailable = mSensorManager.registerListener(this, mSensorManager.getDefaultSensor(TYPE_STEP_COUNTER), SensorManager.SENSOR_DELAY_UI);
-        if (stepCounterAvailable) {
-            LogHelper.v(LOG_TAG, "Pedometer sensor available: Registering listener.");
+        Sensor stepCounter = mSensorManager.getDefaultSensor(TYPE_STEP_COUNTER);
+        int maxReportLatency = (int) (FIFTEEN_SECONDS_IN_MILLISECONDS * 1000L); // microseconds
+        mStepCounterRegistered = stepCounter != null && mSensorManager.registerListener(this, stepCounter, SensorManager.SENSOR_DELAY_NORMAL, maxReportLatency, mRecordingEngine.getHandler());
+        if (mStepCounterRegistered) {
+            LogHelper.v(LOG_TAG, "Pedometer sensor available: Registering listener. Batched readings: " + stepCounter.getFifoMaxEventCount());
         } else {
             LogHelper.i(LOG_TAG, "Pedometer sensor not available.");
             mTrack.setStepCount(-1);
@@ -389,122 +456,159 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     }
 
 
-    /* Set timer to periodically retrieve new locations and to prevent endless tracking */
+    /* Unregisters the step counter listener */
+    private void stopStepCounter() {
+        mSensorManager.unregisterListener(this);
+        mStepCounterRegistered = false;
+        mStepCounter.finishBatch();
+        LogHelper.v(LOG_TAG, "Step counter readings: " + mStepCounter.getReadingCount() + ", wake-ups: " + mStepCounter.getBatchCount() + ", counter resets: " + mStepCounter.getResetCount());
+    }
+
+
+    /* Sets the step count of the track - from the readings received so far */
+    private void foldStepCount() {
+        if (mStepCounter != null && mStepCounter.getReadingCount() > 0) {
+            mTrack.setStepCount(mStepCounter.getSteps());
+        }
+    }
+
+
+    /* Starts ticks that periodically add the current location to the track - no time limit */
     private void startRequestingLocationChanges() {
         final long previouslyRecordedDuration = mTrack.getTrackDuration();
-        mTimer = new CountDownTimer(EIGHT_HOURS_IN_MILLISECONDS, FIFTEEN_SECONDS_IN_MILLISECONDS) {
+        mRecordingEngine.startTicking(FIFTEEN_SECONDS_IN_MILLISECONDS, new RecordingEngine.TickListener() {
             @Override
-            public void onTick(long millisUntilFinished) {
+            public void onTick(long elapsedTime) {
                 // update track duration - and add duration from previously interrupted / paused session
-                long duration = EIGHT_HOURS_IN_MILLISECONDS - millisUntilFinished + previouslyRecordedDuration;
-                mTrack.setDuration(duration);
-                // try to add WayPoint to Track
-                addWayPointToTrack();
+                mTrack.setDuration(elapsedTime + previouslyRecordedDuration);
+                // fold in the batched step counter readings
+                foldStepCount();
+                // combine the fixes received since the last tick - and try to add WayPoint to Track
+                mTrackRecorder.onTick(SystemClock.elapsedRealtimeNanos());
                 // update notification
-                mNotification = NotificationHelper.getUpdatedNotification(TrackerService.this, mNotificationBuilder, mTrack);
-                mNotificationManager.notify(TRACKER_SERVICE_NOTIFICATION_ID, mNotification);
-                // save a temp file in case the service has been killed by the system
-                SaveTempTrackAsyncHelper saveTempTrackAsyncHelper = new SaveTempTrackAsyncHelper();
-                saveTempTrackAsyncHelper.execute();
+                mNotificationController.update(mTrack);
+                // save a temp file in case the service has been killed by the system - replaces a checkpoint that is still pending
+                PersistenceScheduler.getInstance(TrackerService.this).saveTrack(mTrack.snapshot(), FILE_TEMP_TRACK, null);
             }
-
-            @Override
-            public void onFinish() {
-                // stop tracking after eight hours
-                stopTracking();
-            }
-        };
-        mTimer.start();
+        });
     }
 
 
     /* Display notification */
     private void displayNotification(boolean trackingState) {
-        mNotificationBuilder = new NotificationCompat.Builder(this, NOTIFICATION_CHANEL_ID_RECORDING_CHANNEL);
-        mNotification = NotificationHelper.getNotification(this, mNotificationBuilder, mTrack, trackingState);
-        mNotificationManager.notify(TRACKER_SERVICE_NOTIFICATION_ID, mNotification); // todo check if necessary in pre Android O
+        mNotificationController.show(mTrack, trackingState); // todo check if necessary in pre Android O
     }
 
 
-    /* Adds a new WayPoint to current track */
-    private void addWayPointToTrack() {
+    /* Requests location updates as often as the SamplingController suggests */
+    private void updateLocationRequests() {
+        if (mTrackerServiceRunning) {
+            SamplingController samplingController = mTrackRecorder.getSamplingController();
+            LocationHelper.registerLocationListeners(mLocationManager, mGPSListener, mNetworkListener, samplingController.getMinTime(), samplingController.getMinDistance(), mRecordingEngine.getLooper());
+        }
+    }
 
-        boolean success = false;
-        Location previousLocation = null;
-        int trackSize = mTrack.getSize();
 
-        if (trackSize == 0) {
-            // if accurate AND current
-            if (LocationHelper.isAccurate(mCurrentBestLocation) && LocationHelper.isCurrent(mCurrentBestLocation)) {
-                // add first location to track
-                success = mTrack.addWayPoint(previousLocation, mCurrentBestLocation);
-            } else {
-                // just send a broadcast indicating that current location fix not not suited
-                broadcastTrackUpdate();
-            }
-        } else {
-            // get location of previous WayPoint
-            previousLocation = mTrack.getWayPointLocation(trackSize - 1);
-
-            // default value for average speed
-            float averageSpeed = 0f;
-
-            // compute average speed if new location came from network provider
-            if (trackSize > 1 && mCurrentBestLocation.getProvider().equals(LocationManager.NETWORK_PROVIDER)) {
-                Location firstWayPoint = mTrack.getWayPointLocation(0);
-                float distance = firstWayPoint.distanceTo(previousLocation);
-                long timeDifference = previousLocation.getElapsedRealtimeNanos() - firstWayPoint.getElapsedRealtimeNanos();
-                averageSpeed = distance / ((float) timeDifference / ONE_SECOND_IN_NANOSECOND);
+    /* Looks up the street address of given location in the background - fills in start or end address of current track */
+    private void resolveAddress(GeoFix location, final boolean start) {
+        if (location == null) {
+            LogHelper.v(LOG_TAG, "Could not get current street address: no location.");
+            return;
+        }
+        final Track track = mTrack;
+        AddressResolver.getInstance(this).resolve(location.getLatitude(), location.getLongitude(), mRecordingEngine.getHandler(), new AddressResolver.Callback() {
+            @Override
+            public void onAddressResolved(String address) {
+                if (address == null || track != mTrack) {
+                    // lookup failed - or another track is recorded meanwhile
+                    return;
+                }
+                LogHelper.v(LOG_TAG, (start ? "Starting" : "Ending") + " street address: " + address);
+                if (start) {
+                    mTrack.setmStartAdress(address);
+                } else {
+                    mTrack.setmEndAdress(address);
+                }
+                // send an updated track
+                sendTrackUpdate();
+                // save a temp file in case the activity has been killed - a stopped track may already be saved or cleared, its final save waits for the end address itself
+                if (mTrackerServiceRunning) {
+                    PersistenceScheduler.getInstance(TrackerService.this).saveTrack(mTrack.snapshot(), FILE_TEMP_TRACK, null);
+                }
             }
+        });
+    }
 
-            // if accurate AND new
-            if (LocationHelper.isAccurate(mCurrentBestLocation) && LocationHelper.isNewWayPoint(previousLocation, mCurrentBestLocation, averageSpeed)) {
-                // add current best location to track
-                success = mTrack.addWayPoint(previousLocation, mCurrentBestLocation);
-            }
-        }
 
-        if (success) {
-            if (mResumedFlag) {
-                int lastWayPoint = mTrack.getSize() - 2;
-                if (lastWayPoint >= 0) {
-                    // mark last location as stop over
-                    mTrack.getWayPoints().get(lastWayPoint).setIsStopOver(true);
+    /* Sends the changes of the track to all listeners - or the complete track, if it has been replaced - runs on recording thread */
+    private void sendTrackUpdate() {
+        if (mTrack == null) {
+            return;
+        }
+        mTrackUpdateSequence++;
+        final TrackUpdate update;
+        if (mTrack != mLastSentTrack) {
+            update = TrackUpdate.createSnapshot(mTrackUpdateSequence, mTrack);
+        } else {
+            // resend last WayPoint - its stop over status may have changed
+            update = TrackUpdate.createDelta(mTrackUpdateSequence, mTrack, mLastSentSize - 1);
+        }
+        mLastSentTrack = mTrack;
+        mLastSentSize = mTrack.getSize();
+        PipelineMetrics.getInstance().recordTrackUpdate(update.isSnapshot(), update.getWayPoints().size());
+        final Location lastLocation = getCurrentBestLocation();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (TrackUpdateListener listener : new ArrayList<>(mTrackUpdateListeners)) {
+                    listener.onTrackUpdated(update, lastLocation);
                 }
-                mResumedFlag = false;
-            } else {
-                // update distance, if not resumed
-                mTrack.updateDistance(previousLocation, mCurrentBestLocation);
             }
+        });
+    }
 
-            // send local broadcast if new WayPoint was added
-            broadcastTrackUpdate();
-        }
 
+    /* Sends the complete track to given listener - only while recording, a stopped track is handled by its temp file */
+    private void sendTrackSnapshot(final TrackUpdateListener listener) {
+        mRecordingEngine.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mTrack == null || !mTrackerServiceRunning) {
+                    return;
+                }
+                final TrackUpdate update = TrackUpdate.createSnapshot(mTrackUpdateSequence, mTrack);
+                PipelineMetrics.getInstance().recordTrackUpdate(true, update.getWayPoints().size());
+                final Location lastLocation = getCurrentBestLocation();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // listener may have been removed in the meantime
+                        if (mTrackUpdateListeners.contains(listener)) {
+                            listener.onTrackUpdated(update, lastLocation);
+                        }
+                    }
+                });
+            }
+        });
     }
 
 
-    /* Broadcasts a track update */
-    private void broadcastTrackUpdate() {
-        if (mTrack != null) {
-            Intent i = new Intent();
-            i.setAction(ACTION_TRACK_UPDATED);
-            i.putExtra(EXTRA_TRACK, mTrack);
-            i.putExtra(EXTRA_LAST_LOCATION, mCurrentBestLocation);
-            LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(i);
-        }
+    /* Returns the current best location of the recording - null if there is none */
+    private Location getCurrentBestLocation() {
+        return mTrackRecorder != null ? LocationHelper.toLocation(mTrackRecorder.getCurrentBestFix()) : null;
     }
 
 
-    /* Creates a location listener */
+    /* Creates a location listener - fixes are buffered until the next tick */
     private LocationListener createLocationListener() {
         return new LocationListener() {
             public void onLocationChanged(Location location) {
-                // check if the new location is better
-                if (LocationHelper.isBetterLocation(location, mCurrentBestLocation)) {
-                    // save location
-                    mCurrentBestLocation = location;
-                }
+                // keep fix for next tick - fields are copied into the buffer of the recorder
+                mTrackRecorder.onFixReceived(location.getProvider(), location.getLatitude(), location.getLongitude(),
+                        location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                        location.hasAccuracy() ? location.getAccuracy() : Float.NaN,
+                        location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                        location.getTime(), location.getElapsedRealtimeNanos(), LocationHelper.getNumberSatellites(location));
             }
 
             public void onStatusChanged(String provider, int status, Bundle extras) {
@@ -535,7 +639,8 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
             mNetworkListener = createLocationListener();
             mTrackerServiceRunning = true;
         }
-        LocationHelper.registerLocationListeners(mLocationManager, mGPSListener, mNetworkListener);
+        SamplingController samplingController = mTrackRecorder.getSamplingController();
+        LocationHelper.registerLocationListeners(mLocationManager, mGPSListener, mNetworkListener, samplingController.getMinTime(), samplingController.getMinDistance(), mRecordingEngine.getLooper());
         saveTrackerServiceState(mTrackerServiceRunning, FAB_STATE_RECORDING);
 
         // notify MainActivity
@@ -548,6 +653,11 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
         // remove listeners
         LocationHelper.removeLocationListeners(mLocationManager, mGPSListener, mNetworkListener);
         mTrackerServiceRunning = false;
+        if (mTrackRecorder != null) {
+            SamplingController samplingController = mTrackRecorder.getSamplingController();
+            LogHelper.v(LOG_TAG, "Location fixes received: " + samplingController.getFixesReceived() + ", used: " + samplingController.getFixesUsed() + ", request changes: " + samplingController.getRequestChanges());
+            LogHelper.v(LOG_TAG, "Location fixes dropped: gps " + mTrackRecorder.getFixBuffer(GeoFix.PROVIDER_GPS).getFixesDropped() + ", network " + mTrackRecorder.getFixBuffer(GeoFix.PROVIDER_NETWORK).getFixesDropped());
+        }
         saveTrackerServiceState(mTrackerServiceRunning, FAB_STATE_SAVE);
 
         // notify MainActivity
@@ -559,8 +669,6 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     private void broadcastTrackingStateChange() {
         Intent i = new Intent();
         i.setAction(ACTION_TRACKING_STATE_CHANGED);
-        i.putExtra(EXTRA_TRACK, mTrack);
-        i.putExtra(EXTRA_LAST_LOCATION, mCurrentBestLocation);
         i.putExtra(EXTRA_TRACKING_STATE, mTrackerServiceRunning);
         LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(i);
     }
@@ -576,6 +684,17 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
     }
 
 
+    /**
+     * Inner interface: TrackUpdateListener receives the changes of the recorded track on the main thread
+     */
+    public interface TrackUpdateListener {
+        void onTrackUpdated(TrackUpdate update, Location lastLocation);
+    }
+    /**
+     * End of inner interface
+     */
+
+
     /**
      * Inner class: Local Binder that returns this service
      */
@@ -584,6 +703,24 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
             // return this instance of TrackerService so clients can call public methods
             return TrackerService.this;
         }
+
+        /* Registers a listener - it receives the complete track right away */
+        public void addTrackUpdateListener(TrackUpdateListener listener) {
+            if (!mTrackUpdateListeners.contains(listener)) {
+                mTrackUpdateListeners.add(listener);
+            }
+            sendTrackSnapshot(listener);
+        }
+
+        /* Unregisters a listener */
+        public void removeTrackUpdateListener(TrackUpdateListener listener) {
+            mTrackUpdateListeners.remove(listener);
+        }
+
+        /* Requests the complete track - used by a listener that missed an update */
+        public void requestTrackSnapshot(TrackUpdateListener listener) {
+            sendTrackSnapshot(listener);
+        }
     }
     /**
      * End of inner class
@@ -615,7 +752,7 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
             if (previousLocationSystemSetting != mLocationSystemSetting && !mLocationSystemSetting && mTrackerServiceRunning) {
                 LogHelper.v(LOG_TAG, "Location Setting turned off while tracking service running.");
                 if (mTrack != null) {
-                    stopTracking();
+                    stopTrackingOnRecordingThread();
                 }
                 stopForeground(true);
             }
@@ -627,28 +764,4 @@ public class TrackerService extends Service implements TrackbookKeys, SensorEven
      */
 
 
-    /**
-     * Inner class: Saves track to external storage using AsyncTask
-     */
-    private class SaveTempTrackAsyncHelper extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            LogHelper.v(LOG_TAG, "Saving temporary track object in background.");
-            // save track object
-            StorageHelper storageHelper = new StorageHelper(TrackerService.this);
-            storageHelper.saveTrack(mTrack, FILE_TEMP_TRACK);
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            LogHelper.v(LOG_TAG, "Saving finished.");
-        }
-    }
-    /**
-     * End of inner class
-     */
-
 }
\ No newline at end of file
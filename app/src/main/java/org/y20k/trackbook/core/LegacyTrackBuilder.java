@@ -0,0 +1,68 @@
+/**
+ * LegacyTrackBuilder.java
+ * Implements the LegacyTrackBuilder class
+ * A LegacyTrackBuilder reads the JSON track files of earlier versions
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.LocationHelper;
+
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * LegacyTrackBuilder class
+ *
+ * Target of Gson for track files in JSON format (version 1 and 2). The field
+ * names match the files - the WayPoints contain android.location.Location
+ * objects and are converted into a WayPointStore when the track is built.
+ */
+public class LegacyTrackBuilder {
+
+    /* Define log tag */
+    private static final String LOG_TAG = LegacyTrackBuilder.class.getSimpleName();
+
+
+    /* Main class variables */
+    private int mTrackFormatVersion;
+    private List<WayPoint> mWayPoints;
+    private float mTrackLength;
+    private long mDuration;
+    private float mStepCount;
+    private Date mRecordingStart;
+    private Date mRecordingStop;
+    private double mMaxAltitude;
+    private double mMinAltitude;
+    private double mPositiveElevation;
+    private double mNegativeElevation;
+    private String mTrackName;
+    private String mStartAdress;
+    private String mEndAdress;
+
+
+    /* Builds and return a Track object - null if the file format version is unknown */
+    public Track toTrack() {
+        WayPointStore wayPoints = new WayPointStore();
+        if (mWayPoints != null) {
+            for (WayPoint wayPoint : mWayPoints) {
+                GeoFix fix = LocationHelper.toGeoFix(wayPoint.getLocation(), wayPoint.getNumberSatellites());
+                wayPoints.add(fix, wayPoint.getIsStopOver(), wayPoint.getDistanceToStartingPoint());
+            }
+        }
+        return new TrackBuilder(mTrackFormatVersion, wayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, mMaxAltitude, mMinAltitude, mPositiveElevation, mNegativeElevation, mTrackName, mStartAdress, mEndAdress).toTrack();
+    }
+
+}
@@ -17,59 +17,21 @@
 package org.y20k.trackbook.core;
 
 import android.location.Location;
-import android.os.Bundle;
-import android.os.Parcel;
-import android.os.Parcelable;
 
 
 /**
  * WayPoint class
+ *
+ * Data holder for the WayPoints of track files in JSON format (version 1 and
+ * 2) - filled in by Gson and read by LegacyTrackBuilder. Recorded WayPoints
+ * are kept in a WayPointStore.
  */
-public class WayPoint implements Parcelable {
+public class WayPoint {
 
     private Location mLocation;
     private boolean mIsStopOver;
     private float mDistanceToStartingPoint;
-    private final int mNumberSatellites;
-
-    /* Constructor */
-    public WayPoint(Location location, boolean isStopOver, float distanceToStartingPoint) {
-        mLocation = location;
-        mIsStopOver = isStopOver;
-        mDistanceToStartingPoint = distanceToStartingPoint;
-
-        // save number of satellites
-        Bundle extras = location.getExtras();
-        if (extras != null && extras.containsKey("satellites")) {
-            mNumberSatellites = extras.getInt("satellites", 0);
-            mLocation.setExtras(null); // necessary because Location Extras cause cannot be serialized properly by GSON
-        } else {
-            mNumberSatellites = 0;
-        }
-
-    }
-
-    /* Constructor used by CREATOR */
-    protected WayPoint(Parcel in) {
-        mLocation = Location.CREATOR.createFromParcel(in);
-        mIsStopOver = in.readByte() != 0;
-        mDistanceToStartingPoint = in.readFloat();
-        mNumberSatellites = in.readInt();
-    }
-
-
-    /* CREATOR for WayPoint object used to do parcel related operations */
-    public static final Creator<WayPoint> CREATOR = new Creator<WayPoint>() {
-        @Override
-        public WayPoint createFromParcel(Parcel in) {
-            return new WayPoint(in);
-        }
-
-        @Override
-        public WayPoint[] newArray(int size) {
-            return new WayPoint[size];
-        }
-    };
+    private int mNumberSatellites;
 
 
     /* Getter for mLocation */
@@ -90,35 +52,9 @@ public class WayPoint implements Parcelable {
     }
 
 
-    /* Setter for mLocation */
-    public void setLocation(Location location) {
-        mLocation = location;
+    /* Getter for mNumberSatellites */
+    public int getNumberSatellites() {
+        return mNumberSatellites;
     }
 
-
-    /* Setter for mIsStopOver */
-    public void setIsStopOver(boolean isStopOver) {
-        mIsStopOver = isStopOver;
-    }
-
-
-    /* Setter for mDistanceToStartingPoint */
-    public void setDistanceToStartingPoint(float distanceToStartingPoint) {
-        mDistanceToStartingPoint = distanceToStartingPoint;
-    }
-
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-
-    @Override
-    public void writeToParcel(Parcel parcel, int flags) {
-        mLocation.setExtras(null); // necessary because Location Extras cause cannot be serialized properly by GSON
-        mLocation.writeToParcel(parcel, flags);
-        parcel.writeByte((byte) (mIsStopOver ? 1 : 0));
-        parcel.writeFloat(mDistanceToStartingPoint);
-        parcel.writeInt(mNumberSatellites);
-    }
 }
@@ -0,0 +1,237 @@
+/**
+ * AddressResolver.java
+ * Implements the AddressResolver class
+ * An AddressResolver looks up street addresses in the background
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import org.y20k.trackbook.core.AddressCache;
+import org.y20k.trackbook.core.Gazetteer;
+import org.y20k.trackbook.core.LogHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * AddressResolver class
+ *
+ * Lookups run one after another on a background thread. If a gazetteer file
+ * has been placed in the app's external files folder, it answers first - offline
+ * and always with the same result. Otherwise the AddressCache is asked - only
+ * on a miss the Geocoder (a network lookup) is used and its result is added to
+ * the cache. Failed lookups are not cached, so the next lookup at that place
+ * tries again.
+ */
+public final class AddressResolver implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = AddressResolver.class.getSimpleName();
+
+    /* Resolver constants */
+    private static final float MAXIMUM_GAZETTEER_DISTANCE = 100f; // meters - farther streets are not used
+
+
+    /* Callback for resolved addresses - address is null if the lookup failed */
+    public interface Callback {
+        void onAddressResolved(String address);
+    }
+
+
+    /* Main class variables */
+    private static AddressResolver sInstance;
+    private final Context mContext;
+    private final AddressCache mCache;
+    private final File mGazetteerFile;
+    private final Handler mHandler;
+    private Gazetteer mGazetteer;
+    private long mGazetteerModified;
+    private long mRequestCount;
+    private long mGazetteerHitCount;
+    private long mCacheHitCount;
+    private long mFailureCount;
+
+
+    /* Returns the shared AddressResolver */
+    public static synchronized AddressResolver getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AddressResolver(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+
+    /* Constructor */
+    private AddressResolver(Context context) {
+        mContext = context;
+        mCache = new AddressCache(new File(context.getFilesDir(), FILE_NAME_ADDRESS_CACHE));
+        File externalFilesDir = context.getExternalFilesDir(null);
+        mGazetteerFile = new File(externalFilesDir != null ? externalFilesDir : context.getFilesDir(), FILE_NAME_GAZETTEER);
+        HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+
+    /* Looks up the address of given location - callback is posted to given handler */
+    public void resolve(final double latitude, final double longitude, final Handler resultHandler, final Callback callback) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final String address = lookUpAddress(latitude, longitude);
+                resultHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onAddressResolved(address);
+                    }
+                });
+            }
+        });
+    }
+
+
+    /* Looks up the address of given location and waits for it - null if the lookup fails or exceeds given timeout (in milliseconds), do not call on the resolver thread */
+    public String resolve(final double latitude, final double longitude, long timeout) {
+        final AtomicReference<String> address = new AtomicReference<>();
+        final CountDownLatch lookUpFinished = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                address.set(lookUpAddress(latitude, longitude));
+                lookUpFinished.countDown();
+            }
+        });
+        try {
+            if (!lookUpFinished.await(timeout, TimeUnit.MILLISECONDS)) {
+                LogHelper.v(LOG_TAG, "Street address lookup timed out.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return address.get();
+    }
+
+
+    /* Getter for number of lookups */
+    public synchronized long getRequestCount() {
+        return mRequestCount;
+    }
+
+
+    /* Getter for number of lookups answered by the gazetteer */
+    public synchronized long getGazetteerHitCount() {
+        return mGazetteerHitCount;
+    }
+
+
+    /* Getter for number of lookups answered by the cache */
+    public synchronized long getCacheHitCount() {
+        return mCacheHitCount;
+    }
+
+
+    /* Getter for number of failed lookups */
+    public synchronized long getFailureCount() {
+        return mFailureCount;
+    }
+
+
+    /* Getter for share of lookups answered without network - by gazetteer or cache (0 - 1) */
+    public synchronized float getHitRate() {
+        if (mRequestCount == 0) {
+            return 0f;
+        }
+        return (float) (mGazetteerHitCount + mCacheHitCount) / mRequestCount;
+    }
+
+
+    /* Returns the address of given location - from gazetteer, cache or Geocoder, runs on resolver thread */
+    private String lookUpAddress(double latitude, double longitude) {
+        synchronized (this) {
+            mRequestCount++;
+        }
+
+        // try gazetteer
+        Gazetteer gazetteer = getGazetteer();
+        String address = gazetteer != null ? gazetteer.findNearest(latitude, longitude, MAXIMUM_GAZETTEER_DISTANCE) : null;
+        if (address != null) {
+            synchronized (this) {
+                mGazetteerHitCount++;
+            }
+            return address;
+        }
+
+        // try cache
+        address = mCache.get(latitude, longitude);
+        if (address != null) {
+            synchronized (this) {
+                mCacheHitCount++;
+            }
+            return address;
+        }
+
+        // ask Geocoder
+        if (Geocoder.isPresent()) {
+            try {
+                List<Address> addresses = new Geocoder(mContext).getFromLocation(latitude, longitude, 1); // 1 == Max results returned
+                if (addresses != null && !addresses.isEmpty()) {
+                    address = addresses.get(0).getAddressLine(0);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                LogHelper.v(LOG_TAG, "Failed to get street address " + e);
+            }
+        }
+        if (address == null) {
+            synchronized (this) {
+                mFailureCount++;
+            }
+            return null;
+        }
+        mCache.put(latitude, longitude, address);
+        LogHelper.v(LOG_TAG, "Address lookups: " + getRequestCount() + ", answered offline: " + getHitRate());
+        return address;
+    }
+
+
+    /* Returns the gazetteer - (re-)opened if its file has been added or replaced, null if there is none */
+    private Gazetteer getGazetteer() {
+        long modified = mGazetteerFile.lastModified(); // zero if file does not exist
+        if (modified != mGazetteerModified) {
+            mGazetteerModified = modified;
+            mGazetteer = null;
+            if (modified != 0) {
+                try {
+                    mGazetteer = Gazetteer.open(mGazetteerFile);
+                    LogHelper.v(LOG_TAG, "Opened gazetteer with " + mGazetteer.getEntryCount() + " entries.");
+                } catch (IOException e) {
+                    LogHelper.e(LOG_TAG, "Unable to open gazetteer: " + mGazetteerFile.toString());
+                }
+            }
+        }
+        return mGazetteer;
+    }
+
+}
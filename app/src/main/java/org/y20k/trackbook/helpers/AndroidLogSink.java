@@ -0,0 +1,35 @@
+/**
+ * AndroidLogSink.java
+ * Implements the AndroidLogSink class
+ * An AndroidLogSink passes the messages of LogHelper on to the Android log
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.util.Log;
+
+import org.y20k.trackbook.core.LogHelper;
+
+
+/**
+ * AndroidLogSink class
+ */
+public final class AndroidLogSink implements LogHelper.Sink {
+
+    @Override
+    public void log(int priority, String tag, String message) {
+        Log.println(priority, tag, message);
+    }
+
+}
@@ -20,6 +20,7 @@ package org.y20k.trackbook.helpers;
 import android.app.Activity;
 import android.content.res.Resources;
 import android.database.DataSetObserver;
+import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -28,8 +29,8 @@ import android.widget.TextView;
 
 import org.y20k.trackbook.R;
 import org.y20k.trackbook.core.TrackBundle;
+import org.y20k.trackbook.core.TrackSummary;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +40,8 @@ import androidx.appcompat.widget.ThemedSpinnerAdapter;
 
 /**
  * DropdownHelper class
+ *
+ * The list of tracks is loaded in the background - see refresh().
  */
 public class DropdownAdapter extends BaseAdapter implements ThemedSpinnerAdapter, TrackbookKeys {
 
@@ -46,19 +49,29 @@ public class DropdownAdapter extends BaseAdapter implements ThemedSpinnerAdapter
     private static final String LOG_TAG = DropdownAdapter.class.getSimpleName();
 
 
+    /* Callback for a refreshed list of tracks - called on the main thread */
+    public interface RefreshListener {
+        void onRefreshed();
+    }
+
+
     /* Main class variables */
     private final Activity mActivity;
+    private final RefreshListener mRefreshListener;
     private final ThemedSpinnerAdapter.Helper mDropdownAdapterHelper;
     private List<TrackBundle> mTrackBundleList;
+    private boolean mLoaded;
 
 
-    /* Constructor */
-    public DropdownAdapter(Activity activity) {
-        // store activity
+    /* Constructor - starts loading the list of tracks */
+    public DropdownAdapter(Activity activity, RefreshListener refreshListener) {
+        // store activity and listener
         mActivity = activity;
+        mRefreshListener = refreshListener;
 
-        // fill list with track bundles
-        initializeTrackBundleList();
+        // list stays empty until the track bundles are loaded
+        mTrackBundleList = new ArrayList<>();
+        refresh();
 
         // create an adapter helper
         mDropdownAdapterHelper = new ThemedSpinnerAdapter.Helper(activity);
@@ -159,29 +172,48 @@ public class DropdownAdapter extends BaseAdapter implements ThemedSpinnerAdapter
     }
 
 
-    /* Refreshes the adapter data */
+    /* Checks if the list of tracks has been loaded at least once */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+
+    /* Refreshes the adapter data in the background - the listener is called when finished */
     public void refresh() {
-        // re-initialize the adapter's array list
-        initializeTrackBundleList();
+        new LoadTrackBundlesAsyncHelper().execute();
     }
 
 
-    /* Initializes list of track bundles */
-    private void initializeTrackBundleList() {
+    /**
+     * Inner class: Loads the list of track bundles from the index using AsyncTask
+     */
+    private class LoadTrackBundlesAsyncHelper extends AsyncTask<Void, Void, List<TrackBundle>> {
 
-        // get list of files from storage
-        StorageHelper storageHelper = new StorageHelper(mActivity);
-        File files[] = storageHelper.getListOfTrackbookFiles();
+        @Override
+        protected List<TrackBundle> doInBackground(Void... voids) {
+            // get summaries of track files from index
+            StorageHelper storageHelper = StorageHelper.getInstance(mActivity);
+            List<TrackSummary> trackSummaries = storageHelper.getTrackSummaries();
 
-        // fill list with track bundles
-        mTrackBundleList = new ArrayList<>();
-        for (File file : files) {
-            String fileName = file.getName();
-            if (fileName.endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !fileName.startsWith(FILE_NAME_TEMP)) {
-                mTrackBundleList.add(new TrackBundle(file));
+            // fill list with track bundles
+            List<TrackBundle> trackBundleList = new ArrayList<>();
+            for (TrackSummary trackSummary : trackSummaries) {
+                trackBundleList.add(new TrackBundle(storageHelper.getTrackFile(trackSummary), trackSummary));
             }
+            return trackBundleList;
         }
 
+        @Override
+        protected void onPostExecute(List<TrackBundle> trackBundleList) {
+            super.onPostExecute(trackBundleList);
+            mTrackBundleList = trackBundleList;
+            mLoaded = true;
+            notifyDataSetChanged();
+            mRefreshListener.onRefreshed();
+        }
     }
+    /**
+     * End of inner class
+     */
 
 }
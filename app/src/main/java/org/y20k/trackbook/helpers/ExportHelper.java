@@ -18,28 +18,30 @@ package org.y20k.trackbook.helpers;
 
 import android.content.Context;
 import android.content.Intent;
-import android.location.Location;
 import android.os.Environment;
 import android.widget.Toast;
 
 import org.y20k.trackbook.R;
+import org.y20k.trackbook.core.GpxWriter;
+import org.y20k.trackbook.core.LogHelper;
 import org.y20k.trackbook.core.Track;
-import org.y20k.trackbook.core.WayPoint;
+import org.y20k.trackbook.core.TrackJsonAdapter;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
 
 import androidx.core.content.FileProvider;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * ExportHelper class
@@ -49,6 +51,9 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
     /* Define log tag */
     private static final String LOG_TAG = ExportHelper.class.getSimpleName();
 
+    /* Streams tracks as JSON - stateless, shared by all exports */
+    private static final TrackJsonAdapter TRACK_JSON_ADAPTER = new TrackJsonAdapter();
+
 
     /* Checks if a GPX file for given track is already present */
     public static boolean gpxFileExists(Track track) {
@@ -62,11 +67,8 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         // get file for given track
         File gpxFile = createFile(track, getDownloadFolder());
 
-        // get GPX string representation for given track
-        String gpxString = createGpxString(track);
-
         // write GPX file
-        if (writeGpxToFile(gpxString, gpxFile)) {
+        if (writeGpxToFile(track, gpxFile)) {
             String toastMessage = context.getResources().getString(R.string.toast_message_export_success) + " " + gpxFile.toString();
             Toast.makeText(context, toastMessage, Toast.LENGTH_LONG).show();
             return true;
@@ -82,13 +84,8 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         // create file in Cache directory for given track
         File jsonFile = new File(context.getCacheDir(), track.getmTrackName() + ".json");
 
-        // get GPX string representation for given track
-        String jsonString = createJsonString(track);
-
-        LogHelper.v(LOG_TAG, "Saving track to JSON: " + jsonString);
-
         // write JSON file
-        if(writeJSONToFile(jsonString, jsonFile)) {
+        if(writeJSONToFile(track, jsonFile, false)) {
             String toastMessage = context.getResources().getString(R.string.toast_message_export_json_success) + " " + jsonFile.toString();
             Toast.makeText(context, toastMessage, Toast.LENGTH_LONG).show();
             return true;
@@ -99,35 +96,42 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         }
     }
 
-    private static String createJsonString(Track track) {
-        // convert track to JSON
-        Gson gson = getCustomGson();
-        String json = gson.toJson(track);
-        return json;
-    }
+    /* Saves given metrics report to the Download folder */
+    public static boolean exportMetrics(Context context, String report) {
+        // create file named after the current time
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss", Locale.US);
+        File metricsFile = new File(getDownloadFolder(), "trackbook-metrics-" + dateFormat.format(new Date()) + ".txt");
 
-    /*  Creates a Gson object */
-    private static Gson getCustomGson() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.setDateFormat("M/d/yy hh:mm a");
-        return gsonBuilder.create();
+        // write report
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(metricsFile), "UTF-8"))) {
+            LogHelper.v(LOG_TAG, "Saving metrics to external storage: " + metricsFile.toString());
+            writer.write(report);
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to save metrics to external storage (IOException): " + metricsFile.toString());
+            String toastMessage = context.getResources().getString(R.string.toast_message_metrics_dump_fail) + " " + metricsFile.toString();
+            Toast.makeText(context, toastMessage, Toast.LENGTH_LONG).show();
+            return false;
+        }
+        String toastMessage = context.getResources().getString(R.string.toast_message_metrics_dump_success) + " " + metricsFile.toString();
+        Toast.makeText(context, toastMessage, Toast.LENGTH_LONG).show();
+        return true;
     }
 
     /* Creates Intent used to bring up an Android share sheet */
     public static Intent getJSONFileIntent(Context context, Track track) {
+        return getJSONFileIntent(context, track, false);
+    }
+
+    /* Creates Intent used to bring up an Android share sheet - optionally with a gzip compressed file */
+    public static Intent getJSONFileIntent(Context context, Track track, boolean compressed) {
 
         // create file in Cache directory for given track
         //File gpxFile = createFile(track, context.getCacheDir());
 
-        File gpxFile = new File(context.getCacheDir(), "openbikers" + ".json");
-
+        File gpxFile = new File(context.getCacheDir(), "openbikers" + (compressed ? ".json.gz" : ".json"));
 
-        // get GPX string representation for given track
-        //String gpxString = createGpxString(track);
-        String gpxString = createJsonString(track);
-
-        // write GPX file
-        if (writeJSONToFile(gpxString, gpxFile)) {
+        // write JSON file
+        if (writeJSONToFile(track, gpxFile, compressed)) {
             String toastMessage = context.getResources().getString(R.string.toast_message_export_json_success) + " " + gpxFile.toString();
             Toast.makeText(context, toastMessage, Toast.LENGTH_LONG).show();
         } else {
@@ -139,8 +143,9 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         String authority = "org.y20k.trackbook.exporthelper.provider";
         Intent intent = new Intent();
         intent.setAction(Intent.ACTION_SEND);
-        intent.setDataAndType(FileProvider.getUriForFile(context, authority, gpxFile), "application/gpx+xml");
-        intent.setType("application/gpx+xml");
+        String mimeType = compressed ? "application/gzip" : "application/gpx+xml";
+        intent.setDataAndType(FileProvider.getUriForFile(context, authority, gpxFile), mimeType);
+        intent.setType(mimeType);
         intent.putExtra(Intent.EXTRA_STREAM, FileProvider.getUriForFile(context, authority, gpxFile));
 
         return intent;
@@ -177,12 +182,12 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
     }
 
 
-    /* Writes given GPX string to given file */
-    private static boolean writeGpxToFile (String gpxString, File gpxFile) {
+    /* Streams given track as GPX to given file */
+    private static boolean writeGpxToFile (Track track, File gpxFile) {
         // write track
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(gpxFile))) {
+        try (OutputStream out = new FileOutputStream(gpxFile)) {
             LogHelper.v(LOG_TAG, "Saving track to external storage: " + gpxFile.toString());
-            bw.write(gpxString);
+            new GpxWriter(out).write(track);
             return true;
         } catch (IOException e) {
             LogHelper.e(LOG_TAG, "Unable to saving track to external storage (IOException): " + gpxFile.toString());
@@ -190,12 +195,14 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         }
     }
 
-    /* Writes given GPX string to given file */
-    private static boolean writeJSONToFile (String jsonString, File jsonFile) {
+    /* Streams given track as JSON to given file */
+    private static boolean writeJSONToFile (Track track, File jsonFile, boolean compressed) {
         // write track
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(jsonFile))) {
+        try (OutputStream out = compressed ? new GZIPOutputStream(new FileOutputStream(jsonFile)) : new FileOutputStream(jsonFile);
+             JsonWriter jsonWriter = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, "UTF-8")))) {
             LogHelper.v(LOG_TAG, "Saving track to external storage: " + jsonFile.toString());
-            bw.write(jsonString);
+            jsonWriter.setHtmlSafe(true); // escape like Gson's default configuration
+            TRACK_JSON_ADAPTER.write(jsonWriter, track);
             return true;
         } catch (IOException e) {
             LogHelper.e(LOG_TAG, "Unable to saving track to external storage (IOException): " + jsonFile.toString());
@@ -203,77 +210,4 @@ public final class ExportHelper extends FileProvider implements TrackbookKeys {
         }
     }
 
-
-    /* Creates GPX formatted string */
-    private static String createGpxString(Track track) {
-        String gpxString;
-
-        // add header
-        gpxString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>\n" +
-                    "<gpx version=\"1.1\" creator=\"Transistor App (Android)\"\n" +
-                    "     xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
-                    "     xsi:schemaLocation=\"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd\">\n";
-
-        // add track
-        gpxString = gpxString + addTrack(track);
-
-        // add closing tag
-        gpxString = gpxString + "</gpx>\n";
-
-        return gpxString;
-    }
-
-
-    /* Creates Track */
-    private static String addTrack(Track track) {
-        StringBuilder gpxTrack = new StringBuilder("");
-        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        // add opening track tag
-        gpxTrack.append("\t<trk>\n");
-
-        // add name to track
-        gpxTrack.append("\t\t<name>");
-        gpxTrack.append("Trackbook Recording");
-        gpxTrack.append("</name>\n");
-
-        // add opening track segment tag
-        gpxTrack.append("\t\t<trkseg>\n");
-
-        // add route point
-        for (WayPoint wayPoint:track.getWayPoints()) {
-            // get location from waypoint
-            Location location = wayPoint.getLocation();
-
-            // add longitude and latitude
-            gpxTrack.append("\t\t\t<trkpt lat=\"");
-            gpxTrack.append(location.getLatitude());
-            gpxTrack.append("\" lon=\"");
-            gpxTrack.append(location.getLongitude());
-            gpxTrack.append("\">\n");
-
-            // add time
-            gpxTrack.append("\t\t\t\t<time>");
-            gpxTrack.append(dateFormat.format(new Date(location.getTime())));
-            gpxTrack.append("</time>\n");
-
-            // add altitude
-            gpxTrack.append("\t\t\t\t<ele>");
-            gpxTrack.append(location.getAltitude());
-            gpxTrack.append("</ele>\n");
-
-            // add closing tag
-            gpxTrack.append("\t\t\t</trkpt>\n");
-        }
-
-        // add closing track segment tag
-        gpxTrack.append("\t\t</trkseg>\n");
-
-        // add closing track tag
-        gpxTrack.append("\t</trk>\n");
-
-        return gpxTrack.toString();
-    }
-
 }
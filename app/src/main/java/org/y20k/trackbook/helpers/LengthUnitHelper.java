@@ -36,8 +36,13 @@ public final class LengthUnitHelper implements TrackbookKeys {
 
     /* Converts for the given uni System a distance value to a readable string */
     public static String convertDistanceToString(double distance, int unitSystem) {
+        return convertDistanceToString(distance, unitSystem, NumberFormat.getNumberInstance());
+    }
+
+
+    /* Converts a distance value to a readable string - using given number format, which gets its precision adjusted */
+    public static String convertDistanceToString(double distance, int unitSystem, NumberFormat numberFormat) {
         String unit;
-        NumberFormat numberFormat =  NumberFormat.getNumberInstance();
 
         // check for locale and set unit system accordingly
         if (unitSystem == IMPERIAL) {
@@ -17,16 +17,18 @@
 package org.y20k.trackbook.helpers;
 
 import android.content.Context;
-import android.location.Address;
-import android.location.Geocoder;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.provider.Settings;
 
-import java.io.IOException;
-import java.util.ArrayList;
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.WayPointFilter;
+
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -89,116 +91,95 @@ public final class LocationHelper implements TrackbookKeys {
 
     /* Determines whether one location reading is better than the current location fix */
     public static boolean isBetterLocation(Location location, Location currentBestLocation) {
-        // credit: the isBetterLocation method was sample code from: https://developer.android.com/guide/topics/location/strategies.html
-
-        if (currentBestLocation == null) {
-            // a new location is always better than no location
-            return true;
-        }
-
-        // check whether the new location fix is newer or older
-        long timeDelta = location.getElapsedRealtimeNanos() - currentBestLocation.getElapsedRealtimeNanos();
-        boolean isSignificantlyNewer = timeDelta > ONE_MINUTE_IN_NANOSECONDS;
-        boolean isSignificantlyOlder = timeDelta < -ONE_MINUTE_IN_NANOSECONDS;
-        boolean isNewer = timeDelta > 0;
-
-        // if it's been more than two minutes since the current location, use the new location because the user has likely moved
-        if (isSignificantlyNewer) {
-            return true;
-        } else if (isSignificantlyOlder) {
-            return false;
-        }
-
-        // check whether the new location fix is more or less accurate
-        int accuracyDelta = (int) (location.getAccuracy() - currentBestLocation.getAccuracy());
-        boolean isLessAccurate = accuracyDelta > 0;
-        boolean isMoreAccurate = accuracyDelta < 0;
-        boolean isSignificantlyLessAccurate = accuracyDelta > 200;
-
-        // check if the old and new location are from the same provider
-        boolean isFromSameProvider = isSameProvider(location.getProvider(), currentBestLocation.getProvider());
-
-        // determine location quality using a combination of timeliness and accuracy
-        if (isMoreAccurate) {
-            return true;
-        } else if (isNewer && !isLessAccurate) {
-            return true;
-        } else if (isNewer && !isSignificantlyLessAccurate && isFromSameProvider) {
-            return true;
-        }
-        return false;
+        return WayPointFilter.isBetterLocation(toGeoFix(location), toGeoFix(currentBestLocation));
     }
 
 
     /* Checks accuracy of given location */
     public static boolean isAccurate(Location location) {
-        return location.getAccuracy() < FIFTY_METER_RADIUS;
+        return WayPointFilter.isAccurate(toGeoFix(location));
     }
 
 
-    /* Checks if given location is newer than two minutes */
+    /* Checks if given location is newer than one minute */
     public static boolean isCurrent(Location location) {
-        if (location == null) {
-            return false;
-        } else {
-            long locationAge = SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos();
-            return locationAge < ONE_MINUTE_IN_NANOSECONDS;
-        }
+        return WayPointFilter.isCurrent(toGeoFix(location), SystemClock.elapsedRealtimeNanos());
     }
 
 
     /* Checks if given location is a new WayPoint */
     public static boolean isNewWayPoint(Location lastLocation, Location newLocation, float averageSpeed) {
-        float distance = newLocation.distanceTo(lastLocation);
-        long timeDifference = newLocation.getElapsedRealtimeNanos() - lastLocation.getElapsedRealtimeNanos();
-
-        if (newLocation.getProvider().equals(LocationManager.NETWORK_PROVIDER)) {
-            // calculate speed difference
-            float speedDifference;
-            float currentSpeed = distance / ((float)timeDifference / ONE_SECOND_IN_NANOSECOND);
-            if (currentSpeed > averageSpeed) {
-                speedDifference = currentSpeed / averageSpeed;
-            } else {
-                speedDifference = averageSpeed / currentSpeed;
-            }
+        return WayPointFilter.isNewWayPoint(toGeoFix(lastLocation), toGeoFix(newLocation), averageSpeed);
+    }
 
-            // SPECIAL CASE network: plausibility check for network provider. looking for sudden location jump errors
-            if (averageSpeed != 0f && currentSpeed > 10f && speedDifference > 2f) {
-                // implausible location (speed is high (10 m/s == 36km/h) and has doubled)
-                return false;
-            }
 
-            // SPECIAL CASE network: if last location came from gps. only accept location fixes with decent accuracy
-            if (lastLocation.getProvider().equals(LocationManager.GPS_PROVIDER) && newLocation.getAccuracy() < 66) {
-                // network locations tend to be too in accurate
-                return false;
-            }
+    /* Checks if given location is a stop over */
+    public static boolean isStopOver(@Nullable Location previousLocation, Location newLocation) {
+        return WayPointFilter.isStopOver(toGeoFix(previousLocation), toGeoFix(newLocation));
+    }
 
-            // DEFAULT network: distance is bigger than 30 meters and time difference bigger than 12 seconds
-            return distance > 30 && timeDifference >= 12 * ONE_SECOND_IN_NANOSECOND; // TODO add minimal accuracy
 
-        } else {
-            // DEFAULT GPS: distance is bigger than 10 meters and time difference bigger than 12 seconds
-            return distance > 10 && timeDifference >= 12 * ONE_SECOND_IN_NANOSECOND;
+    /* Converts given location into a platform-independent location fix - null stays null */
+    public static GeoFix toGeoFix(@Nullable Location location) {
+        if (location == null) {
+            return null;
         }
+        return toGeoFix(location, getNumberSatellites(location));
+    }
 
+
+    /* Converts given location into a platform-independent location fix - using given number of satellites */
+    public static GeoFix toGeoFix(Location location, int numberSatellites) {
+        return new GeoFix(location.getProvider(), location.getLatitude(), location.getLongitude(),
+                location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                location.hasAccuracy() ? location.getAccuracy() : Float.NaN,
+                location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                location.getTime(), location.getElapsedRealtimeNanos(), numberSatellites);
     }
 
 
-    /* Checks if given location is a stop over */
-    public static boolean isStopOver(@Nullable Location previousLocation, Location newLocation) {
-        if (previousLocation != null) {
-            long timeDifference =  newLocation.getElapsedRealtimeNanos() - previousLocation.getElapsedRealtimeNanos();
-            return timeDifference >= FIVE_MINUTES_IN_NANOSECONDS;
-        } else {
-            return false;
+    /* Converts given location fix into a location - null stays null */
+    public static Location toLocation(@Nullable GeoFix fix) {
+        if (fix == null) {
+            return null;
+        }
+        Location location = new Location(fix.getProvider());
+        location.setLatitude(fix.getLatitude());
+        location.setLongitude(fix.getLongitude());
+        if (fix.hasAltitude()) {
+            location.setAltitude(fix.getAltitude());
+        }
+        if (fix.hasAccuracy()) {
+            location.setAccuracy(fix.getAccuracy());
+        }
+        if (fix.hasSpeed()) {
+            location.setSpeed(fix.getSpeed());
         }
+        location.setTime(fix.getTime());
+        location.setElapsedRealtimeNanos(fix.getElapsedRealtimeNanos());
+        return location;
+    }
+
+
+    /* Returns the number of satellites used for given location - zero if not known */
+    public static int getNumberSatellites(Location location) {
+        Bundle extras = location.getExtras();
+        if (extras != null && extras.containsKey("satellites")) {
+            return extras.getInt("satellites", 0);
+        }
+        return 0;
     }
 
 
     /* Registers gps and network location listeners */
     public static void registerLocationListeners(LocationManager locationManager, LocationListener gpsListener, LocationListener networkListener) {
-        LogHelper.v(LOG_TAG, "Registering location listeners.");
+        registerLocationListeners(locationManager, gpsListener, networkListener, 0, 0f, null);
+    }
+
+
+    /* Registers gps and network location listeners with given minimum time (ms) and distance (m) between updates - replaces earlier requests of the listeners */
+    public static void registerLocationListeners(LocationManager locationManager, LocationListener gpsListener, LocationListener networkListener, long minTime, float minDistance, @Nullable Looper looper) {
+        LogHelper.v(LOG_TAG, "Registering location listeners. Minimum time: " + minTime + " ms, minimum distance: " + minDistance + " m.");
 
         // get location providers
         List locationProviders = locationManager.getAllProviders();
@@ -207,7 +188,7 @@ public final class LocationHelper implements TrackbookKeys {
         if (gpsListener != null && locationProviders.contains(LocationManager.GPS_PROVIDER)) {
             try {
                 // register GPS location listener and request updates
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 0, 0, gpsListener);
+                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, minTime, minDistance, gpsListener, looper);
                 LogHelper.v(LOG_TAG, "Registering gps listener.");
             } catch (SecurityException e) {
                 // catches permission problems
@@ -219,7 +200,7 @@ public final class LocationHelper implements TrackbookKeys {
         if (networkListener != null && locationProviders.contains(LocationManager.NETWORK_PROVIDER)) {
             try {
                 // register network location listener and request updates
-                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 0, 0, networkListener);
+                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, minTime, minDistance, networkListener, looper);
                 LogHelper.v(LOG_TAG, "Registering network listener.");
             } catch (SecurityException e) {
                 // catches permission problems
@@ -293,26 +274,4 @@ public final class LocationHelper implements TrackbookKeys {
         return locationSettingState != Settings.Secure.LOCATION_MODE_OFF;
     }
 
-
-    /* Checks whether two location providers are the same */
-    private static boolean isSameProvider(String provider1, String provider2) {
-        // credit: the isSameProvider method was sample code from: https://developer.android.com/guide/topics/location/strategies.html
-        if (provider1 == null) {
-            return provider2 == null;
-        }
-        return provider1.equals(provider2);
-    }
-
-    public static Address getCurrentAddress(Context context, double latitude, double longitude) {
-        Geocoder geoCoder = new Geocoder(context);
-
-        List<Address> streetAdress = new ArrayList<>();
-        try {
-            streetAdress = geoCoder.getFromLocation(latitude, longitude, 1); // 1 == Max results returned
-        } catch(IOException e) {
-            LogHelper.v(LOG_TAG, "Failed to get street address " + e);
-        }
-        return streetAdress.get(0);
-    }
-
 }
@@ -30,7 +30,8 @@ import org.osmdroid.views.overlay.OverlayItem;
 import org.osmdroid.views.overlay.Polyline;
 import org.y20k.trackbook.R;
 import org.y20k.trackbook.core.Track;
-import org.y20k.trackbook.core.WayPoint;
+import org.y20k.trackbook.core.WayPointStore;
+import org.y20k.trackbook.layout.TrackCrumbOverlay;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -89,89 +90,9 @@ public final class MapHelper {
     }
 
 
-    /* Creates icon overlay for track */
-    public static ItemizedIconOverlay createTrackOverlay(final Context context, Track track, boolean trackingActive){
-
-        final ArrayList<OverlayItem> overlayItems = new ArrayList<>();
-        boolean currentPosition;
-        final int trackSize = track.getSize();
-        final List<WayPoint> wayPoints = track.getWayPoints();
-        WayPoint wayPoint;
-
-        for (int i = 0; i < track.getSize(); i++) {
-
-            // get WayPoint and check if it is current position
-            wayPoint = wayPoints.get(i);
-            currentPosition = i == trackSize - 1;
-
-            // create marker
-            Drawable newMarker;
-
-            // CASE 1: Tracking active and WayPoint is not current position
-            if (trackingActive && !currentPosition) {
-                if (wayPoint.getIsStopOver()) {
-                    // stop over marker
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_crumb_grey_24dp);
-                } else {
-                    // default marker for this case
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_crumb_red_24dp);
-                }
-            }
-
-            // CASE 2: Tracking active and WayPoint is current position
-            else if (trackingActive && currentPosition) {
-                if (wayPoint.getIsStopOver()) {
-                    // stop over marker
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_dot_blue_grey_24dp);
-                } else {
-                    // default marker for this case
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_dot_red_24dp);
-                }
-            }
-
-            // CASE 3: Tracking not active and WayPoint is not current position
-            else if (!trackingActive && !currentPosition) {
-                if (wayPoint.getIsStopOver()) {
-                    // stop over marker
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_crumb_grey_24dp);
-                } else {
-                    // default marker for this case
-                    newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_crumb_blue_24dp);
-                }
-            }
-
-            // CASE 4: Tracking not active and WayPoint is current position
-            else {
-                // default marker
-                newMarker = ContextCompat.getDrawable(context, R.drawable.ic_my_location_crumb_blue_24dp);
-            }
-
-            // create overlay item
-            OverlayItem overlayItem = createOverlayItem(context, wayPoint.getLocation());
-            overlayItem.setMarker(newMarker);
-
-            // add marker to list of overlay items
-            overlayItems.add(overlayItem);
-        }
-
-        // return overlay for current position
-        return new ItemizedIconOverlay<>(overlayItems,
-                new ItemizedIconOverlay.OnItemGestureListener<OverlayItem>() {
-                    @Override
-                    public boolean onItemSingleTapUp(final int index, final OverlayItem item) {
-                        // tap on waypoint
-                        Toast.makeText(context, item.getTitle(), Toast.LENGTH_LONG).show();
-                        return true;
-                    }
-
-                    @Override
-                    public boolean onItemLongPress(final int index, final OverlayItem item) {
-                        // long press on waypoint
-                        Toast.makeText(context, item.getSnippet(), Toast.LENGTH_LONG).show();
-                        return true;
-                    }
-
-                }, context);
+    /* Creates crumb overlay for track */
+    public static TrackCrumbOverlay createTrackOverlay(final Context context, Track track, boolean trackingActive){
+        return new TrackCrumbOverlay(context, track, trackingActive);
     }
 
 
@@ -191,26 +112,20 @@ public final class MapHelper {
     @RequiresApi(api = Build.VERSION_CODES.O) //Color.valueOf() requires API-level >= 26
     public static Polyline createOverlayPath(Track track) {
 
-        Polyline path = new Polyline();
-
         // Create a Geopoint for every wayPoint
-        for(WayPoint wayPoint : track.getWayPoints()) {
-            // Get location from waypoint
-            Location location = wayPoint.getLocation();
-            double latitude = location.getLatitude();
-            double longitude = location.getLongitude();
-
-            GeoPoint geoPoint = new GeoPoint(latitude, longitude);
-
-            // Set the path's color to blue
-            int pathColor = Color.parseColor("#09AAFF");
-            path.setColor(pathColor);
-
-            // Add it to the polyline
-            path.addPoint(geoPoint);
+        WayPointStore wayPoints = track.getWayPointStore();
+        List<GeoPoint> geoPoints = new ArrayList<>(wayPoints.size());
+        for (int i = 0; i < wayPoints.size(); i++) {
+            geoPoints.add(new GeoPoint(wayPoints.getLatitude(i), wayPoints.getLongitude(i)));
         }
 
+        // Set the path's color to blue and add all points at once
+        Polyline path = new Polyline();
+        path.setColor(Color.parseColor("#09AAFF"));
+        path.setPoints(geoPoints);
+
         return path;
     }
 
+
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+/**
+ * MetricsDialogHelper.java
+ * Implements the MetricsDialogHelper class
+ * A MetricsDialogHelper shows the measurements of the recording pipeline
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import org.y20k.trackbook.R;
+import org.y20k.trackbook.core.PipelineMetrics;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.DialogFragment;
+
+
+/**
+ * MetricsDialogHelper class
+ *
+ * Debug screen - shows the report of PipelineMetrics as of opening the
+ * dialog. The report can be saved to the Download folder (to be attached to a
+ * bug report) and the measurements can be reset, e.g. before a test ride.
+ */
+public class MetricsDialogHelper extends DialogFragment implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = MetricsDialogHelper.class.getSimpleName();
+
+
+    /* Constructs a new instance */
+    public static MetricsDialogHelper newInstance() {
+        return new MetricsDialogHelper();
+    }
+
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        final String report = PipelineMetrics.getInstance().getReport();
+
+        // show report
+        View view = getActivity().getLayoutInflater().inflate(R.layout.dialog_metrics, null);
+        TextView reportView = view.findViewById(R.id.metrics_report);
+        reportView.setText(report);
+
+        // build dialog
+        AlertDialog.Builder dialogBuilder = new AlertDialog.Builder(getActivity());
+        dialogBuilder.setTitle(R.string.dialog_metrics_title);
+        dialogBuilder.setView(view);
+        dialogBuilder.setPositiveButton(R.string.dialog_metrics_action_dump,
+                new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int whichButton) {
+                        ExportHelper.exportMetrics(getActivity(), report);
+                    }
+                }
+        );
+        dialogBuilder.setNeutralButton(R.string.dialog_metrics_action_reset,
+                new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int whichButton) {
+                        PipelineMetrics.getInstance().reset();
+                    }
+                }
+        );
+        dialogBuilder.setNegativeButton(R.string.dialog_metrics_action_close, null);
+
+        return dialogBuilder.create();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * NotificationController.java
+ * Implements the NotificationController class
+ * A NotificationController keeps the recording notification up to date
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.SystemClock;
+
+import org.y20k.trackbook.R;
+import org.y20k.trackbook.core.PipelineMetrics;
+import org.y20k.trackbook.core.Track;
+
+import java.text.NumberFormat;
+
+import androidx.core.app.NotificationCompat;
+
+
+/**
+ * NotificationController class
+ *
+ * The notification channel is created once. The notification builder of each
+ * state (recording or not) is created the first time it is needed and kept -
+ * together with its large icon bitmap and pending intents. Updates only post
+ * the notification if its text has changed and the last update was long enough
+ * ago. Not thread-safe - use from one thread only (the recording thread).
+ */
+public final class NotificationController implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = NotificationController.class.getSimpleName();
+
+    /* Controller constants */
+    private static final long MINIMUM_UPDATE_INTERVAL = 30000L; // milliseconds
+
+
+    /* Main class variables */
+    private final Context mContext;
+    private final NotificationManager mNotificationManager;
+    private final NotificationCompat.Builder[] mBuilders;
+    private final NumberFormat mNumberFormat;
+    private final String mDistanceLabel;
+    private final String mDurationLabel;
+    private int mUnitSystem;
+    private boolean mTracking;
+    private Notification mNotification;
+    private String mContentText;
+    private long mLastPostTime;
+    private long mPostCount;
+    private long mSkippedUpdateCount;
+
+
+    /* Constructor */
+    public NotificationController(Context context) {
+        mContext = context;
+        mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        NotificationHelper.createNotificationChannel(context);
+        mBuilders = new NotificationCompat.Builder[2];
+        mNumberFormat = NumberFormat.getNumberInstance();
+        mDistanceLabel = context.getString(R.string.notification_content_distance);
+        mDurationLabel = context.getString(R.string.notification_content_duration);
+        mUnitSystem = LengthUnitHelper.getUnitSystem();
+    }
+
+
+    /* Posts the notification for given state - always, the state may have changed */
+    public Notification show(Track track, boolean tracking) {
+        mTracking = tracking;
+        mUnitSystem = LengthUnitHelper.getUnitSystem();
+        post(getContentText(track));
+        return mNotification;
+    }
+
+
+    /* Updates the text of the notification - posts only if the text has changed and the minimum interval has passed */
+    public void update(Track track) {
+        if (mNotification == null || SystemClock.elapsedRealtime() - mLastPostTime < MINIMUM_UPDATE_INTERVAL) {
+            mSkippedUpdateCount++;
+            return;
+        }
+        String contentText = getContentText(track);
+        if (contentText.equals(mContentText)) {
+            mSkippedUpdateCount++;
+            return;
+        }
+        post(contentText);
+    }
+
+
+    /* Removes the notification */
+    public void cancel() {
+        mNotificationManager.cancel(TRACKER_SERVICE_NOTIFICATION_ID);
+        mNotification = null;
+        mContentText = null;
+    }
+
+
+    /* Getter for the notification posted last - null if none */
+    public Notification getNotification() {
+        return mNotification;
+    }
+
+
+    /* Getter for number of times the notification has been posted */
+    public long getPostCount() {
+        return mPostCount;
+    }
+
+
+    /* Getter for number of updates that did not need to be posted */
+    public long getSkippedUpdateCount() {
+        return mSkippedUpdateCount;
+    }
+
+
+    /* Builds and posts the notification with given text */
+    private void post(String contentText) {
+        long start = System.nanoTime();
+        NotificationCompat.Builder builder = getBuilder(mTracking);
+        builder.setContentText(contentText);
+        mNotification = builder.build();
+        mNotificationManager.notify(TRACKER_SERVICE_NOTIFICATION_ID, mNotification);
+        mContentText = contentText;
+        mLastPostTime = SystemClock.elapsedRealtime();
+        mPostCount++;
+        PipelineMetrics.getInstance().recordNotificationPost(System.nanoTime() - start);
+    }
+
+
+    /* Returns the builder for given state - creates it on first use */
+    private NotificationCompat.Builder getBuilder(boolean tracking) {
+        int state = tracking ? 1 : 0;
+        if (mBuilders[state] == null) {
+            mBuilders[state] = NotificationHelper.createNotificationBuilder(mContext, tracking);
+        }
+        return mBuilders[state];
+    }
+
+
+    /* Builds the content text of the notification */
+    private String getContentText(Track track) {
+        return mDistanceLabel + ": " + LengthUnitHelper.convertDistanceToString(track.getTrackDistance(), mUnitSystem, mNumberFormat) + " | " +
+                mDurationLabel + ": " + LocationHelper.convertToReadableTime(track.getTrackDuration(), true);
+    }
+
+}
@@ -16,7 +16,6 @@
 
 package org.y20k.trackbook.helpers;
 
-import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
@@ -30,7 +29,6 @@ import android.os.Build;
 import org.y20k.trackbook.MainActivity;
 import org.y20k.trackbook.R;
 import org.y20k.trackbook.TrackerService;
-import org.y20k.trackbook.core.Track;
 
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.TaskStackBuilder;
@@ -46,23 +44,19 @@ public final class NotificationHelper implements TrackbookKeys {
     private static final String LOG_TAG = NotificationHelper.class.getSimpleName();
 
 
-    /* Creates a notification builder */
-    public static Notification getNotification(Context context, NotificationCompat.Builder builder, Track track, boolean tracking) {
-
-        // create notification channel
-        createNotificationChannel(context);
+    /* Creates a notification builder - with everything but the content text */
+    public static NotificationCompat.Builder createNotificationBuilder(Context context, boolean tracking) {
 
         // ACTION: NOTIFICATION TAP & BUTTON SHOW
         Intent tapActionIntent = new Intent(context, MainActivity.class);
         tapActionIntent.setAction(ACTION_SHOW_MAP);
-        tapActionIntent.putExtra(EXTRA_TRACK, track);
         tapActionIntent.putExtra(EXTRA_TRACKING_STATE, tracking);
         // artificial back stack for started Activity (https://developer.android.com/training/notify-user/navigation.html#DirectEntry)
         TaskStackBuilder tapActionIntentBuilder = TaskStackBuilder.create(context);
         tapActionIntentBuilder.addParentStack(MainActivity.class);
         tapActionIntentBuilder.addNextIntent(tapActionIntent);
-        // pending intent wrapper for notification tap
-        PendingIntent tapActionPendingIntent = tapActionIntentBuilder.getPendingIntent(10, PendingIntent.FLAG_UPDATE_CURRENT);
+        // pending intent wrapper for notification tap - one per tracking state, so that builders of both states can be kept
+        PendingIntent tapActionPendingIntent = tapActionIntentBuilder.getPendingIntent(tracking ? 10 : 12, PendingIntent.FLAG_UPDATE_CURRENT);
 
         // ACTION: NOTIFICATION BUTTON STOP
         Intent stopActionIntent = new Intent(context, TrackerService.class);
@@ -77,6 +71,7 @@ public final class NotificationHelper implements TrackbookKeys {
         PendingIntent resuneActionPendingIntent = PendingIntent.getService(context, 16, resumeActionIntent, 0);
 
         // construct notification in builder
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NOTIFICATION_CHANEL_ID_RECORDING_CHANNEL);
         builder.setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
         builder.setShowWhen(false);
         builder.setContentIntent(tapActionPendingIntent);
@@ -85,22 +80,13 @@ public final class NotificationHelper implements TrackbookKeys {
         if (tracking) {
             builder.addAction(R.drawable.ic_stop_white_24dp, context.getString(R.string.notification_stop), stopActionPendingIntent);
             builder.setContentTitle(context.getString(R.string.notification_title_trackbook_running));
-            builder.setContentText(getContextString(context, track));
         } else {
             builder.addAction(R.drawable.ic_fiber_manual_record_white_24dp, context.getString(R.string.notification_resume), resuneActionPendingIntent);
             builder.addAction(R.drawable.ic_compass_needle_white_24dp, context.getString(R.string.notification_show), tapActionPendingIntent);
             builder.setContentTitle(context.getString(R.string.notification_title_trackbook_not_running));
-            builder.setContentText(getContextString(context, track));
         }
 
-        return builder.build();
-    }
-
-
-    /* Constructs an updated notification */
-    public static Notification getUpdatedNotification(Context context, NotificationCompat.Builder builder, Track track) {
-        builder.setContentText(getContextString(context, track));
-        return builder.build();
+        return builder;
     }
 
 
@@ -161,11 +147,4 @@ public final class NotificationHelper implements TrackbookKeys {
         }
     }
 
-
-    /* Build context text for notification builder */
-    private static String getContextString(Context context, Track track) {
-        return context.getString(R.string.notification_content_distance) + ": " + LengthUnitHelper.convertDistanceToString(track.getTrackDistance()) + " | " +
-                context.getString(R.string.notification_content_duration) + ": " + LocationHelper.convertToReadableTime(track.getTrackDuration(), true);
-    }
-
 }
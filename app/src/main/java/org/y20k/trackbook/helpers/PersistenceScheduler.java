@@ -0,0 +1,386 @@
+/**
+ * PersistenceScheduler.java
+ * Implements the PersistenceScheduler class
+ * A PersistenceScheduler writes tracks to storage on a dedicated background thread
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.Track;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/**
+ * PersistenceScheduler class
+ *
+ * All writes run one after another on a single writer thread - so every file
+ * (track files, journal, index) has exactly one writer. Each write is queued
+ * under a key naming the file it writes: a write that is still pending for the
+ * same key is replaced by the newer one, so only the latest snapshot of a
+ * track gets written. Final saves are keyed by the recording start of their
+ * track, so they never replace each other. Lanes are served in order of
+ * priority.
+ *
+ * The end address of a track is looked up when recording stops. If it is not
+ * in the track yet, the final save waits for it (at most END_ADDRESS_TIMEOUT),
+ * because it names the track file.
+ */
+public final class PersistenceScheduler implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = PersistenceScheduler.class.getSimpleName();
+
+    /* Priority lanes - lower value is served first */
+    public static final int PRIORITY_FINAL = 0;
+    public static final int PRIORITY_CHECKPOINT = 1;
+    public static final int PRIORITY_HOUSEKEEPING = 2;
+    private static final int NUMBER_OF_LANES = 3;
+
+    /* Longest wait of a final save for the end address of its track (in milliseconds) */
+    private static final long END_ADDRESS_TIMEOUT = 5000L;
+
+    /* Keys of the files written by the scheduler */
+    private static final String KEY_CHECKPOINT = "checkpoint";
+    private static final String KEY_DELETE_TEMP_FILE = "delete-temp-file";
+    private static final String KEY_PREFIX_FINAL_TRACK = "final:";
+    private static final String KEY_INDEX = "index";
+    private static final String KEY_PRUNE = "prune";
+    private static final String KEY_PREFIX_CONVERT = "convert:";
+
+
+    /* Callback for finished writes - called on the main thread */
+    public interface Callback {
+        void onFinished(boolean success);
+    }
+
+
+    /* A write run on the writer thread - returns true if it succeeded */
+    public interface Write {
+        boolean run();
+    }
+
+
+    /* Main class variables */
+    private static PersistenceScheduler sInstance;
+    private final StorageHelper mStorageHelper;
+    private final AddressResolver mAddressResolver;
+    private final Handler mMainHandler;
+    private final List<LinkedHashMap<String, Job>> mLanes;
+    private final Thread mWriterThread;
+    private int mQueueDepth;
+    private long mWriteCount;
+    private long mLastWriteLatency;
+    private long mMaximumWriteLatency;
+    private long mTotalWriteLatency;
+
+
+    /* Returns the shared PersistenceScheduler */
+    public static synchronized PersistenceScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PersistenceScheduler(StorageHelper.getInstance(context), AddressResolver.getInstance(context));
+        }
+        return sInstance;
+    }
+
+
+    /* Constructor */
+    private PersistenceScheduler(StorageHelper storageHelper, AddressResolver addressResolver) {
+        mStorageHelper = storageHelper;
+        mAddressResolver = addressResolver;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mLanes = new ArrayList<>(NUMBER_OF_LANES);
+        for (int i = 0; i < NUMBER_OF_LANES; i++) {
+            mLanes.add(new LinkedHashMap<String, Job>());
+        }
+        mWriterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                processJobs();
+            }
+        }, LOG_TAG);
+        mWriterThread.setDaemon(true);
+        mWriterThread.start();
+    }
+
+
+    /* Schedules saving given track snapshot - the snapshot must not be modified afterwards */
+    public void saveTrack(final Track track, final int fileType, Callback callback) {
+        if (fileType == FILE_TEMP_TRACK) {
+            schedule(KEY_CHECKPOINT, PRIORITY_CHECKPOINT, new Write() {
+                @Override
+                public boolean run() {
+                    return mStorageHelper.saveTrack(track, fileType);
+                }
+            }, callback);
+        } else {
+            // the final save compacts the journal - a pending checkpoint would only bring it back, its callbacks wait for the final save instead
+            scheduleReplacingCheckpoint(KEY_PREFIX_FINAL_TRACK + track.getRecordingStart().getTime(), PRIORITY_FINAL, new Write() {
+                @Override
+                public boolean run() {
+                    resolveEndAddress(track);
+                    return mStorageHelper.saveTrack(track, fileType);
+                }
+            }, callback);
+        }
+    }
+
+
+    /* Schedules deleting the temp file - a pending checkpoint would only bring it back, its callbacks wait for the deletion instead */
+    public void deleteTempFile(Callback callback) {
+        scheduleReplacingCheckpoint(KEY_DELETE_TEMP_FILE, PRIORITY_CHECKPOINT, new Write() {
+            @Override
+            public boolean run() {
+                return mStorageHelper.deleteTempFile();
+            }
+        }, callback);
+    }
+
+
+    /* Schedules rewriting the index of track files - if it is out of date */
+    public void updateIndex() {
+        schedule(KEY_INDEX, PRIORITY_HOUSEKEEPING, new Write() {
+            @Override
+            public boolean run() {
+                mStorageHelper.syncIndex();
+                return true;
+            }
+        }, null);
+    }
+
+
+    /* Schedules deleting all but the latest track files */
+    public void pruneTracks() {
+        schedule(KEY_PRUNE, PRIORITY_HOUSEKEEPING, new Write() {
+            @Override
+            public boolean run() {
+                mStorageHelper.deleteOldTracks();
+                return true;
+            }
+        }, null);
+    }
+
+
+    /* Schedules converting a track file of an earlier version - track is the snapshot read from that file */
+    public void convertTrackFile(final Track track, final File file) {
+        schedule(KEY_PREFIX_CONVERT + file.getName(), PRIORITY_HOUSEKEEPING, new Write() {
+            @Override
+            public boolean run() {
+                return mStorageHelper.convertLegacyTrackFile(track, file);
+            }
+        }, null);
+    }
+
+
+    /* Schedules a write - a pending write with the same key is replaced, its callback is kept */
+    public synchronized void schedule(String key, int priority, Write write, Callback callback) {
+        Job job = new Job(write);
+        job.takeCallbacks(dropJob(key));
+        job.addCallback(callback);
+        enqueue(key, priority, job);
+    }
+
+
+    /* Schedules a write that also replaces a pending checkpoint - the callbacks of both are kept */
+    private synchronized void scheduleReplacingCheckpoint(String key, int priority, Write write, Callback callback) {
+        Job job = new Job(write);
+        job.takeCallbacks(dropJob(KEY_CHECKPOINT));
+        job.takeCallbacks(dropJob(key));
+        job.addCallback(callback);
+        enqueue(key, priority, job);
+    }
+
+
+    /* Getter for number of pending writes */
+    public synchronized int getQueueDepth() {
+        return mQueueDepth;
+    }
+
+
+    /* Getter for number of finished writes */
+    public synchronized long getWriteCount() {
+        return mWriteCount;
+    }
+
+
+    /* Getter for duration of the latest write (in milliseconds) */
+    public synchronized long getLastWriteLatency() {
+        return mLastWriteLatency;
+    }
+
+
+    /* Getter for longest duration of a write (in milliseconds) */
+    public synchronized long getMaximumWriteLatency() {
+        return mMaximumWriteLatency;
+    }
+
+
+    /* Getter for average duration of a write (in milliseconds) */
+    public synchronized long getAverageWriteLatency() {
+        if (mWriteCount == 0) {
+            return 0;
+        }
+        return mTotalWriteLatency / mWriteCount;
+    }
+
+
+    /* Fills in the end address of given track snapshot, if it is missing - queued behind the lookup started when recording stopped, runs on writer thread */
+    private void resolveEndAddress(Track track) {
+        int size = track.getSize();
+        if (track.getmEndAdress() != null || size == 0) {
+            return;
+        }
+        GeoFix endLocation = track.getWayPointFix(size - 1);
+        String endAddress = mAddressResolver.resolve(endLocation.getLatitude(), endLocation.getLongitude(), END_ADDRESS_TIMEOUT);
+        if (endAddress != null) {
+            track.setmEndAdress(endAddress);
+        }
+    }
+
+
+    /* Runs jobs one by one - runs on writer thread */
+    private void processJobs() {
+        while (true) {
+            Job job;
+            try {
+                job = takeJob();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            boolean success;
+            try {
+                success = job.mWrite.run();
+            } catch (RuntimeException e) {
+                LogHelper.e(LOG_TAG, "Write failed: " + e.getMessage());
+                success = false;
+            }
+            recordLatency(SystemClock.elapsedRealtime() - start);
+
+            postCallbacks(job.mCallbacks, success);
+        }
+    }
+
+
+    /* Waits for the next job - served by priority, then in order of scheduling */
+    private synchronized Job takeJob() throws InterruptedException {
+        while (mQueueDepth == 0) {
+            wait();
+        }
+        for (LinkedHashMap<String, Job> lane : mLanes) {
+            Iterator<Job> iterator = lane.values().iterator();
+            if (iterator.hasNext()) {
+                Job job = iterator.next();
+                iterator.remove();
+                mQueueDepth--;
+                return job;
+            }
+        }
+        throw new IllegalStateException("Queue depth does not match pending jobs.");
+    }
+
+
+    /* Queues given job - there must be no pending job with the same key */
+    private synchronized void enqueue(String key, int priority, Job job) {
+        mLanes.get(priority).put(key, job);
+        mQueueDepth++;
+        notifyAll();
+    }
+
+
+    /* Removes the pending job for given key - from any lane */
+    private synchronized Job dropJob(String key) {
+        for (LinkedHashMap<String, Job> lane : mLanes) {
+            Job job = lane.remove(key);
+            if (job != null) {
+                mQueueDepth--;
+                return job;
+            }
+        }
+        return null;
+    }
+
+
+    /* Updates write latency metrics */
+    private synchronized void recordLatency(long latency) {
+        mWriteCount++;
+        mLastWriteLatency = latency;
+        mMaximumWriteLatency = Math.max(mMaximumWriteLatency, latency);
+        mTotalWriteLatency = mTotalWriteLatency + latency;
+        LogHelper.v(LOG_TAG, "Write finished in " + latency + " ms. Pending writes: " + mQueueDepth);
+    }
+
+
+    /* Hands result to callbacks on the main thread */
+    private void postCallbacks(final List<Callback> callbacks, final boolean success) {
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Callback callback : callbacks) {
+                    callback.onFinished(success);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Inner class: A pending write and the callbacks waiting for it
+     */
+    private static final class Job {
+
+        private final Write mWrite;
+        private final List<Callback> mCallbacks;
+
+        private Job(Write write) {
+            mWrite = write;
+            mCallbacks = new ArrayList<>(1);
+        }
+
+        /* Adds given callback - may be null */
+        private void addCallback(Callback callback) {
+            if (callback != null) {
+                mCallbacks.add(callback);
+            }
+        }
+
+        /* Adds the callbacks of a job that has been replaced by this job - may be null */
+        private void takeCallbacks(Job replacedJob) {
+            if (replacedJob != null) {
+                mCallbacks.addAll(replacedJob.mCallbacks);
+            }
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+}
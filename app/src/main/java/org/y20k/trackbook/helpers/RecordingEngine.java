@@ -0,0 +1,208 @@
+/**
+ * RecordingEngine.java
+ * Implements the RecordingEngine class
+ * A RecordingEngine runs the recording on a background thread and ticks at a fixed rate
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.helpers;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.PipelineMetrics;
+
+
+/**
+ * RecordingEngine class
+ *
+ * Owns a HandlerThread - everything posted to the engine and every location or
+ * sensor callback registered with its looper runs on that thread. Ticks are
+ * due at fixed times relative to the start (measured in elapsed realtime), so
+ * delays do not add up. The Handler waits in uptime though, which stands still
+ * while the device is in deep sleep: no tick is delivered during deep sleep,
+ * the pending tick runs late once the device is awake again. That tick counts
+ * the ticks that fell due while the device was asleep as skipped, and the
+ * following ticks return to the schedule. The delay of every tick against its
+ * due time (jitter) is measured - and recorded in PipelineMetrics.
+ */
+public final class RecordingEngine {
+
+    /* Define log tag */
+    private static final String LOG_TAG = RecordingEngine.class.getSimpleName();
+
+
+    /* Callback for ticks - called on the engine thread */
+    public interface TickListener {
+        void onTick(long elapsedTime);
+    }
+
+
+    /* Main class variables */
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Runnable mTickRunnable;
+    private volatile TickListener mTickListener;
+    private long mInterval;
+    private long mStartTime;
+    private long mNextTick;
+    private long mTickCount;
+    private long mSkippedTicks;
+    private long mLastJitter;
+    private long mMaximumJitter;
+    private long mTotalJitter;
+
+
+    /* Constructor - starts the engine thread */
+    public RecordingEngine() {
+        mThread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_DEFAULT);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mTickRunnable = new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        };
+    }
+
+
+    /* Getter for looper of engine thread - used to receive location and sensor callbacks */
+    public Looper getLooper() {
+        return mThread.getLooper();
+    }
+
+
+    /* Getter for handler of engine thread */
+    public Handler getHandler() {
+        return mHandler;
+    }
+
+
+    /* Runs given task on engine thread */
+    public void post(Runnable task) {
+        mHandler.post(task);
+    }
+
+
+    /* Starts ticking every interval (in milliseconds) - must be called on engine thread */
+    public void startTicking(long interval, TickListener tickListener) {
+        stopTicking();
+        synchronized (this) {
+            mInterval = interval;
+            mStartTime = SystemClock.elapsedRealtime();
+            mNextTick = 1;
+            mTickCount = 0;
+            mSkippedTicks = 0;
+            mLastJitter = 0;
+            mMaximumJitter = 0;
+            mTotalJitter = 0;
+        }
+        mTickListener = tickListener;
+        scheduleTick();
+    }
+
+
+    /* Stops ticking - must be called on engine thread */
+    public void stopTicking() {
+        mHandler.removeCallbacks(mTickRunnable);
+        mTickListener = null;
+    }
+
+
+    /* Stops ticking and the engine thread - after running the tasks that are due, may be called on any thread */
+    public void quit() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                stopTicking();
+            }
+        });
+        mThread.quitSafely();
+    }
+
+
+    /* Getter for number of ticks */
+    public synchronized long getTickCount() {
+        return mTickCount;
+    }
+
+
+    /* Getter for number of skipped ticks */
+    public synchronized long getSkippedTicks() {
+        return mSkippedTicks;
+    }
+
+
+    /* Getter for delay of latest tick (in milliseconds) */
+    public synchronized long getLastJitter() {
+        return mLastJitter;
+    }
+
+
+    /* Getter for longest delay of a tick (in milliseconds) */
+    public synchronized long getMaximumJitter() {
+        return mMaximumJitter;
+    }
+
+
+    /* Getter for average delay of a tick (in milliseconds) */
+    public synchronized long getAverageJitter() {
+        if (mTickCount == 0) {
+            return 0;
+        }
+        return mTotalJitter / mTickCount;
+    }
+
+
+    /* Runs a tick and schedules the next one */
+    private void tick() {
+        TickListener tickListener = mTickListener;
+        if (tickListener == null) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        long elapsedTime = now - mStartTime;
+        synchronized (this) {
+            // measure delay against scheduled time
+            long jitter = elapsedTime - mNextTick * mInterval;
+            mLastJitter = jitter;
+            mMaximumJitter = Math.max(mMaximumJitter, jitter);
+            mTotalJitter = mTotalJitter + jitter;
+            mTickCount++;
+            PipelineMetrics.getInstance().recordTickJitter(jitter);
+
+            // skip ticks that are already over
+            long dueTicks = elapsedTime / mInterval;
+            if (dueTicks > mNextTick) {
+                mSkippedTicks = mSkippedTicks + (dueTicks - mNextTick);
+                LogHelper.w(LOG_TAG, "Skipped " + (dueTicks - mNextTick) + " ticks. Delay: " + jitter + " ms.");
+            }
+            mNextTick = Math.max(dueTicks, mNextTick) + 1;
+        }
+        scheduleTick();
+        tickListener.onTick(elapsedTime);
+    }
+
+
+    /* Schedules next tick - converted from elapsed realtime to uptime used by Handler, so it is delayed by deep sleep */
+    private void scheduleTick() {
+        long delay = mStartTime + mNextTick * mInterval - SystemClock.elapsedRealtime();
+        mHandler.postAtTime(mTickRunnable, SystemClock.uptimeMillis() + Math.max(delay, 0));
+    }
+
+}
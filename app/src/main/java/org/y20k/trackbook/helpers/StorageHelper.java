@@ -18,27 +18,42 @@ package org.y20k.trackbook.helpers;
 
 import android.content.Context;
 import android.os.Environment;
+import android.os.FileObserver;
+import android.os.SystemClock;
 import android.widget.Toast;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 
 import org.y20k.trackbook.R;
+import org.y20k.trackbook.core.LegacyTrackBuilder;
+import org.y20k.trackbook.core.LogHelper;
+import org.y20k.trackbook.core.PipelineMetrics;
 import org.y20k.trackbook.core.Track;
-import org.y20k.trackbook.core.TrackBuilder;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import org.y20k.trackbook.core.TrackCodec;
+import org.y20k.trackbook.core.TrackIndex;
+import org.y20k.trackbook.core.TrackJournal;
+import org.y20k.trackbook.core.TrackSummary;
+import org.y20k.trackbook.core.WayPointStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import androidx.annotation.Nullable;
 import androidx.core.os.EnvironmentCompat;
@@ -46,21 +61,54 @@ import androidx.core.os.EnvironmentCompat;
 
 /**
  * StorageHelper class
+ *
+ * There is one StorageHelper per process. It keeps the list of track files in
+ * memory (newest first) and updates it when tracks are saved or deleted - and
+ * when a FileObserver reports changes made by others. Old tracks are only
+ * deleted when a recording is saved.
  */
 public class StorageHelper implements TrackbookKeys {
 
     /* Define log tag */
     private static final String LOG_TAG = StorageHelper.class.getSimpleName();
 
+    /* File system events that change the list of track files */
+    private static final int FOLDER_OBSERVER_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE | FileObserver.MOVED_FROM;
+
+    /* Sorts track files - newest first (file names end with the recording date) */
+    private static final Comparator<File> NEWEST_FIRST = new Comparator<File>() {
+        @Override
+        public int compare(File file1, File file2) {
+            // "compareTo" compares abstract path names lexicographically
+            return file2.compareTo(file1);
+        }
+    };
+
+    /* The shared instance */
+    private static StorageHelper sInstance;
+
     /* Main class variables */
     private final Context mContext;
     private final File mFolder;
     private final File mTempFile;
+    private final TrackJournal mJournal;
+    private final TrackIndex mIndex;
+    private final FileObserver mFolderObserver;
+    private List<File> mTrackFiles; // guarded by this - null until first use
+
+
+    /* Returns the shared StorageHelper */
+    public static synchronized StorageHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new StorageHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
 
 
     /* Constructor */
-    public StorageHelper(Context context) {
-        // store activity
+    private StorageHelper(Context context) {
+        // store application context
         mContext = context;
 
         // get "tracks" folder
@@ -73,24 +121,35 @@ public class StorageHelper implements TrackbookKeys {
             mFolder.mkdirs();
         }
 
-        // create temp file object // todo check -> may produce NullPointerException
+        // create temp file object (legacy JSON temp file) // todo check -> may produce NullPointerException
         String tempFilePathName = mFolder.toString() + "/" + createFileName(FILE_NAME_TEMP);
         mTempFile = new File(tempFilePathName);
 
-        // delete old track - exclude temp file
-        deleteOldTracks(false);
+        // create journal for the track currently being recorded
+        mJournal = new TrackJournal(new File(mFolder.toString() + "/" + FILE_NAME_TEMP + FILE_TYPE_JOURNAL_EXTENSION));
+
+        // create index of track files
+        mIndex = new TrackIndex(new File(mFolder.toString() + "/" + FILE_NAME_INDEX));
+
+        // keep list of track files up to date when files are changed by others
+        mFolderObserver = createFolderObserver(mFolder);
+        mFolderObserver.startWatching();
     }
 
 
     /* Checks if a temp file exits */
     public boolean tempFileExists() {
-        return mTempFile.exists();
+        return mJournal.exists() || mTempFile.exists();
     }
 
 
     /* Deletes temp file - if it exits */
     public boolean deleteTempFile() {
-        return mTempFile.exists() && mTempFile.delete();
+        synchronized (mJournal) {
+            boolean journalDeleted = mJournal.delete();
+            boolean tempFileDeleted = mTempFile.exists() && mTempFile.delete();
+            return journalDeleted || tempFileDeleted;
+        }
     }
 
 
@@ -107,47 +166,43 @@ public class StorageHelper implements TrackbookKeys {
         }
 
         if (mFolder != null && mFolder.exists() && mFolder.isDirectory() && mFolder.canWrite() && recordingStart != null && track != null) {
-            // calculate elevation and store it in track
-            track = calculateElevation(track);
+            long start = SystemClock.elapsedRealtime();
 
-            // create file object
-            String fileName;
+            // case: temp file - only append new WayPoints to journal
             if (fileType == FILE_TEMP_TRACK) {
-                // case: temp file
-                fileName = createFileName(FILE_NAME_TEMP);
-            } else {
-                // case: regular file
-                DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss", Locale.US);
-                String formattedDate = dateFormat.format(recordingStart);
-
-                // Save track to file name using the track's name, so that TrackBunger.getName()
-                // Does not need a re-write
-                String trackName = track.getmTrackName();
-                fileName = createFileName(trackName + " " + formattedDate);
+                long bytesWritten = appendToJournal(track);
+                if (bytesWritten < 0) {
+                    return false;
+                }
+                PipelineMetrics.getInstance().recordSaveTrack(SystemClock.elapsedRealtime() - start, bytesWritten);
+                return true;
             }
-            File file = new File(mFolder.toString() + "/" +  fileName);
-
-            // convert track to JSON
-            Gson gson = getCustomGson();
-            String json = gson.toJson(track);
-            // Show the track's JSON-data
-            LogHelper.v(LOG_TAG, "Track data: " +  json);
-
-            // write track
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-                LogHelper.v(LOG_TAG, "Saving track to external storage: " + file.toString());
-                bw.write(json);
-            } catch (IOException e) {
-                LogHelper.e(LOG_TAG, "Unable to saving track to external storage (IOException): " + file.toString());
+
+            // create file object
+            DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss", Locale.US);
+            String formattedDate = dateFormat.format(recordingStart);
+
+            // Save track to file name using the track's name, so that TrackBunger.getName()
+            // Does not need a re-write
+            String trackName = track.getmTrackName();
+            File file = new File(mFolder.toString() + "/" +  createFileName((trackName + " " + formattedDate).trim()));
+
+            // write track (binary file format)
+            LogHelper.v(LOG_TAG, "Saving track to external storage: " + file.toString());
+            long coordinatesOffset = writeTrackToFile(track, file);
+            if (coordinatesOffset < 0) {
                 return false;
             }
+            updateIndex(track, file, coordinatesOffset);
+            addTrackFile(file);
 
-            // if write was successful delete old track files - only if not a temp file
-            if (fileType != FILE_TEMP_TRACK) {
-                // include temp file if it exists
-                deleteOldTracks(true);
-            }
+            // recording is finalized: delete the temp file - the journal is compacted into the track file
+            deleteTempFile();
+
+            // delete old track files later - retention is housekeeping
+            PersistenceScheduler.getInstance(mContext).pruneTracks();
 
+            PipelineMetrics.getInstance().recordSaveTrack(SystemClock.elapsedRealtime() - start, file.length());
             return true;
 
         } else {
@@ -175,6 +230,11 @@ public class StorageHelper implements TrackbookKeys {
                 break;
         }
 
+        // replay journal of current recording
+        if (fileType == FILE_TEMP_TRACK && trackFile != null && trackFile.equals(mJournal.getFile())) {
+            return replayJournal();
+        }
+
         // read & parse file and return track
         return readTrackFromFile(trackFile);
     }
@@ -197,14 +257,103 @@ public class StorageHelper implements TrackbookKeys {
     }
 
 
-    /* Gets a list of .trackbook files - excluding the temp file */
-    public File[] getListOfTrackbookFiles() {
-        // TODO HANDLE CASE: EMPTY FILE LIST
+    /* Deletes given track file - its index entry is removed on the writer thread */
+    public boolean deleteTrack(File file) {
+        if (file != null && file.delete()) {
+            removeTrackFile(file);
+            PersistenceScheduler.getInstance(mContext).updateIndex();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+
+    /* Gets summaries of all track files (newest first) - reads files, do not call on the main thread. An outdated index is rewritten on the writer thread */
+    public List<TrackSummary> getTrackSummaries() {
+        List<TrackSummary> trackSummaries = new ArrayList<>();
+        if (collectTrackSummaries(trackSummaries)) {
+            PersistenceScheduler.getInstance(mContext).updateIndex();
+        }
+        return trackSummaries;
+    }
+
+
+    /* Rewrites the index if entries were added, changed or are stale - runs on the writer thread of PersistenceScheduler */
+    public void syncIndex() {
+        synchronized (mIndex) {
+            List<TrackSummary> trackSummaries = new ArrayList<>();
+            if (collectTrackSummaries(trackSummaries)) {
+                LogHelper.v(LOG_TAG, "Updating index: " + trackSummaries.size() + " tracks.");
+                try {
+                    mIndex.write(trackSummaries);
+                } catch (IOException e) {
+                    LogHelper.e(LOG_TAG, "Unable to write index: " + e);
+                }
+            }
+        }
+    }
+
+
+    /* Gets the track file described by given summary */
+    public File getTrackFile(TrackSummary summary) {
+        return new File(mFolder, summary.getFileName());
+    }
+
+
+    /* Gets summaries of all track files intersecting with given bounding box */
+    public List<TrackSummary> getTrackSummaries(double north, double east, double south, double west) {
+        List<TrackSummary> trackSummaries = new ArrayList<>();
+        for (TrackSummary summary : getTrackSummaries()) {
+            if (summary.intersects(north, east, south, west)) {
+                trackSummaries.add(summary);
+            }
+        }
+        return trackSummaries;
+    }
+
+
+    /* Loads only the coordinates of the track described by given summary - arrays must hold summary.getSize() elements */
+    public boolean loadTrackCoordinates(TrackSummary summary, double[] latitudes, double[] longitudes) {
+        File file = getTrackFile(summary);
+
+        // CASE: legacy file - parse the whole file
+        if (!summary.hasCoordinatesOffset()) {
+            Track track = readTrackFromFile(file);
+            if (track == null || track.getSize() != summary.getSize()) {
+                return false;
+            }
+            WayPointStore wayPoints = track.getWayPointStore();
+            for (int i = 0; i < wayPoints.size(); i++) {
+                latitudes[i] = wayPoints.getLatitude(i);
+                longitudes[i] = wayPoints.getLongitude(i);
+            }
+            return true;
+        }
 
-        // get files and sort them
-        File[] fileList = mFolder.listFiles();
-        LogHelper.v(LOG_TAG, "Listing trackbook files from file system: " + fileList.length);
-        return sortFiles(fileList);
+        // CASE: binary file - skip header and read coordinate columns only
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            long remaining = summary.getCoordinatesOffset();
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+                remaining = remaining - skipped;
+            }
+            TrackCodec.readCoordinates(in, summary.getSize(), latitudes, longitudes);
+            return true;
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to read coordinates from external storage: " + file.toString());
+            return false;
+        }
+    }
+
+
+    /* Gets a list of .trackbook files (newest first) - excluding the temp file */
+    public File[] getListOfTrackbookFiles() {
+        List<File> trackFiles = getTrackFiles();
+        return trackFiles.toArray(new File[trackFiles.size()]);
     }
 
 
@@ -225,6 +374,187 @@ public class StorageHelper implements TrackbookKeys {
 //    }
 
 
+    /* Reads the summary of a track file - legacy files are parsed completely (and converted to the binary file format later) */
+    private TrackSummary readSummaryFromFile(File file) {
+        // CASE: binary file format - read header and coordinate columns
+        TrackSummary summary = readBinarySummaryFromFile(file);
+        if (summary != null) {
+            return summary;
+        }
+
+        // CASE: JSON file format - parse the whole file, coordinates can only be read by parsing it again until it is converted
+        Track track = readTrackFromFile(file);
+        if (track == null) {
+            return null;
+        }
+        return TrackSummary.fromTrack(track, file, -1);
+    }
+
+
+    /* Reads the summary of a track file in binary file format - returns null for other files */
+    private TrackSummary readBinarySummaryFromFile(File file) {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            // peek at the beginning of the file to determine its format
+            byte[] firstBytes = new byte[4];
+            in.mark(firstBytes.length);
+            int bytesRead = in.read(firstBytes);
+            in.reset();
+            if (bytesRead == firstBytes.length && TrackCodec.isBinaryTrack(firstBytes)) {
+                return TrackCodec.readSummary(in, file);
+            } else {
+                return null;
+            }
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to read summary from external storage: " + file.toString());
+            return null;
+        }
+    }
+
+
+    /* Adds or updates the index entry of given track file */
+    private void updateIndex(Track track, File file, long coordinatesOffset) {
+        synchronized (mIndex) {
+            try {
+                mIndex.put(TrackSummary.fromTrack(track, file, coordinatesOffset));
+            } catch (IOException e) {
+                LogHelper.e(LOG_TAG, "Unable to update index: " + e);
+            }
+        }
+    }
+
+
+    /* Collects the summaries of all track files (newest first) - returns true if the index is out of date */
+    private boolean collectTrackSummaries(List<TrackSummary> trackSummaries) {
+        if (mFolder == null || !mFolder.isDirectory()) {
+            return false;
+        }
+
+        // read index
+        Map<String, TrackSummary> indexedSummaries = new HashMap<>();
+        boolean indexExists;
+        synchronized (mIndex) {
+            indexExists = mIndex.exists();
+            try {
+                for (TrackSummary summary : mIndex.read()) {
+                    indexedSummaries.put(summary.getFileName(), summary);
+                }
+            } catch (IOException e) {
+                LogHelper.w(LOG_TAG, "Unable to read index - rebuilding it: " + e);
+            }
+        }
+
+        // match index with track files - read summaries of new or changed files
+        boolean indexChanged = false;
+        for (File file : getListOfTrackbookFiles()) {
+            TrackSummary summary = indexedSummaries.remove(file.getName());
+            if (summary == null || !summary.isUpToDate(file)) {
+                summary = readSummaryFromFile(file);
+                indexChanged = true;
+            }
+            if (summary != null) {
+                trackSummaries.add(summary);
+            }
+        }
+        return indexChanged || !indexedSummaries.isEmpty() || !indexExists;
+    }
+
+
+    /* Returns a copy of the list of track files (newest first) - the folder is only listed on first use */
+    private synchronized List<File> getTrackFiles() {
+        if (mTrackFiles == null) {
+            mTrackFiles = new ArrayList<>();
+            File[] files = mFolder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (isTrackFile(file)) {
+                        mTrackFiles.add(file);
+                    }
+                }
+            }
+            Collections.sort(mTrackFiles, NEWEST_FIRST);
+            LogHelper.v(LOG_TAG, "Listed trackbook files from file system: " + mTrackFiles.size());
+        }
+        return new ArrayList<>(mTrackFiles);
+    }
+
+
+    /* Adds given track file to the list of track files - if not already listed */
+    private synchronized void addTrackFile(File file) {
+        if (mTrackFiles == null || !isTrackFile(file)) {
+            return;
+        }
+        int position = Collections.binarySearch(mTrackFiles, file, NEWEST_FIRST);
+        if (position < 0) {
+            mTrackFiles.add(-position - 1, file);
+        }
+    }
+
+
+    /* Removes given track file from the list of track files */
+    private synchronized void removeTrackFile(File file) {
+        if (mTrackFiles != null) {
+            mTrackFiles.remove(file);
+        }
+    }
+
+
+    /* Creates an observer that updates the list of track files on changes in given folder */
+    private FileObserver createFolderObserver(final File folder) {
+        return new FileObserver(folder.getPath(), FOLDER_OBSERVER_EVENTS) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (path == null) {
+                    return;
+                }
+                File file = new File(folder, path);
+                if ((event & (FileObserver.DELETE | FileObserver.MOVED_FROM)) != 0) {
+                    removeTrackFile(file);
+                } else if (file.exists()) {
+                    addTrackFile(file);
+                }
+            }
+        };
+    }
+
+
+    /* Checks if given file is a track file - excluding the temp file */
+    private boolean isTrackFile(File file) {
+        return file.getName().endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !file.equals(mTempFile);
+    }
+
+
+    /* Appends new WayPoints of given track to journal - returns the number of bytes written, -1 if failed */
+    private long appendToJournal(Track track) {
+        synchronized (mJournal) {
+            try {
+                long bytesWritten = mJournal.append(track);
+                // journal supersedes temp file written by earlier versions
+                if (mTempFile.exists()) {
+                    mTempFile.delete();
+                }
+                return bytesWritten;
+            } catch (IOException e) {
+                LogHelper.e(LOG_TAG, "Unable to append track to journal (IOException): " + mJournal.getFile().toString());
+                return -1;
+            }
+        }
+    }
+
+
+    /* Replays journal into a track */
+    private Track replayJournal() {
+        synchronized (mJournal) {
+            try {
+                LogHelper.v(LOG_TAG, "Replaying journal from external storage: " + mJournal.getFile().toString());
+                return mJournal.replay();
+            } catch (IOException e) {
+                LogHelper.e(LOG_TAG, "Unable to replay journal from external storage: " + mJournal.getFile().toString());
+                return null;
+            }
+        }
+    }
+
+
     // loads file and parses it into a track
     private Track readTrackFromFile(File file) {
 
@@ -234,30 +564,85 @@ public class StorageHelper implements TrackbookKeys {
             return null;
         }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
             LogHelper.v(LOG_TAG, "Loading track from external storage: " + file.toString());
 
-            // read until last line reached
-            String fileContent;
-            String singleLine;
-            StringBuilder sb = new StringBuilder();
-            while ((singleLine = br.readLine()) != null) {
-                sb.append(singleLine);
-                sb.append("\n");
-            }
-            fileContent = sb.toString();
+            // peek at the beginning of the file to determine its format
+            byte[] firstBytes = new byte[4];
+            in.mark(firstBytes.length);
+            int bytesRead = in.read(firstBytes);
+            in.reset();
 
-            // prepare custom Gson and return Track object
-            Gson gson = getCustomGson();
-            return gson.fromJson(fileContent, TrackBuilder.class).toTrack();
+            if (bytesRead == firstBytes.length && TrackCodec.isBinaryTrack(firstBytes)) {
+                // CASE: binary file format (version 3) - decode columns directly from stream
+                return TrackCodec.decode(in, file.length()).toTrack();
+            } else {
+                // CASE: JSON file format (version 1 and 2) - let Gson parse the stream
+                Gson gson = getCustomGson();
+                LegacyTrackBuilder trackBuilder = gson.fromJson(new InputStreamReader(in, "UTF-8"), LegacyTrackBuilder.class);
+                if (trackBuilder == null) {
+                    LogHelper.e(LOG_TAG, "Track file is empty: " + file.toString());
+                    return null;
+                }
+                Track track = trackBuilder.toTrack();
+                // convert to binary file format on the writer thread - skip temp file of earlier versions
+                if (track != null && !file.equals(mTempFile)) {
+                    PersistenceScheduler.getInstance(mContext).convertTrackFile(track.snapshot(), file);
+                }
+                return track;
+            }
 
-        } catch (IOException e) {
+        } catch (IOException | JsonParseException e) {
             LogHelper.e(LOG_TAG, "Unable to read file from external storage: " + file.toString());
             return null;
         }
     }
 
 
+    /* Converts a track file in JSON format (version 1 and 2) to the binary file format - runs on the writer thread of PersistenceScheduler */
+    public boolean convertLegacyTrackFile(Track track, File file) {
+        // file may have been deleted or converted since it was read
+        if (!isLegacyTrackFile(file)) {
+            return false;
+        }
+        LogHelper.v(LOG_TAG, "Converting track file to binary file format: " + file.toString());
+        File convertedFile = new File(file.getPath() + ".tmp");
+        long coordinatesOffset = writeTrackToFile(track, convertedFile);
+        // replace legacy file in one step - it stays in place if anything fails
+        if (coordinatesOffset >= 0 && convertedFile.renameTo(file)) {
+            updateIndex(track, file, coordinatesOffset);
+            return true;
+        } else {
+            LogHelper.e(LOG_TAG, "Unable to convert track file: " + file.toString());
+            convertedFile.delete();
+            return false;
+        }
+    }
+
+
+    /* Checks if given file exists and is not in binary file format */
+    private boolean isLegacyTrackFile(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] firstBytes = new byte[4];
+            int bytesRead = in.read(firstBytes);
+            return bytesRead > 0 && !(bytesRead == firstBytes.length && TrackCodec.isBinaryTrack(firstBytes));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /* Writes given track in binary file format to given file - returns the offset of the coordinates or -1 */
+    private long writeTrackToFile(Track track, File file) {
+        try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            return TrackCodec.encode(track, out);
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to saving track to external storage (IOException): " + file.toString());
+            return -1;
+        }
+    }
+
+
     /*  Creates a Gson object */
     private Gson getCustomGson() {
         GsonBuilder gsonBuilder = new GsonBuilder();
@@ -269,12 +654,10 @@ public class StorageHelper implements TrackbookKeys {
     private File getMostCurrentTrack() {
 
         if (mFolder != null && mFolder.isDirectory()) {
-            // get files and sort them
-            File[] files = mFolder.listFiles();
-            files = sortFiles(files);
-            if (files.length > 0 && files[0].getName().endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !files[0].equals(mTempFile)){
+            List<File> trackFiles = getTrackFiles();
+            if (trackFiles.size() > 0) {
                 // return latest track
-                return files[0];
+                return trackFiles.get(0);
             }
         }
         LogHelper.e(LOG_TAG, "Unable to get files from given folder. Folder is probably empty.");
@@ -284,7 +667,9 @@ public class StorageHelper implements TrackbookKeys {
 
     /* Gets temp file - if it exists */
     private File getTempFile() {
-        if (mTempFile.exists()) {
+        if (mJournal.exists()) {
+            return mJournal.getFile();
+        } else if (mTempFile.exists()) {
             return mTempFile;
         } else {
             return null;
@@ -292,65 +677,19 @@ public class StorageHelper implements TrackbookKeys {
     }
 
 
-    /* Gets the last track from directory */
-    private void deleteOldTracks(boolean includeTempFile) {
+    /* Deletes all but the latest track files (MAXIMUM_TRACK_FILES) - runs on the writer thread of PersistenceScheduler */
+    public void deleteOldTracks() {
 
         if (mFolder != null && mFolder.isDirectory()) {
             LogHelper.v(LOG_TAG, "Deleting older recordings.");
 
-            // get files and sort them
-            File[] files = mFolder.listFiles();
-            files = sortFiles(files);
-
-            // store length of array
-            int numberOfFiles = files.length;
-
-            // keep the latest ten (mMaxTrackFiles) track files
-            int index = MAXIMUM_TRACK_FILES;
-            // iterate through array
-            while (index < numberOfFiles && files[index].getName().endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !files[index].equals(mTempFile)) {
-                files[index].delete();
-                index++;
+            // keep the latest track files
+            List<File> trackFiles = getTrackFiles();
+            for (int i = MAXIMUM_TRACK_FILES; i < trackFiles.size(); i++) {
+                deleteTrack(trackFiles.get(i));
             }
         }
 
-        // delete temp file if it exists
-        if (includeTempFile && mTempFile.exists()) {
-            mTempFile.delete();
-        }
-
-    }
-
-
-    /* Sorts array of files in a way that the newest files are at the top and non-.trackbook files are at the bottom */
-    private File[] sortFiles(File[] files) {
-        // sort array
-        LogHelper.v(LOG_TAG, "Sorting files.");
-        Arrays.sort(files, new Comparator<File>() {
-            @Override
-            public int compare(File file1, File file2) {
-
-                // discard temp file and files not ending with ".trackbook"
-                boolean file1IsTrack = file1.getName().endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !file1.equals(mTempFile);
-                boolean file2IsTrack = file2.getName().endsWith(FILE_TYPE_TRACKBOOK_EXTENSION) && !file2.equals(mTempFile);
-
-                // note: "greater" means higher index in array
-                if (!file1IsTrack && file2IsTrack) {
-                    // file1 is not a track, file1 is greater
-                    return 1;
-                } else if (!file2IsTrack && file1IsTrack) {
-                    // file2 is not a track, file2 is greater
-                    return -1;
-                } else {
-                    // "compareTo" compares abstract path names lexicographically | 0 == equal | -1 == file2 less than file1 | 1 == file2 greater than file1
-                    return file2.compareTo(file1);
-                }
-
-            }
-        });
-
-        // hand back sorted array of files
-        return files;
     }
 
 
@@ -373,70 +712,6 @@ public class StorageHelper implements TrackbookKeys {
     }
 
 
-    /* Calculates positive and negative elevation of track */
-    private Track calculateElevation(@Nullable Track track) {
-        double maxAltitude = 0;
-        double minAltitude = 0;
-        double positiveElevation = 0;
-        double negativeElevation = 0;
-
-        if (track != null && track.getWayPoints().size() > 0) {
-            double previousLocationAltitude;
-            double currentLocationAltitude;
-            long previousTimeStamp;
-            long currentTimeStamp;
-
-            // initial values for max height and min height - first waypoint
-            maxAltitude = track.getWayPointLocation(0).getAltitude();
-            minAltitude = maxAltitude;
-
-            // apply filter & smooth data
-//            track = smoothTrack(track, 15f, 35f);
-
-            // iterate over track
-            for (int i = 1; i < track.getWayPoints().size(); i++ ) {
-
-                // get time difference
-                previousTimeStamp = track.getWayPointLocation(i -1).getTime();
-                currentTimeStamp = track.getWayPointLocation(i).getTime();
-                double timeDiff = (currentTimeStamp - previousTimeStamp);
-
-                // factor is bigger than 1 if the time stamp difference is larger than the movement recording interval (usually 15 seconds)
-                double timeDiffFactor = timeDiff / FIFTEEN_SECONDS_IN_MILLISECONDS;
-
-                // height of previous and current waypoints
-                previousLocationAltitude = track.getWayPointLocation(i -1).getAltitude();
-                currentLocationAltitude = track.getWayPointLocation(i).getAltitude();
-
-                // check for new min and max heights
-                if (currentLocationAltitude > maxAltitude) {
-                    maxAltitude = currentLocationAltitude;
-                }
-                if (minAltitude == 0 || currentLocationAltitude < minAltitude) {
-                    minAltitude = currentLocationAltitude;
-                }
-
-                // get elevation difference and sum it up
-                double altitudeDiff = currentLocationAltitude - previousLocationAltitude;
-                if (altitudeDiff > 0 && altitudeDiff < MEASUREMENT_ERROR_THRESHOLD * timeDiffFactor && currentLocationAltitude != 0) {
-                    positiveElevation = positiveElevation + altitudeDiff;
-                }
-                if (altitudeDiff < 0 && altitudeDiff > -MEASUREMENT_ERROR_THRESHOLD * timeDiffFactor && currentLocationAltitude != 0) {
-                    negativeElevation = negativeElevation + altitudeDiff;
-                }
-
-            }
-
-            // store elevation data in track
-            track.setMaxAltitude(maxAltitude);
-            track.setMinAltitude(minAltitude);
-            track.setPositiveElevation(positiveElevation);
-            track.setNegativeElevation(negativeElevation);
-        }
-        return track;
-    }
-
-
     /* Tries to smooth the elevation data using a low pass filter */
     private Track smoothTrack(Track input, float dt, float rc) {
 
@@ -459,19 +734,21 @@ public class StorageHelper implements TrackbookKeys {
         float alpha = dt / (rc + dt);
 
         // set initial value for first waypoint
-        double outputInitialAltitudeValue = alpha * input.getWayPoints().get(0).getLocation().getAltitude();
-        output.getWayPoints().get(0).getLocation().setAltitude(outputInitialAltitudeValue);
+        WayPointStore inputWayPoints = input.getWayPointStore();
+        WayPointStore outputWayPoints = output.getWayPointStore();
+        double outputInitialAltitudeValue = alpha * inputWayPoints.getAltitude(0);
+        outputWayPoints.setAltitude(0, (float) outputInitialAltitudeValue);
 
         double inputCurrentAltitudeValue;
         double outputPreviousAltitudeValue;
         double outputCurrentAltitudeValue;
         for (int i = 1; i < input.getSize(); i++) {
-            inputCurrentAltitudeValue = input.getWayPoints().get(i).getLocation().getAltitude();
-            outputPreviousAltitudeValue = output.getWayPoints().get(i-1).getLocation().getAltitude();
+            inputCurrentAltitudeValue = inputWayPoints.getAltitude(i);
+            outputPreviousAltitudeValue = outputWayPoints.getAltitude(i-1);
 
             outputCurrentAltitudeValue = alpha * inputCurrentAltitudeValue + (1 - alpha) * outputPreviousAltitudeValue;
 
-            output.getWayPoints().get(i).getLocation().setAltitude(outputCurrentAltitudeValue);
+            outputWayPoints.setAltitude(i, (float) outputCurrentAltitudeValue);
         }
 
         return output;
@@ -27,7 +27,7 @@ import android.view.MotionEvent;
 import android.view.animation.DecelerateInterpolator;
 import android.widget.Scroller;
 
-import org.y20k.trackbook.helpers.LogHelper;
+import org.y20k.trackbook.core.LogHelper;
 
 import java.lang.reflect.Field;
 
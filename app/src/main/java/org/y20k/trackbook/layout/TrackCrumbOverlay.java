@@ -0,0 +1,299 @@
+/**
+ * TrackCrumbOverlay.java
+ * Implements the TrackCrumbOverlay class
+ * A TrackCrumbOverlay draws the WayPoints of a track as crumbs in a single pass
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.layout;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Point;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+import android.view.MotionEvent;
+import android.widget.Toast;
+
+import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+import org.y20k.trackbook.R;
+import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.WayPointStore;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.core.content.ContextCompat;
+
+
+/**
+ * TrackCrumbOverlay class
+ */
+public class TrackCrumbOverlay extends Overlay {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackCrumbOverlay.class.getSimpleName();
+
+    /* Radius around a tap in which crumbs are hit (in dp) */
+    private static final float HIT_RADIUS = 16f;
+
+
+    /* Main class variables */
+    private final Context mContext;
+    private final SparseArray<Bitmap> mMarkerBitmaps;
+    private final int mHitRadius;
+    private final GeoPoint mReusableGeoPoint;
+    private final Point mReusablePoint;
+    private WayPointStore mWayPoints;
+    private int mSize;
+    private boolean mTrackingActive;
+    private Map<Long, int[]> mGrid;
+    private double mGridZoomLevel;
+    private double mGridCellHeight;
+    private double mGridCellWidth;
+
+
+    /* Constructor */
+    public TrackCrumbOverlay(Context context, Track track, boolean trackingActive) {
+        super();
+        mContext = context;
+        mMarkerBitmaps = new SparseArray<>();
+        mHitRadius = Math.round(HIT_RADIUS * context.getResources().getDisplayMetrics().density);
+        mReusableGeoPoint = new GeoPoint(0d, 0d);
+        mReusablePoint = new Point();
+        setTrack(track, trackingActive);
+    }
+
+
+    /* Replaces the track drawn by this overlay */
+    public void setTrack(Track track, boolean trackingActive) {
+        mWayPoints = track.getWayPointStore();
+        mSize = mWayPoints.size();
+        mTrackingActive = trackingActive;
+        mGrid = null;
+    }
+
+
+    @Override
+    public void draw(Canvas canvas, MapView mapView, boolean shadow) {
+        if (shadow || mSize == 0) {
+            return;
+        }
+        Projection projection = mapView.getProjection();
+        BoundingBox boundingBox = projection.getBoundingBox();
+        double north = boundingBox.getLatNorth();
+        double south = boundingBox.getLatSouth();
+        double east = boundingBox.getLonEast();
+        double west = boundingBox.getLonWest();
+
+        for (int i = 0; i < mSize; i++) {
+            double latitude = mWayPoints.getLatitude(i);
+            double longitude = mWayPoints.getLongitude(i);
+
+            // skip crumbs outside the visible part of the map (markers may reach in by a few pixels - close enough)
+            if (latitude > north || latitude < south || (west <= east && (longitude > east || longitude < west))) {
+                continue;
+            }
+
+            // draw marker - its bottom center marks the position (like OverlayItem)
+            Bitmap marker = getMarkerBitmap(i);
+            mReusableGeoPoint.setCoords(latitude, longitude);
+            projection.toPixels(mReusableGeoPoint, mReusablePoint);
+            canvas.drawBitmap(marker, mReusablePoint.x - marker.getWidth() / 2f, mReusablePoint.y - marker.getHeight(), null);
+        }
+    }
+
+
+    @Override
+    public boolean onSingleTapConfirmed(MotionEvent event, MapView mapView) {
+        int index = findWayPoint(event, mapView);
+        if (index < 0) {
+            return false;
+        }
+        // tap on waypoint - build tooltip only for this waypoint
+        String time = SimpleDateFormat.getTimeInstance(SimpleDateFormat.MEDIUM, Locale.getDefault()).format(mWayPoints.getTime(index));
+        String title = mContext.getString(R.string.marker_description_source) + ": " + WayPointStore.getProviderName(mWayPoints.getProvider(index)) + " | " + mContext.getString(R.string.marker_description_time) + ": " + time;
+        Toast.makeText(mContext, title, Toast.LENGTH_LONG).show();
+        return true;
+    }
+
+
+    @Override
+    public boolean onLongPress(MotionEvent event, MapView mapView) {
+        int index = findWayPoint(event, mapView);
+        if (index < 0) {
+            return false;
+        }
+        // long press on waypoint
+        String description = mContext.getString(R.string.marker_description_accuracy) + ": " + mWayPoints.getAccuracy(index);
+        Toast.makeText(mContext, description, Toast.LENGTH_LONG).show();
+        return true;
+    }
+
+
+    /* Returns index of the WayPoint closest to the given touch event - or -1 */
+    private int findWayPoint(MotionEvent event, MapView mapView) {
+        if (mSize == 0) {
+            return -1;
+        }
+        Projection projection = mapView.getProjection();
+        int x = (int) event.getX();
+        int y = (int) event.getY();
+
+        // markers are drawn above their position
+        int markerCenterOffset = getMarkerBitmap(mSize - 1).getHeight() / 2;
+        int positionY = y + markerCenterOffset;
+
+        // (re-)build grid for current zoom level
+        IGeoPoint topLeft = projection.fromPixels(x - mHitRadius, positionY - mHitRadius);
+        IGeoPoint bottomRight = projection.fromPixels(x + mHitRadius, positionY + mHitRadius);
+        if (mGrid == null || mGridZoomLevel != projection.getZoomLevel()) {
+            buildGrid(Math.abs(topLeft.getLatitude() - bottomRight.getLatitude()), Math.abs(bottomRight.getLongitude() - topLeft.getLongitude()));
+            mGridZoomLevel = projection.getZoomLevel();
+        }
+
+        // check cells covered by the hit radius
+        long firstRow = getRow(Math.min(topLeft.getLatitude(), bottomRight.getLatitude()));
+        long lastRow = getRow(Math.max(topLeft.getLatitude(), bottomRight.getLatitude()));
+        long firstColumn = getColumn(Math.min(topLeft.getLongitude(), bottomRight.getLongitude()));
+        long lastColumn = getColumn(Math.max(topLeft.getLongitude(), bottomRight.getLongitude()));
+        int closestIndex = -1;
+        long closestDistance = (long) mHitRadius * mHitRadius;
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                int[] cell = mGrid.get(getCellKey(row, column));
+                if (cell == null) {
+                    continue;
+                }
+                for (int index : cell) {
+                    mReusableGeoPoint.setCoords(mWayPoints.getLatitude(index), mWayPoints.getLongitude(index));
+                    projection.toPixels(mReusableGeoPoint, mReusablePoint);
+                    long dx = mReusablePoint.x - x;
+                    long dy = mReusablePoint.y - positionY;
+                    long distance = dx * dx + dy * dy;
+                    // prefer later WayPoints - they are drawn on top
+                    if (distance < closestDistance || (distance == closestDistance && index > closestIndex)) {
+                        closestDistance = distance;
+                        closestIndex = index;
+                    }
+                }
+            }
+        }
+        return closestIndex;
+    }
+
+
+    /* Sorts all WayPoints into grid cells of given size (in degrees) */
+    private void buildGrid(double cellHeight, double cellWidth) {
+        mGridCellHeight = Math.max(cellHeight, 1e-9);
+        mGridCellWidth = Math.max(cellWidth, 1e-9);
+
+        // count WayPoints per cell
+        long[] keys = new long[mSize];
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < mSize; i++) {
+            keys[i] = getCellKey(getRow(mWayPoints.getLatitude(i)), getColumn(mWayPoints.getLongitude(i)));
+            Integer count = counts.get(keys[i]);
+            counts.put(keys[i], count == null ? 1 : count + 1);
+        }
+
+        // fill cells
+        Map<Long, int[]> grid = new HashMap<>(counts.size() * 2);
+        for (int i = 0; i < mSize; i++) {
+            int[] cell = grid.get(keys[i]);
+            if (cell == null) {
+                cell = new int[counts.get(keys[i]) + 1];
+                grid.put(keys[i], cell);
+            }
+            // first element is used as fill counter until the cell is complete
+            cell[++cell[0]] = i;
+        }
+        for (Map.Entry<Long, int[]> entry : grid.entrySet()) {
+            int[] cell = entry.getValue();
+            int[] indices = new int[cell.length - 1];
+            System.arraycopy(cell, 1, indices, 0, indices.length);
+            entry.setValue(indices);
+        }
+        mGrid = grid;
+    }
+
+
+    /* Returns grid row of given latitude */
+    private long getRow(double latitude) {
+        return (long) Math.floor(latitude / mGridCellHeight);
+    }
+
+
+    /* Returns grid column of given longitude */
+    private long getColumn(double longitude) {
+        return (long) Math.floor(longitude / mGridCellWidth);
+    }
+
+
+    /* Combines row and column to a key */
+    private long getCellKey(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+
+    /* Returns the cached marker bitmap for given WayPoint */
+    private Bitmap getMarkerBitmap(int index) {
+        int drawableId = getMarkerDrawableId(index);
+        Bitmap bitmap = mMarkerBitmaps.get(drawableId);
+        if (bitmap == null) {
+            Drawable drawable = ContextCompat.getDrawable(mContext, drawableId);
+            bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawable.draw(canvas);
+            mMarkerBitmaps.put(drawableId, bitmap);
+        }
+        return bitmap;
+    }
+
+
+    /* Determines the marker for given WayPoint */
+    private int getMarkerDrawableId(int index) {
+        boolean currentPosition = index == mSize - 1;
+        boolean stopOver = mWayPoints.isStopOver(index);
+
+        // CASE 1: Tracking active and WayPoint is not current position
+        if (mTrackingActive && !currentPosition) {
+            return stopOver ? R.drawable.ic_my_location_crumb_grey_24dp : R.drawable.ic_my_location_crumb_red_24dp;
+        }
+
+        // CASE 2: Tracking active and WayPoint is current position
+        else if (mTrackingActive) {
+            return stopOver ? R.drawable.ic_my_location_dot_blue_grey_24dp : R.drawable.ic_my_location_dot_red_24dp;
+        }
+
+        // CASE 3: Tracking not active and WayPoint is not current position
+        else if (!currentPosition) {
+            return stopOver ? R.drawable.ic_my_location_crumb_grey_24dp : R.drawable.ic_my_location_crumb_blue_24dp;
+        }
+
+        // CASE 4: Tracking not active and WayPoint is current position
+        else {
+            return R.drawable.ic_my_location_crumb_blue_24dp;
+        }
+    }
+
+}
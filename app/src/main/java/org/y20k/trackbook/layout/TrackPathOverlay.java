@@ -0,0 +1,80 @@
+/**
+ * TrackPathOverlay.java
+ * Implements the TrackPathOverlay class
+ * A TrackPathOverlay draws a track as polylines simplified for the current zoom level
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.layout;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.overlay.FolderOverlay;
+import org.osmdroid.views.overlay.Polyline;
+import org.y20k.trackbook.core.SimplifiedPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * TrackPathOverlay class
+ */
+public class TrackPathOverlay extends FolderOverlay {
+
+    /* Main class variables */
+    private final SimplifiedPath mPath;
+    private final int mColor;
+    private int mZoomLevel;
+    private BoundingBox mBoundingBox;
+
+
+    /* Constructor */
+    public TrackPathOverlay(SimplifiedPath path, int color) {
+        super();
+        mPath = path;
+        mColor = color;
+        mZoomLevel = -1;
+    }
+
+
+    /* Rebuilds the polylines for the visible part of the given map - if zoom level or visible area changed */
+    public void update(MapView mapView) {
+        int zoomLevel = (int) Math.round(mapView.getZoomLevelDouble());
+        BoundingBox boundingBox = mapView.getBoundingBox();
+        if (zoomLevel == mZoomLevel && mBoundingBox != null
+                && boundingBox.getLatNorth() == mBoundingBox.getLatNorth() && boundingBox.getLonEast() == mBoundingBox.getLonEast()
+                && boundingBox.getLatSouth() == mBoundingBox.getLatSouth() && boundingBox.getLonWest() == mBoundingBox.getLonWest()) {
+            return;
+        }
+        mZoomLevel = zoomLevel;
+        mBoundingBox = boundingBox;
+
+        // remove old polylines
+        getItems().clear();
+
+        // create a polyline for every visible run of simplified points
+        for (int[] run : mPath.select(zoomLevel, boundingBox.getLatNorth(), boundingBox.getLonEast(), boundingBox.getLatSouth(), boundingBox.getLonWest())) {
+            List<GeoPoint> geoPoints = new ArrayList<>(run.length);
+            for (int index : run) {
+                geoPoints.add(new GeoPoint(mPath.getLatitude(index), mPath.getLongitude(index)));
+            }
+            Polyline polyline = new Polyline();
+            polyline.setColor(mColor);
+            polyline.setPoints(geoPoints);
+            add(polyline);
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * BaselineComparator.java
+ * Implements the BaselineComparator class
+ * A BaselineComparator compares benchmark results with the committed baseline and summarizes new baselines
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * BaselineComparator class
+ *
+ * Reads two benchmark result files - the baseline and a new run - and prints
+ * time and allocation per operation of every benchmark side by side. Exits
+ * with status 1 if a benchmark got slower or allocates more than the
+ * tolerance allows. Both files may be raw JMH output (JSON) or a summary.
+ *
+ * With --summarize a raw JMH result file is reduced to a summary - score,
+ * error, unit and bytes per operation of every benchmark. The committed
+ * baseline is such a summary. To measure an older revision, check it out
+ * into a separate worktree (git worktree add ../before <tag>), run
+ * ./gradlew :benchmarks:jmh :benchmarks:jmhBaseline -Pjmh.baseline=<file>
+ * there and compare against that file with -Pjmh.baseline=<file>.
+ * Usage: BaselineComparator baseline.json result.json [tolerance]
+ *        BaselineComparator --summarize result.json baseline.json
+ */
+public final class BaselineComparator {
+
+    /* Define log tag */
+    private static final String LOG_TAG = BaselineComparator.class.getSimpleName();
+
+    /* Comparator constants */
+    private static final double DEFAULT_TOLERANCE = 0.15d; // 15 percent
+    private static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm"; // bytes per operation, from -prof gc
+    private static final String SUMMARIZE = "--summarize";
+    private static final String KEY_RESULTS = "results";
+    private static final String KEY_SCORE = "score";
+    private static final String KEY_ERROR = "error";
+    private static final String KEY_UNIT = "unit";
+    private static final String KEY_ALLOCATION = "bytesPerOp";
+
+
+    /* Main method */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && SUMMARIZE.equals(args[0])) {
+            summarize(args[1], args[2]);
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: " + LOG_TAG + " baseline.json result.json [tolerance]");
+            System.err.println("       " + LOG_TAG + " " + SUMMARIZE + " result.json baseline.json");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        Map<String, double[]> baseline = readResults(args[0]);
+        Map<String, double[]> results = readResults(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format(Locale.US, "%-60s %14s %14s %8s %14s %14s %8s", "Benchmark", "base [us/op]", "now [us/op]", "change", "base [B/op]", "now [B/op]", "change"));
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            double[] now = entry.getValue();
+            double[] base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.println(String.format(Locale.US, "%-60s %14s %14.1f %8s %14s %14.0f %8s", entry.getKey(), "-", now[0], "new", "-", now[1], "new"));
+                continue;
+            }
+            double timeChange = getChange(base[0], now[0]);
+            double allocationChange = getChange(base[1], now[1]);
+            boolean regression = timeChange > tolerance || allocationChange > tolerance;
+            if (regression) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.US, "%-60s %14.1f %14.1f %+7.1f%% %14.0f %14.0f %+7.1f%%%s", entry.getKey(),
+                    base[0], now[0], timeChange * 100d, base[1], now[1], allocationChange * 100d, regression ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + Math.round(tolerance * 100d) + "%.");
+            System.exit(1);
+        }
+    }
+
+
+    /* Reduces a raw JMH result file to a summary and writes it to the given file */
+    private static void summarize(String resultFileName, String summaryFileName) throws IOException {
+        JsonObject summary = new JsonObject();
+        JsonObject results = new JsonObject();
+        for (JsonElement element : parse(resultFileName).getAsJsonArray()) {
+            JsonObject run = element.getAsJsonObject();
+            if (!summary.has("jmhVersion")) {
+                summary.addProperty("jmhVersion", run.get("jmhVersion").getAsString());
+                summary.addProperty("vmName", run.get("vmName").getAsString());
+                summary.addProperty("vmVersion", run.get("vmVersion").getAsString());
+                summary.addProperty("mode", run.get("mode").getAsString());
+            }
+            JsonObject primaryMetric = run.getAsJsonObject("primaryMetric");
+            JsonObject result = new JsonObject();
+            result.addProperty(KEY_SCORE, round(primaryMetric.get("score").getAsDouble()));
+            result.addProperty(KEY_ERROR, round(primaryMetric.get("scoreError").getAsDouble()));
+            result.addProperty(KEY_UNIT, primaryMetric.get("scoreUnit").getAsString());
+            double allocation = getAllocation(run);
+            if (!Double.isNaN(allocation)) {
+                result.addProperty(KEY_ALLOCATION, Math.round(allocation));
+            }
+            results.add(getKey(run), result);
+        }
+        summary.add(KEY_RESULTS, results);
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(summaryFileName), "UTF-8")) {
+            new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(summary, writer);
+            writer.write('\n');
+        }
+        System.out.println("Summarized " + results.size() + " benchmark(s) into " + summaryFileName);
+    }
+
+
+    /* Reads a raw JMH result file or a summary - maps "benchmark:param=value" to {score, bytes per operation} */
+    private static Map<String, double[]> readResults(String fileName) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        JsonElement root = parse(fileName);
+        if (root.isJsonObject()) {
+            // summary written by summarize()
+            for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject().getAsJsonObject(KEY_RESULTS).entrySet()) {
+                JsonObject result = entry.getValue().getAsJsonObject();
+                double allocation = result.has(KEY_ALLOCATION) ? result.get(KEY_ALLOCATION).getAsDouble() : Double.NaN;
+                results.put(entry.getKey(), new double[] {result.get(KEY_SCORE).getAsDouble(), allocation});
+            }
+        } else {
+            // raw JMH output
+            for (JsonElement element : root.getAsJsonArray()) {
+                JsonObject run = element.getAsJsonObject();
+                double score = run.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+                results.put(getKey(run), new double[] {score, getAllocation(run)});
+            }
+        }
+        return results;
+    }
+
+
+    /* Parses a JSON file */
+    private static JsonElement parse(String fileName) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(fileName), "UTF-8")) {
+            return new JsonParser().parse(reader);
+        }
+    }
+
+
+    /* Returns the key of a JMH run - benchmark name without package, followed by its parameters */
+    private static String getKey(JsonObject run) {
+        StringBuilder key = new StringBuilder(run.get("benchmark").getAsString().replace(BaselineComparator.class.getPackage().getName() + ".", ""));
+        if (run.has("params")) {
+            for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                key.append(':').append(param.getKey()).append('=').append(param.getValue().getAsString());
+            }
+        }
+        return key.toString();
+    }
+
+
+    /* Returns the bytes allocated per operation of a JMH run - NaN if it ran without -prof gc */
+    private static double getAllocation(JsonObject run) {
+        JsonObject secondaryMetrics = run.getAsJsonObject("secondaryMetrics");
+        if (secondaryMetrics != null && secondaryMetrics.has(ALLOCATION_METRIC)) {
+            return secondaryMetrics.getAsJsonObject(ALLOCATION_METRIC).get("score").getAsDouble();
+        }
+        return Double.NaN;
+    }
+
+
+    /* Rounds a score to three decimals */
+    private static double round(double value) {
+        return Math.round(value * 1000d) / 1000d;
+    }
+
+
+    /* Returns the relative change from base to now - zero if unknown */
+    private static double getChange(double base, double now) {
+        if (Double.isNaN(base) || Double.isNaN(now) || base <= 0d) {
+            return 0d;
+        }
+        return (now - base) / base;
+    }
+
+}
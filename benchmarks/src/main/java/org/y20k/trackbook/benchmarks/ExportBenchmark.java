@@ -0,0 +1,75 @@
+/**
+ * ExportBenchmark.java
+ * Implements the ExportBenchmark class
+ * An ExportBenchmark measures the GPX and JSON export of tracks
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.y20k.trackbook.core.GpxWriter;
+import org.y20k.trackbook.core.TrackJsonAdapter;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * ExportBenchmark class
+ *
+ * Writes the documents ExportHelper writes to files - into memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    /* Gson adapter for tracks - stateless, shared like in ExportHelper */
+    private static final TrackJsonAdapter TRACK_JSON_ADAPTER = new TrackJsonAdapter();
+
+
+    /* Exports track as GPX */
+    @Benchmark
+    public int gpx(RideState state) throws IOException {
+        ByteArrayOutputStream out = state.getOutputStream();
+        new GpxWriter(out).write(state.track);
+        return out.size();
+    }
+
+
+    /* Exports track as JSON */
+    @Benchmark
+    public int json(RideState state) throws IOException {
+        ByteArrayOutputStream out = state.getOutputStream();
+        JsonWriter jsonWriter = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, "UTF-8")));
+        jsonWriter.setHtmlSafe(true);
+        TRACK_JSON_ADAPTER.write(jsonWriter, state.track);
+        jsonWriter.flush();
+        return out.size();
+    }
+
+}
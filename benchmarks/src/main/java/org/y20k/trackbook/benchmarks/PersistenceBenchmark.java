@@ -0,0 +1,87 @@
+/**
+ * PersistenceBenchmark.java
+ * Implements the PersistenceBenchmark class
+ * A PersistenceBenchmark measures saving and loading of tracks
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * PersistenceBenchmark class
+ *
+ * Save and load run against memory - the file system is left out. The round
+ * trip is what happens to the track shown in the track fragment when its
+ * instance state is saved and restored.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    /* Saves track in the binary file format */
+    @Benchmark
+    public int save(RideState state) throws IOException {
+        ByteArrayOutputStream out = state.getOutputStream();
+        TrackCodec.encode(state.track, out);
+        return out.size();
+    }
+
+
+    /* Loads track from the binary file format */
+    @Benchmark
+    public Track load(RideState state) throws IOException {
+        return TrackCodec.decode(new ByteArrayInputStream(state.encodedTrack), state.encodedTrack.length).toTrack();
+    }
+
+
+    /* Loads only the coordinates - as done for the paths of all recordings on the map */
+    @Benchmark
+    public double[] loadCoordinates(RideState state) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(state.encodedTrack);
+        in.skip(state.coordinatesOffset);
+        double[] latitudes = new double[state.size];
+        double[] longitudes = new double[state.size];
+        TrackCodec.readCoordinates(in, state.size, latitudes, longitudes);
+        return longitudes;
+    }
+
+
+    /* Saves and restores track - as done for the saved instance state */
+    @Benchmark
+    public Track roundTrip(RideState state) throws IOException {
+        ByteArrayOutputStream out = state.getOutputStream();
+        TrackCodec.encode(state.track, out);
+        byte[] encodedTrack = out.toByteArray();
+        return TrackCodec.decode(new ByteArrayInputStream(encodedTrack), encodedTrack.length).toTrack();
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * ReplayBenchmark.java
+ * Implements the ReplayBenchmark class
+ * A ReplayBenchmark measures the throughput of the recording pipeline
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackReplay;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * ReplayBenchmark class
+ *
+ * Replays the fixes of a synthetic ride (one fix per second) through the
+ * TrackRecorder - the same pipeline TrackerService runs while recording.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    /* Length of the ride (in hours) */
+    @Param({"1", "8"})
+    public int hours;
+
+    public List<GeoFix> fixes;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixes = new RideGenerator(20190101L).createFixes(hours * 3600);
+    }
+
+
+    /* Records a track from the fixes of the ride */
+    @Benchmark
+    public Track replay() {
+        return new TrackReplay(fixes).run().getTrack();
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * ReplayRunner.java
+ * Implements the ReplayRunner class
+ * A ReplayRunner replays a ride log from the command line
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.GpxWriter;
+import org.y20k.trackbook.core.RideLogReader;
+import org.y20k.trackbook.core.TrackReplay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+
+/**
+ * ReplayRunner class
+ *
+ * Reads the fixes of a GPX or JSON file (or generates a synthetic ride), replays
+ * them through the recording pipeline and prints the result with the timings
+ * of each stage. The recorded track can be written as GPX.
+ * Usage: ReplayRunner <ride.gpx|ride.json|synthetic:hours> [recorded.gpx]
+ */
+public final class ReplayRunner {
+
+    /* Define log tag */
+    private static final String LOG_TAG = ReplayRunner.class.getSimpleName();
+
+    /* Prefix of the input that generates a synthetic ride */
+    private static final String SYNTHETIC = "synthetic:";
+
+
+    /* Main method */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: " + LOG_TAG + " <ride.gpx|ride.json|" + SYNTHETIC + "hours> [recorded.gpx]");
+            System.exit(2);
+        }
+
+        // read fixes
+        long readStart = System.nanoTime();
+        List<GeoFix> fixes;
+        if (args[0].startsWith(SYNTHETIC)) {
+            int hours = Integer.parseInt(args[0].substring(SYNTHETIC.length()));
+            fixes = new RideGenerator(System.currentTimeMillis()).createFixes(hours * 3600);
+        } else {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(args[0]))) {
+                fixes = args[0].toLowerCase().endsWith(".gpx") ? RideLogReader.readGpx(in) : RideLogReader.readJson(in);
+            }
+        }
+        System.out.println(String.format("Read %d fixes in %.1f ms", fixes.size(), (System.nanoTime() - readStart) / 1e6));
+
+        // replay
+        TrackReplay.Result result = new TrackReplay(fixes).run();
+        System.out.println(result);
+
+        // write recorded track
+        if (args.length > 1) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+                new GpxWriter(out).write(result.getTrack());
+            }
+            System.out.println("Recorded track written to " + args[1]);
+        }
+    }
+
+}
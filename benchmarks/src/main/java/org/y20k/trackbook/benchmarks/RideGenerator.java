@@ -0,0 +1,172 @@
+/**
+ * RideGenerator.java
+ * Implements the RideGenerator class
+ * A RideGenerator creates synthetic tracks for benchmarks and load tests
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.y20k.trackbook.core.GeoFix;
+import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.WayPointStore;
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * RideGenerator class
+ *
+ * Simulates a bike ride with a slowly turning heading over rolling terrain.
+ * Positions carry GPS jitter, altitudes carry measurement noise, now and then a
+ * fix comes from the network provider (less accurate) or the rider stops for a
+ * while. createTrack() returns the ride the way the recorder would have stored
+ * it (a WayPoint every 12 to 20 seconds), createFixes() returns the location
+ * fixes a device would have delivered (one per second). The same seed always
+ * gives the same ride.
+ */
+public final class RideGenerator implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = RideGenerator.class.getSimpleName();
+
+    /* Ride constants */
+    private static final double START_LATITUDE = 57.7089;
+    private static final double START_LONGITUDE = 11.9746;
+    private static final long START_TIME = 1546300800000L; // 2019-01-01 00:00 UTC
+    private static final double METERS_PER_DEGREE_LATITUDE = 111320d;
+    private static final double AVERAGE_SPEED = 5.5d; // meters per second
+    private static final double GPS_JITTER = 4d; // meters - standard deviation
+    private static final double NETWORK_JITTER = 25d; // meters - standard deviation
+    private static final double ALTITUDE_NOISE = 3d; // meters - standard deviation
+    private static final double NETWORK_SHARE = 0.05d;
+    private static final double STOP_OVER_SHARE = 0.002d;
+    private static final double STOP_SHARE_PER_SECOND = 0.0002d; // about one stop every 80 minutes
+
+
+    /* Main class variables */
+    private final Random mRandom;
+
+
+    /* Constructor */
+    public RideGenerator(long seed) {
+        mRandom = new Random(seed);
+    }
+
+
+    /* Creates a track with given number of WayPoints - elevation statistics are calculated */
+    public Track createTrack(int size) {
+        WayPointStore wayPoints = new WayPointStore(size);
+        double latitude = START_LATITUDE;
+        double longitude = START_LONGITUDE;
+        double heading = mRandom.nextDouble() * 2d * Math.PI;
+        double rideDistance = 0d;
+        long elapsedTime = 0L;
+        float trackLength = 0f;
+        GeoFix previousFix = null;
+
+        for (int i = 0; i < size; i++) {
+            // move along - stop overs last five to fifteen minutes
+            boolean isStopOver = mRandom.nextDouble() < STOP_OVER_SHARE;
+            long interval = isStopOver ? 300000L + mRandom.nextInt(600000) : 12000L + mRandom.nextInt(8000);
+            double distance = (AVERAGE_SPEED + mRandom.nextGaussian()) * interval / 1000d;
+            if (isStopOver) {
+                distance = 0d;
+            }
+            heading = heading + mRandom.nextGaussian() * 0.3d;
+            latitude = latitude + Math.cos(heading) * distance / METERS_PER_DEGREE_LATITUDE;
+            longitude = longitude + Math.sin(heading) * distance / (METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude)));
+            rideDistance = rideDistance + distance;
+            elapsedTime = elapsedTime + interval;
+
+            // measure position and altitude
+            boolean network = mRandom.nextDouble() < NETWORK_SHARE;
+            double jitter = network ? NETWORK_JITTER : GPS_JITTER;
+            double measuredLatitude = latitude + mRandom.nextGaussian() * jitter / METERS_PER_DEGREE_LATITUDE;
+            double measuredLongitude = longitude + mRandom.nextGaussian() * jitter / (METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude)));
+            double altitude = getTerrainAltitude(rideDistance) + mRandom.nextGaussian() * ALTITUDE_NOISE;
+            float accuracy = (float) (jitter * (1d + mRandom.nextDouble()));
+            GeoFix fix = new GeoFix(network ? GeoFix.PROVIDER_NETWORK : GeoFix.PROVIDER_GPS, measuredLatitude, measuredLongitude,
+                    network ? Double.NaN : altitude, accuracy, Float.NaN,
+                    START_TIME + elapsedTime, elapsedTime * 1000000L, network ? 0 : 6 + mRandom.nextInt(8));
+
+            // add WayPoint
+            if (previousFix != null) {
+                trackLength = trackLength + previousFix.distanceTo(fix);
+            }
+            if (isStopOver && i > 0) {
+                wayPoints.setStopOver(i - 1, true);
+            }
+            wayPoints.add(fix, false, trackLength);
+            previousFix = fix;
+        }
+
+        Track track = new Track(CURRENT_TRACK_FORMAT_VERSION, wayPoints, trackLength, elapsedTime, 0f,
+                new Date(START_TIME), new Date(START_TIME + elapsedTime), 0d, 0d, 0d, 0d, null);
+        track.calculateElevation();
+        return track;
+    }
+
+
+    /* Creates the location fixes of a ride - one fix per second, ordered by elapsed realtime */
+    public List<GeoFix> createFixes(int count) {
+        List<GeoFix> fixes = new ArrayList<>(count);
+        double latitude = START_LATITUDE;
+        double longitude = START_LONGITUDE;
+        double heading = mRandom.nextDouble() * 2d * Math.PI;
+        double rideDistance = 0d;
+        int stopSeconds = 0;
+
+        for (int i = 0; i < count; i++) {
+            // move along - stops last five to fifteen minutes
+            double speed;
+            if (stopSeconds > 0) {
+                stopSeconds--;
+                speed = 0d;
+            } else if (mRandom.nextDouble() < STOP_SHARE_PER_SECOND) {
+                stopSeconds = 300 + mRandom.nextInt(600);
+                speed = 0d;
+            } else {
+                speed = Math.max(AVERAGE_SPEED + mRandom.nextGaussian() * 0.5d, 0d);
+            }
+            heading = heading + mRandom.nextGaussian() * 0.05d;
+            latitude = latitude + Math.cos(heading) * speed / METERS_PER_DEGREE_LATITUDE;
+            longitude = longitude + Math.sin(heading) * speed / (METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude)));
+            rideDistance = rideDistance + speed;
+
+            // measure position, altitude and speed
+            boolean network = mRandom.nextDouble() < NETWORK_SHARE;
+            double jitter = network ? NETWORK_JITTER : GPS_JITTER;
+            double measuredLatitude = latitude + mRandom.nextGaussian() * jitter / METERS_PER_DEGREE_LATITUDE;
+            double measuredLongitude = longitude + mRandom.nextGaussian() * jitter / (METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude)));
+            double altitude = getTerrainAltitude(rideDistance) + mRandom.nextGaussian() * ALTITUDE_NOISE;
+            float accuracy = (float) (jitter * (1d + mRandom.nextDouble()));
+            float measuredSpeed = (float) Math.max(speed + mRandom.nextGaussian() * 0.3d, 0d);
+            fixes.add(new GeoFix(network ? GeoFix.PROVIDER_NETWORK : GeoFix.PROVIDER_GPS, measuredLatitude, measuredLongitude,
+                    network ? Double.NaN : altitude, accuracy, network ? Float.NaN : measuredSpeed,
+                    START_TIME + i * 1000L, i * ONE_SECOND_IN_NANOSECOND, network ? 0 : 6 + mRandom.nextInt(8)));
+        }
+        return fixes;
+    }
+
+
+    /* Returns the altitude of the rolling terrain at given distance from the start */
+    private double getTerrainAltitude(double distance) {
+        return 60d + 40d * Math.sin(distance / 3000d) + 15d * Math.sin(distance / 700d) + 5d * Math.sin(distance / 150d);
+    }
+
+}
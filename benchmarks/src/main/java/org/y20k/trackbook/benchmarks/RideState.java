@@ -0,0 +1,73 @@
+/**
+ * RideState.java
+ * Implements the RideState class
+ * A RideState provides the synthetic track the benchmarks work on
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.y20k.trackbook.core.Track;
+import org.y20k.trackbook.core.TrackCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+
+/**
+ * RideState class
+ *
+ * Created once per trial: the track, its binary encoding (the format
+ * StorageHelper saves) and an output buffer that is reused by every
+ * invocation, so only the work of the measured method is allocated.
+ */
+@State(Scope.Thread)
+public class RideState {
+
+    /* Seed of the synthetic ride - keeps results comparable to the baseline */
+    private static final long SEED = 20190101L;
+
+
+    /* Number of WayPoints */
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    public Track track;
+    public byte[] encodedTrack;
+    public long coordinatesOffset;
+    public ByteArrayOutputStream outputStream;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        track = new RideGenerator(SEED).createTrack(size);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        coordinatesOffset = TrackCodec.encode(track, out);
+        encodedTrack = out.toByteArray();
+        // GPX is the largest output - about 150 bytes per WayPoint
+        outputStream = new ByteArrayOutputStream(size * 200);
+    }
+
+
+    /* Returns the reusable output buffer - emptied */
+    public ByteArrayOutputStream getOutputStream() {
+        outputStream.reset();
+        return outputStream;
+    }
+
+}
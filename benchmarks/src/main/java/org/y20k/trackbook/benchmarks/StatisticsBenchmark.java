@@ -0,0 +1,75 @@
+/**
+ * StatisticsBenchmark.java
+ * Implements the StatisticsBenchmark class
+ * A StatisticsBenchmark measures the calculations done for displaying tracks
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.y20k.trackbook.core.SimplifiedPath;
+import org.y20k.trackbook.core.WayPointStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * StatisticsBenchmark class
+ *
+ * The map paths are drawn by the osmdroid overlays in the app - measured here
+ * is the platform-independent part: building the SimplifiedPath of a track and
+ * selecting the points for a zoom level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    /* Zoom level the map is usually looked at */
+    private static final int ZOOM_LEVEL = 15;
+
+
+    /* Calculates elevation statistics from scratch */
+    @Benchmark
+    public double calculateElevation(RideState state) {
+        state.track.calculateElevation();
+        return state.track.getPositiveElevation();
+    }
+
+
+    /* Builds the simplified path of a track and selects the whole track at one zoom level */
+    @Benchmark
+    public List<int[]> overlayPath(RideState state) {
+        WayPointStore wayPoints = state.track.getWayPointStore();
+        int size = wayPoints.size();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = wayPoints.getLatitude(i);
+            longitudes[i] = wayPoints.getLongitude(i);
+        }
+        SimplifiedPath path = new SimplifiedPath(latitudes, longitudes, size);
+        return path.select(ZOOM_LEVEL, 90d, 180d, -90d, -180d);
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * AddressCache.java
+ * Implements the AddressCache class
+ * An AddressCache keeps the street addresses of recently visited places in a file
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * AddressCache class
+ *
+ * Addresses are stored per geohash cell - all locations within a cell of about
+ * 150 x 150 meters share an address. The cache keeps the most recently used
+ * cells (least recently used cells are evicted). The file is written after
+ * every new address, the order of recent lookups is saved along with it.
+ * Not thread-safe.
+ */
+public final class AddressCache {
+
+    /* Define log tag */
+    private static final String LOG_TAG = AddressCache.class.getSimpleName();
+
+    /* Cache constants */
+    public static final int GEOHASH_PRECISION = 7; // cells of about 153 x 153 meters
+    private static final int MAXIMUM_ENTRIES = 256;
+    private static final int CACHE_MAGIC = 0x54424143; // "TBAC"
+    private static final int CACHE_VERSION = 1;
+    private static final char[] GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+
+    /* Main class variables */
+    private final File mFile;
+    private final LinkedHashMap<String, String> mEntries;
+    private boolean mLoaded;
+
+
+    /* Constructor */
+    public AddressCache(File file) {
+        mFile = file;
+        mEntries = new LinkedHashMap<String, String>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAXIMUM_ENTRIES;
+            }
+        };
+        mLoaded = false;
+    }
+
+
+    /* Returns the address of the cell containing given location - or null */
+    public String get(double latitude, double longitude) {
+        load();
+        return mEntries.get(encodeGeohash(latitude, longitude, GEOHASH_PRECISION));
+    }
+
+
+    /* Stores the address of the cell containing given location */
+    public void put(double latitude, double longitude, String address) {
+        load();
+        mEntries.put(encodeGeohash(latitude, longitude, GEOHASH_PRECISION), address);
+        save();
+    }
+
+
+    /* Returns the number of cached addresses */
+    public int size() {
+        load();
+        return mEntries.size();
+    }
+
+
+    /* Encodes a location as geohash with given number of characters */
+    public static String encodeGeohash(double latitude, double longitude, int precision) {
+        double minimumLatitude = -90d;
+        double maximumLatitude = 90d;
+        double minimumLongitude = -180d;
+        double maximumLongitude = 180d;
+        char[] geohash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0;
+        int character = 0;
+        int length = 0;
+        while (length < precision) {
+            // bits alternate between longitude and latitude - starting with longitude
+            if (evenBit) {
+                double middle = (minimumLongitude + maximumLongitude) / 2d;
+                if (longitude >= middle) {
+                    character = (character << 1) | 1;
+                    minimumLongitude = middle;
+                } else {
+                    character = character << 1;
+                    maximumLongitude = middle;
+                }
+            } else {
+                double middle = (minimumLatitude + maximumLatitude) / 2d;
+                if (latitude >= middle) {
+                    character = (character << 1) | 1;
+                    minimumLatitude = middle;
+                } else {
+                    character = character << 1;
+                    maximumLatitude = middle;
+                }
+            }
+            evenBit = !evenBit;
+            // five bits per character
+            bit++;
+            if (bit == 5) {
+                geohash[length++] = GEOHASH_ALPHABET[character];
+                bit = 0;
+                character = 0;
+            }
+        }
+        return new String(geohash);
+    }
+
+
+    /* Reads the cache file - once */
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (!mFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                LogHelper.w(LOG_TAG, "Ignoring address cache of unknown format: " + mFile.toString());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String geohash = in.readUTF();
+                String address = in.readUTF();
+                mEntries.put(geohash, address);
+            }
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to read address cache: " + mFile.toString());
+        }
+    }
+
+
+    /* Writes the cache file - least recently used entry first */
+    private void save() {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(mEntries.size());
+            for (Map.Entry<String, String> entry : mEntries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+        } catch (IOException e) {
+            LogHelper.e(LOG_TAG, "Unable to write address cache: " + mFile.toString());
+            return;
+        }
+        // replace old file in one step
+        if (!tempFile.renameTo(mFile)) {
+            LogHelper.e(LOG_TAG, "Unable to replace address cache: " + mFile.toString());
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Counters.java
+ * Implements the Counters class
+ * A Counters object counts events by reason
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Counters class
+ *
+ * One counter per label - reasons are passed as index into the labels.
+ * Counting does not allocate and may happen on any thread.
+ */
+public final class Counters {
+
+    /* Main class variables */
+    private final String mName;
+    private final String[] mLabels;
+    private final AtomicLongArray mCounts;
+
+
+    /* Constructor */
+    public Counters(String name, String... labels) {
+        mName = name;
+        mLabels = labels;
+        mCounts = new AtomicLongArray(labels.length);
+    }
+
+
+    /* Counts an event with given reason */
+    public void increment(int reason) {
+        mCounts.incrementAndGet(reason);
+    }
+
+
+    /* Clears all counters */
+    public void reset() {
+        for (int i = 0; i < mLabels.length; i++) {
+            mCounts.set(i, 0L);
+        }
+    }
+
+
+    /* Getter for name */
+    public String getName() {
+        return mName;
+    }
+
+
+    /* Getter for number of events with given reason */
+    public long get(int reason) {
+        return mCounts.get(reason);
+    }
+
+
+    /* Getter for number of events */
+    public long getTotal() {
+        long total = 0L;
+        for (int i = 0; i < mLabels.length; i++) {
+            total = total + mCounts.get(i);
+        }
+        return total;
+    }
+
+
+    /* Appends a summary line and one line per reason to given builder */
+    public void appendTo(StringBuilder builder) {
+        long total = getTotal();
+        builder.append(String.format(Locale.US, "%s: total %d%n", mName, total));
+        for (int i = 0; i < mLabels.length; i++) {
+            long count = mCounts.get(i);
+            builder.append(String.format(Locale.US, "    %-28s %10d %6.1f%%%n", mLabels[i], count, total > 0 ? 100d * count / total : 0d));
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/**
+ * FixBuffer.java
+ * Implements the FixBuffer class
+ * A FixBuffer collects the location fixes of one provider between two samples of the recorder
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * FixBuffer class
+ *
+ * Single-producer/single-consumer ring buffer: the location listener offers
+ * fixes, the recorder polls them. The fields of a fix are copied into
+ * preallocated arrays - offering a fix neither locks nor allocates. If the
+ * buffer is full, new fixes are dropped (and counted) until the recorder polls
+ * again.
+ *
+ * Polling combines the buffered fixes: fixes much less accurate than the best
+ * one are ignored, the remaining fixes that lie within the accuracy of the
+ * newest one (the same place - older fixes of a moving device are left out)
+ * are averaged, weighted by their inverse variance (1 / accuracy^2). The
+ * accuracy reported for the average is the mean of their accuracies, with the
+ * same weights. Successive fixes of one receiver share most of their error, so
+ * the average is not assumed to be more accurate than its best fix.
+ */
+public final class FixBuffer {
+
+    /* Define log tag */
+    private static final String LOG_TAG = FixBuffer.class.getSimpleName();
+
+    /* Buffer constants */
+    private static final float OUTLIER_FACTOR = 2f; // fixes less accurate than twice the best accuracy are ignored
+    private static final float MINIMUM_ACCURACY = 1f; // limits the weight of a single fix
+    private static final double METERS_PER_DEGREE = 111319.49d;
+    private static final byte FLAG_HAS_ALTITUDE = 1;
+    private static final byte FLAG_HAS_SPEED = 1 << 1;
+
+
+    /* Main class variables */
+    private final int mMask;
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final double[] mAltitudes;
+    private final float[] mAccuracies;
+    private final float[] mSpeeds;
+    private final long[] mTimes;
+    private final long[] mElapsedRealtimeNanos;
+    private final byte[] mFlags;
+    private final int[] mNumberSatellites;
+    private final String mProvider;
+    private final AtomicLong mHead; // next fix to poll - written by consumer only
+    private final AtomicLong mTail; // next free slot - written by producer only
+    private volatile long mFixesReceived;
+    private volatile long mFixesDropped;
+
+
+    /* Constructor - capacity is rounded up to a power of two */
+    public FixBuffer(String provider, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mMask = size - 1;
+        mLatitudes = new double[size];
+        mLongitudes = new double[size];
+        mAltitudes = new double[size];
+        mAccuracies = new float[size];
+        mSpeeds = new float[size];
+        mTimes = new long[size];
+        mElapsedRealtimeNanos = new long[size];
+        mFlags = new byte[size];
+        mNumberSatellites = new int[size];
+        mProvider = provider;
+        mHead = new AtomicLong();
+        mTail = new AtomicLong();
+    }
+
+
+    /* Adds a fix - producer side, returns false if the buffer is full */
+    public boolean offer(GeoFix fix) {
+        return offer(fix.getLatitude(), fix.getLongitude(),
+                fix.hasAltitude() ? fix.getAltitude() : Double.NaN,
+                fix.hasAccuracy() ? fix.getAccuracy() : Float.NaN,
+                fix.hasSpeed() ? fix.getSpeed() : Float.NaN,
+                fix.getTime(), fix.getElapsedRealtimeNanos(), fix.getNumberSatellites());
+    }
+
+
+    /* Adds a fix given by its fields - altitude, accuracy and speed may be missing (NaN). Producer side, returns false if the buffer is full */
+    public boolean offer(double latitude, double longitude, double altitude, float accuracy, float speed, long time, long elapsedRealtimeNanos, int numberSatellites) {
+        mFixesReceived++;
+        long tail = mTail.get();
+        if (tail - mHead.get() > mMask) {
+            mFixesDropped++;
+            return false;
+        }
+        int slot = (int) tail & mMask;
+        byte flags = 0;
+        if (!Double.isNaN(altitude)) flags |= FLAG_HAS_ALTITUDE;
+        if (!Float.isNaN(speed)) flags |= FLAG_HAS_SPEED;
+        mLatitudes[slot] = latitude;
+        mLongitudes[slot] = longitude;
+        mAltitudes[slot] = altitude;
+        mAccuracies[slot] = !Float.isNaN(accuracy) ? Math.max(accuracy, MINIMUM_ACCURACY) : Float.MAX_VALUE;
+        mSpeeds[slot] = speed;
+        mTimes[slot] = time;
+        mElapsedRealtimeNanos[slot] = elapsedRealtimeNanos;
+        mFlags[slot] = flags;
+        mNumberSatellites[slot] = numberSatellites;
+        // publish slot
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+
+    /* Combines all buffered fixes into a new fix and empties the buffer - consumer side, returns null if empty */
+    public GeoFix poll() {
+        long head = mHead.get();
+        long tail = mTail.get();
+        if (head == tail) {
+            return null;
+        }
+
+        // find best accuracy
+        float bestAccuracy = Float.MAX_VALUE;
+        for (long n = head; n < tail; n++) {
+            bestAccuracy = Math.min(bestAccuracy, mAccuracies[(int) n & mMask]);
+        }
+        float maximumAccuracy = bestAccuracy * OUTLIER_FACTOR;
+
+        // find newest fix that is not an outlier
+        int newest = -1;
+        for (long n = tail - 1; n >= head && newest < 0; n--) {
+            int slot = (int) n & mMask;
+            if (mAccuracies[slot] <= maximumAccuracy) {
+                newest = slot;
+            }
+        }
+
+        // average fixes at the place of the newest fix
+        double cosLatitude = Math.cos(Math.toRadians(mLatitudes[newest]));
+        double radiusSquared = (double) mAccuracies[newest] * mAccuracies[newest];
+        double weightSum = 0d;
+        double accuracySum = 0d;
+        double latitudeSum = 0d;
+        double longitudeSum = 0d;
+        double altitudeWeightSum = 0d;
+        double altitudeSum = 0d;
+        for (long n = head; n < tail; n++) {
+            int slot = (int) n & mMask;
+            if (mAccuracies[slot] > maximumAccuracy) {
+                continue;
+            }
+            double dx = (mLongitudes[slot] - mLongitudes[newest]) * cosLatitude * METERS_PER_DEGREE;
+            double dy = (mLatitudes[slot] - mLatitudes[newest]) * METERS_PER_DEGREE;
+            if (dx * dx + dy * dy > radiusSquared) {
+                continue;
+            }
+            double weight = 1d / ((double) mAccuracies[slot] * mAccuracies[slot]);
+            weightSum = weightSum + weight;
+            accuracySum = accuracySum + weight * mAccuracies[slot];
+            latitudeSum = latitudeSum + weight * mLatitudes[slot];
+            longitudeSum = longitudeSum + weight * mLongitudes[slot];
+            if ((mFlags[slot] & FLAG_HAS_ALTITUDE) != 0) {
+                altitudeWeightSum = altitudeWeightSum + weight;
+                altitudeSum = altitudeSum + weight * mAltitudes[slot];
+            }
+        }
+
+        // weighted mean of the accuracies - unknown, if the fixes carry no accuracy
+        float accuracy = bestAccuracy != Float.MAX_VALUE ? (float) (accuracySum / weightSum) : Float.NaN;
+
+        // create fix - time, speed and satellites of newest fix
+        GeoFix fix = new GeoFix(mProvider, latitudeSum / weightSum, longitudeSum / weightSum,
+                altitudeWeightSum > 0d ? altitudeSum / altitudeWeightSum : Double.NaN,
+                accuracy,
+                (mFlags[newest] & FLAG_HAS_SPEED) != 0 ? mSpeeds[newest] : Float.NaN,
+                mTimes[newest], mElapsedRealtimeNanos[newest], mNumberSatellites[newest]);
+
+        // release slots
+        mHead.lazySet(tail);
+        return fix;
+    }
+
+
+    /* Getter for number of fixes offered */
+    public long getFixesReceived() {
+        return mFixesReceived;
+    }
+
+
+    /* Getter for number of fixes dropped because the buffer was full */
+    public long getFixesDropped() {
+        return mFixesDropped;
+    }
+
+}
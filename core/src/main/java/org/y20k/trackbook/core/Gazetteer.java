@@ -0,0 +1,172 @@
+/**
+ * Gazetteer.java
+ * Implements the Gazetteer class
+ * A Gazetteer finds the nearest named street or place in a prebuilt file - without network access
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Gazetteer class
+ *
+ * File layout (big endian, written by GazetteerWriter): a header, a grid index
+ * and the entries sorted by grid cell, followed by the name table. An entry is
+ * a point on a street (or a place) and the offset of its name - streets are
+ * stored as points sampled along their geometry. The index holds the number of
+ * the first entry of every cell (plus one final value), so the entries of a
+ * cell are found without searching.
+ *
+ * The file is memory-mapped, nothing is read up front. A query scans the cell
+ * of the location and rings of cells around it, until no closer entry can be
+ * found. Safe to use from several threads.
+ */
+public final class Gazetteer {
+
+    /* Define log tag */
+    private static final String LOG_TAG = Gazetteer.class.getSimpleName();
+
+    /* Layout of the gazetteer file */
+    static final int GAZETTEER_MAGIC = 0x5442475A; // "TBGZ"
+    static final int GAZETTEER_VERSION = 1;
+    static final int HEADER_SIZE = 36;
+    static final int ENTRY_SIZE = 12;
+    static final double COORDINATE_FACTOR = 1e7;
+    private static final double METERS_PER_DEGREE = 111319.49d;
+
+
+    /* Main class variables */
+    private final ByteBuffer mBuffer;
+    private final int mCellSize;
+    private final int mMinimumLatitude;
+    private final int mMinimumLongitude;
+    private final int mRows;
+    private final int mColumns;
+    private final int mEntryCount;
+    private final int mEntriesOffset;
+    private final int mNamesOffset;
+
+
+    /* Maps given gazetteer file */
+    public static Gazetteer open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return new Gazetteer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+
+    /* Constructor - validates the header */
+    Gazetteer(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != GAZETTEER_MAGIC || buffer.getInt(4) != GAZETTEER_VERSION) {
+            throw new IOException("Not a valid gazetteer file.");
+        }
+        mCellSize = buffer.getInt(8);
+        mMinimumLatitude = buffer.getInt(12);
+        mMinimumLongitude = buffer.getInt(16);
+        mRows = buffer.getInt(20);
+        mColumns = buffer.getInt(24);
+        mEntryCount = buffer.getInt(28);
+        mNamesOffset = buffer.getInt(32);
+        mEntriesOffset = HEADER_SIZE + ((mRows * mColumns) + 1) * 4;
+        if (mCellSize <= 0 || mRows <= 0 || mColumns <= 0 || mEntryCount < 0
+                || mEntriesOffset + (long) mEntryCount * ENTRY_SIZE > mNamesOffset || mNamesOffset > buffer.capacity()) {
+            throw new IOException("Gazetteer file is damaged.");
+        }
+    }
+
+
+    /* Returns the name of the nearest entry within given distance (in meters) - or null */
+    public String findNearest(double latitude, double longitude, float maximumDistance) {
+        int latitudeE7 = (int) Math.round(latitude * COORDINATE_FACTOR);
+        int longitudeE7 = (int) Math.round(longitude * COORDINATE_FACTOR);
+        int row = (int) Math.floor(((double) latitudeE7 - mMinimumLatitude) / mCellSize);
+        int column = (int) Math.floor(((double) longitudeE7 - mMinimumLongitude) / mCellSize);
+
+        // size of a cell in meters - a ring of cells is at least this far away from the previous one
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double metersPerUnit = METERS_PER_DEGREE / COORDINATE_FACTOR;
+        double cellMeters = mCellSize * metersPerUnit * Math.max(cosLatitude, 0.01d);
+        int maximumRing = (int) Math.ceil(maximumDistance / cellMeters) + 1;
+
+        double maximumDistanceSquared = (double) maximumDistance * maximumDistance;
+        double bestDistanceSquared = Double.MAX_VALUE;
+        int bestEntry = -1;
+        for (int ring = 0; ring <= maximumRing; ring++) {
+            // entries of outer rings cannot be closer than the best entry found so far
+            double ringDistance = (ring - 1) * cellMeters;
+            if (ring > 0 && ringDistance * ringDistance >= Math.min(bestDistanceSquared, maximumDistanceSquared)) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= mRows) {
+                    continue;
+                }
+                // inner rows of the ring: only first and last column
+                boolean edgeRow = r == row - ring || r == row + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= mColumns) {
+                        continue;
+                    }
+                    int cell = r * mColumns + c;
+                    int first = mBuffer.getInt(HEADER_SIZE + cell * 4);
+                    int last = mBuffer.getInt(HEADER_SIZE + (cell + 1) * 4);
+                    for (int entry = first; entry < last; entry++) {
+                        int position = mEntriesOffset + entry * ENTRY_SIZE;
+                        double dy = ((double) mBuffer.getInt(position) - latitudeE7) * metersPerUnit;
+                        double dx = ((double) mBuffer.getInt(position + 4) - longitudeE7) * metersPerUnit * cosLatitude;
+                        double distanceSquared = dx * dx + dy * dy;
+                        if (distanceSquared < bestDistanceSquared) {
+                            bestDistanceSquared = distanceSquared;
+                            bestEntry = entry;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestEntry < 0 || bestDistanceSquared > maximumDistanceSquared) {
+            return null;
+        }
+        return readName(mBuffer.getInt(mEntriesOffset + bestEntry * ENTRY_SIZE + 8));
+    }
+
+
+    /* Getter for number of entries */
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+
+    /* Reads a name from the name table - a two byte length followed by UTF-8 */
+    private String readName(int nameOffset) {
+        int position = mNamesOffset + nameOffset;
+        int length = mBuffer.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = mBuffer.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
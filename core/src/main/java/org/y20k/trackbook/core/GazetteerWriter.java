@@ -0,0 +1,162 @@
+/**
+ * GazetteerWriter.java
+ * Implements the GazetteerWriter class
+ * A GazetteerWriter creates the file read by Gazetteer
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * GazetteerWriter class
+ *
+ * Collects named points - e.g. points sampled every few meters along the streets
+ * of an OpenStreetMap extract - and writes them as gazetteer file. Equal names
+ * are stored once. Pure Java, meant to run wherever the extract is prepared.
+ */
+public final class GazetteerWriter {
+
+    /* Define log tag */
+    private static final String LOG_TAG = GazetteerWriter.class.getSimpleName();
+
+    /* Writer constants */
+    public static final double DEFAULT_CELL_SIZE = 0.005d; // degrees - about 550 meters north-south
+    private static final int MAXIMUM_NAME_LENGTH = 0xFFFF;
+
+
+    /* Main class variables */
+    private final List<int[]> mPoints;
+    private final Map<String, Integer> mNameOffsets;
+    private final ByteArrayOutputStream mNames;
+
+
+    /* Constructor */
+    public GazetteerWriter() {
+        mPoints = new ArrayList<>();
+        mNameOffsets = new HashMap<>();
+        mNames = new ByteArrayOutputStream();
+    }
+
+
+    /* Adds a named point */
+    public void add(double latitude, double longitude, String name) {
+        Integer nameOffset = mNameOffsets.get(name);
+        if (nameOffset == null) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAXIMUM_NAME_LENGTH) {
+                throw new IllegalArgumentException("Name is too long: " + name);
+            }
+            nameOffset = mNames.size();
+            mNames.write(bytes.length >>> 8);
+            mNames.write(bytes.length);
+            mNames.write(bytes, 0, bytes.length);
+            mNameOffsets.put(name, nameOffset);
+        }
+        mPoints.add(new int[] {(int) Math.round(latitude * Gazetteer.COORDINATE_FACTOR), (int) Math.round(longitude * Gazetteer.COORDINATE_FACTOR), nameOffset});
+    }
+
+
+    /* Writes all points to given file - with grid cells of given size (in degrees) */
+    public void write(File file, double cellSizeDegrees) throws IOException {
+        int cellSize = (int) Math.round(cellSizeDegrees * Gazetteer.COORDINATE_FACTOR);
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size too small: " + cellSizeDegrees);
+        }
+
+        // determine grid covering all points
+        int minimumLatitude = Integer.MAX_VALUE;
+        int minimumLongitude = Integer.MAX_VALUE;
+        int maximumLatitude = Integer.MIN_VALUE;
+        int maximumLongitude = Integer.MIN_VALUE;
+        for (int[] point : mPoints) {
+            minimumLatitude = Math.min(minimumLatitude, point[0]);
+            minimumLongitude = Math.min(minimumLongitude, point[1]);
+            maximumLatitude = Math.max(maximumLatitude, point[0]);
+            maximumLongitude = Math.max(maximumLongitude, point[1]);
+        }
+        if (mPoints.isEmpty()) {
+            minimumLatitude = 0;
+            minimumLongitude = 0;
+            maximumLatitude = 0;
+            maximumLongitude = 0;
+        }
+        int rows = (int) (((long) maximumLatitude - minimumLatitude) / cellSize) + 1;
+        int columns = (int) (((long) maximumLongitude - minimumLongitude) / cellSize) + 1;
+        if ((long) rows * columns > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Cell size too small for extract: " + cellSizeDegrees);
+        }
+
+        // sort points by cell (counting sort) - cellStarts holds the first entry of every cell
+        int cellCount = rows * columns;
+        int[] cellStarts = new int[cellCount + 1];
+        int[] cells = new int[mPoints.size()];
+        for (int i = 0; i < cells.length; i++) {
+            int[] point = mPoints.get(i);
+            cells[i] = ((point[0] - minimumLatitude) / cellSize) * columns + (point[1] - minimumLongitude) / cellSize;
+            cellStarts[cells[i] + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellStarts[cell + 1] = cellStarts[cell + 1] + cellStarts[cell];
+        }
+        int[] nextSlot = new int[cellCount];
+        System.arraycopy(cellStarts, 0, nextSlot, 0, cellCount);
+        int[][] sortedPoints = new int[cells.length][];
+        for (int i = 0; i < cells.length; i++) {
+            sortedPoints[nextSlot[cells[i]]++] = mPoints.get(i);
+        }
+
+        // write file - replaces an existing file in one step
+        long namesOffset = Gazetteer.HEADER_SIZE + (cellCount + 1) * 4L + (long) sortedPoints.length * Gazetteer.ENTRY_SIZE;
+        if (namesOffset + mNames.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Extract too large.");
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(Gazetteer.GAZETTEER_MAGIC);
+            out.writeInt(Gazetteer.GAZETTEER_VERSION);
+            out.writeInt(cellSize);
+            out.writeInt(minimumLatitude);
+            out.writeInt(minimumLongitude);
+            out.writeInt(rows);
+            out.writeInt(columns);
+            out.writeInt(sortedPoints.length);
+            out.writeInt((int) namesOffset);
+            for (int cellStart : cellStarts) {
+                out.writeInt(cellStart);
+            }
+            for (int[] point : sortedPoints) {
+                out.writeInt(point[0]);
+                out.writeInt(point[1]);
+                out.writeInt(point[2]);
+            }
+            mNames.writeTo(out);
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Unable to replace gazetteer file: " + file.toString());
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * GeoFix.java
+ * Implements the GeoFix class
+ * A GeoFix is a location fix - independent of the Android platform
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+
+/**
+ * GeoFix class
+ *
+ * Immutable value type holding what the recorder uses of a location fix. It
+ * follows the conventions of android.location.Location: values that are not
+ * present read as zero, distances are calculated on the WGS84 ellipsoid.
+ * LocationHelper converts between GeoFix and Location.
+ */
+public final class GeoFix {
+
+    /* Define log tag */
+    private static final String LOG_TAG = GeoFix.class.getSimpleName();
+
+    /* Names of the location providers - as used by the Android LocationManager */
+    public static final String PROVIDER_GPS = "gps";
+    public static final String PROVIDER_NETWORK = "network";
+    public static final String PROVIDER_PASSIVE = "passive";
+
+    /* WGS84 ellipsoid */
+    private static final double SEMI_MAJOR_AXIS = 6378137.0d;
+    private static final double SEMI_MINOR_AXIS = 6356752.3142d;
+    private static final int MAXIMUM_ITERATIONS = 20;
+
+
+    /* Main class variables */
+    private final String mProvider;
+    private final double mLatitude;
+    private final double mLongitude;
+    private final boolean mHasAltitude;
+    private final double mAltitude;
+    private final boolean mHasAccuracy;
+    private final float mAccuracy;
+    private final boolean mHasSpeed;
+    private final float mSpeed;
+    private final long mTime;
+    private final long mElapsedRealtimeNanos;
+    private final int mNumberSatellites;
+
+
+    /* Constructor - altitude, accuracy and speed may be missing (NaN) */
+    public GeoFix(String provider, double latitude, double longitude, double altitude, float accuracy, float speed, long time, long elapsedRealtimeNanos, int numberSatellites) {
+        mProvider = provider;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mHasAltitude = !Double.isNaN(altitude);
+        mAltitude = mHasAltitude ? altitude : 0d;
+        mHasAccuracy = !Float.isNaN(accuracy);
+        mAccuracy = mHasAccuracy ? accuracy : 0f;
+        mHasSpeed = !Float.isNaN(speed);
+        mSpeed = mHasSpeed ? speed : 0f;
+        mTime = time;
+        mElapsedRealtimeNanos = elapsedRealtimeNanos;
+        mNumberSatellites = numberSatellites;
+    }
+
+
+    /* Getter for name of location provider */
+    public String getProvider() {
+        return mProvider;
+    }
+
+
+    /* Getter for latitude (in degrees) */
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+
+    /* Getter for longitude (in degrees) */
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+
+    /* Checks if fix has an altitude */
+    public boolean hasAltitude() {
+        return mHasAltitude;
+    }
+
+
+    /* Getter for altitude (in meters above WGS84 ellipsoid) - zero if not present */
+    public double getAltitude() {
+        return mAltitude;
+    }
+
+
+    /* Checks if fix has an accuracy */
+    public boolean hasAccuracy() {
+        return mHasAccuracy;
+    }
+
+
+    /* Getter for horizontal accuracy (in meters) - zero if not present */
+    public float getAccuracy() {
+        return mAccuracy;
+    }
+
+
+    /* Checks if fix has a speed */
+    public boolean hasSpeed() {
+        return mHasSpeed;
+    }
+
+
+    /* Getter for speed (in meters per second) - zero if not present */
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+
+    /* Getter for time (UTC, in milliseconds) */
+    public long getTime() {
+        return mTime;
+    }
+
+
+    /* Getter for elapsed realtime (in nanoseconds) */
+    public long getElapsedRealtimeNanos() {
+        return mElapsedRealtimeNanos;
+    }
+
+
+    /* Getter for number of satellites used - zero if not known */
+    public int getNumberSatellites() {
+        return mNumberSatellites;
+    }
+
+
+    /* Calculates the distance to given fix (in meters) */
+    public float distanceTo(GeoFix fix) {
+        return distanceBetween(mLatitude, mLongitude, fix.getLatitude(), fix.getLongitude());
+    }
+
+
+    /* Calculates the distance between two locations (in meters) - inverse formula of Vincenty, as used by android.location.Location */
+    public static float distanceBetween(double startLatitude, double startLongitude, double endLatitude, double endLongitude) {
+        double latitude1 = Math.toRadians(startLatitude);
+        double latitude2 = Math.toRadians(endLatitude);
+        double longitudeDifference = Math.toRadians(endLongitude) - Math.toRadians(startLongitude);
+
+        double a = SEMI_MAJOR_AXIS;
+        double b = SEMI_MINOR_AXIS;
+        double f = (a - b) / a;
+        double aSqMinusBSqOverBSq = (a * a - b * b) / (b * b);
+
+        double u1 = Math.atan((1.0d - f) * Math.tan(latitude1));
+        double u2 = Math.atan((1.0d - f) * Math.tan(latitude2));
+        double cosU1 = Math.cos(u1);
+        double cosU2 = Math.cos(u2);
+        double sinU1 = Math.sin(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double sigma = 0.0d;
+        double deltaSigma = 0.0d;
+        double coefficientA = 0.0d;
+        double lambda = longitudeDifference;
+        for (int i = 0; i < MAXIMUM_ITERATIONS; i++) {
+            double previousLambda = lambda;
+            double cosLambda = Math.cos(lambda);
+            double sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            double cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0d : cosU1cosU2 * sinLambda / sinSigma;
+            double cosSqAlpha = 1.0d - sinAlpha * sinAlpha;
+            double cos2SM = (cosSqAlpha == 0) ? 0.0d : cosSigma - 2.0d * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            coefficientA = 1 + (uSquared / 16384.0d) * (4096.0d + uSquared * (-768 + uSquared * (320.0d - 175.0d * uSquared)));
+            double coefficientB = (uSquared / 1024.0d) * (256.0d + uSquared * (-128.0d + uSquared * (74.0d - 47.0d * uSquared)));
+            double coefficientC = (f / 16.0d) * cosSqAlpha * (4.0d + f * (4.0d - 3.0d * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = coefficientB * sinSigma * (cos2SM + (coefficientB / 4.0d) * (cosSigma * (-1.0d + 2.0d * cos2SMSq)
+                    - (coefficientB / 6.0d) * cos2SM * (-3.0d + 4.0d * sinSigma * sinSigma) * (-3.0d + 4.0d * cos2SMSq)));
+            lambda = longitudeDifference + (1.0d - coefficientC) * f * sinAlpha * (sigma + coefficientC * sinSigma * (cos2SM + coefficientC * cosSigma * (-1.0d + 2.0d * cos2SM * cos2SM)));
+
+            // converged
+            if (Math.abs((lambda - previousLambda) / lambda) < 1.0e-12) {
+                break;
+            }
+        }
+        return (float) (b * coefficientA * (sigma - deltaSigma));
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * GpxWriter.java
+ * Implements the GpxWriter class
+ * A GpxWriter streams a track as GPX 1.1 document into an OutputStream
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * GpxWriter class
+ *
+ * The document is encoded WayPoint by WayPoint into a fixed-size buffer, so
+ * memory use does not depend on the size of the track. Numbers and timestamps
+ * are formatted by hand - writing a WayPoint does not allocate any objects.
+ * A stop over ends the current track segment.
+ */
+public final class GpxWriter {
+
+    /* Define log tag */
+    private static final String LOG_TAG = GpxWriter.class.getSimpleName();
+
+    /* Writer constants */
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAXIMUM_ELEMENT_SIZE = 256; // a complete trkpt element fits into this many bytes
+    private static final int COORDINATE_DECIMALS = 7; // ~1cm resolution
+    private static final int ELEVATION_DECIMALS = 1;
+    private static final long MILLISECONDS_PER_DAY = 86400000L;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L};
+
+
+    /* Main class variables */
+    private final OutputStream mOutputStream;
+    private final byte[] mBuffer;
+    private final byte[] mDigits;
+    private int mPosition;
+
+
+    /* Constructor */
+    public GpxWriter(OutputStream outputStream) {
+        mOutputStream = outputStream;
+        mBuffer = new byte[BUFFER_SIZE];
+        mDigits = new byte[20];
+        mPosition = 0;
+    }
+
+
+    /* Writes given track as GPX document - the stream is flushed, but not closed */
+    public void write(Track track) throws IOException {
+        WayPointStore wayPoints = track.getWayPointStore();
+        int size = wayPoints.size();
+
+        // add header
+        writeAscii("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>\n");
+        writeAscii("<gpx version=\"1.1\" creator=\"Transistor App (Android)\"\n");
+        writeAscii("     xmlns=\"http://www.topografix.com/GPX/1/1\"\n");
+        writeAscii("     xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+        writeAscii("     xsi:schemaLocation=\"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd\">\n");
+
+        // add opening track tag and name
+        writeAscii("\t<trk>\n");
+        writeAscii("\t\t<name>Trackbook Recording</name>\n");
+
+        // add track points - a stop over ends the current segment
+        writeAscii("\t\t<trkseg>\n");
+        for (int i = 0; i < size; i++) {
+            writeTrackPoint(wayPoints, i);
+            if (wayPoints.isStopOver(i) && i < size - 1) {
+                writeAscii("\t\t</trkseg>\n");
+                writeAscii("\t\t<trkseg>\n");
+            }
+        }
+        writeAscii("\t\t</trkseg>\n");
+
+        // add closing tags
+        writeAscii("\t</trk>\n");
+        writeAscii("</gpx>\n");
+
+        flushBuffer();
+        mOutputStream.flush();
+    }
+
+
+    /* Writes a single trkpt element - child elements in the order required by the GPX schema */
+    private void writeTrackPoint(WayPointStore wayPoints, int index) throws IOException {
+        ensureSpace(MAXIMUM_ELEMENT_SIZE);
+
+        // add latitude and longitude
+        writeAscii("\t\t\t<trkpt lat=\"");
+        writeDecimal(wayPoints.getLatitude(index), COORDINATE_DECIMALS);
+        writeAscii("\" lon=\"");
+        writeDecimal(wayPoints.getLongitude(index), COORDINATE_DECIMALS);
+        writeAscii("\">\n");
+
+        // add altitude - if known
+        if ((wayPoints.getFlags(index) & WayPointStore.FLAG_HAS_ALTITUDE) != 0) {
+            writeAscii("\t\t\t\t<ele>");
+            writeDecimal(wayPoints.getAltitude(index), ELEVATION_DECIMALS);
+            writeAscii("</ele>\n");
+        }
+
+        // add time
+        writeAscii("\t\t\t\t<time>");
+        writeTime(wayPoints.getTime(index));
+        writeAscii("</time>\n");
+
+        // add number of satellites - if known
+        int numberSatellites = wayPoints.getNumberSatellites(index);
+        if (numberSatellites > 0) {
+            writeAscii("\t\t\t\t<sat>");
+            writeLong(numberSatellites);
+            writeAscii("</sat>\n");
+        }
+
+        // add closing tag
+        writeAscii("\t\t\t</trkpt>\n");
+    }
+
+
+    /* Writes given UTC time in ISO 8601 format (yyyy-MM-ddTHH:mm:ssZ) */
+    private void writeTime(long time) throws IOException {
+        // split into days since epoch and milliseconds of day (rounding towards negative infinity)
+        long days = time / MILLISECONDS_PER_DAY;
+        long millisecondsOfDay = time % MILLISECONDS_PER_DAY;
+        if (millisecondsOfDay < 0) {
+            millisecondsOfDay = millisecondsOfDay + MILLISECONDS_PER_DAY;
+            days--;
+        }
+        int secondsOfDay = (int) (millisecondsOfDay / 1000);
+
+        // convert days to civil date (proleptic Gregorian calendar)
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        ensureSpace(20);
+        writePadded(year, 4);
+        mBuffer[mPosition++] = '-';
+        writePadded(month, 2);
+        mBuffer[mPosition++] = '-';
+        writePadded(day, 2);
+        mBuffer[mPosition++] = 'T';
+        writePadded(secondsOfDay / 3600, 2);
+        mBuffer[mPosition++] = ':';
+        writePadded((secondsOfDay / 60) % 60, 2);
+        mBuffer[mPosition++] = ':';
+        writePadded(secondsOfDay % 60, 2);
+        mBuffer[mPosition++] = 'Z';
+    }
+
+
+    /* Writes given number with a fixed number of decimals */
+    private void writeDecimal(double value, int decimals) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            value = 0d;
+        }
+        long factor = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * factor);
+        ensureSpace(22 + decimals);
+        if (value < 0 && scaled != 0) {
+            mBuffer[mPosition++] = '-';
+        }
+        writeLong(scaled / factor);
+        if (decimals > 0) {
+            mBuffer[mPosition++] = '.';
+            writePadded(scaled % factor, decimals);
+        }
+    }
+
+
+    /* Writes given non-negative number */
+    private void writeLong(long value) throws IOException {
+        ensureSpace(mDigits.length);
+        int count = 0;
+        do {
+            mDigits[count++] = (byte) ('0' + value % 10);
+            value = value / 10;
+        } while (value > 0);
+        while (count > 0) {
+            mBuffer[mPosition++] = mDigits[--count];
+        }
+    }
+
+
+    /* Writes given non-negative number padded with leading zeros - buffer space must have been ensured */
+    private void writePadded(long value, int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            mBuffer[mPosition + i] = (byte) ('0' + value % 10);
+            value = value / 10;
+        }
+        mPosition = mPosition + width;
+    }
+
+
+    /* Writes given string - must only contain ASCII characters */
+    private void writeAscii(String string) throws IOException {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            if (mPosition == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            mBuffer[mPosition++] = (byte) string.charAt(i);
+        }
+    }
+
+
+    /* Makes sure that the buffer can take given number of bytes */
+    private void ensureSpace(int bytes) throws IOException {
+        if (BUFFER_SIZE - mPosition < bytes) {
+            flushBuffer();
+        }
+    }
+
+
+    /* Writes the content of the buffer to the stream */
+    private void flushBuffer() throws IOException {
+        if (mPosition > 0) {
+            mOutputStream.write(mBuffer, 0, mPosition);
+            mPosition = 0;
+        }
+    }
+
+}
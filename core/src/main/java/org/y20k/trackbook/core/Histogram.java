@@ -0,0 +1,163 @@
+/**
+ * Histogram.java
+ * Implements the Histogram class
+ * A Histogram counts measured values in buckets of powers of two
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Histogram class
+ *
+ * Bucket 0 counts zero (and negative values), bucket n counts values from
+ * 2^(n-1) to 2^n - 1. So percentiles are accurate within a factor of two,
+ * while the histogram keeps a fixed size whatever the range of the values.
+ * Recording does not allocate and may happen on any thread.
+ */
+public final class Histogram {
+
+    /* Number of buckets - enough for any long value */
+    private static final int NUMBER_OF_BUCKETS = 64;
+
+
+    /* Main class variables */
+    private final String mName;
+    private final String mUnit;
+    private final AtomicLongArray mBuckets;
+    private final AtomicLong mCount;
+    private final AtomicLong mSum;
+    private final AtomicLong mMaximum;
+
+
+    /* Constructor */
+    public Histogram(String name, String unit) {
+        mName = name;
+        mUnit = unit;
+        mBuckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+        mCount = new AtomicLong();
+        mSum = new AtomicLong();
+        mMaximum = new AtomicLong();
+    }
+
+
+    /* Records a measured value */
+    public void record(long value) {
+        long clampedValue = Math.max(value, 0L);
+        mBuckets.incrementAndGet(getBucket(clampedValue));
+        mCount.incrementAndGet();
+        mSum.addAndGet(clampedValue);
+        long maximum = mMaximum.get();
+        while (clampedValue > maximum && !mMaximum.compareAndSet(maximum, clampedValue)) {
+            maximum = mMaximum.get();
+        }
+    }
+
+
+    /* Clears all recorded values */
+    public void reset() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            mBuckets.set(i, 0L);
+        }
+        mCount.set(0L);
+        mSum.set(0L);
+        mMaximum.set(0L);
+    }
+
+
+    /* Getter for name */
+    public String getName() {
+        return mName;
+    }
+
+
+    /* Getter for unit of the recorded values */
+    public String getUnit() {
+        return mUnit;
+    }
+
+
+    /* Getter for number of recorded values */
+    public long getCount() {
+        return mCount.get();
+    }
+
+
+    /* Getter for sum of recorded values */
+    public long getSum() {
+        return mSum.get();
+    }
+
+
+    /* Getter for largest recorded value */
+    public long getMaximum() {
+        return mMaximum.get();
+    }
+
+
+    /* Getter for average of recorded values */
+    public double getMean() {
+        long count = mCount.get();
+        return count > 0 ? (double) mSum.get() / count : 0d;
+    }
+
+
+    /* Returns the upper bound of the bucket containing given percentile (0 to 100) - capped by the largest value */
+    public long getPercentile(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100d);
+        long seen = 0L;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            seen = seen + mBuckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(getUpperBound(i), mMaximum.get());
+            }
+        }
+        return mMaximum.get();
+    }
+
+
+    /* Appends a summary line and the non-empty buckets to given builder */
+    public void appendTo(StringBuilder builder) {
+        builder.append(String.format(Locale.US, "%s [%s]: count %d, mean %.1f, p50 %d, p90 %d, p99 %d, max %d%n",
+                mName, mUnit, getCount(), getMean(), getPercentile(50d), getPercentile(90d), getPercentile(99d), getMaximum()));
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            long bucketCount = mBuckets.get(i);
+            if (bucketCount > 0) {
+                long lowerBound = i == 0 ? 0L : 1L << (i - 1);
+                builder.append(String.format(Locale.US, "    %12d - %-12d %d%n", lowerBound, getUpperBound(i), bucketCount));
+            }
+        }
+    }
+
+
+    /* Returns the bucket of given value */
+    private static int getBucket(long value) {
+        return Math.min(64 - Long.numberOfLeadingZeros(value), NUMBER_OF_BUCKETS - 1);
+    }
+
+
+    /* Returns the largest value counted in given bucket */
+    private static long getUpperBound(int bucket) {
+        return bucket == NUMBER_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1L;
+    }
+
+}
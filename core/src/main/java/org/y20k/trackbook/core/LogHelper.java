@@ -0,0 +1,90 @@
+/**
+ * LogHelper.java
+ * Implements the LogHelper class
+ * A LogHelper wraps the logging calls to be able to strip them out of release versions
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+
+/**
+ * LogHelper class
+ *
+ * Platform-independent - log messages go to a Sink. Until the app installs
+ * its own sink (see Trackbook), messages are written to System.err.
+ */
+public final class LogHelper {
+
+    /* Log priorities - same values as android.util.Log */
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+
+    /* Receives the log messages */
+    public interface Sink {
+        void log(int priority, String tag, String message);
+    }
+
+
+    private final static boolean mTesting = false;
+    private static volatile Sink sSink = new Sink() {
+        @Override
+        public void log(int priority, String tag, String message) {
+            System.err.println(tag + ": " + message);
+        }
+    };
+    private static volatile boolean sDebug = false;
+
+
+    /* Installs given sink - debug enables verbose and debug messages */
+    public static void setSink(Sink sink, boolean debug) {
+        sSink = sink;
+        sDebug = debug;
+    }
+
+
+    public static void d(final String tag, String message) {
+        // include logging only in debug versions
+        if (sDebug || mTesting) {
+            sSink.log(DEBUG, tag, message);
+        }
+    }
+
+
+    public static void v(final String tag, String message) {
+        // include logging only in debug versions
+        if (sDebug || mTesting) {
+            sSink.log(VERBOSE, tag, message);
+        }
+    }
+
+
+    public static void e(final String tag, String message) {
+        sSink.log(ERROR, tag, message);
+    }
+
+
+    public static void i(final String tag, String message) {
+        sSink.log(INFO, tag, message);
+    }
+
+
+    public static void w(final String tag, String message) {
+        sSink.log(WARN, tag, message);
+    }
+
+}
@@ -0,0 +1,252 @@
+/**
+ * PipelineMetrics.java
+ * Implements the PipelineMetrics class
+ * A PipelineMetrics object collects the measurements of the recording pipeline
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * PipelineMetrics class
+ *
+ * Counters and histograms of every stage of a recording: fix arrival per
+ * provider, the verdicts of the admission rules, tick delay, time spent adding
+ * WayPoints, saving the track, the size of track updates sent to the activity,
+ * the time spent posting the notification and the readings of the step
+ * counter (with the batches they arrive in). Recording a measurement does not
+ * allocate, so the metrics are always on. Shared by the whole process - shown
+ * by the metrics dialog and written to a file on request.
+ */
+public final class PipelineMetrics implements TrackbookKeys {
+
+    /* Providers counted separately */
+    private static final int PROVIDER_GPS = 0;
+    private static final int PROVIDER_NETWORK = 1;
+
+    /* Outcomes of adding a WayPoint */
+    public static final int WAYPOINT_ADDED = 0;
+    public static final int WAYPOINT_NO_LOCATION = 1;
+    public static final int WAYPOINT_INACCURATE = 2;
+    public static final int WAYPOINT_NOT_CURRENT = 3;
+    public static final int WAYPOINT_NOT_NEW = 4;
+    public static final int WAYPOINT_NOT_STORED = 5;
+
+    /* Kinds of track updates */
+    public static final int UPDATE_SNAPSHOT = 0;
+    public static final int UPDATE_DELTA = 1;
+
+    /* Kinds of step counter readings */
+    public static final int STEP_READING_BASELINE = 0;
+    public static final int STEP_READING_COUNTED = 1;
+    public static final int STEP_READING_RESET = 2;
+
+
+    /* Main class variables */
+    private static PipelineMetrics sInstance;
+    private final Counters mFixes;
+    private final Histogram mGpsFixInterval;
+    private final Histogram mNetworkFixInterval;
+    private final AtomicLongArray mLastFixTimes;
+    private final Counters mBetterLocationVerdicts;
+    private final Counters mNewWayPointVerdicts;
+    private final Counters mAddWayPointOutcomes;
+    private final Histogram mAddWayPointTime;
+    private final Histogram mTickJitter;
+    private final Histogram mSaveTrackTime;
+    private final Histogram mSaveTrackBytes;
+    private final Counters mTrackUpdates;
+    private final Histogram mTrackUpdateSize;
+    private final Histogram mNotificationPostTime;
+    private final Counters mStepReadings;
+    private final Histogram mStepBatchSize;
+    private volatile long mResetTime;
+
+
+    /* Returns the shared PipelineMetrics */
+    public static synchronized PipelineMetrics getInstance() {
+        if (sInstance == null) {
+            sInstance = new PipelineMetrics();
+        }
+        return sInstance;
+    }
+
+
+    /* Constructor */
+    private PipelineMetrics() {
+        mFixes = new Counters("Fixes received", GeoFix.PROVIDER_GPS, GeoFix.PROVIDER_NETWORK);
+        mGpsFixInterval = new Histogram("Fix interval, gps", "ms");
+        mNetworkFixInterval = new Histogram("Fix interval, network", "ms");
+        mLastFixTimes = new AtomicLongArray(2);
+        mBetterLocationVerdicts = new Counters("isBetterLocation", WayPointFilter.BETTER_LOCATION_VERDICTS);
+        mNewWayPointVerdicts = new Counters("isNewWayPoint", WayPointFilter.NEW_WAYPOINT_VERDICTS);
+        mAddWayPointOutcomes = new Counters("addWayPoint", "added", "no location", "inaccurate", "not current (first WayPoint)", "not new (see isNewWayPoint)", "not stored by track");
+        mAddWayPointTime = new Histogram("addWayPoint time", "us");
+        mTickJitter = new Histogram("Tick delay", "ms");
+        mSaveTrackTime = new Histogram("saveTrack time", "ms");
+        mSaveTrackBytes = new Histogram("saveTrack bytes written", "bytes");
+        mTrackUpdates = new Counters("Track updates sent", "snapshot", "delta");
+        mTrackUpdateSize = new Histogram("Track update size", "WayPoints");
+        mNotificationPostTime = new Histogram("Notification post time", "us");
+        mStepReadings = new Counters("Step counter readings", "baseline (first reading)", "counted", "after counter reset");
+        mStepBatchSize = new Histogram("Step counter batch size (count = wake-ups)", "readings");
+        mResetTime = System.currentTimeMillis();
+    }
+
+
+    /* Records the arrival of a fix of given provider - fixes of one provider have to arrive in order */
+    public void recordFix(String providerName, long elapsedRealtimeNanos) {
+        int provider = GeoFix.PROVIDER_NETWORK.equals(providerName) ? PROVIDER_NETWORK : PROVIDER_GPS;
+        mFixes.increment(provider);
+        long lastFixTime = mLastFixTimes.getAndSet(provider, elapsedRealtimeNanos);
+        if (lastFixTime != 0L) {
+            Histogram interval = provider == PROVIDER_NETWORK ? mNetworkFixInterval : mGpsFixInterval;
+            interval.record((elapsedRealtimeNanos - lastFixTime) / 1000000L);
+        }
+    }
+
+
+    /* Records the verdict of WayPointFilter.checkBetterLocation */
+    public void recordBetterLocationVerdict(int verdict) {
+        mBetterLocationVerdicts.increment(verdict);
+    }
+
+
+    /* Records the verdict of WayPointFilter.checkNewWayPoint */
+    public void recordNewWayPointVerdict(int verdict) {
+        mNewWayPointVerdicts.increment(verdict);
+    }
+
+
+    /* Records the outcome and the duration (in nanoseconds) of adding a WayPoint */
+    public void recordAddWayPoint(int outcome, long duration) {
+        mAddWayPointOutcomes.increment(outcome);
+        mAddWayPointTime.record(duration / 1000L);
+    }
+
+
+    /* Records the delay of a tick against its scheduled time (in milliseconds) */
+    public void recordTickJitter(long jitter) {
+        mTickJitter.record(jitter);
+    }
+
+
+    /* Records the duration of saving the track (in milliseconds) and the number of bytes written */
+    public void recordSaveTrack(long duration, long bytesWritten) {
+        mSaveTrackTime.record(duration);
+        mSaveTrackBytes.record(bytesWritten);
+    }
+
+
+    /* Records a track update sent to the activity - with the number of WayPoints it carries */
+    public void recordTrackUpdate(boolean snapshot, int size) {
+        mTrackUpdates.increment(snapshot ? UPDATE_SNAPSHOT : UPDATE_DELTA);
+        mTrackUpdateSize.record(size);
+    }
+
+
+    /* Records the duration of posting the notification (in nanoseconds) */
+    public void recordNotificationPost(long duration) {
+        mNotificationPostTime.record(duration / 1000L);
+    }
+
+
+    /* Records a reading of the step counter - see STEP_READING_BASELINE and following */
+    public void recordStepReading(int kind) {
+        mStepReadings.increment(kind);
+    }
+
+
+    /* Records a finished batch of step counter readings - each batch woke up the recording thread */
+    public void recordStepBatch(long size) {
+        mStepBatchSize.record(size);
+    }
+
+
+    /* Clears all measurements */
+    public void reset() {
+        mFixes.reset();
+        mGpsFixInterval.reset();
+        mNetworkFixInterval.reset();
+        mLastFixTimes.set(PROVIDER_GPS, 0L);
+        mLastFixTimes.set(PROVIDER_NETWORK, 0L);
+        mBetterLocationVerdicts.reset();
+        mNewWayPointVerdicts.reset();
+        mAddWayPointOutcomes.reset();
+        mAddWayPointTime.reset();
+        mTickJitter.reset();
+        mSaveTrackTime.reset();
+        mSaveTrackBytes.reset();
+        mTrackUpdates.reset();
+        mTrackUpdateSize.reset();
+        mNotificationPostTime.reset();
+        mStepReadings.reset();
+        mStepBatchSize.reset();
+        mResetTime = System.currentTimeMillis();
+    }
+
+
+    /* Creates a plain text report of all measurements */
+    public String getReport() {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        StringBuilder builder = new StringBuilder(4096);
+        builder.append("Recording pipeline metrics since ").append(dateFormat.format(new Date(mResetTime)));
+        builder.append(" - created ").append(dateFormat.format(new Date())).append(String.format("%n%n"));
+
+        // fix arrival
+        mFixes.appendTo(builder);
+        appendFixRate(builder, GeoFix.PROVIDER_GPS, mGpsFixInterval);
+        appendFixRate(builder, GeoFix.PROVIDER_NETWORK, mNetworkFixInterval);
+        mGpsFixInterval.appendTo(builder);
+        mNetworkFixInterval.appendTo(builder);
+        builder.append(String.format("%n"));
+
+        // admission rules
+        mBetterLocationVerdicts.appendTo(builder);
+        mNewWayPointVerdicts.appendTo(builder);
+        mAddWayPointOutcomes.appendTo(builder);
+        builder.append(String.format("%n"));
+
+        // step counter
+        mStepReadings.appendTo(builder);
+        mStepBatchSize.appendTo(builder);
+        builder.append(String.format("%n"));
+
+        // timings and sizes
+        mTickJitter.appendTo(builder);
+        mAddWayPointTime.appendTo(builder);
+        mSaveTrackTime.appendTo(builder);
+        mSaveTrackBytes.appendTo(builder);
+        mTrackUpdates.appendTo(builder);
+        mTrackUpdateSize.appendTo(builder);
+        mNotificationPostTime.appendTo(builder);
+        return builder.toString();
+    }
+
+
+    /* Appends the fix rate derived from the average interval between fixes */
+    private void appendFixRate(StringBuilder builder, String provider, Histogram interval) {
+        double mean = interval.getMean();
+        builder.append(String.format(Locale.US, "    %-28s %10.1f per minute%n", "rate, " + provider, mean > 0d ? 60000d / mean : 0d));
+    }
+
+}
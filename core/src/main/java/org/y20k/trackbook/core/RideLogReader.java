@@ -0,0 +1,313 @@
+/**
+ * RideLogReader.java
+ * Implements the RideLogReader class
+ * A RideLogReader reads the location fixes of a ride from GPX or JSON files
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+
+/**
+ * RideLogReader class
+ *
+ * Reads the track points of GPX files (any GPX 1.0/1.1 file, e.g. exported by
+ * Trackbook or another recorder) and the WayPoints of Trackbook's JSON export
+ * (and of the JSON track files of earlier versions). GPX has no elapsed
+ * realtime - it is derived from the time of the points. GPX has no accuracy
+ * either - it is derived from the hdop element or assumed.
+ */
+public final class RideLogReader {
+
+    /* Define log tag */
+    private static final String LOG_TAG = RideLogReader.class.getSimpleName();
+
+    /* Reader constants */
+    public static final float DEFAULT_GPX_ACCURACY = 10f; // meters - assumed if a GPX point has no hdop
+    private static final float METERS_PER_HDOP = 5f; // typical user equivalent range error of GPS
+    private static final int HAS_ALTITUDE_MASK = 1; // mFieldsMask bits of Location
+    private static final int HAS_SPEED_MASK = 2;
+    private static final int HAS_HORIZONTAL_ACCURACY_MASK = 8;
+    private static final long MILLISECONDS_PER_DAY = 86400000L;
+
+
+    /* Reads the track points of a GPX file - in document order */
+    public static List<GeoFix> readGpx(InputStream inputStream) throws IOException {
+        GpxHandler handler = new GpxHandler();
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.newSAXParser().parse(inputStream, handler);
+        } catch (ParserConfigurationException | SAXException | IllegalArgumentException e) {
+            throw new IOException("Unable to parse GPX: " + e.getMessage());
+        }
+        return handler.getFixes();
+    }
+
+
+    /* Reads the WayPoints of a Trackbook JSON file - in stored order */
+    public static List<GeoFix> readJson(InputStream inputStream) throws IOException {
+        List<GeoFix> fixes = new ArrayList<>();
+        JsonReader in = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("mWayPoints") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    fixes.add(readWayPoint(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return fixes;
+    }
+
+
+    /* Parses a GPX time (ISO 8601, e.g. 2019-01-01T12:00:00Z or 2019-01-01T13:00:00.250+01:00) - returns UTC milliseconds */
+    public static long parseTime(String text) {
+        String time = text.trim();
+        int year = Integer.parseInt(time.substring(0, 4));
+        int month = Integer.parseInt(time.substring(5, 7));
+        int day = Integer.parseInt(time.substring(8, 10));
+        int hour = Integer.parseInt(time.substring(11, 13));
+        int minute = Integer.parseInt(time.substring(14, 16));
+        int second = Integer.parseInt(time.substring(17, 19));
+        int position = 19;
+
+        // optional fraction of second
+        long milliseconds = 0;
+        if (position < time.length() && time.charAt(position) == '.') {
+            int start = ++position;
+            while (position < time.length() && Character.isDigit(time.charAt(position))) {
+                position++;
+            }
+            String fraction = (time.substring(start, position) + "000").substring(0, 3);
+            milliseconds = Integer.parseInt(fraction);
+        }
+
+        // optional time zone offset - no offset means UTC
+        long offset = 0;
+        if (position < time.length() && time.charAt(position) != 'Z') {
+            int sign = time.charAt(position) == '-' ? -1 : 1;
+            String zone = time.substring(position + 1).replace(":", "");
+            offset = sign * (Integer.parseInt(zone.substring(0, 2)) * 60 + Integer.parseInt(zone.substring(2, 4))) * 60000L;
+        }
+
+        return getDaysSinceEpoch(year, month, day) * MILLISECONDS_PER_DAY + ((hour * 60L + minute) * 60L + second) * 1000L + milliseconds - offset;
+    }
+
+
+    /* Reads a WayPoint object of the JSON file */
+    private static GeoFix readWayPoint(JsonReader in) throws IOException {
+        GeoFix fix = null;
+        int numberSatellites = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("mLocation")) {
+                fix = readLocation(in);
+            } else if (name.equals("mNumberSatellites")) {
+                numberSatellites = in.nextInt();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (fix == null) {
+            throw new IOException("WayPoint without location.");
+        }
+        return new GeoFix(fix.getProvider(), fix.getLatitude(), fix.getLongitude(),
+                fix.hasAltitude() ? fix.getAltitude() : Double.NaN,
+                fix.hasAccuracy() ? fix.getAccuracy() : Float.NaN,
+                fix.hasSpeed() ? fix.getSpeed() : Float.NaN,
+                fix.getTime(), fix.getElapsedRealtimeNanos(), numberSatellites);
+    }
+
+
+    /* Reads a Location object of the JSON file - fields of Android 8 and newer (mFieldsMask) and of earlier versions (mHas...) */
+    private static GeoFix readLocation(JsonReader in) throws IOException {
+        String provider = GeoFix.PROVIDER_GPS;
+        double latitude = 0d;
+        double longitude = 0d;
+        double altitude = 0d;
+        float accuracy = 0f;
+        float speed = 0f;
+        long time = 0L;
+        long elapsedRealtimeNanos = 0L;
+        int fieldsMask = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "mProvider":
+                    provider = in.nextString();
+                    break;
+                case "mLatitude":
+                    latitude = in.nextDouble();
+                    break;
+                case "mLongitude":
+                    longitude = in.nextDouble();
+                    break;
+                case "mAltitude":
+                    altitude = in.nextDouble();
+                    break;
+                case "mHorizontalAccuracyMeters":
+                case "mAccuracy":
+                    accuracy = (float) in.nextDouble();
+                    break;
+                case "mSpeed":
+                    speed = (float) in.nextDouble();
+                    break;
+                case "mTime":
+                    time = in.nextLong();
+                    break;
+                case "mElapsedRealtimeNanos":
+                    elapsedRealtimeNanos = in.nextLong();
+                    break;
+                case "mFieldsMask":
+                    fieldsMask = fieldsMask | in.nextInt();
+                    break;
+                case "mHasAltitude":
+                    fieldsMask = fieldsMask | (in.nextBoolean() ? HAS_ALTITUDE_MASK : 0);
+                    break;
+                case "mHasSpeed":
+                    fieldsMask = fieldsMask | (in.nextBoolean() ? HAS_SPEED_MASK : 0);
+                    break;
+                case "mHasAccuracy":
+                    fieldsMask = fieldsMask | (in.nextBoolean() ? HAS_HORIZONTAL_ACCURACY_MASK : 0);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new GeoFix(provider, latitude, longitude,
+                (fieldsMask & HAS_ALTITUDE_MASK) != 0 ? altitude : Double.NaN,
+                (fieldsMask & HAS_HORIZONTAL_ACCURACY_MASK) != 0 ? accuracy : Float.NaN,
+                (fieldsMask & HAS_SPEED_MASK) != 0 ? speed : Float.NaN,
+                time, elapsedRealtimeNanos, 0);
+    }
+
+
+    /* Returns the number of days between 1970-01-01 and given date */
+    private static long getDaysSinceEpoch(int year, int month, int day) {
+        // credit: days_from_civil algorithm by Howard Hinnant - http://howardhinnant.github.io/date_algorithms.html
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+
+    /**
+     * Inner class: SAX handler collecting the track points of a GPX file
+     */
+    private static final class GpxHandler extends DefaultHandler {
+
+        private final List<GeoFix> mFixes = new ArrayList<>();
+        private final StringBuilder mText = new StringBuilder();
+        private boolean mInTrackPoint;
+        private double mLatitude;
+        private double mLongitude;
+        private double mAltitude;
+        private float mAccuracy;
+        private long mTime;
+        private int mNumberSatellites;
+        private long mFirstTime;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            mText.setLength(0);
+            if (localName.equals("trkpt")) {
+                mInTrackPoint = true;
+                mLatitude = Double.parseDouble(attributes.getValue("lat"));
+                mLongitude = Double.parseDouble(attributes.getValue("lon"));
+                mAltitude = Double.NaN;
+                mAccuracy = DEFAULT_GPX_ACCURACY;
+                mTime = -1L;
+                mNumberSatellites = 0;
+            }
+        }
+
+        @Override
+        public void characters(char[] characters, int start, int length) {
+            if (mInTrackPoint) {
+                mText.append(characters, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (!mInTrackPoint) {
+                return;
+            }
+            String text = mText.toString().trim();
+            switch (localName) {
+                case "ele":
+                    mAltitude = Double.parseDouble(text);
+                    break;
+                case "time":
+                    mTime = parseTime(text);
+                    break;
+                case "sat":
+                    mNumberSatellites = Integer.parseInt(text);
+                    break;
+                case "hdop":
+                    mAccuracy = Float.parseFloat(text) * METERS_PER_HDOP;
+                    break;
+                case "trkpt":
+                    if (mTime < 0) {
+                        throw new SAXException("Track point without time.");
+                    }
+                    if (mFixes.isEmpty()) {
+                        mFirstTime = mTime;
+                    }
+                    long elapsedRealtimeNanos = (mTime - mFirstTime) * 1000000L;
+                    mFixes.add(new GeoFix(GeoFix.PROVIDER_GPS, mLatitude, mLongitude, mAltitude, mAccuracy, Float.NaN, mTime, elapsedRealtimeNanos, mNumberSatellites));
+                    mInTrackPoint = false;
+                    break;
+            }
+            mText.setLength(0);
+        }
+
+        private List<GeoFix> getFixes() {
+            return mFixes;
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+}
@@ -0,0 +1,189 @@
+/**
+ * SamplingController.java
+ * Implements the SamplingController class
+ * A SamplingController adapts how often location updates are requested while recording
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+
+/**
+ * SamplingController class
+ *
+ * The controller is fed with every location fix received and with the result
+ * of every sample the TrackerService takes. It switches between four modes:
+ * acquiring (moving, but fixes are inaccurate - update fast so that the fix
+ * converges), moving (interval derived from speed: when sampled, the latest fix
+ * is at most half the minimum WayPoint distance behind), idle (no new WayPoint
+ * for a minute) and stationary (a stop over - back off hard). Any fix further away from the last WayPoint than its
+ * accuracy switches back to moving.
+ */
+public final class SamplingController implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = SamplingController.class.getSimpleName();
+
+    /* Modes */
+    public static final int MODE_ACQUIRING = 0;
+    public static final int MODE_MOVING = 1;
+    public static final int MODE_IDLE = 2;
+    public static final int MODE_STATIONARY = 3;
+
+    /* Request parameters */
+    private static final long ACQUIRING_INTERVAL = 1000L;
+    private static final long MINIMUM_MOVING_INTERVAL = 1000L;
+    private static final long MAXIMUM_MOVING_INTERVAL = 10000L;
+    private static final long IDLE_INTERVAL = 30000L;
+    private static final long STATIONARY_INTERVAL = 60000L;
+    private static final float IDLE_DISTANCE = 10f;
+    private static final float STATIONARY_DISTANCE = 25f;
+    private static final float WAYPOINT_DISTANCE = 10f; // minimum distance between WayPoints - see LocationHelper.isNewWayPoint
+    private static final float REARM_DISTANCE = 20f;
+    private static final float SPEED_SMOOTHING = 0.3f;
+
+
+    /* Main class variables */
+    private int mMode;
+    private float mSpeed;
+    private long mLastMovementNanos;
+    private long mRequestedMinTime;
+    private float mRequestedMinDistance;
+    private long mFixesReceived;
+    private long mFixesUsed;
+    private long mRequestChanges;
+
+
+    /* Constructor */
+    public SamplingController(long elapsedRealtimeNanos) {
+        mMode = MODE_ACQUIRING;
+        mSpeed = 0f;
+        mLastMovementNanos = elapsedRealtimeNanos;
+        mRequestedMinTime = getMinTime();
+        mRequestedMinDistance = getMinDistance();
+    }
+
+
+    /* Registers a location fix - returns true if the request parameters changed */
+    public boolean onFixReceived(boolean hasSpeed, float speed, float accuracy, float distanceToLastWayPoint) {
+        mFixesReceived++;
+        if (hasSpeed) {
+            mSpeed = mSpeed + SPEED_SMOOTHING * (speed - mSpeed);
+        }
+        // re-arm as soon as a fix shows movement
+        if ((mMode == MODE_IDLE || mMode == MODE_STATIONARY) && distanceToLastWayPoint > Math.max(accuracy, REARM_DISTANCE)) {
+            return setMode(MODE_MOVING);
+        }
+        return false;
+    }
+
+
+    /* Registers the result of a sample - returns true if the request parameters changed */
+    public boolean onSample(long elapsedRealtimeNanos, boolean wayPointAdded, boolean accurate, boolean stopOver) {
+        if (wayPointAdded) {
+            mFixesUsed++;
+            mLastMovementNanos = elapsedRealtimeNanos;
+            return setMode(accurate ? MODE_MOVING : MODE_ACQUIRING);
+        }
+        long idleNanos = elapsedRealtimeNanos - mLastMovementNanos;
+        if (stopOver || idleNanos >= FIVE_MINUTES_IN_NANOSECONDS) {
+            mSpeed = 0f;
+            return setMode(MODE_STATIONARY);
+        } else if (idleNanos >= ONE_MINUTE_IN_NANOSECONDS) {
+            return setMode(MODE_IDLE);
+        } else if (!accurate) {
+            return setMode(MODE_ACQUIRING);
+        }
+        return false;
+    }
+
+
+    /* Getter for current mode */
+    public int getMode() {
+        return mMode;
+    }
+
+
+    /* Getter for minimum time between location updates (in milliseconds) */
+    public long getMinTime() {
+        switch (mMode) {
+            case MODE_ACQUIRING:
+                return ACQUIRING_INTERVAL;
+            case MODE_MOVING:
+                return getMovingInterval();
+            case MODE_IDLE:
+                return IDLE_INTERVAL;
+            default:
+                return STATIONARY_INTERVAL;
+        }
+    }
+
+
+    /* Getter for minimum distance between location updates (in meters) */
+    public float getMinDistance() {
+        switch (mMode) {
+            case MODE_IDLE:
+                return IDLE_DISTANCE;
+            case MODE_STATIONARY:
+                return STATIONARY_DISTANCE;
+            default:
+                return 0f;
+        }
+    }
+
+
+    /* Getter for number of location fixes received */
+    public long getFixesReceived() {
+        return mFixesReceived;
+    }
+
+
+    /* Getter for number of location fixes that became a WayPoint */
+    public long getFixesUsed() {
+        return mFixesUsed;
+    }
+
+
+    /* Getter for number of changes of the request parameters */
+    public long getRequestChanges() {
+        return mRequestChanges;
+    }
+
+
+    /* Switches mode - returns true if the request parameters changed (mode or speed) */
+    private boolean setMode(int mode) {
+        mMode = mode;
+        long minTime = getMinTime();
+        float minDistance = getMinDistance();
+        if (minTime != mRequestedMinTime || minDistance != mRequestedMinDistance) {
+            mRequestedMinTime = minTime;
+            mRequestedMinDistance = minDistance;
+            mRequestChanges++;
+            return true;
+        }
+        return false;
+    }
+
+
+    /* Calculates update interval while moving - time to cover half the minimum WayPoint distance, whole seconds */
+    private long getMovingInterval() {
+        if (mSpeed <= 0f) {
+            return MAXIMUM_MOVING_INTERVAL;
+        }
+        long interval = (long) (WAYPOINT_DISTANCE / mSpeed * 500f) / 1000L * 1000L;
+        return Math.max(MINIMUM_MOVING_INTERVAL, Math.min(MAXIMUM_MOVING_INTERVAL, interval));
+    }
+
+}
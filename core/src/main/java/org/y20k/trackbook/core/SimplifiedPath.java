@@ -0,0 +1,254 @@
+/**
+ * SimplifiedPath.java
+ * Implements the SimplifiedPath class
+ * A SimplifiedPath provides the coordinates of a track simplified for a zoom level and clipped to a bounding box
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * SimplifiedPath class
+ *
+ * Every point gets a Douglas-Peucker importance: the distance (in Web Mercator
+ * pixels at zoom level 0) at which the algorithm would keep it. Selecting all
+ * points with an importance above the tolerance of a zoom level gives the same
+ * result as running Douglas-Peucker with that tolerance. The selection for a
+ * zoom level is computed once and cached.
+ */
+public final class SimplifiedPath {
+
+    /* Define log tag */
+    private static final String LOG_TAG = SimplifiedPath.class.getSimpleName();
+
+    /* Simplification constants */
+    public static final int MAXIMUM_ZOOM_LEVEL = 22;
+    private static final double TILE_SIZE = 256d;
+    private static final double TOLERANCE_PIXELS = 1d; // maximum deviation of the simplified path
+    private static final double CLIPPING_MARGIN = 0.5d; // bounding box is enlarged by half its size on every side
+
+
+    /* Main class variables */
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final int mSize;
+    private final double[] mX;
+    private final double[] mY;
+    private final double[] mImportance;
+    private final int[][] mLevels;
+
+
+    /* Constructor - arrays must not be modified afterwards */
+    public SimplifiedPath(double[] latitudes, double[] longitudes, int size) {
+        mLatitudes = latitudes;
+        mLongitudes = longitudes;
+        mSize = size;
+        mX = new double[size];
+        mY = new double[size];
+        for (int i = 0; i < size; i++) {
+            mX[i] = projectLongitude(longitudes[i]);
+            mY[i] = projectLatitude(latitudes[i]);
+        }
+        mImportance = calculateImportance();
+        mLevels = new int[MAXIMUM_ZOOM_LEVEL + 1][];
+    }
+
+
+    /* Returns number of points */
+    public int size() {
+        return mSize;
+    }
+
+
+    /* Getter for latitude of point */
+    public double getLatitude(int index) {
+        return mLatitudes[index];
+    }
+
+
+    /* Getter for longitude of point */
+    public double getLongitude(int index) {
+        return mLongitudes[index];
+    }
+
+
+    /* Returns the indices of the points kept at given zoom level */
+    public int[] getLevel(int zoomLevel) {
+        zoomLevel = Math.max(0, Math.min(zoomLevel, MAXIMUM_ZOOM_LEVEL));
+        if (mLevels[zoomLevel] == null) {
+            double tolerance = TOLERANCE_PIXELS / (TILE_SIZE * Math.pow(2, zoomLevel));
+            int[] indices = new int[mSize];
+            int count = 0;
+            for (int i = 0; i < mSize; i++) {
+                if (mImportance[i] >= tolerance) {
+                    indices[count++] = i;
+                }
+            }
+            mLevels[zoomLevel] = Arrays.copyOf(indices, count);
+        }
+        return mLevels[zoomLevel];
+    }
+
+
+    /* Returns the simplified path as runs of point indices - segments outside the (enlarged) bounding box are left out */
+    public List<int[]> select(int zoomLevel, double north, double east, double south, double west) {
+        List<int[]> runs = new ArrayList<>();
+        int[] level = getLevel(zoomLevel);
+        if (level.length == 0) {
+            return runs;
+        }
+
+        // do not clip if bounding box crosses the antimeridian
+        if (west > east) {
+            runs.add(level);
+            return runs;
+        }
+
+        // bounding box in projected coordinates - y grows southwards
+        double minX = projectLongitude(west);
+        double maxX = projectLongitude(east);
+        double minY = projectLatitude(north);
+        double maxY = projectLatitude(south);
+        double marginX = (maxX - minX) * CLIPPING_MARGIN;
+        double marginY = (maxY - minY) * CLIPPING_MARGIN;
+        minX = minX - marginX;
+        maxX = maxX + marginX;
+        minY = minY - marginY;
+        maxY = maxY + marginY;
+
+        // single point
+        if (level.length == 1) {
+            int i = level[0];
+            if (mX[i] >= minX && mX[i] <= maxX && mY[i] >= minY && mY[i] <= maxY) {
+                runs.add(level);
+            }
+            return runs;
+        }
+
+        // collect runs of consecutive segments touching the bounding box
+        int runStart = -1;
+        for (int k = 0; k < level.length - 1; k++) {
+            int a = level[k];
+            int b = level[k + 1];
+            boolean visible = Math.max(mX[a], mX[b]) >= minX && Math.min(mX[a], mX[b]) <= maxX
+                    && Math.max(mY[a], mY[b]) >= minY && Math.min(mY[a], mY[b]) <= maxY;
+            if (visible && runStart < 0) {
+                runStart = k;
+            } else if (!visible && runStart >= 0) {
+                runs.add(Arrays.copyOfRange(level, runStart, k + 1));
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            runs.add(Arrays.copyOfRange(level, runStart, level.length));
+        }
+        return runs;
+    }
+
+
+    /* Calculates the Douglas-Peucker importance of every point - iterative to avoid deep recursion on long tracks */
+    private double[] calculateImportance() {
+        double[] importance = new double[mSize];
+        if (mSize == 0) {
+            return importance;
+        }
+        importance[0] = Double.POSITIVE_INFINITY;
+        importance[mSize - 1] = Double.POSITIVE_INFINITY;
+
+        // stack of intervals (first, last, importance of parent)
+        int[] firstStack = new int[32];
+        int[] lastStack = new int[32];
+        double[] parentStack = new double[32];
+        int stackSize = 0;
+        firstStack[0] = 0;
+        lastStack[0] = mSize - 1;
+        parentStack[0] = Double.POSITIVE_INFINITY;
+        stackSize++;
+
+        while (stackSize > 0) {
+            stackSize--;
+            int first = firstStack[stackSize];
+            int last = lastStack[stackSize];
+            double parentImportance = parentStack[stackSize];
+            if (last - first < 2) {
+                continue;
+            }
+
+            // find point farthest from the segment first-last
+            int split = first + 1;
+            double maxDistance = -1d;
+            for (int i = first + 1; i < last; i++) {
+                double distance = getSegmentDistance(i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    split = i;
+                }
+            }
+
+            // a point is never more important than the point that split its parent interval
+            double splitImportance = Math.min(maxDistance, parentImportance);
+            importance[split] = splitImportance;
+
+            // push both halves
+            if (stackSize + 2 > firstStack.length) {
+                firstStack = Arrays.copyOf(firstStack, firstStack.length * 2);
+                lastStack = Arrays.copyOf(lastStack, lastStack.length * 2);
+                parentStack = Arrays.copyOf(parentStack, parentStack.length * 2);
+            }
+            firstStack[stackSize] = first;
+            lastStack[stackSize] = split;
+            parentStack[stackSize] = splitImportance;
+            stackSize++;
+            firstStack[stackSize] = split;
+            lastStack[stackSize] = last;
+            parentStack[stackSize] = splitImportance;
+            stackSize++;
+        }
+        return importance;
+    }
+
+
+    /* Calculates distance of point to the segment between first and last */
+    private double getSegmentDistance(int point, int first, int last) {
+        double dx = mX[last] - mX[first];
+        double dy = mY[last] - mY[first];
+        double px = mX[point] - mX[first];
+        double py = mY[point] - mY[first];
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? (px * dx + py * dy) / lengthSquared : 0d;
+        t = Math.max(0d, Math.min(1d, t));
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+
+    /* Projects longitude to Web Mercator x (0 ... 1) */
+    private static double projectLongitude(double longitude) {
+        return (longitude + 180d) / 360d;
+    }
+
+
+    /* Projects latitude to Web Mercator y (0 ... 1, north to south) */
+    private static double projectLatitude(double latitude) {
+        latitude = Math.max(-85.05112878d, Math.min(85.05112878d, latitude));
+        double sinLatitude = Math.sin(Math.toRadians(latitude));
+        return 0.5d - Math.log((1d + sinLatitude) / (1d - sinLatitude)) / (4d * Math.PI);
+    }
+
+}
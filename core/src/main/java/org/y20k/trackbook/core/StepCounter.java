@@ -0,0 +1,123 @@
+/**
+ * StepCounter.java
+ * Implements the StepCounter class
+ * A StepCounter turns the readings of the system step counter into the steps of a track
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+
+/**
+ * StepCounter class
+ *
+ * The system step counter counts all steps since boot. Readings only record the
+ * latest value - the steps are folded into the track once per tick. The first
+ * reading of a session is the baseline (the step that triggered it is counted).
+ * A reading lower than the previous one means the counter has been reset (e.g.
+ * by a reboot): the reading then equals the steps since the reset.
+ *
+ * Readings usually arrive in batches (the sensor queues them while the device
+ * sleeps) - a reading arriving shortly after the previous one belongs to the
+ * same batch. The number of batches is the number of wake-ups. Readings and
+ * batches are recorded in PipelineMetrics.
+ */
+public final class StepCounter {
+
+    /* Define log tag */
+    private static final String LOG_TAG = StepCounter.class.getSimpleName();
+
+    /* Counter constants */
+    private static final long MAXIMUM_BATCH_GAP = 200L; // milliseconds between readings of the same batch
+
+
+    /* Main class variables */
+    private float mSteps;
+    private float mLastReading;
+    private long mLastReadingTime;
+    private long mReadingCount;
+    private long mBatchCount;
+    private long mBatchSize;
+    private long mResetCount;
+    private final PipelineMetrics mMetrics;
+
+
+    /* Constructor - continues counting from given number of steps */
+    public StepCounter(float previousSteps) {
+        mSteps = Math.max(previousSteps, 0f);
+        mLastReading = -1f;
+        mLastReadingTime = Long.MIN_VALUE;
+        mMetrics = PipelineMetrics.getInstance();
+    }
+
+
+    /* Registers a reading of the system step counter - readingTime in milliseconds (elapsed realtime) */
+    public void onReading(float reading, long readingTime) {
+        mReadingCount++;
+        if (mLastReadingTime == Long.MIN_VALUE || readingTime - mLastReadingTime > MAXIMUM_BATCH_GAP) {
+            finishBatch();
+            mBatchCount++;
+        }
+        mBatchSize++;
+        mLastReadingTime = readingTime;
+
+        if (mLastReading < 0f) {
+            // first reading - count the step that triggered it
+            mSteps = mSteps + 1f;
+            mMetrics.recordStepReading(PipelineMetrics.STEP_READING_BASELINE);
+        } else if (reading >= mLastReading) {
+            mSteps = mSteps + (reading - mLastReading);
+            mMetrics.recordStepReading(PipelineMetrics.STEP_READING_COUNTED);
+        } else {
+            // counter has been reset
+            mResetCount++;
+            mSteps = mSteps + reading;
+            mMetrics.recordStepReading(PipelineMetrics.STEP_READING_RESET);
+        }
+        mLastReading = reading;
+    }
+
+
+    /* Records the size of the current batch in PipelineMetrics - call when readings stop */
+    public void finishBatch() {
+        if (mBatchSize > 0) {
+            mMetrics.recordStepBatch(mBatchSize);
+            mBatchSize = 0;
+        }
+    }
+
+
+    /* Getter for steps of the track */
+    public float getSteps() {
+        return mSteps;
+    }
+
+
+    /* Getter for number of readings received */
+    public long getReadingCount() {
+        return mReadingCount;
+    }
+
+
+    /* Getter for number of batches of readings - each one woke up the recording thread */
+    public long getBatchCount() {
+        return mBatchCount;
+    }
+
+
+    /* Getter for number of counter resets detected */
+    public long getResetCount() {
+        return mResetCount;
+    }
+
+}
@@ -0,0 +1,434 @@
+/**
+ * Track.java
+ * Implements the Track class
+ * A Track stores a list of WayPoints
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+
+/**
+ * Track class
+ */
+public class Track implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = Track.class.getSimpleName();
+
+
+    /* Main class variables */
+    private final int mTrackFormatVersion;
+    private final WayPointStore mWayPoints;
+    private float mTrackLength;
+    private long mDuration;
+    private float mStepCount;
+    private final Date mRecordingStart;
+    private Date mRecordingStop;
+    private double mMaxAltitude;
+    private double mMinAltitude;
+    private double mPositiveElevation;
+    private double mNegativeElevation;
+    private String mStartAdress;
+    private String mEndAdress;
+    private String mTrackName;
+    private transient float mCompressionTolerance = DEFAULT_COMPRESSION_TOLERANCE;
+    private transient TrackCompressor mCompressor;
+
+
+    /* Generic Constructor using a WayPointStore */
+    public Track(int trackFormatVersion, WayPointStore wayPoints, float trackLength, long duration, float stepCount, Date recordingStart, Date recordingStop, double maxAltitude, double minAltitude, double positiveElevation, double negativeElevation, String trackName) {
+        mTrackFormatVersion = trackFormatVersion;
+        mWayPoints = wayPoints;
+        mTrackLength = trackLength;
+        mDuration = duration;
+        mStepCount = stepCount;
+        mRecordingStart = recordingStart;
+        mRecordingStop = recordingStop;
+        mMaxAltitude = maxAltitude;
+        mMinAltitude = minAltitude;
+        mPositiveElevation = positiveElevation;
+        mNegativeElevation = negativeElevation;
+        mTrackName = trackName;
+    }
+
+
+    /* Copy Constructor - the copy shares the WayPoints until either track changes them (copy on write) */
+    public Track(Track track) {
+        this(track.getTrackFormatVersion(), track.getWayPointStore().snapshot(), track.getTrackLength(), track.getTrackDuration(), track.getStepCount(), new Date(track.getRecordingStart().getTime()), new Date(track.getRecordingStop().getTime()), track.getMaxAltitude(), track.getMinAltitude(), track.getPositiveElevation(), track.getNegativeElevation(), track.getStoredTrackName());
+        mStartAdress = track.getmStartAdress();
+        mEndAdress = track.getmEndAdress();
+    }
+
+
+    /* Creates a snapshot of the track that can be saved or exported in background while recording goes on */
+    public Track snapshot() {
+        return new Track(this);
+    }
+
+
+    /* Constructor */
+    public Track() {
+        mTrackFormatVersion = CURRENT_TRACK_FORMAT_VERSION;
+        mWayPoints = new WayPointStore();
+        mTrackLength = 0f;
+        mDuration = 0;
+        mStepCount = 0f;
+        mRecordingStart = GregorianCalendar.getInstance().getTime();
+        mRecordingStop = mRecordingStart;
+        mMaxAltitude = 0f;
+        mMinAltitude = 0f;
+        mPositiveElevation = 0f;
+        mNegativeElevation = 0f;
+
+    }
+
+
+    /* Adds new WayPoint - replaces the last WayPoint, if it adds no shape information (see TrackCompressor) */
+    public boolean addWayPoint(GeoFix previousLocation, GeoFix newLocation) {
+        int wayPointCount = mWayPoints.size();
+
+        // toggle stop over status, if necessary
+        boolean isStopOver = WayPointFilter.isStopOver(previousLocation, newLocation);
+        if (isStopOver) {
+            mWayPoints.setStopOver(wayPointCount-1, isStopOver);
+        }
+
+        // update elevation statistics - from the raw location fixes, before the last WayPoint may be dropped
+        float altitude = (float) newLocation.getAltitude();
+        if (wayPointCount == 0) {
+            updateElevation(altitude, newLocation.getTime(), altitude, newLocation.getTime(), true);
+        } else {
+            updateElevation(altitude, newLocation.getTime(), mWayPoints.getAltitude(wayPointCount - 1), mWayPoints.getTime(wayPointCount - 1), false);
+        }
+
+        // drop last WayPoint, if it lies on the line to the new WayPoint
+        TrackCompressor compressor = getCompressor();
+        boolean replace = compressor.canReplaceLastWayPoint(mWayPoints, newLocation.getLatitude(), newLocation.getLongitude());
+        if (replace) {
+            mWayPoints.truncate(wayPointCount - 1);
+        }
+
+        // add new WayPoint to track
+        mWayPoints.add(newLocation, false, mTrackLength);
+        compressor.onWayPointAdded(mWayPoints, newLocation.getLatitude(), newLocation.getLongitude(), replace);
+        return true;
+    }
+
+
+    /* Calculates elevation statistics from scratch - only needed for tracks without stored elevation data */
+    public void calculateElevation() {
+        mMaxAltitude = 0;
+        mMinAltitude = 0;
+        mPositiveElevation = 0;
+        mNegativeElevation = 0;
+        for (int i = 0; i < mWayPoints.size(); i++) {
+            int previous = Math.max(i - 1, 0);
+            updateElevation(mWayPoints.getAltitude(i), mWayPoints.getTime(i), mWayPoints.getAltitude(previous), mWayPoints.getTime(previous), i == 0);
+        }
+    }
+
+
+    /* Sets the maximum deviation (in meters) of the recorded track from the location fixes - zero keeps every WayPoint */
+    public void setCompressionTolerance(float tolerance) {
+        mCompressionTolerance = tolerance;
+        mCompressor = null;
+    }
+
+
+    /* Updates distance */
+    public boolean updateDistance(GeoFix previousLocation, GeoFix newLocation){
+        // two data points needed to calculate distance
+        if (previousLocation != null) {
+            // add up distance
+            mTrackLength = mTrackLength + previousLocation.distanceTo(newLocation);
+            return true;
+        } else {
+            // this was the first waypoint
+            return false;
+        }
+    }
+
+
+    /* Adds a location to the elevation statistics - locations have to be added in order */
+    private void updateElevation(double currentLocationAltitude, long time, double previousLocationAltitude, long previousTime, boolean first) {
+
+        // initial values for max height and min height - first waypoint
+        if (first) {
+            mMaxAltitude = currentLocationAltitude;
+            mMinAltitude = currentLocationAltitude;
+            return;
+        }
+
+        // factor is bigger than 1 if the time stamp difference is larger than the movement recording interval (usually 15 seconds)
+        double timeDiff = time - previousTime;
+        double timeDiffFactor = timeDiff / FIFTEEN_SECONDS_IN_MILLISECONDS;
+
+        // check for new min and max heights
+        if (currentLocationAltitude > mMaxAltitude) {
+            mMaxAltitude = currentLocationAltitude;
+        }
+        if (mMinAltitude == 0 || currentLocationAltitude < mMinAltitude) {
+            mMinAltitude = currentLocationAltitude;
+        }
+
+        // get elevation difference and sum it up
+        double altitudeDiff = currentLocationAltitude - previousLocationAltitude;
+        if (altitudeDiff > 0 && altitudeDiff < MEASUREMENT_ERROR_THRESHOLD * timeDiffFactor && currentLocationAltitude != 0) {
+            mPositiveElevation = mPositiveElevation + altitudeDiff;
+        }
+        if (altitudeDiff < 0 && altitudeDiff > -MEASUREMENT_ERROR_THRESHOLD * timeDiffFactor && currentLocationAltitude != 0) {
+            mNegativeElevation = mNegativeElevation + altitudeDiff;
+        }
+    }
+
+
+    /* Returns the compressor for new WayPoints - created on first use */
+    private TrackCompressor getCompressor() {
+        if (mCompressor == null) {
+            mCompressor = new TrackCompressor(mCompressionTolerance);
+        }
+        return mCompressor;
+    }
+
+
+    /* Toggles stop over status of last waypoint */
+    public void toggleLastWayPointStopOverStatus(boolean stopOver) {
+        int wayPointCount = mWayPoints.size();
+        mWayPoints.setStopOver(wayPointCount-1, stopOver);
+    }
+
+
+    /* Sets stop over status of given waypoint */
+    public void setWayPointStopOver(int index, boolean stopOver) {
+        mWayPoints.setStopOver(index, stopOver);
+    }
+
+
+    /* Applies a delta received from the TrackerService */
+    public void applyUpdate(TrackUpdate update) {
+        if (update.getFirstIndex() > mWayPoints.size()) {
+            throw new IllegalArgumentException("Update starts at " + update.getFirstIndex() + ", track has " + mWayPoints.size() + " WayPoints.");
+        }
+        // replace WayPoints from first index on
+        mWayPoints.truncate(update.getFirstIndex());
+        mWayPoints.addAll(update.getWayPoints());
+        // take over statistics
+        mTrackLength = update.getTrackLength();
+        mDuration = update.getTrackDuration();
+        mStepCount = update.getStepCount();
+        mRecordingStop = update.getRecordingStop();
+        mMaxAltitude = update.getMaxAltitude();
+        mMinAltitude = update.getMinAltitude();
+        mPositiveElevation = update.getPositiveElevation();
+        mNegativeElevation = update.getNegativeElevation();
+        mStartAdress = update.getStartAdress();
+        mEndAdress = update.getEndAdress();
+    }
+
+
+    /* Sets end time and date of recording */
+    public void setRecordingEnd() {
+        mRecordingStop = GregorianCalendar.getInstance().getTime();
+    }
+
+
+    /* Sets given end time and date of recording - used for replayed recordings */
+    public void setRecordingEnd(Date recordingStop) {
+        mRecordingStop = recordingStop;
+    }
+
+
+    /* Setter for duration of track */
+    public void setDuration(long duration) {
+        mDuration = duration;
+    }
+
+
+    /* Setter for step count of track */
+    public void setStepCount(float stepCount) {
+        mStepCount = stepCount;
+    }
+
+
+    /* Setter for maximum altitude of recording */
+    public void setMaxAltitude(double maxAltitude) {
+        mMaxAltitude = maxAltitude;
+    }
+
+
+    /* Setter for lowest altitude of recording */
+    public void setMinAltitude(double minAltitude) {
+        mMinAltitude = minAltitude;
+    }
+
+
+    /* Setter for positive elevation of recording (cumulative altitude difference) */
+    public void setPositiveElevation(double positiveElevation) {
+        mPositiveElevation = positiveElevation;
+    }
+
+
+    /* Setter for negative elevation of recording (cumulative altitude difference) */
+    public void setNegativeElevation(double negativeElevation) {
+        mNegativeElevation = negativeElevation;
+    }
+
+
+    /* Getter for file/track format version */
+    public int getTrackFormatVersion() {
+        return mTrackFormatVersion;
+    }
+
+
+    /* Getter for the primitive WayPoint storage */
+    public WayPointStore getWayPointStore() {
+        return mWayPoints;
+    }
+
+
+    /* Getter size of Track / number of WayPoints */
+    public int getSize() {
+        return mWayPoints.size();
+    }
+
+
+    /* Getter for track length */
+    public float getTrackLength() {
+        return mTrackLength;
+    }
+
+
+    /* Getter for duration of track */
+    public long getTrackDuration() {
+        return mDuration;
+    }
+
+    /* Getter for start date of recording */
+    public Date getRecordingStart() {
+        return mRecordingStart;
+    }
+
+
+    /* Getter for stop date of recording */
+    public Date getRecordingStop() {
+        return mRecordingStop;
+    }
+
+
+    /* Getter for step count of recording */
+    public float getStepCount() {
+        return mStepCount;
+    }
+
+
+    /* Getter for maximum altitude of recording */
+    public double getMaxAltitude() {
+        return mMaxAltitude;
+    }
+
+
+    /* Getter for lowest altitude of recording */
+    public double getMinAltitude() {
+        return mMinAltitude;
+    }
+
+
+    /* Getter for positive elevation of recording (cumulative altitude difference) */
+    public double getPositiveElevation() {
+        return mPositiveElevation;
+    }
+
+
+    /* Getter for negative elevation of recording (cumulative altitude difference) */
+    public double getNegativeElevation() {
+        return mNegativeElevation;
+    }
+
+
+    /* Getter recorded distance */
+    public Double getTrackDistance() {
+        int size = mWayPoints.size();
+        if (size > 0) {
+            return (double)mWayPoints.getDistanceToStartingPoint(size - 1);
+        } else {
+            return (double)0f;
+        }
+    }
+
+
+    /* Getter for location fix of specific WayPoint */
+    public GeoFix getWayPointFix(int index) {
+        return mWayPoints.getFix(index);
+    }
+
+
+    public String getmTrackName() {
+        // mTrackName is "startingAdress - endAdress" - addresses are looked up in the background and may be missing
+        String formattedStartAddress = trimAdress(mStartAdress);
+        String formattedEndAddress = trimAdress(mEndAdress);
+        if (formattedStartAddress.isEmpty() || formattedEndAddress.isEmpty()) {
+            return formattedStartAddress + formattedEndAddress;
+        }
+        return formattedStartAddress + " - " + formattedEndAddress;
+    }
+
+    private String trimAdress(String address) {
+        // Format "Teknikgatan 7, 417 56 Göteborg, Sverige" to "Teknikgatan"
+        // Algorithm: Return all words before the first number
+        if (address == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder();
+
+        for(char c : address.toCharArray()) {
+            if(Character.isDigit(c)) {
+                break;
+            }
+
+            result.append(c);
+        }
+
+        // Remove any trailing whitespace
+        return result.toString().trim();
+    }
+
+    /* Getter for the track name as stored - getmTrackName() derives the name from the addresses */
+    String getStoredTrackName() {
+        return mTrackName;
+    }
+
+    public void setmTrackName(String mTrackName) {
+        this.mTrackName = mTrackName;
+    }
+
+    public String getmEndAdress() {
+        return mEndAdress;
+    }
+
+    public void setmEndAdress(String mEndAdress) {
+        this.mEndAdress = mEndAdress;
+    }
+
+    public String getmStartAdress() {
+        return mStartAdress;
+    }
+
+    public void setmStartAdress(String mStartAdress) {
+        this.mStartAdress = mStartAdress;
+    }
+}
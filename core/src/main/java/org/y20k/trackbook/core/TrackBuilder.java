@@ -17,10 +17,7 @@
 
 package org.y20k.trackbook.core;
 
-import org.y20k.trackbook.helpers.LogHelper;
-
 import java.util.Date;
-import java.util.List;
 
 
 /**
@@ -34,7 +31,7 @@ public class TrackBuilder {
 
     /* Main class variables */
     private final int mTrackFormatVersion;
-    private final List<WayPoint> mWayPoints;
+    private final WayPointStore mWayPoints;
     private final float mTrackLength;
     private final long mDuration;
     private final float mStepCount;
@@ -45,10 +42,12 @@ public class TrackBuilder {
     private final double mPositiveElevation;
     private final double mNegativeElevation;
     private final String mTrackName;
+    private final String mStartAdress;
+    private final String mEndAdress;
 
 
     /* Generic Constructor */
-    public TrackBuilder(int trackFormatVersion, List<WayPoint> wayPoints, float trackLength, long duration, float stepCount, Date recordingStart, Date recordingStop, double maxAltitude, double minAltitude, double positiveElevation, double negativeElevation, String trackName) {
+    public TrackBuilder(int trackFormatVersion, WayPointStore wayPoints, float trackLength, long duration, float stepCount, Date recordingStart, Date recordingStop, double maxAltitude, double minAltitude, double positiveElevation, double negativeElevation, String trackName, String startAdress, String endAdress) {
         mTrackFormatVersion = trackFormatVersion;
         mWayPoints = wayPoints;
         mTrackLength = trackLength;
@@ -61,22 +60,36 @@ public class TrackBuilder {
         mPositiveElevation = positiveElevation;
         mNegativeElevation = negativeElevation;
         mTrackName = trackName;
+        mStartAdress = startAdress;
+        mEndAdress = endAdress;
     }
 
 
     /* Builds and return a Track object */
     public Track toTrack() {
+        Track track;
+        WayPointStore wayPoints = mWayPoints != null ? mWayPoints : new WayPointStore();
         switch (mTrackFormatVersion) {
             case 1:
                 // file format version 1 - does not have elevation data stored
-                return new Track(mTrackFormatVersion, mWayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, 0f, 0f, 0f, 0f, mTrackName);
+                track = new Track(mTrackFormatVersion, wayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, 0f, 0f, 0f, 0f, mTrackName);
+                track.calculateElevation();
+                break;
             case 2:
-                // file format version 2 (current version)
-                return new Track(mTrackFormatVersion, mWayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, mMaxAltitude, mMinAltitude, mPositiveElevation, mNegativeElevation, mTrackName);
+                // file format version 2 - JSON
+                track = new Track(mTrackFormatVersion, wayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, mMaxAltitude, mMinAltitude, mPositiveElevation, mNegativeElevation, mTrackName);
+                break;
+            case 3:
+                // file format version 3 (current version) - binary, see TrackCodec
+                track = new Track(mTrackFormatVersion, wayPoints, mTrackLength, mDuration, mStepCount, mRecordingStart, mRecordingStop, mMaxAltitude, mMinAltitude, mPositiveElevation, mNegativeElevation, mTrackName);
+                break;
             default:
                 LogHelper.e(LOG_TAG, "Unknown file format version: " + mTrackFormatVersion);
                 return null;
         }
+        track.setmStartAdress(mStartAdress);
+        track.setmEndAdress(mEndAdress);
+        return track;
     }
 
 }
@@ -17,8 +17,6 @@
 
 package org.y20k.trackbook.core;
 
-import org.y20k.trackbook.helpers.LogHelper;
-
 import java.io.File;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -38,12 +36,20 @@ public class TrackBundle {
     /* Main class variables */
     private final File mTrackFile;
     private final String mTrackName;
+    private final TrackSummary mTrackSummary;
 
 
     /* Constructor */
     public TrackBundle(File file) {
+        this(file, null);
+    }
+
+
+    /* Constructor including the summary from the track index */
+    public TrackBundle(File file, TrackSummary trackSummary) {
         mTrackFile = file;
         mTrackName = buildTrackName(file);
+        mTrackSummary = trackSummary;
     }
 
 
@@ -59,6 +65,12 @@ public class TrackBundle {
     }
 
 
+    /* Getter for track summary - may be null */
+    public TrackSummary getTrackSummary() {
+        return mTrackSummary;
+    }
+
+
     /* Builds a readable track name from the track's file name */
     private String buildTrackName(File file) {
 
@@ -0,0 +1,383 @@
+/**
+ * TrackCodec.java
+ * Implements the TrackCodec class
+ * A TrackCodec reads and writes tracks in the compact binary file format (version 3)
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+
+/**
+ * TrackCodec class
+ *
+ * File layout: a header with the statistics of the track, followed by the
+ * WayPoints stored as columns. Latitude, longitude, time and distance are
+ * delta-encoded, altitude and accuracy are quantized to decimeters. All
+ * integers in the columns are written as (zig-zag) variable length integers.
+ * Decoding streams each column straight into a pre-sized WayPointStore - no
+ * intermediate arrays. The number of WayPoints in the header is checked
+ * against the length of the encoded track before anything is allocated.
+ */
+public final class TrackCodec {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackCodec.class.getSimpleName();
+
+    /* File format constants */
+    public static final int FILE_FORMAT_VERSION = 3;
+    private static final int TRACK_MAGIC = 0x54424B33; // "TBK3"
+    private static final double COORDINATE_FACTOR = 1e7; // ~1cm resolution
+    private static final double DECIMETER_FACTOR = 10;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+    private static final int FIXED_HEADER_SIZE = 76; // header without start and end address
+    private static final int COLUMN_COUNT = 11; // every column takes at least one byte per WayPoint
+
+
+    /* Checks if the given bytes are the beginning of a binary track file */
+    public static boolean isBinaryTrack(byte[] firstBytes) {
+        if (firstBytes.length < 4) {
+            return false;
+        }
+        int magic = ((firstBytes[0] & 0xFF) << 24) | ((firstBytes[1] & 0xFF) << 16) | ((firstBytes[2] & 0xFF) << 8) | (firstBytes[3] & 0xFF);
+        return magic == TRACK_MAGIC;
+    }
+
+
+    /* Writes given track to stream and returns the offset of the coordinate columns */
+    public static long encode(Track track, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        WayPointStore wayPoints = track.getWayPointStore();
+        int size = wayPoints.size();
+
+        // header
+        out.writeInt(TRACK_MAGIC);
+        out.writeInt(FILE_FORMAT_VERSION);
+        out.writeLong(track.getRecordingStart().getTime());
+        out.writeLong(track.getRecordingStop().getTime());
+        out.writeFloat(track.getTrackLength());
+        out.writeLong(track.getTrackDuration());
+        out.writeFloat(track.getStepCount());
+        out.writeDouble(track.getMaxAltitude());
+        out.writeDouble(track.getMinAltitude());
+        out.writeDouble(track.getPositiveElevation());
+        out.writeDouble(track.getNegativeElevation());
+        writeString(out, track.getmStartAdress());
+        writeString(out, track.getmEndAdress());
+        out.writeInt(size);
+        long coordinatesOffset = out.size();
+
+        // column: latitude
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = Math.round(wayPoints.getLatitude(i) * COORDINATE_FACTOR);
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: longitude
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = Math.round(wayPoints.getLongitude(i) * COORDINATE_FACTOR);
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: time (milliseconds)
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = wayPoints.getTime(i);
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: elapsed realtime (milliseconds)
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = wayPoints.getElapsedRealtimeNanos(i) / NANOSECONDS_PER_MILLISECOND;
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: altitude (decimeters)
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = Math.round(wayPoints.getAltitude(i) * DECIMETER_FACTOR);
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: accuracy (decimeters)
+        for (int i = 0; i < size; i++) {
+            writeSignedVarLong(out, Math.round(wayPoints.getAccuracy(i) * DECIMETER_FACTOR));
+        }
+
+        // column: distance to starting point (decimeters)
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = Math.round(wayPoints.getDistanceToStartingPoint(i) * DECIMETER_FACTOR);
+            writeSignedVarLong(out, value - previous);
+            previous = value;
+        }
+
+        // column: provider
+        for (int i = 0; i < size; i++) {
+            out.writeByte(wayPoints.getProvider(i));
+        }
+
+        // column: flags
+        for (int i = 0; i < size; i++) {
+            out.writeByte(wayPoints.getFlags(i));
+        }
+
+        // column: stop over
+        for (int i = 0; i < size; i++) {
+            out.writeByte(wayPoints.isStopOver(i) ? 1 : 0);
+        }
+
+        // column: number of satellites
+        for (int i = 0; i < size; i++) {
+            out.writeByte(wayPoints.getNumberSatellites(i));
+        }
+
+        out.flush();
+        return coordinatesOffset;
+    }
+
+
+    /* Reads a track of given length (in bytes) from stream - the stream is consumed column by column */
+    public static TrackBuilder decode(InputStream inputStream, long length) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+
+        // header
+        if (in.readInt() != TRACK_MAGIC) {
+            throw new IOException("Not a binary track file.");
+        }
+        int fileFormatVersion = in.readInt();
+        if (fileFormatVersion != FILE_FORMAT_VERSION) {
+            throw new IOException("Unknown binary file format version: " + fileFormatVersion);
+        }
+        Date recordingStart = new Date(in.readLong());
+        Date recordingStop = new Date(in.readLong());
+        float trackLength = in.readFloat();
+        long duration = in.readLong();
+        float stepCount = in.readFloat();
+        double maxAltitude = in.readDouble();
+        double minAltitude = in.readDouble();
+        double positiveElevation = in.readDouble();
+        double negativeElevation = in.readDouble();
+        String startAddress = readString(in);
+        String endAddress = readString(in);
+        int size = in.readInt();
+        checkSize(size, length - FIXED_HEADER_SIZE - getStringSize(startAddress) - getStringSize(endAddress));
+
+        // columns - decoded straight into the WayPoint store
+        WayPointStore wayPoints = new WayPointStore(size);
+        wayPoints.allocate(size);
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setLatitude(i, value / COORDINATE_FACTOR);
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setLongitude(i, value / COORDINATE_FACTOR);
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setTime(i, value);
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setElapsedRealtimeNanos(i, value * NANOSECONDS_PER_MILLISECOND);
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setAltitude(i, (float) (value / DECIMETER_FACTOR));
+        }
+        for (int i = 0; i < size; i++) {
+            wayPoints.setAccuracy(i, (float) (readSignedVarLong(in) / DECIMETER_FACTOR));
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            wayPoints.setDistanceToStartingPoint(i, (float) (value / DECIMETER_FACTOR));
+        }
+        for (int i = 0; i < size; i++) {
+            wayPoints.setProvider(i, in.readByte());
+        }
+        // flags follow altitude - they overwrite the altitude flag set by setAltitude
+        for (int i = 0; i < size; i++) {
+            wayPoints.setFlags(i, in.readByte());
+        }
+        for (int i = 0; i < size; i++) {
+            wayPoints.setStopOver(i, in.readByte() != 0);
+        }
+        for (int i = 0; i < size; i++) {
+            wayPoints.setNumberSatellites(i, in.readUnsignedByte());
+        }
+
+        return new TrackBuilder(FILE_FORMAT_VERSION, wayPoints, trackLength, duration, stepCount, recordingStart, recordingStop, maxAltitude, minAltitude, positiveElevation, negativeElevation, null, startAddress, endAddress);
+    }
+
+
+    /* Reads the header and the coordinate columns of a track file and returns its summary */
+    public static TrackSummary readSummary(InputStream inputStream, File file) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+
+        // header
+        if (in.readInt() != TRACK_MAGIC) {
+            throw new IOException("Not a binary track file.");
+        }
+        int fileFormatVersion = in.readInt();
+        if (fileFormatVersion != FILE_FORMAT_VERSION) {
+            throw new IOException("Unknown binary file format version: " + fileFormatVersion);
+        }
+        Date recordingStart = new Date(in.readLong());
+        Date recordingStop = new Date(in.readLong());
+        float trackLength = in.readFloat();
+        long duration = in.readLong();
+        float stepCount = in.readFloat();
+        double maxAltitude = in.readDouble();
+        double minAltitude = in.readDouble();
+        double positiveElevation = in.readDouble();
+        double negativeElevation = in.readDouble();
+        String startAddress = readString(in);
+        String endAddress = readString(in);
+        int size = in.readInt();
+        long coordinatesOffset = FIXED_HEADER_SIZE + getStringSize(startAddress) + getStringSize(endAddress);
+        checkSize(size, file.length() - coordinatesOffset);
+
+        // bounding box
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        readCoordinates(in, size, latitudes, longitudes);
+        double north = -90d;
+        double east = -180d;
+        double south = 90d;
+        double west = 180d;
+        for (int i = 0; i < size; i++) {
+            if (latitudes[i] > north) north = latitudes[i];
+            if (latitudes[i] < south) south = latitudes[i];
+            if (longitudes[i] > east) east = longitudes[i];
+            if (longitudes[i] < west) west = longitudes[i];
+        }
+
+        return new TrackSummary(file.getName(), file.length(), file.lastModified(), recordingStart, recordingStop, trackLength, duration, stepCount,
+                maxAltitude, minAltitude, positiveElevation, negativeElevation, north, east, south, west, size, coordinatesOffset);
+    }
+
+
+    /* Reads the latitude and longitude columns - stream must be positioned at the coordinates offset */
+    public static void readCoordinates(InputStream inputStream, int size, double[] latitudes, double[] longitudes) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            latitudes[i] = value / COORDINATE_FACTOR;
+        }
+        value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value + readSignedVarLong(in);
+            longitudes[i] = value / COORDINATE_FACTOR;
+        }
+    }
+
+
+    /* Checks that given number of WayPoints fits into the bytes left for the columns */
+    private static void checkSize(int size, long columnBytes) throws IOException {
+        if (size < 0 || (long) size * COLUMN_COUNT > columnBytes) {
+            throw new IOException("Invalid number of WayPoints: " + size + " (" + columnBytes + " bytes of columns)");
+        }
+    }
+
+
+    /* Writes a zig-zag encoded variable length integer */
+    private static void writeSignedVarLong(DataOutputStream out, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag = zigZag >>> 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+
+    /* Reads a zig-zag encoded variable length integer */
+    private static long readSignedVarLong(DataInputStream in) throws IOException {
+        long zigZag = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable length integer.");
+            }
+            b = in.readUnsignedByte();
+            zigZag = zigZag | ((long) (b & 0x7F) << shift);
+            shift = shift + 7;
+        } while ((b & 0x80) != 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+
+    /* Writes a string that may be null */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+
+    /* Returns the number of bytes writeString needs for given string */
+    private static int getStringSize(String string) {
+        if (string == null) {
+            return 1;
+        }
+        int size = 1 + 2;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                size = size + 1;
+            } else if (c > 0x07FF) {
+                size = size + 3;
+            } else {
+                size = size + 2;
+            }
+        }
+        return size;
+    }
+
+
+    /* Reads a string that may be null */
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        } else {
+            return null;
+        }
+    }
+
+}
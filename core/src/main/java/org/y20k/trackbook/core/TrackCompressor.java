@@ -0,0 +1,109 @@
+/**
+ * TrackCompressor.java
+ * Implements the TrackCompressor class
+ * A TrackCompressor decides while recording which WayPoints carry no shape information
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+
+/**
+ * TrackCompressor class
+ *
+ * Opening window line simplification: the last WayPoint of a track is kept
+ * tentatively. A new location replaces it, if every location recorded since
+ * the WayPoint before it (the anchor) lies within the tolerance of the straight
+ * line from the anchor to the new location. Otherwise the tentative WayPoint
+ * becomes the new anchor. Distances are measured in a local equirectangular
+ * projection - precise enough for the few hundred meters of a window.
+ */
+public final class TrackCompressor {
+
+    /* Compressor constants */
+    private static final int MAXIMUM_WINDOW_SIZE = 64; // limits the work per location - and the length of a straight line
+    private static final double METERS_PER_DEGREE = 111319.49d; // WGS84 equator length / 360
+
+
+    /* Main class variables */
+    private final float mTolerance;
+    private final double[] mWindowLatitudes;
+    private final double[] mWindowLongitudes;
+    private int mWindowSize;
+    private double mAnchorLatitude;
+    private double mAnchorLongitude;
+    private int mTrackSize;
+
+
+    /* Constructor - a tolerance of zero keeps all WayPoints */
+    public TrackCompressor(float tolerance) {
+        mTolerance = tolerance;
+        mWindowLatitudes = new double[MAXIMUM_WINDOW_SIZE];
+        mWindowLongitudes = new double[MAXIMUM_WINDOW_SIZE];
+        mWindowSize = 0;
+        mTrackSize = -1;
+    }
+
+
+    /* Checks if the last WayPoint of given store can be replaced by a WayPoint at given location */
+    public boolean canReplaceLastWayPoint(WayPointStore wayPoints, double latitude, double longitude) {
+        int size = wayPoints.size();
+        if (mTolerance <= 0f || size < 2 || size != mTrackSize || mWindowSize == MAXIMUM_WINDOW_SIZE) {
+            // disabled, too short or changed by someone else
+            return false;
+        }
+        if (wayPoints.isStopOver(size - 1) || wayPoints.isStopOver(size - 2)) {
+            // segment ends and starts are kept
+            return false;
+        }
+
+        // project window onto plane around anchor
+        double cosLatitude = Math.cos(Math.toRadians(mAnchorLatitude));
+        double endX = (longitude - mAnchorLongitude) * cosLatitude * METERS_PER_DEGREE;
+        double endY = (latitude - mAnchorLatitude) * METERS_PER_DEGREE;
+        double lengthSquared = endX * endX + endY * endY;
+        double toleranceSquared = (double) mTolerance * mTolerance;
+
+        // every location of the window must be close to the line from anchor to new location
+        for (int i = 0; i < mWindowSize; i++) {
+            double x = (mWindowLongitudes[i] - mAnchorLongitude) * cosLatitude * METERS_PER_DEGREE;
+            double y = (mWindowLatitudes[i] - mAnchorLatitude) * METERS_PER_DEGREE;
+            double t = lengthSquared > 0d ? Math.max(0d, Math.min(1d, (x * endX + y * endY) / lengthSquared)) : 0d;
+            double dx = x - t * endX;
+            double dy = y - t * endY;
+            if (dx * dx + dy * dy > toleranceSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /* Updates the window after the WayPoint at given location has been added (replaced: the previous last WayPoint was dropped) */
+    public void onWayPointAdded(WayPointStore wayPoints, double latitude, double longitude, boolean replaced) {
+        int size = wayPoints.size();
+        if (!replaced) {
+            // tentative WayPoint is kept - it becomes the anchor of a new window
+            mWindowSize = 0;
+            if (size >= 2) {
+                mAnchorLatitude = wayPoints.getLatitude(size - 2);
+                mAnchorLongitude = wayPoints.getLongitude(size - 2);
+            }
+        }
+        mWindowLatitudes[mWindowSize] = latitude;
+        mWindowLongitudes[mWindowSize] = longitude;
+        mWindowSize++;
+        mTrackSize = size;
+    }
+
+}
@@ -0,0 +1,283 @@
+/**
+ * TrackIndex.java
+ * Implements the TrackIndex class
+ * A TrackIndex is a file that stores a TrackSummary for every track file
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * TrackIndex class
+ *
+ * File layout: a small header followed by one fixed-size entry per track file.
+ * Entries are updated in place, a removed entry is replaced by the last entry.
+ * The order of the entries is not significant.
+ */
+public final class TrackIndex {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackIndex.class.getSimpleName();
+
+    /* Layout of the index file */
+    private static final int INDEX_MAGIC = 0x54424931; // "TBI1"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 384;
+    private static final int NAME_SLOT_SIZE = 256;
+    private static final double COORDINATE_FACTOR = 1e7;
+
+
+    /* Main class variables */
+    private final File mFile;
+
+
+    /* Constructor */
+    public TrackIndex(File file) {
+        mFile = file;
+    }
+
+
+    /* Checks if the index file exists */
+    public boolean exists() {
+        return mFile.exists();
+    }
+
+
+    /* Deletes the index file - if it exists */
+    public boolean delete() {
+        return mFile.exists() && mFile.delete();
+    }
+
+
+    /* Reads all entries of the index */
+    public List<TrackSummary> read() throws IOException {
+        List<TrackSummary> summaries = new ArrayList<>();
+        if (!mFile.exists()) {
+            return summaries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (!readHeader(in)) {
+                throw new IOException("Not a valid index file: " + mFile.toString());
+            }
+            long entryCount = (mFile.length() - HEADER_SIZE) / ENTRY_SIZE;
+            byte[] entry = new byte[ENTRY_SIZE];
+            for (long i = 0; i < entryCount; i++) {
+                in.readFully(entry);
+                summaries.add(readEntry(entry));
+            }
+        }
+        return summaries;
+    }
+
+
+    /* Replaces the whole index with given entries */
+    public void write(List<TrackSummary> summaries) throws IOException {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            writeHeader(out);
+            for (TrackSummary summary : summaries) {
+                if (canStore(summary)) {
+                    out.write(createEntry(summary));
+                }
+            }
+        }
+        if (!tempFile.renameTo(mFile)) {
+            tempFile.delete();
+            throw new IOException("Unable to replace index file: " + mFile.toString());
+        }
+        LogHelper.v(LOG_TAG, "Wrote " + summaries.size() + " entries to index: " + mFile.toString());
+    }
+
+
+    /* Adds or replaces the entry for the track file described by given summary */
+    public void put(TrackSummary summary) throws IOException {
+        if (!canStore(summary)) {
+            LogHelper.w(LOG_TAG, "File name too long for index: " + summary.getFileName());
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(mFile, "rw")) {
+            int position = prepareAndFind(raf, summary.getFileName());
+            if (position < 0) {
+                position = getEntryCount(raf);
+            }
+            raf.seek(HEADER_SIZE + (long) position * ENTRY_SIZE);
+            raf.write(createEntry(summary));
+        }
+    }
+
+
+    /* Removes the entry for given track file - if it exists */
+    public void remove(String fileName) throws IOException {
+        if (!mFile.exists()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(mFile, "rw")) {
+            int position = prepareAndFind(raf, fileName);
+            if (position < 0) {
+                return;
+            }
+            // move last entry into the gap
+            int lastPosition = getEntryCount(raf) - 1;
+            if (position != lastPosition) {
+                byte[] lastEntry = new byte[ENTRY_SIZE];
+                raf.seek(HEADER_SIZE + (long) lastPosition * ENTRY_SIZE);
+                raf.readFully(lastEntry);
+                raf.seek(HEADER_SIZE + (long) position * ENTRY_SIZE);
+                raf.write(lastEntry);
+            }
+            raf.setLength(HEADER_SIZE + (long) lastPosition * ENTRY_SIZE);
+        }
+    }
+
+
+    /* Validates header (re-initializes index if necessary) and returns the position of the entry for given file name - or -1 */
+    private int prepareAndFind(RandomAccessFile raf, String fileName) throws IOException {
+        raf.seek(0);
+        if (raf.length() < HEADER_SIZE || raf.readInt() != INDEX_MAGIC || raf.readInt() != INDEX_VERSION) {
+            LogHelper.v(LOG_TAG, "Starting new index: " + mFile.toString());
+            ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_SIZE);
+            writeHeader(new DataOutputStream(header));
+            raf.setLength(0);
+            raf.write(header.toByteArray());
+            return -1;
+        }
+        // cut off anything behind the last complete entry
+        int entryCount = getEntryCount(raf);
+        raf.setLength(HEADER_SIZE + (long) entryCount * ENTRY_SIZE);
+        for (int i = 0; i < entryCount; i++) {
+            raf.seek(HEADER_SIZE + (long) i * ENTRY_SIZE);
+            if (fileName.equals(raf.readUTF())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /* Returns the number of complete entries */
+    private int getEntryCount(RandomAccessFile raf) throws IOException {
+        return (int) ((raf.length() - HEADER_SIZE) / ENTRY_SIZE);
+    }
+
+
+    /* Writes the index header */
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeInt(ENTRY_SIZE);
+        out.writeInt(0); // reserved
+    }
+
+
+    /* Reads the index header and checks if it is valid */
+    private boolean readHeader(DataInputStream in) throws IOException {
+        boolean valid = in.readInt() == INDEX_MAGIC && in.readInt() == INDEX_VERSION && in.readInt() == ENTRY_SIZE;
+        in.readInt(); // reserved
+        return valid;
+    }
+
+
+    /* Checks if the file name of given summary fits into the name slot of an entry */
+    private boolean canStore(TrackSummary summary) {
+        // modified UTF-8 needs up to three bytes per character
+        String fileName = summary.getFileName();
+        if (fileName.length() * 3 + 2 <= NAME_SLOT_SIZE) {
+            return true;
+        }
+        try {
+            ByteArrayOutputStream name = new ByteArrayOutputStream();
+            new DataOutputStream(name).writeUTF(fileName);
+            return name.size() <= NAME_SLOT_SIZE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /* Creates a fixed-size entry for given summary */
+    private byte[] createEntry(TrackSummary summary) throws IOException {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(ENTRY_SIZE);
+        DataOutputStream out = new DataOutputStream(entry);
+        out.writeUTF(summary.getFileName());
+        out.write(new byte[NAME_SLOT_SIZE - out.size()]);
+        out.writeLong(summary.getFileLength());
+        out.writeLong(summary.getFileLastModified());
+        out.writeLong(summary.getRecordingStart().getTime());
+        out.writeLong(summary.getRecordingStop().getTime());
+        out.writeFloat(summary.getTrackLength());
+        out.writeLong(summary.getTrackDuration());
+        out.writeFloat(summary.getStepCount());
+        out.writeDouble(summary.getMaxAltitude());
+        out.writeDouble(summary.getMinAltitude());
+        out.writeDouble(summary.getPositiveElevation());
+        out.writeDouble(summary.getNegativeElevation());
+        // bounding box - rounded outwards
+        out.writeInt((int) Math.ceil(summary.getNorth() * COORDINATE_FACTOR));
+        out.writeInt((int) Math.ceil(summary.getEast() * COORDINATE_FACTOR));
+        out.writeInt((int) Math.floor(summary.getSouth() * COORDINATE_FACTOR));
+        out.writeInt((int) Math.floor(summary.getWest() * COORDINATE_FACTOR));
+        out.writeInt(summary.getSize());
+        out.writeLong(summary.getCoordinatesOffset());
+
+        // pad entry to its fixed size
+        byte[] bytes = new byte[ENTRY_SIZE];
+        System.arraycopy(entry.toByteArray(), 0, bytes, 0, entry.size());
+        return bytes;
+    }
+
+
+    /* Reads a fixed-size entry */
+    private TrackSummary readEntry(byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        String fileName = in.readUTF();
+        int nameBytes = ENTRY_SIZE - in.available();
+        in.skipBytes(NAME_SLOT_SIZE - nameBytes);
+        long fileLength = in.readLong();
+        long fileLastModified = in.readLong();
+        Date recordingStart = new Date(in.readLong());
+        Date recordingStop = new Date(in.readLong());
+        float trackLength = in.readFloat();
+        long duration = in.readLong();
+        float stepCount = in.readFloat();
+        double maxAltitude = in.readDouble();
+        double minAltitude = in.readDouble();
+        double positiveElevation = in.readDouble();
+        double negativeElevation = in.readDouble();
+        double north = in.readInt() / COORDINATE_FACTOR;
+        double east = in.readInt() / COORDINATE_FACTOR;
+        double south = in.readInt() / COORDINATE_FACTOR;
+        double west = in.readInt() / COORDINATE_FACTOR;
+        int size = in.readInt();
+        long coordinatesOffset = in.readLong();
+        return new TrackSummary(fileName, fileLength, fileLastModified, recordingStart, recordingStop, trackLength, duration, stepCount,
+                maxAltitude, minAltitude, positiveElevation, negativeElevation, north, east, south, west, size, coordinatesOffset);
+    }
+
+}
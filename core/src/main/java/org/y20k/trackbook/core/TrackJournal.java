@@ -0,0 +1,258 @@
+/**
+ * TrackJournal.java
+ * Implements the TrackJournal class
+ * A TrackJournal is an append-only file that stores the track currently being recorded
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+
+/**
+ * TrackJournal class
+ *
+ * File layout: a fixed-size header with the running statistics of the track,
+ * followed by one fixed-size record per WayPoint. New WayPoints are appended,
+ * the header is overwritten in place. The number of stored WayPoints is derived
+ * from the file length, so a record that was only partially written is ignored.
+ */
+public final class TrackJournal {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackJournal.class.getSimpleName();
+
+    /* Layout of the journal file */
+    private static final int JOURNAL_MAGIC = 0x54424A31; // "TBJ1"
+    private static final int JOURNAL_VERSION = 2;
+    private static final int HEADER_SIZE = 1024;
+    private static final int RECORD_SIZE = 48;
+    private static final int MAXIMUM_ADDRESS_LENGTH = 150;
+
+
+    /* Main class variables */
+    private final File mFile;
+
+
+    /* Constructor */
+    public TrackJournal(File file) {
+        mFile = file;
+    }
+
+
+    /* Checks if the journal file exists */
+    public boolean exists() {
+        return mFile.exists();
+    }
+
+
+    /* Deletes the journal file - if it exists */
+    public boolean delete() {
+        return mFile.exists() && mFile.delete();
+    }
+
+
+    /* Getter for journal file */
+    public File getFile() {
+        return mFile;
+    }
+
+
+    /* Appends all WayPoints not yet stored in the journal and refreshes the header - returns the number of bytes written */
+    public long append(Track track) throws IOException {
+        long bytesWritten = 0L;
+        try (RandomAccessFile raf = new RandomAccessFile(mFile, "rw")) {
+            WayPointStore wayPoints = track.getWayPointStore();
+            int trackSize = wayPoints.size();
+
+            // determine how many WayPoints of this track are already stored
+            int storedWayPoints = getStoredWayPointCount(raf, track);
+            if (storedWayPoints < 0 || storedWayPoints > trackSize) {
+                // journal belongs to another recording - start over
+                LogHelper.v(LOG_TAG, "Starting new journal: " + mFile.toString());
+                storedWayPoints = 0;
+            }
+
+            // cut off anything behind the last complete record
+            raf.setLength(HEADER_SIZE + (long) storedWayPoints * RECORD_SIZE);
+
+            // the last stored WayPoint can still change (stop over status, replaced by compression) - write it again
+            int firstRecord = Math.max(storedWayPoints - 1, 0);
+
+            // append new WayPoints
+            if (trackSize > firstRecord) {
+                ByteArrayOutputStream records = new ByteArrayOutputStream((trackSize - firstRecord) * RECORD_SIZE);
+                DataOutputStream out = new DataOutputStream(records);
+                for (int i = firstRecord; i < trackSize; i++) {
+                    writeRecord(out, wayPoints, i);
+                }
+                raf.seek(HEADER_SIZE + (long) firstRecord * RECORD_SIZE);
+                raf.write(records.toByteArray());
+                bytesWritten = records.size();
+            }
+
+            // update running statistics
+            byte[] header = createHeader(track);
+            raf.seek(0);
+            raf.write(header);
+            bytesWritten = bytesWritten + header.length;
+        }
+        return bytesWritten;
+    }
+
+
+    /* Replays the journal and returns the recorded track */
+    public Track replay() throws IOException {
+        long wayPointCount = (mFile.length() - HEADER_SIZE) / RECORD_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            // read header
+            byte[] header = new byte[HEADER_SIZE];
+            in.readFully(header);
+            DataInputStream headerIn = new DataInputStream(new ByteArrayInputStream(header));
+            if (headerIn.readInt() != JOURNAL_MAGIC || headerIn.readInt() != JOURNAL_VERSION) {
+                throw new IOException("Not a valid journal file: " + mFile.toString());
+            }
+            Date recordingStart = new Date(headerIn.readLong());
+            Date recordingStop = new Date(headerIn.readLong());
+            int trackFormatVersion = headerIn.readInt();
+            float trackLength = headerIn.readFloat();
+            long duration = headerIn.readLong();
+            float stepCount = headerIn.readFloat();
+            double maxAltitude = headerIn.readDouble();
+            double minAltitude = headerIn.readDouble();
+            double positiveElevation = headerIn.readDouble();
+            double negativeElevation = headerIn.readDouble();
+            String startAddress = readAddress(headerIn);
+            String endAddress = readAddress(headerIn);
+
+            // read WayPoints
+            WayPointStore wayPoints = new WayPointStore((int) Math.max(wayPointCount, 0));
+            for (long i = 0; i < wayPointCount; i++) {
+                readRecord(in, wayPoints);
+            }
+
+            Track track = new Track(trackFormatVersion, wayPoints, trackLength, duration, stepCount, recordingStart, recordingStop, maxAltitude, minAltitude, positiveElevation, negativeElevation, null);
+            track.setmStartAdress(startAddress);
+            track.setmEndAdress(endAddress);
+            LogHelper.v(LOG_TAG, "Replayed " + wayPointCount + " WayPoints from journal: " + mFile.toString());
+            return track;
+        }
+    }
+
+
+    /* Returns the number of WayPoints of given track stored in journal - or -1 if journal belongs to another track */
+    private int getStoredWayPointCount(RandomAccessFile raf, Track track) throws IOException {
+        if (raf.length() < HEADER_SIZE) {
+            return -1;
+        }
+        raf.seek(0);
+        if (raf.readInt() != JOURNAL_MAGIC || raf.readInt() != JOURNAL_VERSION) {
+            return -1;
+        }
+        if (raf.readLong() != track.getRecordingStart().getTime()) {
+            return -1;
+        }
+        return (int) ((raf.length() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+
+    /* Creates the fixed-size header containing the running statistics of given track */
+    private byte[] createHeader(Track track) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_SIZE);
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(JOURNAL_MAGIC);
+        out.writeInt(JOURNAL_VERSION);
+        out.writeLong(track.getRecordingStart().getTime());
+        out.writeLong(track.getRecordingStop().getTime());
+        out.writeInt(track.getTrackFormatVersion());
+        out.writeFloat(track.getTrackLength());
+        out.writeLong(track.getTrackDuration());
+        out.writeFloat(track.getStepCount());
+        out.writeDouble(track.getMaxAltitude());
+        out.writeDouble(track.getMinAltitude());
+        out.writeDouble(track.getPositiveElevation());
+        out.writeDouble(track.getNegativeElevation());
+        writeAddress(out, track.getmStartAdress());
+        writeAddress(out, track.getmEndAdress());
+
+        // pad header to its fixed size
+        byte[] bytes = new byte[HEADER_SIZE];
+        System.arraycopy(header.toByteArray(), 0, bytes, 0, header.size());
+        return bytes;
+    }
+
+
+    /* Writes a fixed-size record for given WayPoint */
+    private void writeRecord(DataOutputStream out, WayPointStore wayPoints, int index) throws IOException {
+        out.writeDouble(wayPoints.getLatitude(index));
+        out.writeDouble(wayPoints.getLongitude(index));
+        out.writeLong(wayPoints.getTime(index));
+        out.writeLong(wayPoints.getElapsedRealtimeNanos(index));
+        out.writeFloat(wayPoints.getAltitude(index));
+        out.writeFloat(wayPoints.getAccuracy(index));
+        out.writeFloat(wayPoints.getDistanceToStartingPoint(index));
+        out.writeByte(wayPoints.getNumberSatellites(index));
+        out.writeByte(wayPoints.getProvider(index));
+        out.writeByte(wayPoints.getFlags(index));
+        out.writeByte(wayPoints.isStopOver(index) ? 1 : 0);
+    }
+
+
+    /* Reads a fixed-size record and adds the corresponding WayPoint to given store */
+    private void readRecord(DataInputStream in, WayPointStore wayPoints) throws IOException {
+        double latitude = in.readDouble();
+        double longitude = in.readDouble();
+        long time = in.readLong();
+        long elapsedRealtimeNanos = in.readLong();
+        float altitude = in.readFloat();
+        float accuracy = in.readFloat();
+        float distanceToStartingPoint = in.readFloat();
+        int numberSatellites = in.readUnsignedByte();
+        byte provider = in.readByte();
+        byte flags = in.readByte();
+        boolean isStopOver = in.readByte() != 0;
+        wayPoints.add(latitude, longitude, time, elapsedRealtimeNanos, altitude, accuracy, distanceToStartingPoint, provider, flags, numberSatellites, isStopOver);
+    }
+
+
+    /* Writes an address string - truncated to keep the header at its fixed size */
+    private void writeAddress(DataOutputStream out, String address) throws IOException {
+        if (address == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeUTF(address.length() > MAXIMUM_ADDRESS_LENGTH ? address.substring(0, MAXIMUM_ADDRESS_LENGTH) : address);
+        }
+    }
+
+
+    /* Reads an address string */
+    private String readAddress(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        } else {
+            return null;
+        }
+    }
+
+}
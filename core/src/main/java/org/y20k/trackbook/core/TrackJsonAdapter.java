@@ -0,0 +1,145 @@
+/**
+ * TrackJsonAdapter.java
+ * Implements the TrackJsonAdapter class
+ * A TrackJsonAdapter streams a track as JSON without using reflection
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+
+/**
+ * TrackJsonAdapter class
+ *
+ * Writes the same JSON a reflective Gson produces for a Track: field names
+ * as in Track, WayPoint and Location (Android 8 and newer), null fields left
+ * out, dates formatted with the pattern the export used to configure. The
+ * WayPoints are written one by one from the WayPointStore.
+ */
+public final class TrackJsonAdapter extends TypeAdapter<Track> {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackJsonAdapter.class.getSimpleName();
+
+    /* Export constants */
+    private static final String DATE_PATTERN = "M/d/yy hh:mm a";
+    private static final int HAS_ALTITUDE_MASK = 1; // mFieldsMask bits of Location
+    private static final int HAS_HORIZONTAL_ACCURACY_MASK = 8;
+
+
+    @Override
+    public void write(JsonWriter out, Track track) throws IOException {
+        if (track == null) {
+            out.nullValue();
+            return;
+        }
+        // SimpleDateFormat is not thread-safe - create one per track (used twice)
+        DateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN, Locale.US);
+
+        out.beginObject();
+        out.name("mTrackFormatVersion").value(track.getTrackFormatVersion());
+        out.name("mWayPoints");
+        writeWayPoints(out, track.getWayPointStore());
+        writeFloat(out, "mTrackLength", track.getTrackLength());
+        out.name("mDuration").value(track.getTrackDuration());
+        writeFloat(out, "mStepCount", track.getStepCount());
+        writeDate(out, "mRecordingStart", track.getRecordingStart(), dateFormat);
+        writeDate(out, "mRecordingStop", track.getRecordingStop(), dateFormat);
+        out.name("mMaxAltitude").value(track.getMaxAltitude());
+        out.name("mMinAltitude").value(track.getMinAltitude());
+        out.name("mPositiveElevation").value(track.getPositiveElevation());
+        out.name("mNegativeElevation").value(track.getNegativeElevation());
+        writeString(out, "mStartAdress", track.getmStartAdress());
+        writeString(out, "mEndAdress", track.getmEndAdress());
+        writeString(out, "mTrackName", track.getStoredTrackName());
+        out.endObject();
+    }
+
+
+    @Override
+    public Track read(JsonReader in) throws IOException {
+        throw new UnsupportedOperationException("Tracks are only exported as JSON.");
+    }
+
+
+    /* Writes all WayPoints as array */
+    private void writeWayPoints(JsonWriter out, WayPointStore wayPoints) throws IOException {
+        int size = wayPoints.size();
+        out.beginArray();
+        for (int i = 0; i < size; i++) {
+            byte flags = wayPoints.getFlags(i);
+            int fieldsMask = 0;
+            if ((flags & WayPointStore.FLAG_HAS_ALTITUDE) != 0) {
+                fieldsMask = fieldsMask | HAS_ALTITUDE_MASK;
+            }
+            if ((flags & WayPointStore.FLAG_HAS_ACCURACY) != 0) {
+                fieldsMask = fieldsMask | HAS_HORIZONTAL_ACCURACY_MASK;
+            }
+
+            out.beginObject();
+            out.name("mLocation").beginObject();
+            out.name("mProvider").value(WayPointStore.getProviderName(wayPoints.getProvider(i)));
+            out.name("mTime").value(wayPoints.getTime(i));
+            out.name("mElapsedRealtimeNanos").value(wayPoints.getElapsedRealtimeNanos(i));
+            out.name("mLatitude").value(wayPoints.getLatitude(i));
+            out.name("mLongitude").value(wayPoints.getLongitude(i));
+            out.name("mAltitude").value((double) wayPoints.getAltitude(i)); // Location stores altitude as double
+            out.name("mSpeed").value(0d);
+            out.name("mBearing").value(0d);
+            writeFloat(out, "mHorizontalAccuracyMeters", wayPoints.getAccuracy(i));
+            out.name("mVerticalAccuracyMeters").value(0d);
+            out.name("mSpeedAccuracyMetersPerSecond").value(0d);
+            out.name("mBearingAccuracyDegrees").value(0d);
+            out.name("mFieldsMask").value(fieldsMask);
+            out.endObject();
+            out.name("mIsStopOver").value(wayPoints.isStopOver(i));
+            writeFloat(out, "mDistanceToStartingPoint", wayPoints.getDistanceToStartingPoint(i));
+            out.name("mNumberSatellites").value(wayPoints.getNumberSatellites(i));
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+
+    /* Writes a float field - formatted like Gson does (shortest representation of the float) */
+    private void writeFloat(JsonWriter out, String name, float value) throws IOException {
+        out.name(name).value(Float.valueOf(value));
+    }
+
+
+    /* Writes a date field - if not null */
+    private void writeDate(JsonWriter out, String name, Date date, DateFormat dateFormat) throws IOException {
+        if (date != null) {
+            out.name(name).value(dateFormat.format(date));
+        }
+    }
+
+
+    /* Writes a string field - if not null */
+    private void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+/**
+ * TrackRecorder.java
+ * Implements the TrackRecorder class
+ * A TrackRecorder turns the location fixes of a recording into the WayPoints of a track
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+
+/**
+ * TrackRecorder class
+ *
+ * The recording pipeline of TrackerService - independent of the Android
+ * platform: fixes are buffered per provider as they arrive, every tick combines
+ * them into the current best fix and adds it to the track if it is a new
+ * WayPoint. Time is passed in by the caller (elapsed realtime in nanoseconds),
+ * so a recording can be replayed under a virtual clock (see TrackReplay).
+ * Every stage reports to PipelineMetrics.
+ * Not thread-safe - fixes and ticks have to be delivered on one thread.
+ */
+public final class TrackRecorder implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackRecorder.class.getSimpleName();
+
+    /* Fixes buffered per provider between two ticks - one fix per second for about a minute */
+    private static final int FIX_BUFFER_CAPACITY = 64;
+
+
+    /* Receives the results of the recorder */
+    public interface Listener {
+        /* Called if a WayPoint has been added - or the current fix could not be used for the first WayPoint */
+        void onTrackChanged();
+        /* Called if the location requests should be changed - see getSamplingController() */
+        void onLocationRequestsChanged();
+    }
+
+
+    /* Main class variables */
+    private final Track mTrack;
+    private final Listener mListener;
+    private final FixBuffer mGpsFixes;
+    private final FixBuffer mNetworkFixes;
+    private final SamplingController mSamplingController;
+    private final PipelineMetrics mMetrics;
+    private GeoFix mCurrentBestFix;
+    private boolean mResumed;
+
+
+    /* Constructor - lastFix may be null, resumed marks the first new WayPoint as a stop over */
+    public TrackRecorder(Track track, GeoFix lastFix, boolean resumed, long elapsedRealtimeNanos, Listener listener) {
+        mTrack = track;
+        mListener = listener;
+        mGpsFixes = new FixBuffer(GeoFix.PROVIDER_GPS, FIX_BUFFER_CAPACITY);
+        mNetworkFixes = new FixBuffer(GeoFix.PROVIDER_NETWORK, FIX_BUFFER_CAPACITY);
+        // start with fast location updates - until the first WayPoint shows how fast we are moving
+        mSamplingController = new SamplingController(elapsedRealtimeNanos);
+        mMetrics = PipelineMetrics.getInstance();
+        mResumed = resumed;
+        mCurrentBestFix = lastFix;
+        // FALLBACK: use last recorded location
+        if (mCurrentBestFix == null && track.getSize() > 0) {
+            mCurrentBestFix = track.getWayPointFix(track.getSize() - 1);
+        }
+    }
+
+
+    /* Buffers a fix until the next tick - as delivered by a location listener */
+    public void onFixReceived(GeoFix fix) {
+        onFixReceived(fix.getProvider(), fix.getLatitude(), fix.getLongitude(),
+                fix.hasAltitude() ? fix.getAltitude() : Double.NaN,
+                fix.hasAccuracy() ? fix.getAccuracy() : Float.NaN,
+                fix.hasSpeed() ? fix.getSpeed() : Float.NaN,
+                fix.getTime(), fix.getElapsedRealtimeNanos(), fix.getNumberSatellites());
+    }
+
+
+    /* Buffers a fix given by its fields until the next tick - altitude, accuracy and speed may be missing (NaN). Does not allocate */
+    public void onFixReceived(String provider, double latitude, double longitude, double altitude, float accuracy, float speed, long time, long elapsedRealtimeNanos, int numberSatellites) {
+        mMetrics.recordFix(provider, elapsedRealtimeNanos);
+        // keep fix for next tick
+        FixBuffer fixes = GeoFix.PROVIDER_NETWORK.equals(provider) ? mNetworkFixes : mGpsFixes;
+        fixes.offer(latitude, longitude, altitude, accuracy, speed, time, elapsedRealtimeNanos, numberSatellites);
+        // wake up location requests, if the fix shows movement
+        int trackSize = mTrack.getSize();
+        if (trackSize > 0) {
+            WayPointStore wayPoints = mTrack.getWayPointStore();
+            float distance = GeoFix.distanceBetween(wayPoints.getLatitude(trackSize - 1), wayPoints.getLongitude(trackSize - 1), latitude, longitude);
+            boolean hasSpeed = !Float.isNaN(speed);
+            if (mSamplingController.onFixReceived(hasSpeed, hasSpeed ? speed : 0f, Float.isNaN(accuracy) ? 0f : accuracy, distance)) {
+                mListener.onLocationRequestsChanged();
+            }
+        }
+    }
+
+
+    /* Combines the fixes received since the last tick and tries to add a WayPoint */
+    public boolean onTick(long elapsedRealtimeNanos) {
+        updateCurrentBestFix();
+        return addWayPoint(elapsedRealtimeNanos);
+    }
+
+
+    /* Combines the buffered fixes of both providers into the current best fix */
+    public void updateCurrentBestFix() {
+        GeoFix gpsFix = mGpsFixes.poll();
+        if (gpsFix != null && isBetterFix(gpsFix)) {
+            mCurrentBestFix = gpsFix;
+        }
+        GeoFix networkFix = mNetworkFixes.poll();
+        if (networkFix != null && isBetterFix(networkFix)) {
+            mCurrentBestFix = networkFix;
+        }
+    }
+
+
+    /* Adds the current best fix to the track - if it is accurate and a new WayPoint */
+    public boolean addWayPoint(long elapsedRealtimeNanos) {
+
+        long start = System.nanoTime();
+        int outcome;
+        boolean success = false;
+        GeoFix previousLocation = null;
+        GeoFix currentLocation = mCurrentBestFix;
+        int trackSize = mTrack.getSize();
+
+        if (trackSize == 0) {
+            // if accurate AND current
+            if (currentLocation != null && WayPointFilter.isAccurate(currentLocation) && WayPointFilter.isCurrent(currentLocation, elapsedRealtimeNanos)) {
+                // add first location to track
+                success = mTrack.addWayPoint(previousLocation, currentLocation);
+                outcome = success ? PipelineMetrics.WAYPOINT_ADDED : PipelineMetrics.WAYPOINT_NOT_STORED;
+            } else {
+                // just send an update indicating that current location fix not not suited
+                mListener.onTrackChanged();
+                if (currentLocation == null) {
+                    outcome = PipelineMetrics.WAYPOINT_NO_LOCATION;
+                } else if (!WayPointFilter.isAccurate(currentLocation)) {
+                    outcome = PipelineMetrics.WAYPOINT_INACCURATE;
+                } else {
+                    outcome = PipelineMetrics.WAYPOINT_NOT_CURRENT;
+                }
+            }
+        } else if (currentLocation != null) {
+            // get location of previous WayPoint
+            previousLocation = mTrack.getWayPointFix(trackSize - 1);
+
+            // default value for average speed
+            float averageSpeed = 0f;
+
+            // compute average speed if new location came from network provider
+            if (trackSize > 1 && currentLocation.getProvider().equals(GeoFix.PROVIDER_NETWORK)) {
+                GeoFix firstWayPoint = mTrack.getWayPointFix(0);
+                float distance = firstWayPoint.distanceTo(previousLocation);
+                long timeDifference = previousLocation.getElapsedRealtimeNanos() - firstWayPoint.getElapsedRealtimeNanos();
+                averageSpeed = distance / ((float) timeDifference / ONE_SECOND_IN_NANOSECOND);
+            }
+
+            // if accurate AND new
+            if (!WayPointFilter.isAccurate(currentLocation)) {
+                outcome = PipelineMetrics.WAYPOINT_INACCURATE;
+            } else if (isNewWayPoint(previousLocation, currentLocation, averageSpeed)) {
+                // add current best location to track
+                success = mTrack.addWayPoint(previousLocation, currentLocation);
+                outcome = success ? PipelineMetrics.WAYPOINT_ADDED : PipelineMetrics.WAYPOINT_NOT_STORED;
+            } else {
+                outcome = PipelineMetrics.WAYPOINT_NOT_NEW;
+            }
+        } else {
+            outcome = PipelineMetrics.WAYPOINT_NO_LOCATION;
+        }
+
+        if (success) {
+            if (mResumed) {
+                int lastWayPoint = mTrack.getSize() - 2;
+                if (lastWayPoint >= 0) {
+                    // mark last location as stop over
+                    mTrack.setWayPointStopOver(lastWayPoint, true);
+                }
+                mResumed = false;
+            } else {
+                // update distance, if not resumed
+                mTrack.updateDistance(previousLocation, currentLocation);
+            }
+
+            // notify listener if new WayPoint was added
+            mListener.onTrackChanged();
+        }
+
+        // adapt location requests to movement
+        if (currentLocation != null) {
+            boolean stopOver = mTrack.getSize() > 0 && WayPointFilter.isStopOver(mTrack.getWayPointFix(mTrack.getSize() - 1), currentLocation);
+            if (mSamplingController.onSample(elapsedRealtimeNanos, success, WayPointFilter.isAccurate(currentLocation), stopOver)) {
+                mListener.onLocationRequestsChanged();
+            }
+        }
+
+        mMetrics.recordAddWayPoint(outcome, System.nanoTime() - start);
+        return success;
+    }
+
+
+    /* Checks if given fix is better than the current best fix - counts the verdict */
+    private boolean isBetterFix(GeoFix fix) {
+        int verdict = WayPointFilter.checkBetterLocation(fix, mCurrentBestFix);
+        mMetrics.recordBetterLocationVerdict(verdict);
+        return WayPointFilter.isBetterVerdict(verdict);
+    }
+
+
+    /* Checks if given location is a new WayPoint - counts the verdict */
+    private boolean isNewWayPoint(GeoFix previousLocation, GeoFix currentLocation, float averageSpeed) {
+        int verdict = WayPointFilter.checkNewWayPoint(previousLocation, currentLocation, averageSpeed);
+        mMetrics.recordNewWayPointVerdict(verdict);
+        return WayPointFilter.isNewVerdict(verdict);
+    }
+
+
+    /* Getter for the track that is recorded */
+    public Track getTrack() {
+        return mTrack;
+    }
+
+
+    /* Getter for the current best fix - null if there is none */
+    public GeoFix getCurrentBestFix() {
+        return mCurrentBestFix;
+    }
+
+
+    /* Getter for the SamplingController - suggests how often location updates are requested */
+    public SamplingController getSamplingController() {
+        return mSamplingController;
+    }
+
+
+    /* Getter for the buffer of given provider */
+    public FixBuffer getFixBuffer(String provider) {
+        return GeoFix.PROVIDER_NETWORK.equals(provider) ? mNetworkFixes : mGpsFixes;
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+ * TrackReplay.java
+ * Implements the TrackReplay class
+ * A TrackReplay records a track from the location fixes of a ride log - under a virtual clock
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * TrackReplay class
+ *
+ * Feeds the fixes through a TrackRecorder the way TrackerService does: fixes
+ * are delivered in order of their elapsed realtime, a tick runs every tick
+ * interval (15 seconds, like the RecordingEngine). The clock is virtual - it
+ * jumps from fix to fix and from tick to tick, so an eight hour ride replays
+ * in a fraction of a second. The time spent in each stage is measured with
+ * System.nanoTime() and returned together with the recorded track.
+ */
+public final class TrackReplay implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackReplay.class.getSimpleName();
+
+
+    /* Main class variables */
+    private final List<GeoFix> mFixes;
+    private long mTickInterval;
+    private float mCompressionTolerance;
+
+
+    /* Constructor - fixes have to be ordered by elapsed realtime */
+    public TrackReplay(List<GeoFix> fixes) {
+        mFixes = fixes;
+        mTickInterval = FIFTEEN_SECONDS_IN_MILLISECONDS;
+        mCompressionTolerance = DEFAULT_COMPRESSION_TOLERANCE;
+    }
+
+
+    /* Setter for the interval between two ticks (in milliseconds) */
+    public void setTickInterval(long tickInterval) {
+        mTickInterval = tickInterval;
+    }
+
+
+    /* Setter for the compression tolerance of the recorded track (in meters) - zero keeps every WayPoint */
+    public void setCompressionTolerance(float compressionTolerance) {
+        mCompressionTolerance = compressionTolerance;
+    }
+
+
+    /* Replays the fixes and returns the recorded track with the timings of the stages */
+    public Result run() {
+        final Result result = new Result();
+        long runStart = System.nanoTime();
+        if (mFixes.isEmpty()) {
+            result.mTrack = new Track();
+            result.mWallTime = System.nanoTime() - runStart;
+            return result;
+        }
+
+        // create track - starting at the time of the first fix
+        GeoFix firstFix = mFixes.get(0);
+        Date recordingStart = new Date(firstFix.getTime());
+        Track track = new Track(CURRENT_TRACK_FORMAT_VERSION, new WayPointStore(), 0f, 0L, 0f, recordingStart, recordingStart, 0d, 0d, 0d, 0d, null);
+        track.setCompressionTolerance(mCompressionTolerance);
+        result.mTrack = track;
+
+        // set up recorder - like TrackerService without a last known location
+        long startTime = firstFix.getElapsedRealtimeNanos();
+        TrackRecorder recorder = new TrackRecorder(track, null, false, startTime, new TrackRecorder.Listener() {
+            @Override
+            public void onTrackChanged() {
+                result.mTrackUpdates++;
+            }
+
+            @Override
+            public void onLocationRequestsChanged() {
+                result.mLocationRequestChanges++;
+            }
+        });
+        recorder.addWayPoint(startTime);
+
+        // deliver fixes - and run the ticks that are due before each fix
+        long tickInterval = mTickInterval * 1000000L;
+        long nextTick = startTime + tickInterval;
+        for (GeoFix fix : mFixes) {
+            while (fix.getElapsedRealtimeNanos() >= nextTick) {
+                tick(recorder, result, startTime, nextTick);
+                nextTick = nextTick + tickInterval;
+            }
+            long stageStart = System.nanoTime();
+            recorder.onFixReceived(fix);
+            result.mFixTime = result.mFixTime + (System.nanoTime() - stageStart);
+            result.mFixCount++;
+        }
+        // last tick - picks up the fixes received after the previous one
+        tick(recorder, result, startTime, nextTick);
+
+        track.setRecordingEnd(new Date(recordingStart.getTime() + track.getTrackDuration()));
+        result.mVirtualTime = nextTick - startTime;
+        result.mWallTime = System.nanoTime() - runStart;
+        return result;
+    }
+
+
+    /* Runs one tick at given virtual time */
+    private void tick(TrackRecorder recorder, Result result, long startTime, long tickTime) {
+        // update track duration - like the tick of TrackerService
+        recorder.getTrack().setDuration((tickTime - startTime) / 1000000L);
+        long stageStart = System.nanoTime();
+        recorder.updateCurrentBestFix();
+        long stageEnd = System.nanoTime();
+        result.mCombineTime = result.mCombineTime + (stageEnd - stageStart);
+        stageStart = stageEnd;
+        recorder.addWayPoint(tickTime);
+        stageEnd = System.nanoTime();
+        result.mAddWayPointTime = result.mAddWayPointTime + (stageEnd - stageStart);
+        result.mTickCount++;
+    }
+
+
+    /**
+     * Inner class: The recorded track and the timings of a replay - times in nanoseconds
+     */
+    public static final class Result {
+
+        private Track mTrack;
+        private long mFixCount;
+        private long mTickCount;
+        private long mTrackUpdates;
+        private long mLocationRequestChanges;
+        private long mFixTime;
+        private long mCombineTime;
+        private long mAddWayPointTime;
+        private long mVirtualTime;
+        private long mWallTime;
+
+        /* Getter for the recorded track */
+        public Track getTrack() {
+            return mTrack;
+        }
+
+        /* Getter for number of fixes delivered */
+        public long getFixCount() {
+            return mFixCount;
+        }
+
+        /* Getter for number of ticks */
+        public long getTickCount() {
+            return mTickCount;
+        }
+
+        /* Getter for number of track updates that would have been sent to the activity */
+        public long getTrackUpdates() {
+            return mTrackUpdates;
+        }
+
+        /* Getter for number of times the location requests would have been changed */
+        public long getLocationRequestChanges() {
+            return mLocationRequestChanges;
+        }
+
+        /* Getter for time spent buffering fixes - the location listener stage */
+        public long getFixTime() {
+            return mFixTime;
+        }
+
+        /* Getter for time spent combining buffered fixes into the current best fix - the isBetterLocation stage */
+        public long getCombineTime() {
+            return mCombineTime;
+        }
+
+        /* Getter for time spent adding WayPoints - the addWayPointToTrack stage */
+        public long getAddWayPointTime() {
+            return mAddWayPointTime;
+        }
+
+        /* Getter for the replayed (virtual) duration of the recording */
+        public long getVirtualTime() {
+            return mVirtualTime;
+        }
+
+        /* Getter for the real duration of the replay */
+        public long getWallTime() {
+            return mWallTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Replayed %d fixes in %d ticks (%.1f h) in %.1f ms - %.0fx real time%n" +
+                    "WayPoints: %d, distance: %.0f m, positive elevation: %.0f m%n" +
+                    "Track updates: %d, location request changes: %d%n" +
+                    "Stage fix:      %10.1f ms total, %8.0f ns per fix%n" +
+                    "Stage combine:  %10.1f ms total, %8.0f ns per tick%n" +
+                    "Stage waypoint: %10.1f ms total, %8.0f ns per tick",
+                    mFixCount, mTickCount, mVirtualTime / 3.6e12, mWallTime / 1e6, mWallTime > 0 ? (double) mVirtualTime / mWallTime : 0d,
+                    mTrack.getSize(), mTrack.getTrackDistance(), mTrack.getPositiveElevation(),
+                    mTrackUpdates, mLocationRequestChanges,
+                    mFixTime / 1e6, perOperation(mFixTime, mFixCount),
+                    mCombineTime / 1e6, perOperation(mCombineTime, mTickCount),
+                    mAddWayPointTime / 1e6, perOperation(mAddWayPointTime, mTickCount));
+        }
+
+        private static double perOperation(long time, long count) {
+            return count > 0 ? (double) time / count : 0d;
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+}
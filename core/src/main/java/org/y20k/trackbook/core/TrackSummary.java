@@ -0,0 +1,235 @@
+/**
+ * TrackSummary.java
+ * Implements the TrackSummary class
+ * A TrackSummary holds the statistics and the bounding box of a track file
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.io.File;
+import java.util.Date;
+
+
+/**
+ * TrackSummary class
+ */
+public final class TrackSummary {
+
+    /* Define log tag */
+    private static final String LOG_TAG = TrackSummary.class.getSimpleName();
+
+
+    /* Main class variables */
+    private final String mFileName;
+    private final long mFileLength;
+    private final long mFileLastModified;
+    private final Date mRecordingStart;
+    private final Date mRecordingStop;
+    private final float mTrackLength;
+    private final long mDuration;
+    private final float mStepCount;
+    private final double mMaxAltitude;
+    private final double mMinAltitude;
+    private final double mPositiveElevation;
+    private final double mNegativeElevation;
+    private final double mNorth;
+    private final double mEast;
+    private final double mSouth;
+    private final double mWest;
+    private final int mSize;
+    private final long mCoordinatesOffset;
+
+
+    /* Generic Constructor */
+    public TrackSummary(String fileName, long fileLength, long fileLastModified, Date recordingStart, Date recordingStop, float trackLength, long duration, float stepCount, double maxAltitude, double minAltitude, double positiveElevation, double negativeElevation, double north, double east, double south, double west, int size, long coordinatesOffset) {
+        mFileName = fileName;
+        mFileLength = fileLength;
+        mFileLastModified = fileLastModified;
+        mRecordingStart = recordingStart;
+        mRecordingStop = recordingStop;
+        mTrackLength = trackLength;
+        mDuration = duration;
+        mStepCount = stepCount;
+        mMaxAltitude = maxAltitude;
+        mMinAltitude = minAltitude;
+        mPositiveElevation = positiveElevation;
+        mNegativeElevation = negativeElevation;
+        mNorth = north;
+        mEast = east;
+        mSouth = south;
+        mWest = west;
+        mSize = size;
+        mCoordinatesOffset = coordinatesOffset;
+    }
+
+
+    /* Creates a summary of given track stored in given file - coordinatesOffset is -1 if file is not in binary file format */
+    public static TrackSummary fromTrack(Track track, File file, long coordinatesOffset) {
+        WayPointStore wayPoints = track.getWayPointStore();
+        int size = wayPoints.size();
+        double north = -90d;
+        double east = -180d;
+        double south = 90d;
+        double west = 180d;
+        for (int i = 0; i < size; i++) {
+            double latitude = wayPoints.getLatitude(i);
+            double longitude = wayPoints.getLongitude(i);
+            if (latitude > north) north = latitude;
+            if (latitude < south) south = latitude;
+            if (longitude > east) east = longitude;
+            if (longitude < west) west = longitude;
+        }
+        return new TrackSummary(file.getName(), file.length(), file.lastModified(), track.getRecordingStart(), track.getRecordingStop(),
+                track.getTrackLength(), track.getTrackDuration(), track.getStepCount(), track.getMaxAltitude(), track.getMinAltitude(),
+                track.getPositiveElevation(), track.getNegativeElevation(), north, east, south, west, size, coordinatesOffset);
+    }
+
+
+    /* Checks if this summary still describes given file */
+    public boolean isUpToDate(File file) {
+        return file.getName().equals(mFileName) && file.length() == mFileLength && file.lastModified() == mFileLastModified;
+    }
+
+
+    /* Checks if the bounding box of the track intersects with given bounding box */
+    public boolean intersects(double north, double east, double south, double west) {
+        if (mSize == 0) {
+            return false;
+        }
+        boolean latitudeOverlaps = mSouth <= north && mNorth >= south;
+        boolean longitudeOverlaps;
+        if (west <= east) {
+            longitudeOverlaps = mWest <= east && mEast >= west;
+        } else {
+            // given bounding box crosses the antimeridian
+            longitudeOverlaps = mWest <= east || mEast >= west;
+        }
+        return latitudeOverlaps && longitudeOverlaps;
+    }
+
+
+    /* Checks if the coordinate columns can be read directly from the track file */
+    public boolean hasCoordinatesOffset() {
+        return mCoordinatesOffset >= 0;
+    }
+
+
+    /* Getter for file name */
+    public String getFileName() {
+        return mFileName;
+    }
+
+
+    /* Getter for file length */
+    public long getFileLength() {
+        return mFileLength;
+    }
+
+
+    /* Getter for last modification time of file */
+    public long getFileLastModified() {
+        return mFileLastModified;
+    }
+
+
+    /* Getter recording start date */
+    public Date getRecordingStart() {
+        return mRecordingStart;
+    }
+
+
+    /* Getter recording stop date */
+    public Date getRecordingStop() {
+        return mRecordingStop;
+    }
+
+
+    /* Getter for mTrackLength */
+    public float getTrackLength() {
+        return mTrackLength;
+    }
+
+
+    /* Getter for duration of track */
+    public long getTrackDuration() {
+        return mDuration;
+    }
+
+
+    /* Getter for step count of recording */
+    public float getStepCount() {
+        return mStepCount;
+    }
+
+
+    /* Getter for maximum altitude of recording */
+    public double getMaxAltitude() {
+        return mMaxAltitude;
+    }
+
+
+    /* Getter for lowest altitude of recording */
+    public double getMinAltitude() {
+        return mMinAltitude;
+    }
+
+
+    /* Getter for positive elevation of recording */
+    public double getPositiveElevation() {
+        return mPositiveElevation;
+    }
+
+
+    /* Getter for negative elevation of recording */
+    public double getNegativeElevation() {
+        return mNegativeElevation;
+    }
+
+
+    /* Getter for northern edge of bounding box */
+    public double getNorth() {
+        return mNorth;
+    }
+
+
+    /* Getter for eastern edge of bounding box */
+    public double getEast() {
+        return mEast;
+    }
+
+
+    /* Getter for southern edge of bounding box */
+    public double getSouth() {
+        return mSouth;
+    }
+
+
+    /* Getter for western edge of bounding box */
+    public double getWest() {
+        return mWest;
+    }
+
+
+    /* Getter for number of WayPoints */
+    public int getSize() {
+        return mSize;
+    }
+
+
+    /* Getter for the file offset of the coordinate columns */
+    public long getCoordinatesOffset() {
+        return mCoordinatesOffset;
+    }
+
+}
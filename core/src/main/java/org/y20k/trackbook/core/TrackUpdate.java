@@ -0,0 +1,194 @@
+/**
+ * TrackUpdate.java
+ * Implements the TrackUpdate class
+ * A TrackUpdate carries the changes of the track recorded by the TrackerService since the previous update
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.Date;
+
+
+/**
+ * TrackUpdate class
+ *
+ * A snapshot contains all WayPoints of the track. A delta contains the WayPoints
+ * from its first index on - the WayPoint before the new ones is sent again,
+ * because its stop over status may have changed. Both contain all statistics.
+ * Updates are numbered: a delta can only be applied to the result of the update
+ * with the previous sequence number.
+ */
+public final class TrackUpdate {
+
+    /* Main class variables */
+    private final long mSequence;
+    private final boolean mSnapshot;
+    private final int mFirstIndex;
+    private final WayPointStore mWayPoints;
+    private final int mTrackFormatVersion;
+    private final float mTrackLength;
+    private final long mDuration;
+    private final float mStepCount;
+    private final Date mRecordingStart;
+    private final Date mRecordingStop;
+    private final double mMaxAltitude;
+    private final double mMinAltitude;
+    private final double mPositiveElevation;
+    private final double mNegativeElevation;
+    private final String mStartAdress;
+    private final String mEndAdress;
+
+
+    /* Constructor */
+    private TrackUpdate(long sequence, boolean snapshot, int firstIndex, Track track) {
+        mSequence = sequence;
+        mSnapshot = snapshot;
+        mFirstIndex = firstIndex;
+        // a snapshot shares the WayPoints with the track (copy on write), a delta copies the new ones
+        mWayPoints = snapshot ? track.getWayPointStore().snapshot() : track.getWayPointStore().copy(firstIndex, track.getSize());
+        mTrackFormatVersion = track.getTrackFormatVersion();
+        mTrackLength = track.getTrackLength();
+        mDuration = track.getTrackDuration();
+        mStepCount = track.getStepCount();
+        mRecordingStart = new Date(track.getRecordingStart().getTime());
+        mRecordingStop = new Date(track.getRecordingStop().getTime());
+        mMaxAltitude = track.getMaxAltitude();
+        mMinAltitude = track.getMinAltitude();
+        mPositiveElevation = track.getPositiveElevation();
+        mNegativeElevation = track.getNegativeElevation();
+        mStartAdress = track.getmStartAdress();
+        mEndAdress = track.getmEndAdress();
+    }
+
+
+    /* Creates an update containing the complete track */
+    public static TrackUpdate createSnapshot(long sequence, Track track) {
+        return new TrackUpdate(sequence, true, 0, track);
+    }
+
+
+    /* Creates an update containing the WayPoints from given index on */
+    public static TrackUpdate createDelta(long sequence, Track track, int firstIndex) {
+        return new TrackUpdate(sequence, false, Math.max(0, Math.min(firstIndex, track.getSize())), track);
+    }
+
+
+    /* Creates a new track from a snapshot */
+    public Track toTrack() {
+        if (!mSnapshot) {
+            throw new IllegalStateException("Only a snapshot can be turned into a track.");
+        }
+        Track track = new Track(mTrackFormatVersion, mWayPoints.snapshot(), mTrackLength, mDuration, mStepCount, new Date(mRecordingStart.getTime()), new Date(mRecordingStop.getTime()), mMaxAltitude, mMinAltitude, mPositiveElevation, mNegativeElevation, null);
+        track.setmStartAdress(mStartAdress);
+        track.setmEndAdress(mEndAdress);
+        return track;
+    }
+
+
+    /* Checks if this update can be applied to a track that received the update with given sequence number */
+    public boolean follows(long sequence) {
+        return !mSnapshot && sequence >= 0 && mSequence == sequence + 1;
+    }
+
+
+    /* Getter for sequence number */
+    public long getSequence() {
+        return mSequence;
+    }
+
+
+    /* Checks if this update contains the complete track */
+    public boolean isSnapshot() {
+        return mSnapshot;
+    }
+
+
+    /* Getter for index of first WayPoint contained in this update */
+    public int getFirstIndex() {
+        return mFirstIndex;
+    }
+
+
+    /* Getter for contained WayPoints - do not modify */
+    public WayPointStore getWayPoints() {
+        return mWayPoints;
+    }
+
+
+    /* Getter for number of WayPoints of the track after applying this update */
+    public int getTrackSize() {
+        return mFirstIndex + mWayPoints.size();
+    }
+
+
+    /* Getter for track length */
+    public float getTrackLength() {
+        return mTrackLength;
+    }
+
+
+    /* Getter for duration */
+    public long getTrackDuration() {
+        return mDuration;
+    }
+
+
+    /* Getter for step count */
+    public float getStepCount() {
+        return mStepCount;
+    }
+
+
+    /* Getter for recording stop date */
+    public Date getRecordingStop() {
+        return new Date(mRecordingStop.getTime());
+    }
+
+
+    /* Getter for maximum altitude */
+    public double getMaxAltitude() {
+        return mMaxAltitude;
+    }
+
+
+    /* Getter for lowest altitude */
+    public double getMinAltitude() {
+        return mMinAltitude;
+    }
+
+
+    /* Getter for positive elevation */
+    public double getPositiveElevation() {
+        return mPositiveElevation;
+    }
+
+
+    /* Getter for negative elevation */
+    public double getNegativeElevation() {
+        return mNegativeElevation;
+    }
+
+
+    /* Getter for start address */
+    public String getStartAdress() {
+        return mStartAdress;
+    }
+
+
+    /* Getter for end address */
+    public String getEndAdress() {
+        return mEndAdress;
+    }
+
+}
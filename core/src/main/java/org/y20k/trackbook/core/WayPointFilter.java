@@ -0,0 +1,209 @@
+/**
+ * WayPointFilter.java
+ * Implements the WayPointFilter class
+ * A WayPointFilter decides which location fixes are used and which become WayPoints
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+
+/**
+ * WayPointFilter class
+ *
+ * The admission rules of the recorder - LocationHelper applies them to
+ * android.location.Location objects. The check methods return the rule that
+ * decided (a verdict), so the recorder can count why fixes were rejected.
+ */
+public final class WayPointFilter implements TrackbookKeys {
+
+    /* Define log tag */
+    private static final String LOG_TAG = WayPointFilter.class.getSimpleName();
+
+    /* Verdicts of checkBetterLocation - accepting verdicts first */
+    public static final int BETTER_NO_CURRENT_LOCATION = 0;
+    public static final int BETTER_SIGNIFICANTLY_NEWER = 1;
+    public static final int BETTER_MORE_ACCURATE = 2;
+    public static final int BETTER_NEWER = 3;
+    public static final int BETTER_NEWER_SAME_PROVIDER = 4;
+    public static final int WORSE_SIGNIFICANTLY_OLDER = 5;
+    public static final int WORSE_LESS_ACCURATE = 6;
+    public static final String[] BETTER_LOCATION_VERDICTS = {"no current location", "significantly newer", "more accurate", "newer", "newer, same provider", "significantly older", "older or less accurate"};
+
+    /* Verdicts of checkNewWayPoint - accepting verdicts first */
+    public static final int NEW_GPS = 0;
+    public static final int NEW_NETWORK = 1;
+    public static final int NOT_NEW_TOO_CLOSE = 2;
+    public static final int NOT_NEW_TOO_SOON = 3;
+    public static final int NOT_NEW_IMPLAUSIBLE_SPEED = 4;
+    public static final int NOT_NEW_NETWORK_AFTER_GPS = 5;
+    public static final String[] NEW_WAYPOINT_VERDICTS = {"new, gps", "new, network", "too close", "too soon", "implausible speed (network)", "network after gps"};
+
+
+    /* Determines whether one location reading is better than the current location fix */
+    public static boolean isBetterLocation(GeoFix location, GeoFix currentBestLocation) {
+        return isBetterVerdict(checkBetterLocation(location, currentBestLocation));
+    }
+
+
+    /* Determines whether one location reading is better than the current location fix - returns the verdict */
+    public static int checkBetterLocation(GeoFix location, GeoFix currentBestLocation) {
+        // credit: the isBetterLocation method was sample code from: https://developer.android.com/guide/topics/location/strategies.html
+
+        if (currentBestLocation == null) {
+            // a new location is always better than no location
+            return BETTER_NO_CURRENT_LOCATION;
+        }
+
+        // check whether the new location fix is newer or older
+        long timeDelta = location.getElapsedRealtimeNanos() - currentBestLocation.getElapsedRealtimeNanos();
+        boolean isSignificantlyNewer = timeDelta > ONE_MINUTE_IN_NANOSECONDS;
+        boolean isSignificantlyOlder = timeDelta < -ONE_MINUTE_IN_NANOSECONDS;
+        boolean isNewer = timeDelta > 0;
+
+        // if it's been more than two minutes since the current location, use the new location because the user has likely moved
+        if (isSignificantlyNewer) {
+            return BETTER_SIGNIFICANTLY_NEWER;
+        } else if (isSignificantlyOlder) {
+            return WORSE_SIGNIFICANTLY_OLDER;
+        }
+
+        // check whether the new location fix is more or less accurate
+        int accuracyDelta = (int) (location.getAccuracy() - currentBestLocation.getAccuracy());
+        boolean isLessAccurate = accuracyDelta > 0;
+        boolean isMoreAccurate = accuracyDelta < 0;
+        boolean isSignificantlyLessAccurate = accuracyDelta > 200;
+
+        // check if the old and new location are from the same provider
+        boolean isFromSameProvider = isSameProvider(location.getProvider(), currentBestLocation.getProvider());
+
+        // determine location quality using a combination of timeliness and accuracy
+        if (isMoreAccurate) {
+            return BETTER_MORE_ACCURATE;
+        } else if (isNewer && !isLessAccurate) {
+            return BETTER_NEWER;
+        } else if (isNewer && !isSignificantlyLessAccurate && isFromSameProvider) {
+            return BETTER_NEWER_SAME_PROVIDER;
+        }
+        return WORSE_LESS_ACCURATE;
+    }
+
+
+    /* Checks if given verdict of checkBetterLocation accepts the location */
+    public static boolean isBetterVerdict(int verdict) {
+        return verdict < WORSE_SIGNIFICANTLY_OLDER;
+    }
+
+
+    /* Checks if given verdict of checkNewWayPoint accepts the location */
+    public static boolean isNewVerdict(int verdict) {
+        return verdict < NOT_NEW_TOO_CLOSE;
+    }
+
+
+    /* Checks accuracy of given location */
+    public static boolean isAccurate(GeoFix location) {
+        return location.getAccuracy() < FIFTY_METER_RADIUS;
+    }
+
+
+    /* Checks if given location is newer than one minute - at given elapsed realtime (in nanoseconds) */
+    public static boolean isCurrent(GeoFix location, long elapsedRealtimeNanos) {
+        if (location == null) {
+            return false;
+        } else {
+            long locationAge = elapsedRealtimeNanos - location.getElapsedRealtimeNanos();
+            return locationAge < ONE_MINUTE_IN_NANOSECONDS;
+        }
+    }
+
+
+    /* Checks if given location is a new WayPoint */
+    public static boolean isNewWayPoint(GeoFix lastLocation, GeoFix newLocation, float averageSpeed) {
+        return isNewVerdict(checkNewWayPoint(lastLocation, newLocation, averageSpeed));
+    }
+
+
+    /* Checks if given location is a new WayPoint - returns the verdict */
+    public static int checkNewWayPoint(GeoFix lastLocation, GeoFix newLocation, float averageSpeed) {
+        float distance = newLocation.distanceTo(lastLocation);
+        long timeDifference = newLocation.getElapsedRealtimeNanos() - lastLocation.getElapsedRealtimeNanos();
+
+        if (newLocation.getProvider().equals(GeoFix.PROVIDER_NETWORK)) {
+            // calculate speed difference
+            float speedDifference;
+            float currentSpeed = distance / ((float)timeDifference / ONE_SECOND_IN_NANOSECOND);
+            if (currentSpeed > averageSpeed) {
+                speedDifference = currentSpeed / averageSpeed;
+            } else {
+                speedDifference = averageSpeed / currentSpeed;
+            }
+
+            // SPECIAL CASE network: plausibility check for network provider. looking for sudden location jump errors
+            if (averageSpeed != 0f && currentSpeed > 10f && speedDifference > 2f) {
+                // implausible location (speed is high (10 m/s == 36km/h) and has doubled)
+                return NOT_NEW_IMPLAUSIBLE_SPEED;
+            }
+
+            // SPECIAL CASE network: if last location came from gps. only accept location fixes with decent accuracy
+            if (lastLocation.getProvider().equals(GeoFix.PROVIDER_GPS) && newLocation.getAccuracy() < 66) {
+                // network locations tend to be too in accurate
+                return NOT_NEW_NETWORK_AFTER_GPS;
+            }
+
+            // DEFAULT network: distance is bigger than 30 meters and time difference bigger than 12 seconds
+            return checkDistanceAndTime(distance, 30, timeDifference, NEW_NETWORK); // TODO add minimal accuracy
+
+        } else {
+            // DEFAULT GPS: distance is bigger than 10 meters and time difference bigger than 12 seconds
+            return checkDistanceAndTime(distance, 10, timeDifference, NEW_GPS);
+        }
+
+    }
+
+
+    /* Checks if given location is a stop over - previousLocation may be null */
+    public static boolean isStopOver(GeoFix previousLocation, GeoFix newLocation) {
+        if (previousLocation != null) {
+            long timeDifference =  newLocation.getElapsedRealtimeNanos() - previousLocation.getElapsedRealtimeNanos();
+            return timeDifference >= FIVE_MINUTES_IN_NANOSECONDS;
+        } else {
+            return false;
+        }
+    }
+
+
+    /* Checks if distance is bigger than given minimum distance and time difference is at least 12 seconds - returns given verdict if so */
+    private static int checkDistanceAndTime(float distance, float minimumDistance, long timeDifference, int newVerdict) {
+        if (distance <= minimumDistance) {
+            return NOT_NEW_TOO_CLOSE;
+        } else if (timeDifference < 12 * ONE_SECOND_IN_NANOSECOND) {
+            return NOT_NEW_TOO_SOON;
+        } else {
+            return newVerdict;
+        }
+    }
+
+
+    /* Checks whether two location providers are the same */
+    private static boolean isSameProvider(String provider1, String provider2) {
+        // credit: the isSameProvider method was sample code from: https://developer.android.com/guide/topics/location/strategies.html
+        if (provider1 == null) {
+            return provider2 == null;
+        }
+        return provider1.equals(provider2);
+    }
+
+}
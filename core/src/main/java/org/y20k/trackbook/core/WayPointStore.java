@@ -0,0 +1,471 @@
+/**
+ * WayPointStore.java
+ * Implements the WayPointStore class
+ * A WayPointStore keeps the WayPoints of a track in chunked primitive arrays
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+/**
+ * WayPointStore class
+ *
+ * Each property of a WayPoint lives in its own array (struct of arrays).
+ * GeoFix objects are only created on demand - see getFix().
+ * The arrays are split into chunks of CHUNK_SIZE WayPoints. A snapshot shares
+ * the chunks with its origin - a shared chunk is copied before it is modified
+ * (copy on write), so a snapshot never changes.
+ */
+public final class WayPointStore {
+
+    /* Define log tag */
+    private static final String LOG_TAG = WayPointStore.class.getSimpleName();
+
+    /* Provider ids */
+    public static final byte PROVIDER_GPS = 0;
+    public static final byte PROVIDER_NETWORK = 1;
+    public static final byte PROVIDER_OTHER = 2;
+
+    /* Flags */
+    public static final byte FLAG_HAS_ALTITUDE = 1;
+    public static final byte FLAG_HAS_ACCURACY = 1 << 1;
+
+    /* Initial capacity - about 15 minutes of recording */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /* Chunk size - about two hours of recording */
+    private static final int CHUNK_SHIFT = 9;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+
+    /* Main class variables */
+    private int mSize;
+    private int mCapacity;
+    private Chunk[] mChunks;
+    private final BitSet mStopOvers;
+
+
+    /* Constructor */
+    public WayPointStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /* Constructor with initial capacity */
+    public WayPointStore(int capacity) {
+        mSize = 0;
+        mCapacity = Math.max(capacity, 1);
+        mChunks = new Chunk[Math.max(1, (mCapacity + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        mStopOvers = new BitSet(mCapacity);
+    }
+
+
+    /* Adds a WayPoint created from given location fix */
+    public void add(GeoFix fix, boolean isStopOver, float distanceToStartingPoint) {
+        byte flags = 0;
+        if (fix.hasAltitude()) flags |= FLAG_HAS_ALTITUDE;
+        if (fix.hasAccuracy()) flags |= FLAG_HAS_ACCURACY;
+        add(fix.getLatitude(), fix.getLongitude(), fix.getTime(), fix.getElapsedRealtimeNanos(),
+                (float) fix.getAltitude(), fix.getAccuracy(), distanceToStartingPoint,
+                getProviderId(fix.getProvider()), flags, fix.getNumberSatellites(), isStopOver);
+    }
+
+
+    /* Adds a WayPoint from its raw values */
+    public void add(double latitude, double longitude, long time, long elapsedRealtimeNanos, float altitude, float accuracy, float distanceToStartingPoint, byte provider, byte flags, int numberSatellites, boolean isStopOver) {
+        Chunk chunk = getWritableChunk(mSize >>> CHUNK_SHIFT, (mSize & CHUNK_MASK) + 1);
+        int offset = mSize & CHUNK_MASK;
+        chunk.mLatitudes[offset] = latitude;
+        chunk.mLongitudes[offset] = longitude;
+        chunk.mTimes[offset] = time;
+        chunk.mElapsedRealtimeNanos[offset] = elapsedRealtimeNanos;
+        chunk.mAltitudes[offset] = altitude;
+        chunk.mAccuracies[offset] = accuracy;
+        chunk.mDistancesToStartingPoint[offset] = distanceToStartingPoint;
+        chunk.mProviders[offset] = provider;
+        chunk.mFlags[offset] = flags;
+        chunk.mNumberSatellites[offset] = (byte) Math.min(Math.max(numberSatellites, 0), 255);
+        mStopOvers.set(mSize, isStopOver);
+        mSize++;
+    }
+
+
+    /* Creates an immutable snapshot of the store - chunks are shared until one side modifies them */
+    public WayPointStore snapshot() {
+        WayPointStore store = new WayPointStore(mSize);
+        int chunkCount = (mSize + CHUNK_MASK) >>> CHUNK_SHIFT;
+        for (int i = 0; i < chunkCount; i++) {
+            mChunks[i].mShared = true;
+            store.mChunks[i] = mChunks[i];
+        }
+        store.mStopOvers.or(mStopOvers);
+        store.mSize = mSize;
+        return store;
+    }
+
+
+    /* Creates a copy of the WayPoints from index (inclusive) to index (exclusive) */
+    public WayPointStore copy(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range: " + fromIndex + "-" + toIndex + ", Size: " + mSize);
+        }
+        WayPointStore store = new WayPointStore(toIndex - fromIndex);
+        store.appendRange(this, fromIndex, toIndex);
+        return store;
+    }
+
+
+    /* Appends all WayPoints of given store */
+    public void addAll(WayPointStore other) {
+        appendRange(other, 0, other.mSize);
+    }
+
+
+    /* Removes all WayPoints from given index on */
+    public void truncate(int size) {
+        if (size < 0 || size > mSize) {
+            throw new IndexOutOfBoundsException("Size: " + size + ", current size: " + mSize);
+        }
+        // release chunks that are no longer used
+        int chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        for (int i = chunkCount; i < mChunks.length; i++) {
+            mChunks[i] = null;
+        }
+        mStopOvers.clear(size, Math.max(size, mSize));
+        mSize = size;
+    }
+
+
+    /* Returns number of WayPoints */
+    public int size() {
+        return mSize;
+    }
+
+
+    /* Getter for latitude of WayPoint */
+    public double getLatitude(int index) {
+        return getChunk(index).mLatitudes[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for longitude of WayPoint */
+    public double getLongitude(int index) {
+        return getChunk(index).mLongitudes[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for time (UTC, in milliseconds) of WayPoint */
+    public long getTime(int index) {
+        return getChunk(index).mTimes[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for elapsed realtime (in nanoseconds) of WayPoint */
+    public long getElapsedRealtimeNanos(int index) {
+        return getChunk(index).mElapsedRealtimeNanos[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for altitude of WayPoint */
+    public float getAltitude(int index) {
+        return getChunk(index).mAltitudes[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for accuracy of WayPoint */
+    public float getAccuracy(int index) {
+        return getChunk(index).mAccuracies[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for distance to starting point of WayPoint */
+    public float getDistanceToStartingPoint(int index) {
+        return getChunk(index).mDistancesToStartingPoint[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for provider id of WayPoint */
+    public byte getProvider(int index) {
+        return getChunk(index).mProviders[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for flags of WayPoint */
+    public byte getFlags(int index) {
+        return getChunk(index).mFlags[index & CHUNK_MASK];
+    }
+
+
+    /* Getter for number of satellites of WayPoint */
+    public int getNumberSatellites(int index) {
+        return getChunk(index).mNumberSatellites[index & CHUNK_MASK] & 0xFF;
+    }
+
+
+    /* Getter for stop over status of WayPoint */
+    public boolean isStopOver(int index) {
+        checkIndex(index);
+        return mStopOvers.get(index);
+    }
+
+
+    /* Setter for stop over status of WayPoint */
+    public void setStopOver(int index, boolean isStopOver) {
+        checkIndex(index);
+        mStopOvers.set(index, isStopOver);
+    }
+
+
+    /* Setter for altitude of WayPoint */
+    public void setAltitude(int index, float altitude) {
+        checkIndex(index);
+        Chunk chunk = getWritableChunk(index >>> CHUNK_SHIFT, (index & CHUNK_MASK) + 1);
+        chunk.mAltitudes[index & CHUNK_MASK] = altitude;
+        chunk.mFlags[index & CHUNK_MASK] |= FLAG_HAS_ALTITUDE;
+    }
+
+
+    /* Sets the size of an empty store - the values are filled in column by column (see TrackCodec.decode) */
+    void allocate(int size) {
+        if (mSize != 0) {
+            throw new IllegalStateException("Store is not empty.");
+        }
+        int chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (chunkCount > mChunks.length) {
+            mChunks = Arrays.copyOf(mChunks, chunkCount);
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            mChunks[i] = new Chunk(Math.min(CHUNK_SIZE, size - (i << CHUNK_SHIFT)));
+        }
+        mSize = size;
+    }
+
+
+    /* Setter for latitude of WayPoint - used while decoding */
+    void setLatitude(int index, double latitude) {
+        getWritableChunk(index).mLatitudes[index & CHUNK_MASK] = latitude;
+    }
+
+
+    /* Setter for longitude of WayPoint - used while decoding */
+    void setLongitude(int index, double longitude) {
+        getWritableChunk(index).mLongitudes[index & CHUNK_MASK] = longitude;
+    }
+
+
+    /* Setter for time of WayPoint - used while decoding */
+    void setTime(int index, long time) {
+        getWritableChunk(index).mTimes[index & CHUNK_MASK] = time;
+    }
+
+
+    /* Setter for elapsed realtime of WayPoint - used while decoding */
+    void setElapsedRealtimeNanos(int index, long elapsedRealtimeNanos) {
+        getWritableChunk(index).mElapsedRealtimeNanos[index & CHUNK_MASK] = elapsedRealtimeNanos;
+    }
+
+
+    /* Setter for accuracy of WayPoint - used while decoding */
+    void setAccuracy(int index, float accuracy) {
+        getWritableChunk(index).mAccuracies[index & CHUNK_MASK] = accuracy;
+    }
+
+
+    /* Setter for distance to starting point of WayPoint - used while decoding */
+    void setDistanceToStartingPoint(int index, float distanceToStartingPoint) {
+        getWritableChunk(index).mDistancesToStartingPoint[index & CHUNK_MASK] = distanceToStartingPoint;
+    }
+
+
+    /* Setter for provider id of WayPoint - used while decoding */
+    void setProvider(int index, byte provider) {
+        getWritableChunk(index).mProviders[index & CHUNK_MASK] = provider;
+    }
+
+
+    /* Setter for flags of WayPoint - used while decoding */
+    void setFlags(int index, byte flags) {
+        getWritableChunk(index).mFlags[index & CHUNK_MASK] = flags;
+    }
+
+
+    /* Setter for number of satellites of WayPoint - used while decoding */
+    void setNumberSatellites(int index, int numberSatellites) {
+        getWritableChunk(index).mNumberSatellites[index & CHUNK_MASK] = (byte) Math.min(Math.max(numberSatellites, 0), 255);
+    }
+
+
+    /* Creates a GeoFix object for WayPoint */
+    public GeoFix getFix(int index) {
+        Chunk chunk = getChunk(index);
+        int offset = index & CHUNK_MASK;
+        byte flags = chunk.mFlags[offset];
+        return new GeoFix(getProviderName(chunk.mProviders[offset]), chunk.mLatitudes[offset], chunk.mLongitudes[offset],
+                (flags & FLAG_HAS_ALTITUDE) != 0 ? chunk.mAltitudes[offset] : Double.NaN,
+                (flags & FLAG_HAS_ACCURACY) != 0 ? chunk.mAccuracies[offset] : Float.NaN,
+                Float.NaN, chunk.mTimes[offset], chunk.mElapsedRealtimeNanos[offset], chunk.mNumberSatellites[offset] & 0xFF);
+    }
+
+
+    /* Maps a location provider to its id */
+    public static byte getProviderId(String provider) {
+        if (GeoFix.PROVIDER_GPS.equals(provider)) {
+            return PROVIDER_GPS;
+        } else if (GeoFix.PROVIDER_NETWORK.equals(provider)) {
+            return PROVIDER_NETWORK;
+        } else {
+            return PROVIDER_OTHER;
+        }
+    }
+
+
+    /* Maps an id to its location provider */
+    public static String getProviderName(byte provider) {
+        switch (provider) {
+            case PROVIDER_GPS:
+                return GeoFix.PROVIDER_GPS;
+            case PROVIDER_NETWORK:
+                return GeoFix.PROVIDER_NETWORK;
+            default:
+                return GeoFix.PROVIDER_PASSIVE;
+        }
+    }
+
+
+    /* Appends the WayPoints from index (inclusive) to index (exclusive) of given store - chunk by chunk */
+    private void appendRange(WayPointStore source, int fromIndex, int toIndex) {
+        int sourceIndex = fromIndex;
+        while (sourceIndex < toIndex) {
+            int sourceOffset = sourceIndex & CHUNK_MASK;
+            int targetOffset = mSize & CHUNK_MASK;
+            int length = Math.min(toIndex - sourceIndex, Math.min(CHUNK_SIZE - sourceOffset, CHUNK_SIZE - targetOffset));
+            Chunk sourceChunk = source.mChunks[sourceIndex >>> CHUNK_SHIFT];
+            Chunk targetChunk = getWritableChunk(mSize >>> CHUNK_SHIFT, targetOffset + length);
+            System.arraycopy(sourceChunk.mLatitudes, sourceOffset, targetChunk.mLatitudes, targetOffset, length);
+            System.arraycopy(sourceChunk.mLongitudes, sourceOffset, targetChunk.mLongitudes, targetOffset, length);
+            System.arraycopy(sourceChunk.mTimes, sourceOffset, targetChunk.mTimes, targetOffset, length);
+            System.arraycopy(sourceChunk.mElapsedRealtimeNanos, sourceOffset, targetChunk.mElapsedRealtimeNanos, targetOffset, length);
+            System.arraycopy(sourceChunk.mAltitudes, sourceOffset, targetChunk.mAltitudes, targetOffset, length);
+            System.arraycopy(sourceChunk.mAccuracies, sourceOffset, targetChunk.mAccuracies, targetOffset, length);
+            System.arraycopy(sourceChunk.mDistancesToStartingPoint, sourceOffset, targetChunk.mDistancesToStartingPoint, targetOffset, length);
+            System.arraycopy(sourceChunk.mProviders, sourceOffset, targetChunk.mProviders, targetOffset, length);
+            System.arraycopy(sourceChunk.mFlags, sourceOffset, targetChunk.mFlags, targetOffset, length);
+            System.arraycopy(sourceChunk.mNumberSatellites, sourceOffset, targetChunk.mNumberSatellites, targetOffset, length);
+            for (int i = 0; i < length; i++) {
+                mStopOvers.set(mSize + i, source.mStopOvers.get(sourceIndex + i));
+            }
+            sourceIndex = sourceIndex + length;
+            mSize = mSize + length;
+        }
+    }
+
+
+    /* Returns the chunk containing given WayPoint */
+    private Chunk getChunk(int index) {
+        checkIndex(index);
+        return mChunks[index >>> CHUNK_SHIFT];
+    }
+
+
+    /* Returns the chunk containing given WayPoint ready for writing */
+    private Chunk getWritableChunk(int index) {
+        checkIndex(index);
+        return getWritableChunk(index >>> CHUNK_SHIFT, (index & CHUNK_MASK) + 1);
+    }
+
+
+    /* Returns given chunk ready for writing the first length elements - creates, copies (if shared) or grows it */
+    private Chunk getWritableChunk(int chunkIndex, int length) {
+        if (chunkIndex >= mChunks.length) {
+            mChunks = Arrays.copyOf(mChunks, Math.max(chunkIndex + 1, mChunks.length + (mChunks.length >> 1)));
+        }
+        Chunk chunk = mChunks[chunkIndex];
+        if (chunk == null) {
+            // size first chunk after the requested capacity - later chunks are completely filled anyway
+            int capacity = Math.max(length, Math.min(CHUNK_SIZE, mCapacity - (chunkIndex << CHUNK_SHIFT)));
+            chunk = new Chunk(Math.max(capacity, Math.min(DEFAULT_CAPACITY, CHUNK_SIZE)));
+            mChunks[chunkIndex] = chunk;
+        } else if (chunk.mShared || chunk.mLatitudes.length < length) {
+            // copy on write - grow by half of the current capacity
+            int capacity = chunk.mLatitudes.length < length ? Math.min(CHUNK_SIZE, Math.max(length, chunk.mLatitudes.length + (chunk.mLatitudes.length >> 1))) : chunk.mLatitudes.length;
+            chunk = chunk.copy(capacity);
+            mChunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+
+    /* Throws if index is out of bounds */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+
+    /**
+     * Inner class: Chunk holds the values of up to CHUNK_SIZE WayPoints
+     */
+    private static final class Chunk {
+
+        private final double[] mLatitudes;
+        private final double[] mLongitudes;
+        private final long[] mTimes;
+        private final long[] mElapsedRealtimeNanos;
+        private final float[] mAltitudes;
+        private final float[] mAccuracies;
+        private final float[] mDistancesToStartingPoint;
+        private final byte[] mProviders;
+        private final byte[] mFlags;
+        private final byte[] mNumberSatellites;
+        private boolean mShared; // set once a snapshot references this chunk - from then on it is never modified
+
+        private Chunk(int capacity) {
+            mLatitudes = new double[capacity];
+            mLongitudes = new double[capacity];
+            mTimes = new long[capacity];
+            mElapsedRealtimeNanos = new long[capacity];
+            mAltitudes = new float[capacity];
+            mAccuracies = new float[capacity];
+            mDistancesToStartingPoint = new float[capacity];
+            mProviders = new byte[capacity];
+            mFlags = new byte[capacity];
+            mNumberSatellites = new byte[capacity];
+        }
+
+        private Chunk copy(int capacity) {
+            Chunk chunk = new Chunk(capacity);
+            int length = Math.min(capacity, mLatitudes.length);
+            System.arraycopy(mLatitudes, 0, chunk.mLatitudes, 0, length);
+            System.arraycopy(mLongitudes, 0, chunk.mLongitudes, 0, length);
+            System.arraycopy(mTimes, 0, chunk.mTimes, 0, length);
+            System.arraycopy(mElapsedRealtimeNanos, 0, chunk.mElapsedRealtimeNanos, 0, length);
+            System.arraycopy(mAltitudes, 0, chunk.mAltitudes, 0, length);
+            System.arraycopy(mAccuracies, 0, chunk.mAccuracies, 0, length);
+            System.arraycopy(mDistancesToStartingPoint, 0, chunk.mDistancesToStartingPoint, 0, length);
+            System.arraycopy(mProviders, 0, chunk.mProviders, 0, length);
+            System.arraycopy(mFlags, 0, chunk.mFlags, 0, length);
+            System.arraycopy(mNumberSatellites, 0, chunk.mNumberSatellites, 0, length);
+            return chunk;
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+}
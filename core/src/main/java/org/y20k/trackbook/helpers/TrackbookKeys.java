@@ -54,6 +54,7 @@ public interface TrackbookKeys {
     String PREFS_FAB_STATE = "fabStatePrefs";
     String PREFS_TRACKER_SERVICE_RUNNING = "trackerServiceRunning";
     String PREFS_CURRENT_TRACK_DURATION = "currentTrackDuration";
+    String PREFS_COMPRESSION_TOLERANCE = "compressionTolerance";
     String PREF_NIGHT_MODE_STATE = "prefNightModeState";
 
     /* INSTANCE STATE */
@@ -84,17 +85,21 @@ public interface TrackbookKeys {
 
     /* CONSTANTS */
     long ONE_SECOND_IN_NANOSECOND = 1000000000L;
-    long EIGHT_HOURS_IN_MILLISECONDS = 43200000; // maximum tracking duration
     long FIFTEEN_SECONDS_IN_MILLISECONDS = 15000; // timer interval for tracking
     long FIVE_MINUTES_IN_NANOSECONDS = 5L * 60000000000L; // determines a stop over
     long ONE_MINUTE_IN_NANOSECONDS = 1L * 60000000000L; // defines an old location
     int MAXIMUM_TRACK_FILES = 25;
     int FIFTY_METER_RADIUS = 50;
+    long VIEWPORT_CHANGED_DELAY = 250; // milliseconds to wait before the map reacts to scrolling or zooming
 
     /* FILE */
     String FILE_TYPE_GPX_EXTENSION = ".gpx";
     String FILE_TYPE_TRACKBOOK_EXTENSION = ".trackbook";
+    String FILE_TYPE_JOURNAL_EXTENSION = ".journal";
     String FILE_NAME_TEMP = "temp";
+    String FILE_NAME_INDEX = "tracks.index";
+    String FILE_NAME_ADDRESS_CACHE = "addresses.cache";
+    String FILE_NAME_GAZETTEER = "gazetteer.bin";
     String TRACKS_DIRECTORY_NAME = "tracks";
     int FILE_TEMP_TRACK = 0;
     int FILE_MOST_CURRENT_TRACK = 1;
@@ -113,10 +118,11 @@ public interface TrackbookKeys {
     String NOTIFICATION_CHANEL_ID_RECORDING_CHANNEL ="notificationChannelIdRecordingChannel";
 
     /* MISC */
-    int CURRENT_TRACK_FORMAT_VERSION = 2; // incremental version number to prevent issues in case the Track format evolves
+    int CURRENT_TRACK_FORMAT_VERSION = 3; // incremental version number to prevent issues in case the Track format evolves
     double DEFAULT_LATITUDE = 71.172500; // latitude Nordkapp, Norway
     double DEFAULT_LONGITUDE = 25.784444; // longitude Nordkapp, Norway
     int MEASUREMENT_ERROR_THRESHOLD = 10; // altitude changes of 10 meter or more (per 15 seconds) are being discarded
+    float DEFAULT_COMPRESSION_TOLERANCE = 0f; // compression is lossy - off unless a compression tolerance is set in the preferences
     int REQUEST_CODE_ASK_MULTIPLE_PERMISSIONS = 124;
 
 }
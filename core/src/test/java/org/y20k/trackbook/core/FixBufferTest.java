@@ -0,0 +1,202 @@
+/**
+ * FixBufferTest.java
+ * Implements the FixBufferTest class
+ * A FixBufferTest checks buffering and combining the fixes of a FixBuffer
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class FixBufferTest {
+
+    /* Precision of compared positions - in meters */
+    private static final double PRECISION = 0.01d;
+
+
+    @Test
+    public void pollEmptyBufferReturnsNull() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 4);
+
+        assertNull(buffer.poll());
+    }
+
+
+    @Test
+    public void pollSingleFixReturnsSameFix() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 4);
+        GeoFix fix = TrackFixtures.createFix(10d, 20d, 1L, 5f);
+
+        buffer.offer(fix);
+        GeoFix polledFix = buffer.poll();
+
+        assertEquals(GeoFix.PROVIDER_GPS, polledFix.getProvider());
+        assertEquals(fix.getLatitude(), polledFix.getLatitude(), 1e-12);
+        assertEquals(fix.getLongitude(), polledFix.getLongitude(), 1e-12);
+        assertEquals(fix.getAltitude(), polledFix.getAltitude(), 1e-9);
+        assertEquals(5f, polledFix.getAccuracy(), 1e-5f);
+        assertEquals(fix.getSpeed(), polledFix.getSpeed(), 0f);
+        assertEquals(fix.getTime(), polledFix.getTime());
+        assertEquals(fix.getElapsedRealtimeNanos(), polledFix.getElapsedRealtimeNanos());
+        assertEquals(fix.getNumberSatellites(), polledFix.getNumberSatellites());
+        assertNull(buffer.poll());
+    }
+
+
+    @Test
+    public void wrapsAroundOverManyCycles() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 4);
+        long seconds = 0L;
+        for (int cycle = 0; cycle < 100; cycle++) {
+            // one to four fixes per cycle - head and tail wrap at different slots
+            int fixesPerCycle = cycle % 4 + 1;
+            for (int i = 0; i < fixesPerCycle; i++) {
+                assertTrue(buffer.offer(TrackFixtures.createFix(cycle * 100d, 0d, seconds, 5f)));
+                seconds++;
+            }
+            GeoFix fix = buffer.poll();
+            assertEquals("cycle " + cycle, (seconds - 1) * 1000L, fix.getTime() - TrackFixtures.START_TIME);
+            assertEquals("cycle " + cycle, cycle * 100d, getNorth(fix), PRECISION);
+            assertNull(buffer.poll());
+        }
+        assertEquals(seconds, buffer.getFixesReceived());
+        assertEquals(0, buffer.getFixesDropped());
+    }
+
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(TrackFixtures.createFix(0d, 0d, i, 5f)));
+        }
+
+        assertFalse(buffer.offer(TrackFixtures.createFix(0d, 0d, 8L, 5f)));
+    }
+
+
+    @Test
+    public void fullBufferDropsNewFixes() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(TrackFixtures.createFix(0d, 0d, i, 5f)));
+        }
+
+        assertFalse(buffer.offer(TrackFixtures.createFix(0d, 0d, 4L, 5f)));
+        assertFalse(buffer.offer(TrackFixtures.createFix(0d, 0d, 5L, 5f)));
+        assertEquals(6, buffer.getFixesReceived());
+        assertEquals(2, buffer.getFixesDropped());
+
+        // newest fix polled is the last one that fit
+        assertEquals(TrackFixtures.START_TIME + 3000L, buffer.poll().getTime());
+        assertTrue(buffer.offer(TrackFixtures.createFix(0d, 0d, 6L, 5f)));
+    }
+
+
+    @Test
+    public void averagesFixesByInverseVariance() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 8);
+        buffer.offer(TrackFixtures.createFix(0d, 0d, 0L, 4f));
+        buffer.offer(TrackFixtures.createFix(6d, 0d, 1L, 8f));
+
+        GeoFix fix = buffer.poll();
+
+        // weights 1/16 and 1/64 - the accurate fix counts four times as much, for the position and for the accuracy
+        assertEquals(6d * (1d / 64d) / (1d / 16d + 1d / 64d), getNorth(fix), PRECISION);
+        assertEquals((4d / 16d + 8d / 64d) / (1d / 16d + 1d / 64d), fix.getAccuracy(), 1e-4);
+    }
+
+
+    @Test
+    public void averageIsNotMoreAccurateThanBestFix() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 8);
+        for (int i = 0; i < 8; i++) {
+            buffer.offer(TrackFixtures.createFix(0d, 0d, i, 10f));
+        }
+
+        // errors of successive fixes are not independent - eight fixes are as accurate as one
+        assertEquals(10f, buffer.poll().getAccuracy(), 1e-4f);
+    }
+
+
+    @Test
+    public void accuracyOfAverageLiesBetweenItsFixes() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 8);
+        buffer.offer(TrackFixtures.createFix(0d, 0d, 0L, 3f));
+        buffer.offer(TrackFixtures.createFix(1d, 0d, 1L, 5f));
+        buffer.offer(TrackFixtures.createFix(2d, 0d, 2L, 4f));
+
+        float accuracy = buffer.poll().getAccuracy();
+
+        assertTrue("accuracy " + accuracy, accuracy > 3f && accuracy < 5f);
+    }
+
+
+    @Test
+    public void ignoresOutliers() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 8);
+        buffer.offer(TrackFixtures.createFix(0d, 0d, 0L, 5f));
+        buffer.offer(TrackFixtures.createFix(4d, 0d, 1L, 5f));
+        // less accurate than twice the best accuracy - also not the newest fix used
+        buffer.offer(TrackFixtures.createFix(100d, 0d, 2L, 50f));
+
+        GeoFix fix = buffer.poll();
+
+        assertEquals(2d, getNorth(fix), PRECISION);
+        assertEquals(TrackFixtures.START_TIME + 1000L, fix.getTime());
+    }
+
+
+    @Test
+    public void leavesOutFixesAwayFromNewestFix() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_GPS, 8);
+        // moving device - first fix is further away than the accuracy of the newest
+        buffer.offer(TrackFixtures.createFix(0d, 0d, 0L, 5f));
+        buffer.offer(TrackFixtures.createFix(30d, 0d, 1L, 5f));
+        buffer.offer(TrackFixtures.createFix(32d, 0d, 2L, 5f));
+
+        GeoFix fix = buffer.poll();
+
+        assertEquals(31d, getNorth(fix), PRECISION);
+    }
+
+
+    @Test
+    public void missingFieldsStayMissing() {
+        FixBuffer buffer = new FixBuffer(GeoFix.PROVIDER_NETWORK, 4);
+        GeoFix fix = TrackFixtures.createFix(0d, 0d, 0L, 5f);
+        buffer.offer(fix.getLatitude(), fix.getLongitude(), Double.NaN, Float.NaN, Float.NaN, fix.getTime(), fix.getElapsedRealtimeNanos(), 0);
+
+        GeoFix polledFix = buffer.poll();
+
+        assertEquals(GeoFix.PROVIDER_NETWORK, polledFix.getProvider());
+        assertEquals(fix.getLatitude(), polledFix.getLatitude(), 1e-12);
+        assertFalse(polledFix.hasAltitude());
+        assertFalse(polledFix.hasAccuracy());
+        assertFalse(polledFix.hasSpeed());
+    }
+
+
+    /* Returns the distance of given fix north of the starting point of the fixtures */
+    private static double getNorth(GeoFix fix) {
+        return (fix.getLatitude() - TrackFixtures.START_LATITUDE) * TrackFixtures.METERS_PER_DEGREE;
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * GazetteerTest.java
+ * Implements the GazetteerTest class
+ * A GazetteerTest checks the nearest-entry queries of a Gazetteer written by a GazetteerWriter
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class GazetteerTest {
+
+    /* Fixture constants - a few hundred points in the centre of Berlin */
+    private static final int NUMBER_OF_POINTS = 300;
+    private static final double MINIMUM_LATITUDE = 52.49d;
+    private static final double MINIMUM_LONGITUDE = 13.36d;
+    private static final double EXTENT = 0.06d; // degrees - a grid of 12 x 12 cells
+
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private Gazetteer mGazetteer;
+
+
+    @Before
+    public void setUp() throws IOException {
+        Random random = new Random(2019);
+        mLatitudes = new double[NUMBER_OF_POINTS];
+        mLongitudes = new double[NUMBER_OF_POINTS];
+        GazetteerWriter writer = new GazetteerWriter();
+        for (int i = 0; i < NUMBER_OF_POINTS; i++) {
+            mLatitudes[i] = MINIMUM_LATITUDE + random.nextDouble() * EXTENT;
+            mLongitudes[i] = MINIMUM_LONGITUDE + random.nextDouble() * EXTENT;
+            writer.add(mLatitudes[i], mLongitudes[i], getName(i));
+        }
+        File file = mFolder.newFile("berlin.gazetteer");
+        writer.write(file, GazetteerWriter.DEFAULT_CELL_SIZE);
+        mGazetteer = Gazetteer.open(file);
+    }
+
+
+    @Test
+    public void countsEntries() {
+        assertEquals(NUMBER_OF_POINTS, mGazetteer.getEntryCount());
+    }
+
+
+    @Test
+    public void findsEntryAtItsPosition() {
+        for (int i = 0; i < NUMBER_OF_POINTS; i++) {
+            assertEquals(getName(i), mGazetteer.findNearest(mLatitudes[i], mLongitudes[i], 1f));
+        }
+    }
+
+
+    @Test
+    public void findsSameEntryAsBruteForce() {
+        // includes locations outside the grid
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            double latitude = MINIMUM_LATITUDE - 0.01d + random.nextDouble() * (EXTENT + 0.02d);
+            double longitude = MINIMUM_LONGITUDE - 0.01d + random.nextDouble() * (EXTENT + 0.02d);
+            assertEquals("query " + i, findNearestBruteForce(latitude, longitude, 5000f), mGazetteer.findNearest(latitude, longitude, 5000f));
+        }
+    }
+
+
+    @Test
+    public void findsEntryInNeighbouringCell() throws IOException {
+        // the grid starts at the first point - cells end at 52.5099 and 52.5149
+        GazetteerWriter writer = new GazetteerWriter();
+        writer.add(52.5049d, 13.4d, "Rathausstraße");
+        writer.add(52.5098d, 13.4d, "Alexanderstraße");
+        writer.add(52.5150d, 13.4d, "Karl-Liebknecht-Straße");
+        File file = new File(mFolder.getRoot(), "border.gazetteer");
+        writer.write(file, GazetteerWriter.DEFAULT_CELL_SIZE);
+
+        Gazetteer gazetteer = Gazetteer.open(file);
+
+        assertEquals("Alexanderstraße", gazetteer.findNearest(52.5101d, 13.4d, 100f));
+        assertEquals("Karl-Liebknecht-Straße", gazetteer.findNearest(52.5148d, 13.4001d, 100f));
+        assertNull(gazetteer.findNearest(52.5125d, 13.4d, 100f));
+    }
+
+
+    @Test
+    public void returnsNullBeyondMaximumDistance() {
+        // about 1100 meters north of the grid
+        double latitude = MINIMUM_LATITUDE + EXTENT + 0.01d;
+        double longitude = MINIMUM_LONGITUDE + EXTENT / 2d;
+        float distance = getDistance(latitude, longitude, findNearestIndex(latitude, longitude));
+
+        assertNull(mGazetteer.findNearest(latitude, longitude, distance - 1f));
+        assertEquals(findNearestBruteForce(latitude, longitude, distance + 1f), mGazetteer.findNearest(latitude, longitude, distance + 1f));
+    }
+
+
+    @Test
+    public void emptyGazetteerFindsNothing() throws IOException {
+        File file = new File(mFolder.getRoot(), "empty.gazetteer");
+        new GazetteerWriter().write(file, GazetteerWriter.DEFAULT_CELL_SIZE);
+
+        Gazetteer gazetteer = Gazetteer.open(file);
+
+        assertEquals(0, gazetteer.getEntryCount());
+        assertNull(gazetteer.findNearest(52.52d, 13.4d, 1000f));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = mFolder.newFile("other.gazetteer");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+
+        Gazetteer.open(file);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        File file = new File(mFolder.getRoot(), "truncated.gazetteer");
+        GazetteerWriter writer = new GazetteerWriter();
+        writer.add(52.52d, 13.4d, "Unter den Linden");
+        writer.write(file, GazetteerWriter.DEFAULT_CELL_SIZE);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        Gazetteer.open(file);
+    }
+
+
+    /* Returns the name of the nearest point within given distance - or null */
+    private String findNearestBruteForce(double latitude, double longitude, float maximumDistance) {
+        int nearest = findNearestIndex(latitude, longitude);
+        return getDistance(latitude, longitude, nearest) <= maximumDistance ? getName(nearest) : null;
+    }
+
+
+    /* Returns the index of the nearest point - checks every point */
+    private int findNearestIndex(double latitude, double longitude) {
+        int nearest = 0;
+        for (int i = 1; i < NUMBER_OF_POINTS; i++) {
+            if (getDistance(latitude, longitude, i) < getDistance(latitude, longitude, nearest)) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+
+    /* Returns the distance between given location and given point - flat, as measured by the Gazetteer */
+    private float getDistance(double latitude, double longitude, int point) {
+        double dy = (mLatitudes[point] - latitude) * TrackFixtures.METERS_PER_DEGREE;
+        double dx = (mLongitudes[point] - longitude) * TrackFixtures.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+
+    /* Returns the name of given point */
+    private static String getName(int point) {
+        return "Straße " + point;
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * SamplingControllerTest.java
+ * Implements the SamplingControllerTest class
+ * A SamplingControllerTest checks the mode transitions of the SamplingController
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SamplingControllerTest implements TrackbookKeys {
+
+    private static final long START = 1000L * ONE_SECOND_IN_NANOSECOND;
+
+
+    @Test
+    public void startsAcquiring() {
+        SamplingController controller = new SamplingController(START);
+
+        assertEquals(SamplingController.MODE_ACQUIRING, controller.getMode());
+        assertEquals(1000L, controller.getMinTime());
+        assertEquals(0f, controller.getMinDistance(), 0f);
+    }
+
+
+    @Test
+    public void accurateWayPointSwitchesToMoving() {
+        SamplingController controller = new SamplingController(START);
+
+        assertTrue(controller.onSample(START + ONE_SECOND_IN_NANOSECOND, true, true, false));
+
+        assertEquals(SamplingController.MODE_MOVING, controller.getMode());
+        assertEquals(1, controller.getFixesUsed());
+    }
+
+
+    @Test
+    public void inaccurateWayPointKeepsAcquiring() {
+        SamplingController controller = new SamplingController(START);
+
+        assertFalse(controller.onSample(START + ONE_SECOND_IN_NANOSECOND, true, false, false));
+
+        assertEquals(SamplingController.MODE_ACQUIRING, controller.getMode());
+    }
+
+
+    @Test
+    public void movingIntervalFollowsSpeed() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+        // no speed yet - slowest moving interval
+        assertEquals(10000L, controller.getMinTime());
+
+        // smoothed speed converges to 1 m/s - 10 m WayPoint distance, half covered in 5 s
+        for (int i = 0; i < 50; i++) {
+            controller.onFixReceived(true, 1f, 5f, 0f);
+        }
+        controller.onSample(START + ONE_SECOND_IN_NANOSECOND, true, true, false);
+        assertEquals(5000L, controller.getMinTime());
+
+        // fast - clamped to one second
+        for (int i = 0; i < 50; i++) {
+            controller.onFixReceived(true, 30f, 5f, 0f);
+        }
+        controller.onSample(START + 2 * ONE_SECOND_IN_NANOSECOND, true, true, false);
+        assertEquals(1000L, controller.getMinTime());
+    }
+
+
+    @Test
+    public void noWayPointForOneMinuteSwitchesToIdle() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+
+        assertFalse(controller.onSample(START + 59 * ONE_SECOND_IN_NANOSECOND, false, true, false));
+        assertEquals(SamplingController.MODE_MOVING, controller.getMode());
+
+        assertTrue(controller.onSample(START + ONE_MINUTE_IN_NANOSECONDS, false, true, false));
+        assertEquals(SamplingController.MODE_IDLE, controller.getMode());
+        assertEquals(30000L, controller.getMinTime());
+        assertEquals(10f, controller.getMinDistance(), 0f);
+    }
+
+
+    @Test
+    public void noWayPointForFiveMinutesSwitchesToStationary() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+        controller.onSample(START + ONE_MINUTE_IN_NANOSECONDS, false, true, false);
+
+        assertTrue(controller.onSample(START + FIVE_MINUTES_IN_NANOSECONDS, false, true, false));
+
+        assertEquals(SamplingController.MODE_STATIONARY, controller.getMode());
+        assertEquals(60000L, controller.getMinTime());
+        assertEquals(25f, controller.getMinDistance(), 0f);
+    }
+
+
+    @Test
+    public void stopOverSwitchesToStationary() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+
+        assertTrue(controller.onSample(START + ONE_SECOND_IN_NANOSECOND, false, true, true));
+
+        assertEquals(SamplingController.MODE_STATIONARY, controller.getMode());
+    }
+
+
+    @Test
+    public void inaccurateSampleSwitchesToAcquiring() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+
+        assertTrue(controller.onSample(START + ONE_SECOND_IN_NANOSECOND, false, false, false));
+
+        assertEquals(SamplingController.MODE_ACQUIRING, controller.getMode());
+    }
+
+
+    @Test
+    public void fixShowingMovementRearms() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+        controller.onSample(START + FIVE_MINUTES_IN_NANOSECONDS, false, true, false);
+
+        // within accuracy or re-arm distance - stay stationary
+        assertFalse(controller.onFixReceived(false, 0f, 50f, 40f));
+        assertFalse(controller.onFixReceived(false, 0f, 5f, 20f));
+        assertEquals(SamplingController.MODE_STATIONARY, controller.getMode());
+
+        // further away than both
+        assertTrue(controller.onFixReceived(false, 0f, 5f, 21f));
+        assertEquals(SamplingController.MODE_MOVING, controller.getMode());
+        assertEquals(3, controller.getFixesReceived());
+    }
+
+
+    @Test
+    public void fixDoesNotRearmWhileMoving() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+
+        assertFalse(controller.onFixReceived(false, 0f, 5f, 100f));
+        assertEquals(SamplingController.MODE_MOVING, controller.getMode());
+    }
+
+
+    @Test
+    public void requestChangesAreCounted() {
+        SamplingController controller = new SamplingController(START);
+        controller.onSample(START, true, true, false);
+        controller.onSample(START + ONE_MINUTE_IN_NANOSECONDS, false, true, false);
+        controller.onSample(START + FIVE_MINUTES_IN_NANOSECONDS, false, true, false);
+        // same mode again - no change
+        controller.onSample(START + FIVE_MINUTES_IN_NANOSECONDS + ONE_SECOND_IN_NANOSECOND, false, true, true);
+
+        assertEquals(3, controller.getRequestChanges());
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * StepCounterTest.java
+ * Implements the StepCounterTest class
+ * A StepCounterTest checks how a StepCounter folds readings of the system step counter into steps
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StepCounterTest {
+
+    @Test
+    public void firstReadingCountsOneStep() {
+        StepCounter stepCounter = new StepCounter(0f);
+
+        stepCounter.onReading(12345f, 1000L);
+
+        assertEquals(1f, stepCounter.getSteps(), 0f);
+    }
+
+
+    @Test
+    public void readingsAddDifferenceToPreviousReading() {
+        StepCounter stepCounter = new StepCounter(0f);
+
+        stepCounter.onReading(12345f, 1000L);
+        stepCounter.onReading(12350f, 5000L);
+        stepCounter.onReading(12360f, 9000L);
+
+        assertEquals(16f, stepCounter.getSteps(), 0f);
+        assertEquals(3, stepCounter.getReadingCount());
+        assertEquals(0, stepCounter.getResetCount());
+    }
+
+
+    @Test
+    public void continuesFromPreviousSteps() {
+        StepCounter stepCounter = new StepCounter(100f);
+
+        stepCounter.onReading(500f, 1000L);
+        stepCounter.onReading(510f, 5000L);
+
+        assertEquals(111f, stepCounter.getSteps(), 0f);
+    }
+
+
+    @Test
+    public void negativePreviousStepsStartAtZero() {
+        StepCounter stepCounter = new StepCounter(-1f);
+
+        assertEquals(0f, stepCounter.getSteps(), 0f);
+    }
+
+
+    @Test
+    public void lowerReadingMeansCounterReset() {
+        StepCounter stepCounter = new StepCounter(0f);
+        stepCounter.onReading(12345f, 1000L);
+        stepCounter.onReading(12350f, 5000L);
+
+        // reboot - counter starts from zero, reading equals steps since reset
+        stepCounter.onReading(7f, 60000L);
+        stepCounter.onReading(10f, 65000L);
+
+        assertEquals(1f + 5f + 7f + 3f, stepCounter.getSteps(), 0f);
+        assertEquals(1, stepCounter.getResetCount());
+    }
+
+
+    @Test
+    public void equalReadingAddsNothing() {
+        StepCounter stepCounter = new StepCounter(0f);
+        stepCounter.onReading(20f, 1000L);
+
+        stepCounter.onReading(20f, 5000L);
+
+        assertEquals(1f, stepCounter.getSteps(), 0f);
+        assertEquals(0, stepCounter.getResetCount());
+    }
+
+
+    @Test
+    public void readingsCloseTogetherFormOneBatch() {
+        StepCounter stepCounter = new StepCounter(0f);
+
+        // first batch - queued while the device slept
+        stepCounter.onReading(100f, 1000L);
+        stepCounter.onReading(101f, 1001L);
+        stepCounter.onReading(102f, 1200L);
+        // second batch - gap longer than 200 ms
+        stepCounter.onReading(103f, 1401L);
+        stepCounter.onReading(104f, 1450L);
+        // third batch
+        stepCounter.onReading(110f, 30000L);
+        stepCounter.finishBatch();
+
+        assertEquals(6, stepCounter.getReadingCount());
+        assertEquals(3, stepCounter.getBatchCount());
+        assertEquals(11f, stepCounter.getSteps(), 0f);
+    }
+
+
+    @Test
+    public void finishBatchWithoutReadingsChangesNothing() {
+        StepCounter stepCounter = new StepCounter(0f);
+
+        stepCounter.finishBatch();
+        stepCounter.onReading(100f, 1000L);
+        stepCounter.finishBatch();
+        stepCounter.finishBatch();
+
+        assertEquals(1, stepCounter.getBatchCount());
+        assertEquals(1f, stepCounter.getSteps(), 0f);
+    }
+
+}
@@ -0,0 +1,224 @@
+/**
+ * TrackCodecTest.java
+ * Implements the TrackCodecTest class
+ * A TrackCodecTest checks reading and writing the binary file format
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TrackCodecTest {
+
+    /* Columns are quantized to centimeters (coordinates) and decimeters (altitude, accuracy, distance) */
+    private static final double PRECISION = 0.051d;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+
+    @Test
+    public void decodeReturnsEncodedTrack() throws IOException {
+        // more WayPoints than fit into one chunk of the WayPointStore
+        Track track = TrackFixtures.createTrack(1500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackCodec.encode(track, out);
+
+        Track decodedTrack = decode(out.toByteArray());
+
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), decodedTrack.getWayPointStore(), PRECISION);
+        TrackFixtures.assertSameStatistics(track, decodedTrack);
+    }
+
+
+    @Test
+    public void decodeReturnsEmptyTrack() throws IOException {
+        Track track = TrackFixtures.createTrack(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackCodec.encode(track, out);
+
+        Track decodedTrack = decode(out.toByteArray());
+
+        assertEquals(0, decodedTrack.getSize());
+        TrackFixtures.assertSameStatistics(track, decodedTrack);
+    }
+
+
+    @Test
+    public void decodedTrackIsWritable() throws IOException {
+        Track track = TrackFixtures.createTrack(600);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackCodec.encode(track, out);
+        WayPointStore wayPoints = decode(out.toByteArray()).getWayPointStore();
+
+        wayPoints.add(TrackFixtures.createFix(0d, 0d, 9000L, 5f), false, 0f);
+        wayPoints.setStopOver(599, false);
+
+        assertEquals(601, wayPoints.size());
+        assertFalse(wayPoints.isStopOver(599));
+    }
+
+
+    @Test
+    public void isBinaryTrackRecognizesFileFormat() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackCodec.encode(TrackFixtures.createTrack(3), out);
+
+        assertTrue(TrackCodec.isBinaryTrack(out.toByteArray()));
+        assertFalse(TrackCodec.isBinaryTrack("{\"a\"".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(TrackCodec.isBinaryTrack(new byte[2]));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsJsonTrack() throws IOException {
+        decode("{\"mWayPoints\":[]}".getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsSizeLargerThanFile() throws IOException {
+        // corrupt header - the columns cannot hold that many WayPoints
+        decode(encodeWithSize(TrackFixtures.createTrack(40), Integer.MAX_VALUE));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsNegativeSize() throws IOException {
+        decode(encodeWithSize(TrackFixtures.createTrack(40), -1));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsTruncatedTrack() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackCodec.encode(TrackFixtures.createTrack(40), out);
+        byte[] encodedTrack = out.toByteArray();
+
+        decode(Arrays.copyOf(encodedTrack, encodedTrack.length - 20));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void readSummaryRejectsSizeLargerThanFile() throws IOException {
+        File file = mFolder.newFile("corrupt.trackbook");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(encodeWithSize(TrackFixtures.createTrack(40), 1 << 28));
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            TrackCodec.readSummary(in, file);
+        }
+    }
+
+
+    @Test
+    public void readSummaryReturnsStatisticsAndBoundingBox() throws IOException {
+        Track track = TrackFixtures.createTrack(700);
+        File file = writeTrackFile(track);
+
+        TrackSummary summary;
+        try (InputStream in = new FileInputStream(file)) {
+            summary = TrackCodec.readSummary(in, file);
+        }
+
+        assertEquals(file.getName(), summary.getFileName());
+        assertEquals(file.length(), summary.getFileLength());
+        assertTrue(summary.isUpToDate(file));
+        assertEquals(700, summary.getSize());
+        assertEquals(track.getTrackLength(), summary.getTrackLength(), 0f);
+        assertEquals(track.getTrackDuration(), summary.getTrackDuration());
+        assertEquals(track.getRecordingStart(), summary.getRecordingStart());
+        WayPointStore wayPoints = track.getWayPointStore();
+        double tolerance = PRECISION / TrackFixtures.METERS_PER_DEGREE;
+        assertEquals(wayPoints.getLatitude(699), summary.getNorth(), tolerance);
+        assertEquals(wayPoints.getLatitude(0), summary.getSouth(), tolerance);
+        assertEquals(TrackFixtures.START_LONGITUDE, summary.getWest(), tolerance);
+        assertEquals(wayPoints.getLongitude(3), summary.getEast(), tolerance);
+        assertTrue(summary.intersects(wayPoints.getLatitude(10), wayPoints.getLongitude(10) + 0.001d, wayPoints.getLatitude(10) - 0.001d, wayPoints.getLongitude(10) - 0.001d));
+        assertFalse(summary.intersects(summary.getSouth() - 0.1d, summary.getEast(), summary.getSouth() - 0.2d, summary.getWest()));
+    }
+
+
+    @Test
+    public void readCoordinatesStartsAtCoordinatesOffset() throws IOException {
+        Track track = TrackFixtures.createTrack(700);
+        File file = writeTrackFile(track);
+        TrackSummary summary;
+        try (InputStream in = new FileInputStream(file)) {
+            summary = TrackCodec.readSummary(in, file);
+        }
+
+        double[] latitudes = new double[summary.getSize()];
+        double[] longitudes = new double[summary.getSize()];
+        try (InputStream in = new FileInputStream(file)) {
+            long skipped = in.skip(summary.getCoordinatesOffset());
+            assertEquals(summary.getCoordinatesOffset(), skipped);
+            TrackCodec.readCoordinates(in, summary.getSize(), latitudes, longitudes);
+        }
+
+        WayPointStore wayPoints = track.getWayPointStore();
+        double tolerance = PRECISION / TrackFixtures.METERS_PER_DEGREE;
+        for (int i = 0; i < wayPoints.size(); i++) {
+            assertEquals(wayPoints.getLatitude(i), latitudes[i], tolerance);
+            assertEquals(wayPoints.getLongitude(i), longitudes[i], tolerance);
+        }
+    }
+
+
+    /* Decodes given encoded track */
+    private Track decode(byte[] encodedTrack) throws IOException {
+        return TrackCodec.decode(new ByteArrayInputStream(encodedTrack), encodedTrack.length).toTrack();
+    }
+
+
+    /* Encodes given track - with given number of WayPoints written to the header */
+    private byte[] encodeWithSize(Track track, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long coordinatesOffset = TrackCodec.encode(track, out);
+        byte[] encodedTrack = out.toByteArray();
+        ByteBuffer.wrap(encodedTrack).putInt((int) coordinatesOffset - 4, size);
+        return encodedTrack;
+    }
+
+
+    /* Writes given track to a new file */
+    private File writeTrackFile(Track track) throws IOException {
+        File file = mFolder.newFile("track.trackbook");
+        try (OutputStream out = new FileOutputStream(file)) {
+            long coordinatesOffset = TrackCodec.encode(track, out);
+            assertTrue(coordinatesOffset > 0);
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * TrackCompressorTest.java
+ * Implements the TrackCompressorTest class
+ * A TrackCompressorTest checks that a compressed track stays within the tolerance of the recorded locations
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TrackCompressorTest {
+
+    /* Deviation allowed on top of the tolerance - the compressor projects around the anchor, the test around each segment */
+    private static final double PROJECTION_ERROR = 0.01d;
+
+
+    @Test
+    public void compressedTrackStaysWithinTolerance() {
+        for (float tolerance : new float[] {1f, 3f, 10f}) {
+            List<GeoFix> fixes = createWigglyRide(2000, new Random(42));
+            Track track = record(fixes, tolerance);
+
+            assertTrue("compressed with tolerance " + tolerance, track.getSize() < fixes.size());
+            for (GeoFix fix : fixes) {
+                double deviation = getDeviation(track.getWayPointStore(), fix);
+                assertTrue("deviation " + deviation + " m with tolerance " + tolerance, deviation <= tolerance + PROJECTION_ERROR);
+            }
+        }
+    }
+
+
+    @Test
+    public void compressionKeepsFirstAndLastLocation() {
+        List<GeoFix> fixes = createWigglyRide(500, new Random(7));
+        Track track = record(fixes, 3f);
+
+        WayPointStore wayPoints = track.getWayPointStore();
+        assertEquals(fixes.get(0).getTime(), wayPoints.getTime(0));
+        assertEquals(fixes.get(fixes.size() - 1).getTime(), wayPoints.getTime(wayPoints.size() - 1));
+    }
+
+
+    @Test
+    public void zeroToleranceKeepsAllWayPoints() {
+        List<GeoFix> fixes = createStraightRide(100);
+
+        Track track = record(fixes, 0f);
+
+        assertEquals(fixes.size(), track.getSize());
+    }
+
+
+    @Test
+    public void newTrackIsNotCompressed() {
+        // compression is lossy - off unless a tolerance is set
+        List<GeoFix> fixes = createStraightRide(100);
+        Track track = new Track();
+        GeoFix previousFix = null;
+        for (GeoFix fix : fixes) {
+            track.addWayPoint(previousFix, fix);
+            previousFix = fix;
+        }
+
+        assertEquals(fixes.size(), track.getSize());
+    }
+
+
+    @Test
+    public void cornerIsKept() {
+        // ten locations north, then ten locations east
+        List<GeoFix> fixes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            fixes.add(TrackFixtures.createFix(Math.min(i, 9) * 20d, Math.max(i - 9, 0) * 20d, i * 15L, 5f));
+        }
+
+        Track track = record(fixes, 3f);
+
+        WayPointStore wayPoints = track.getWayPointStore();
+        assertEquals(3, wayPoints.size());
+        assertEquals(fixes.get(9).getTime(), wayPoints.getTime(1));
+    }
+
+
+    @Test
+    public void straightLineIsLimitedByWindowSize() {
+        // window holds 64 locations - a straight line needs a new WayPoint at least every 64 locations
+        List<GeoFix> fixes = createStraightRide(1000);
+
+        Track track = record(fixes, 3f);
+
+        assertTrue(track.getSize() >= fixes.size() / 64);
+        assertTrue(track.getSize() <= fixes.size() / 64 + 2);
+    }
+
+
+    @Test
+    public void stopOversAreKept() {
+        TrackCompressor compressor = new TrackCompressor(3f);
+        WayPointStore wayPoints = new WayPointStore();
+        for (int i = 0; i < 3; i++) {
+            GeoFix fix = TrackFixtures.createFix(i * 20d, 0d, i * 15L, 5f);
+            wayPoints.add(fix, false, 0f);
+            compressor.onWayPointAdded(wayPoints, fix.getLatitude(), fix.getLongitude(), false);
+        }
+        GeoFix nextFix = TrackFixtures.createFix(60d, 0d, 45L, 5f);
+
+        assertTrue(compressor.canReplaceLastWayPoint(wayPoints, nextFix.getLatitude(), nextFix.getLongitude()));
+        wayPoints.setStopOver(2, true);
+        assertTrue(!compressor.canReplaceLastWayPoint(wayPoints, nextFix.getLatitude(), nextFix.getLongitude()));
+    }
+
+
+    /* Adds given fixes to a new track - the way TrackRecorder does */
+    private static Track record(List<GeoFix> fixes, float tolerance) {
+        Track track = new Track();
+        track.setCompressionTolerance(tolerance);
+        GeoFix previousFix = null;
+        for (GeoFix fix : fixes) {
+            track.addWayPoint(previousFix, fix);
+            previousFix = fix;
+        }
+        return track;
+    }
+
+
+    /* Creates a ride along a straight line - a location every 20 meters */
+    private static List<GeoFix> createStraightRide(int size) {
+        List<GeoFix> fixes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            fixes.add(TrackFixtures.createFix(i * 20d, i * 5d, i * 15L, 5f));
+        }
+        return fixes;
+    }
+
+
+    /* Creates a ride of straight stretches, curves and jitter - a location every 10 to 30 meters */
+    private static List<GeoFix> createWigglyRide(int size, Random random) {
+        List<GeoFix> fixes = new ArrayList<>(size);
+        double north = 0d;
+        double east = 0d;
+        double heading = 0d;
+        for (int i = 0; i < size; i++) {
+            fixes.add(TrackFixtures.createFix(north + random.nextGaussian(), east + random.nextGaussian(), i * 15L, 5f));
+            // mostly straight, sometimes a curve
+            if (i % 40 > 30) {
+                heading = heading + 0.4d * (random.nextBoolean() ? 1d : -1d);
+            }
+            double step = 10d + random.nextDouble() * 20d;
+            north = north + step * Math.cos(heading);
+            east = east + step * Math.sin(heading);
+        }
+        return fixes;
+    }
+
+
+    /* Returns the distance (in meters) between given fix and the part of the track recorded at its time */
+    private static double getDeviation(WayPointStore wayPoints, GeoFix fix) {
+        int last = wayPoints.size() - 1;
+        int next = 0;
+        while (next < last && wayPoints.getTime(next) < fix.getTime()) {
+            next++;
+        }
+        int previous = Math.max(next - 1, 0);
+        if (wayPoints.getTime(next) == fix.getTime()) {
+            previous = next;
+        }
+
+        // project onto plane around previous WayPoint
+        double cosLatitude = Math.cos(Math.toRadians(wayPoints.getLatitude(previous)));
+        double endX = (wayPoints.getLongitude(next) - wayPoints.getLongitude(previous)) * cosLatitude * TrackFixtures.METERS_PER_DEGREE;
+        double endY = (wayPoints.getLatitude(next) - wayPoints.getLatitude(previous)) * TrackFixtures.METERS_PER_DEGREE;
+        double x = (fix.getLongitude() - wayPoints.getLongitude(previous)) * cosLatitude * TrackFixtures.METERS_PER_DEGREE;
+        double y = (fix.getLatitude() - wayPoints.getLatitude(previous)) * TrackFixtures.METERS_PER_DEGREE;
+        double lengthSquared = endX * endX + endY * endY;
+        double t = lengthSquared > 0d ? Math.max(0d, Math.min(1d, (x * endX + y * endY) / lengthSquared)) : 0d;
+        return Math.hypot(x - t * endX, y - t * endY);
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * TrackFixtures.java
+ * Implements the TrackFixtures class
+ * TrackFixtures create the location fixes and tracks used by the tests
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * TrackFixtures class
+ *
+ * Positions are given in meters north and east of a fixed starting point, so
+ * tests can reason about distances. Everything is deterministic.
+ */
+final class TrackFixtures implements TrackbookKeys {
+
+    /* Fixture constants */
+    static final long START_TIME = 1546344000000L; // 2019-01-01 12:00 UTC
+    static final long START_ELAPSED_REALTIME_NANOS = 3600L * ONE_SECOND_IN_NANOSECOND; // device booted an hour earlier
+    static final double START_LATITUDE = 52.520008d;
+    static final double START_LONGITUDE = 13.404954d;
+    static final double METERS_PER_DEGREE = 111319.49d;
+
+
+    /* Creates a gps fix at given position (in meters from the starting point) - given seconds after the start */
+    static GeoFix createFix(double north, double east, long seconds, float accuracy) {
+        double latitude = START_LATITUDE + north / METERS_PER_DEGREE;
+        double longitude = START_LONGITUDE + east / (METERS_PER_DEGREE * Math.cos(Math.toRadians(START_LATITUDE)));
+        return new GeoFix(GeoFix.PROVIDER_GPS, latitude, longitude, 34d + north / 100d, accuracy, 5f,
+                START_TIME + seconds * 1000L, START_ELAPSED_REALTIME_NANOS + seconds * ONE_SECOND_IN_NANOSECOND, 9);
+    }
+
+
+    /* Creates a track with given number of WayPoints - a zig-zag ride with a WayPoint every 15 seconds, every tenth WayPoint is a stop over */
+    static Track createTrack(int size) {
+        WayPointStore wayPoints = new WayPointStore();
+        float distance = 0f;
+        GeoFix previousFix = null;
+        for (int i = 0; i < size; i++) {
+            GeoFix fix = createFix(i * 40d, (i % 4) * 25d, i * 15L, 4f + (i % 7));
+            if (previousFix != null) {
+                distance = distance + previousFix.distanceTo(fix);
+            }
+            wayPoints.add(fix, i % 10 == 9, distance);
+            previousFix = fix;
+        }
+        Date recordingStart = new Date(START_TIME);
+        Date recordingStop = new Date(START_TIME + size * 15000L);
+        Track track = new Track(CURRENT_TRACK_FORMAT_VERSION, wayPoints, distance, size * 15000L, 1234f, recordingStart, recordingStop, 60d, 34d, 26d, -4d, null);
+        track.setmStartAdress("Unter den Linden");
+        track.setmEndAdress("Karl-Marx-Allee");
+        return track;
+    }
+
+
+    /* Checks that given WayPoint stores contain the same WayPoints - values compared with given precision */
+    static void assertSameWayPoints(WayPointStore expected, WayPointStore actual, double precision) {
+        assertEquals("size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("latitude " + i, expected.getLatitude(i), actual.getLatitude(i), precision / METERS_PER_DEGREE);
+            assertEquals("longitude " + i, expected.getLongitude(i), actual.getLongitude(i), precision / METERS_PER_DEGREE);
+            assertEquals("time " + i, expected.getTime(i), actual.getTime(i));
+            assertEquals("elapsed realtime " + i, expected.getElapsedRealtimeNanos(i) / 1000000L, actual.getElapsedRealtimeNanos(i) / 1000000L);
+            assertEquals("altitude " + i, expected.getAltitude(i), actual.getAltitude(i), precision);
+            assertEquals("accuracy " + i, expected.getAccuracy(i), actual.getAccuracy(i), precision);
+            assertEquals("distance " + i, expected.getDistanceToStartingPoint(i), actual.getDistanceToStartingPoint(i), precision);
+            assertEquals("provider " + i, expected.getProvider(i), actual.getProvider(i));
+            assertEquals("flags " + i, expected.getFlags(i), actual.getFlags(i));
+            assertEquals("number of satellites " + i, expected.getNumberSatellites(i), actual.getNumberSatellites(i));
+            assertEquals("stop over " + i, expected.isStopOver(i), actual.isStopOver(i));
+        }
+    }
+
+
+    /* Checks that given tracks have the same statistics */
+    static void assertSameStatistics(Track expected, Track actual) {
+        assertEquals(expected.getRecordingStart(), actual.getRecordingStart());
+        assertEquals(expected.getRecordingStop(), actual.getRecordingStop());
+        assertEquals(expected.getTrackLength(), actual.getTrackLength(), 0f);
+        assertEquals(expected.getTrackDuration(), actual.getTrackDuration());
+        assertEquals(expected.getStepCount(), actual.getStepCount(), 0f);
+        assertEquals(expected.getMaxAltitude(), actual.getMaxAltitude(), 0d);
+        assertEquals(expected.getMinAltitude(), actual.getMinAltitude(), 0d);
+        assertEquals(expected.getPositiveElevation(), actual.getPositiveElevation(), 0d);
+        assertEquals(expected.getNegativeElevation(), actual.getNegativeElevation(), 0d);
+        assertEquals(expected.getmStartAdress(), actual.getmStartAdress());
+        assertEquals(expected.getmEndAdress(), actual.getmEndAdress());
+    }
+
+
+    /* Not meant to be instantiated */
+    private TrackFixtures() {
+    }
+
+}
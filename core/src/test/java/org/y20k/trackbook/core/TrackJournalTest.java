@@ -0,0 +1,240 @@
+/**
+ * TrackJournalTest.java
+ * Implements the TrackJournalTest class
+ * A TrackJournalTest checks appending to and replaying the journal of a recording
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.y20k.trackbook.helpers.TrackbookKeys;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TrackJournalTest implements TrackbookKeys {
+
+    /* Records are written without loss */
+    private static final double PRECISION = 0d;
+
+    /* Sizes of header and record - see TrackJournal */
+    private static final int HEADER_SIZE = 1024;
+    private static final int RECORD_SIZE = 48;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TrackJournal mJournal;
+
+
+    @Before
+    public void setUp() {
+        mJournal = new TrackJournal(new File(mFolder.getRoot(), "journal"));
+    }
+
+
+    @Test
+    public void replayReturnsAppendedTrack() throws IOException {
+        Track track = TrackFixtures.createTrack(20);
+
+        mJournal.append(track);
+        Track replayedTrack = mJournal.replay();
+
+        assertTrue(mJournal.exists());
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), replayedTrack.getWayPointStore(), PRECISION);
+        TrackFixtures.assertSameStatistics(track, replayedTrack);
+    }
+
+
+    @Test
+    public void appendWritesNewWayPointsOnly() throws IOException {
+        Track track = TrackFixtures.createTrack(0);
+        WayPointStore wayPoints = track.getWayPointStore();
+        for (int i = 0; i < 10; i++) {
+            wayPoints.add(TrackFixtures.createFix(i * 20d, 0d, i * 15L, 5f), false, i * 20f);
+        }
+        mJournal.append(track);
+        long journalLength = mJournal.getFile().length();
+
+        for (int i = 10; i < 15; i++) {
+            wayPoints.add(TrackFixtures.createFix(i * 20d, 0d, i * 15L, 5f), false, i * 20f);
+        }
+        long bytesWritten = mJournal.append(track);
+
+        // five new records, the last stored record again and the header
+        assertEquals(journalLength + 5 * RECORD_SIZE, mJournal.getFile().length());
+        assertEquals(6 * RECORD_SIZE + (journalLength - 10 * RECORD_SIZE), bytesWritten);
+        TrackFixtures.assertSameWayPoints(wayPoints, mJournal.replay().getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void appendRewritesChangedLastWayPoint() throws IOException {
+        Track track = TrackFixtures.createTrack(0);
+        WayPointStore wayPoints = track.getWayPointStore();
+        for (int i = 0; i < 5; i++) {
+            wayPoints.add(TrackFixtures.createFix(i * 20d, 0d, i * 15L, 5f), false, i * 20f);
+        }
+        mJournal.append(track);
+
+        // last WayPoint is replaced (compression)
+        wayPoints.truncate(4);
+        wayPoints.add(TrackFixtures.createFix(100d, 0d, 75L, 5f), false, 100f);
+        mJournal.append(track);
+        assertEquals(100d / TrackFixtures.METERS_PER_DEGREE, mJournal.replay().getWayPointStore().getLatitude(4) - TrackFixtures.START_LATITUDE, 1e-9);
+
+        // last WayPoint becomes a stop over when the next one is added
+        wayPoints.setStopOver(4, true);
+        wayPoints.add(TrackFixtures.createFix(100d, 0d, 300L, 5f), false, 100f);
+        mJournal.append(track);
+        Track replayedTrack = mJournal.replay();
+
+        assertEquals(6, replayedTrack.getSize());
+        assertTrue(replayedTrack.getWayPointStore().isStopOver(4));
+        TrackFixtures.assertSameWayPoints(wayPoints, replayedTrack.getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void replayIgnoresPartiallyWrittenRecord() throws IOException {
+        Track track = TrackFixtures.createTrack(8);
+        mJournal.append(track);
+
+        // recording was interrupted while a record was written
+        try (OutputStream out = new FileOutputStream(mJournal.getFile(), true)) {
+            out.write(new byte[RECORD_SIZE / 2]);
+        }
+        Track replayedTrack = mJournal.replay();
+
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), replayedTrack.getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void appendCutsOffPartiallyWrittenRecord() throws IOException {
+        Track track = TrackFixtures.createTrack(8);
+        mJournal.append(track);
+        long journalLength = mJournal.getFile().length();
+        try (OutputStream out = new FileOutputStream(mJournal.getFile(), true)) {
+            out.write(new byte[RECORD_SIZE / 2]);
+        }
+
+        mJournal.append(track);
+
+        assertEquals(journalLength, mJournal.getFile().length());
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), mJournal.replay().getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void appendStartsOverForAnotherRecording() throws IOException {
+        mJournal.append(TrackFixtures.createTrack(12));
+
+        // another recording with more WayPoints - started a minute later
+        WayPointStore wayPoints = new WayPointStore();
+        for (int i = 0; i < 15; i++) {
+            wayPoints.add(TrackFixtures.createFix(-i * 20d, 0d, 60L + i * 15L, 5f), false, i * 20f);
+        }
+        Date recordingStart = new Date(TrackFixtures.START_TIME + 60000L);
+        Track track = new Track(CURRENT_TRACK_FORMAT_VERSION, wayPoints, 280f, 210000L, 0f, recordingStart, recordingStart, 34d, 33.86d, 0d, 0d, null);
+        long bytesWritten = mJournal.append(track);
+        Track replayedTrack = mJournal.replay();
+
+        // no record of the previous recording is kept or reused
+        assertEquals(15 * RECORD_SIZE + HEADER_SIZE, bytesWritten);
+        assertEquals(recordingStart, replayedTrack.getRecordingStart());
+        TrackFixtures.assertSameWayPoints(wayPoints, replayedTrack.getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void appendStartsOverForForeignFile() throws IOException {
+        // file of the same name, but not a journal
+        try (OutputStream out = new FileOutputStream(mJournal.getFile())) {
+            out.write(new byte[HEADER_SIZE + 3 * RECORD_SIZE]);
+        }
+
+        Track track = TrackFixtures.createTrack(2);
+        mJournal.append(track);
+
+        assertEquals(HEADER_SIZE + 2 * RECORD_SIZE, mJournal.getFile().length());
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), mJournal.replay().getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void appendStartsOverForShorterTrack() throws IOException {
+        mJournal.append(TrackFixtures.createTrack(12));
+
+        // same recording, but fewer WayPoints than stored
+        Track track = TrackFixtures.createTrack(4);
+        mJournal.append(track);
+
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), mJournal.replay().getWayPointStore(), PRECISION);
+    }
+
+
+    @Test
+    public void replayReturnsEmptyTrack() throws IOException {
+        Track track = TrackFixtures.createTrack(0);
+        mJournal.append(track);
+        Track replayedTrack = mJournal.replay();
+
+        assertEquals(HEADER_SIZE, mJournal.getFile().length());
+        assertEquals(0, replayedTrack.getSize());
+        TrackFixtures.assertSameStatistics(track, replayedTrack);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void replayRejectsForeignFile() throws IOException {
+        try (OutputStream out = new FileOutputStream(mJournal.getFile())) {
+            out.write(new byte[HEADER_SIZE + RECORD_SIZE]);
+        }
+        mJournal.replay();
+    }
+
+
+    @Test(expected = IOException.class)
+    public void replayRejectsTruncatedHeader() throws IOException {
+        mJournal.append(TrackFixtures.createTrack(4));
+        try (RandomAccessFile raf = new RandomAccessFile(mJournal.getFile(), "rw")) {
+            raf.setLength(HEADER_SIZE / 2);
+        }
+        mJournal.replay();
+    }
+
+
+    @Test
+    public void deleteRemovesJournal() throws IOException {
+        mJournal.append(TrackFixtures.createTrack(2));
+
+        assertTrue(mJournal.delete());
+        assertFalse(mJournal.exists());
+        assertFalse(mJournal.delete());
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * TrackReplayTest.java
+ * Implements the TrackReplayTest class
+ * A TrackReplayTest replays a recorded ride through the recording pipeline and checks the resulting track
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * TrackReplayTest class
+ *
+ * Regression basis for the admission rules: ride.gpx is a 20 minute ride with
+ * a fix every two seconds - 8 minutes riding, a 6 minute stop, 6 minutes
+ * riding. The expected values below are the output of the current rules. If a
+ * change of WayPointFilter, FixBuffer, TrackRecorder or TrackCompressor alters
+ * them on purpose, update them in the same commit - and say why.
+ */
+public class TrackReplayTest {
+
+    /* Expected results of the current rules */
+    private static final int EXPECTED_FIX_COUNT = 600;
+    private static final int EXPECTED_TICK_COUNT = 80;
+    private static final int EXPECTED_WAYPOINTS = 56;
+    private static final int EXPECTED_COMPRESSED_WAYPOINTS = 34;
+    private static final float EXPECTED_LENGTH = 4118.9f; // meters
+    private static final long EXPECTED_DURATION = 1200000L; // milliseconds
+    private static final long STOP_START = 480000L; // milliseconds after the first fix
+
+
+    private List<GeoFix> mFixes;
+
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("ride.gpx")) {
+            mFixes = RideLogReader.readGpx(in);
+        }
+    }
+
+
+    @Test
+    public void readsFixture() {
+        assertEquals(EXPECTED_FIX_COUNT, mFixes.size());
+        assertEquals(0L, mFixes.get(0).getElapsedRealtimeNanos());
+        assertEquals(7.5f, mFixes.get(0).getAccuracy(), 0f);
+    }
+
+
+    @Test
+    public void replayProducesExpectedTrack() {
+        TrackReplay.Result result = new TrackReplay(mFixes).run();
+        Track track = result.getTrack();
+
+        assertEquals(EXPECTED_FIX_COUNT, result.getFixCount());
+        assertEquals(EXPECTED_TICK_COUNT, result.getTickCount());
+        assertEquals(EXPECTED_WAYPOINTS, track.getSize());
+        assertEquals(EXPECTED_LENGTH, track.getTrackLength(), 1f);
+        assertEquals(EXPECTED_DURATION, track.getTrackDuration());
+        assertStopOverBeforeStop(track);
+    }
+
+
+    @Test
+    public void compressedReplayProducesExpectedTrack() {
+        TrackReplay replay = new TrackReplay(mFixes);
+        replay.setCompressionTolerance(3f);
+        Track track = replay.run().getTrack();
+
+        assertEquals(EXPECTED_COMPRESSED_WAYPOINTS, track.getSize());
+        // length is measured between the fixes used, not between the WayPoints stored
+        assertEquals(EXPECTED_LENGTH, track.getTrackLength(), 1f);
+        assertStopOverBeforeStop(track);
+    }
+
+
+    @Test
+    public void replayIsRepeatable() {
+        Track firstTrack = new TrackReplay(mFixes).run().getTrack();
+        Track secondTrack = new TrackReplay(mFixes).run().getTrack();
+
+        TrackFixtures.assertSameWayPoints(firstTrack.getWayPointStore(), secondTrack.getWayPointStore(), 0d);
+    }
+
+
+    @Test
+    public void wayPointsAreAtLeastTwelveSecondsApart() {
+        WayPointStore wayPoints = new TrackReplay(mFixes).run().getTrack().getWayPointStore();
+
+        for (int i = 1; i < wayPoints.size(); i++) {
+            assertTrue("WayPoint " + i, wayPoints.getTime(i) - wayPoints.getTime(i - 1) >= 12000L);
+        }
+    }
+
+
+    /* Checks that the only stop over is the last WayPoint before the stop */
+    private void assertStopOverBeforeStop(Track track) {
+        WayPointStore wayPoints = track.getWayPointStore();
+        long firstTime = mFixes.get(0).getTime();
+        int stopOvers = 0;
+        for (int i = 0; i < wayPoints.size(); i++) {
+            if (wayPoints.isStopOver(i)) {
+                stopOvers++;
+                long stopOverTime = wayPoints.getTime(i) - firstTime;
+                assertTrue("stop over at " + stopOverTime + " ms", stopOverTime <= STOP_START && stopOverTime > STOP_START - 30000L);
+            }
+        }
+        assertEquals(1, stopOvers);
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * TrackUpdateTest.java
+ * Implements the TrackUpdateTest class
+ * A TrackUpdateTest checks the numbered snapshots and deltas sent to the activity while recording
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TrackUpdateTest {
+
+    @Test
+    public void snapshotContainsTrack() {
+        Track track = TrackFixtures.createTrack(30);
+
+        TrackUpdate update = TrackUpdate.createSnapshot(7, track);
+
+        assertTrue(update.isSnapshot());
+        assertEquals(7, update.getSequence());
+        assertEquals(0, update.getFirstIndex());
+        assertEquals(30, update.getTrackSize());
+        Track receivedTrack = update.toTrack();
+        TrackFixtures.assertSameWayPoints(track.getWayPointStore(), receivedTrack.getWayPointStore(), 0d);
+        TrackFixtures.assertSameStatistics(track, receivedTrack);
+    }
+
+
+    @Test
+    public void snapshotDoesNotChangeWhileRecordingGoesOn() {
+        Track track = TrackFixtures.createTrack(30);
+        TrackUpdate update = TrackUpdate.createSnapshot(1, track);
+        Track expectedTrack = TrackFixtures.createTrack(30);
+
+        track.getWayPointStore().setStopOver(29, false);
+        track.addWayPoint(track.getWayPointFix(29), TrackFixtures.createFix(2000d, 0d, 600L, 5f));
+
+        TrackFixtures.assertSameWayPoints(expectedTrack.getWayPointStore(), update.getWayPoints(), 0d);
+    }
+
+
+    @Test
+    public void deltasReproduceRecordedTrack() {
+        Sender sender = new Sender(new Track());
+        Receiver receiver = new Receiver();
+        receiver.receive(sender.send());
+
+        // straight line with compression (the last WayPoint is replaced), interrupted by stop overs
+        sender.mTrack.setCompressionTolerance(3f);
+        GeoFix previousFix = null;
+        for (int i = 0; i < 60; i++) {
+            double east = i % 20 < 15 ? (i % 20) * 20d : 280d;
+            GeoFix fix = TrackFixtures.createFix(i / 20 * 500d, east, i * 15L, 5f);
+            sender.mTrack.addWayPoint(previousFix, fix);
+            sender.mTrack.updateDistance(previousFix, fix);
+            previousFix = fix;
+            assertTrue("update " + i + " applied", receiver.receive(sender.send()));
+        }
+
+        assertTrue(sender.mTrack.getSize() < 60);
+        TrackFixtures.assertSameWayPoints(sender.mTrack.getWayPointStore(), receiver.mTrack.getWayPointStore(), 0d);
+        TrackFixtures.assertSameStatistics(sender.mTrack, receiver.mTrack);
+    }
+
+
+    @Test
+    public void deltaResendsLastWayPoint() {
+        Sender sender = new Sender(TrackFixtures.createTrack(5));
+        Receiver receiver = new Receiver();
+        receiver.receive(sender.send());
+
+        sender.mTrack.setWayPointStopOver(4, true);
+        sender.mTrack.addWayPoint(null, TrackFixtures.createFix(300d, 0d, 300L, 5f));
+        TrackUpdate update = sender.send();
+
+        assertFalse(update.isSnapshot());
+        assertEquals(4, update.getFirstIndex());
+        assertEquals(2, update.getWayPoints().size());
+        assertEquals(6, update.getTrackSize());
+        assertTrue(receiver.receive(update));
+        assertTrue(receiver.mTrack.getWayPointStore().isStopOver(4));
+    }
+
+
+    @Test
+    public void missedDeltaIsDetected() {
+        Sender sender = new Sender(TrackFixtures.createTrack(5));
+        Receiver receiver = new Receiver();
+        receiver.receive(sender.send());
+
+        sender.mTrack.addWayPoint(null, TrackFixtures.createFix(300d, 0d, 300L, 5f));
+        sender.send();
+        sender.mTrack.addWayPoint(null, TrackFixtures.createFix(400d, 0d, 315L, 5f));
+        TrackUpdate update = sender.send();
+
+        // receiver asks for a snapshot instead
+        assertFalse(receiver.receive(update));
+        assertNull(receiver.mTrack);
+        assertTrue(receiver.receive(TrackUpdate.createSnapshot(sender.mSequence, sender.mTrack)));
+        TrackFixtures.assertSameWayPoints(sender.mTrack.getWayPointStore(), receiver.mTrack.getWayPointStore(), 0d);
+
+        // deltas are applied again afterwards
+        sender.mTrack.addWayPoint(null, TrackFixtures.createFix(500d, 0d, 330L, 5f));
+        assertTrue(receiver.receive(sender.send()));
+        assertEquals(8, receiver.mTrack.getSize());
+    }
+
+
+    @Test
+    public void emptyTrackIsSentAsSnapshotAndDelta() {
+        Sender sender = new Sender(new Track());
+        Receiver receiver = new Receiver();
+
+        assertTrue(receiver.receive(sender.send()));
+        TrackUpdate update = sender.send();
+
+        assertEquals(0, update.getFirstIndex());
+        assertEquals(0, update.getWayPoints().size());
+        assertTrue(receiver.receive(update));
+        assertEquals(0, receiver.mTrack.getSize());
+    }
+
+
+    @Test
+    public void deltaWithoutNewWayPointsKeepsTrack() {
+        Sender sender = new Sender(TrackFixtures.createTrack(5));
+        Receiver receiver = new Receiver();
+        receiver.receive(sender.send());
+
+        // tick without a new location - only the last WayPoint is sent again
+        TrackUpdate update = sender.send();
+
+        assertEquals(1, update.getWayPoints().size());
+        assertTrue(receiver.receive(update));
+        TrackFixtures.assertSameWayPoints(sender.mTrack.getWayPointStore(), receiver.mTrack.getWayPointStore(), 0d);
+    }
+
+
+    @Test
+    public void followsRequiresPreviousSequence() {
+        Track track = TrackFixtures.createTrack(5);
+
+        assertTrue(TrackUpdate.createDelta(4, track, 4).follows(3));
+        assertFalse(TrackUpdate.createDelta(4, track, 4).follows(2));
+        assertFalse(TrackUpdate.createDelta(4, track, 4).follows(4));
+        assertFalse(TrackUpdate.createDelta(0, track, 4).follows(-1));
+        assertFalse(TrackUpdate.createSnapshot(4, track).follows(3));
+    }
+
+
+    @Test
+    public void createDeltaClampsFirstIndex() {
+        Track track = TrackFixtures.createTrack(5);
+
+        assertEquals(0, TrackUpdate.createDelta(1, track, -1).getFirstIndex());
+        assertEquals(5, TrackUpdate.createDelta(1, track, 9).getFirstIndex());
+        assertEquals(0, TrackUpdate.createDelta(1, track, 9).getWayPoints().size());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applyUpdateRejectsGap() {
+        Track track = TrackFixtures.createTrack(10);
+        Track receivedTrack = TrackFixtures.createTrack(5);
+
+        receivedTrack.applyUpdate(TrackUpdate.createDelta(2, track, 8));
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void deltaCannotBecomeTrack() {
+        TrackUpdate.createDelta(2, TrackFixtures.createTrack(5), 4).toTrack();
+    }
+
+
+    /**
+     * Inner class: Sends updates like TrackerService.sendTrackUpdate
+     */
+    private static final class Sender {
+
+        private final Track mTrack;
+        private long mSequence;
+        private int mLastSentSize = -1;
+
+        private Sender(Track track) {
+            mTrack = track;
+        }
+
+        private TrackUpdate send() {
+            mSequence++;
+            TrackUpdate update;
+            if (mLastSentSize < 0) {
+                update = TrackUpdate.createSnapshot(mSequence, mTrack);
+            } else {
+                update = TrackUpdate.createDelta(mSequence, mTrack, mLastSentSize - 1);
+            }
+            mLastSentSize = mTrack.getSize();
+            return update;
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+
+    /**
+     * Inner class: Receives updates like the track update listener of MainActivityMapFragment
+     */
+    private static final class Receiver {
+
+        private Track mTrack;
+        private long mSequence = -1;
+
+        /* Returns false if an update was missed - a snapshot is needed then */
+        private boolean receive(TrackUpdate update) {
+            if (update.isSnapshot()) {
+                mTrack = update.toTrack();
+            } else if (mTrack != null && update.follows(mSequence)) {
+                mTrack.applyUpdate(update);
+            } else {
+                mTrack = null;
+                mSequence = -1;
+                return false;
+            }
+            assertNotNull(mTrack);
+            assertEquals(update.getTrackSize(), mTrack.getSize());
+            mSequence = update.getSequence();
+            return true;
+        }
+    }
+    /**
+     * End of inner class
+     */
+
+}
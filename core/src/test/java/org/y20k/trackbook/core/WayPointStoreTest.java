@@ -0,0 +1,231 @@
+/**
+ * WayPointStoreTest.java
+ * Implements the WayPointStoreTest class
+ * A WayPointStoreTest checks the chunked storage and the copy on write snapshots of WayPoints
+ *
+ * This file is part of
+ * TRACKBOOK - Movement Recorder for Android
+ *
+ * Copyright (c) 2016-19 - Y20K.org
+ * Licensed under the MIT-License
+ * http://opensource.org/licenses/MIT
+ *
+ * Trackbook uses osmdroid - OpenStreetMap-Tools for Android
+ * https://github.com/osmdroid/osmdroid
+ */
+
+
+package org.y20k.trackbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class WayPointStoreTest {
+
+    /* Chunk size - see WayPointStore */
+    private static final int CHUNK_SIZE = 512;
+
+
+    @Test
+    public void addGrowsAcrossChunks() {
+        WayPointStore wayPoints = createStore(3 * CHUNK_SIZE + 7);
+
+        assertEquals(3 * CHUNK_SIZE + 7, wayPoints.size());
+        for (int i = 0; i < wayPoints.size(); i++) {
+            assertEquals(i, wayPoints.getTime(i));
+        }
+    }
+
+
+    @Test
+    public void snapshotDoesNotChangeWhenOriginAddsWayPoints() {
+        // last chunk of the snapshot is partially filled - the origin keeps adding to it
+        WayPointStore wayPoints = createStore(CHUNK_SIZE + 10);
+        WayPointStore snapshot = wayPoints.snapshot();
+
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            wayPoints.add(-1d, -1d, -1L, -1L, -1f, -1f, -1f, WayPointStore.PROVIDER_NETWORK, (byte) 0, 0, true);
+        }
+
+        assertEquals(CHUNK_SIZE + 10, snapshot.size());
+        assertUnchanged(snapshot);
+    }
+
+
+    @Test
+    public void snapshotDoesNotChangeWhenOriginIsModified() {
+        WayPointStore wayPoints = createStore(2 * CHUNK_SIZE);
+        WayPointStore snapshot = wayPoints.snapshot();
+
+        wayPoints.setStopOver(5, true);
+        wayPoints.setAltitude(CHUNK_SIZE + 5, 1000f);
+        wayPoints.truncate(CHUNK_SIZE - 1);
+        wayPoints.add(-1d, -1d, -1L, -1L, -1f, -1f, -1f, WayPointStore.PROVIDER_NETWORK, (byte) 0, 0, true);
+
+        assertTrue(wayPoints.isStopOver(5));
+        assertEquals(-1L, wayPoints.getTime(CHUNK_SIZE - 1));
+        assertEquals(2 * CHUNK_SIZE, snapshot.size());
+        assertUnchanged(snapshot);
+    }
+
+
+    @Test
+    public void originDoesNotChangeWhenSnapshotIsModified() {
+        WayPointStore wayPoints = createStore(CHUNK_SIZE + 1);
+        WayPointStore snapshot = wayPoints.snapshot();
+
+        snapshot.setAltitude(0, 1000f);
+        snapshot.setStopOver(CHUNK_SIZE, true);
+        snapshot.add(-1d, -1d, -1L, -1L, -1f, -1f, -1f, WayPointStore.PROVIDER_NETWORK, (byte) 0, 0, true);
+
+        assertEquals(1000f, snapshot.getAltitude(0), 0f);
+        assertEquals(CHUNK_SIZE + 1, wayPoints.size());
+        assertUnchanged(wayPoints);
+    }
+
+
+    @Test
+    public void snapshotOfSnapshotSharesWayPoints() {
+        WayPointStore wayPoints = createStore(100);
+        WayPointStore snapshot = wayPoints.snapshot();
+        WayPointStore secondSnapshot = snapshot.snapshot();
+
+        wayPoints.setAltitude(1, 1000f);
+        snapshot.setAltitude(2, 1000f);
+
+        assertUnchanged(secondSnapshot);
+    }
+
+
+    @Test
+    public void copyContainsRange() {
+        WayPointStore wayPoints = createStore(CHUNK_SIZE + 20);
+
+        WayPointStore copy = wayPoints.copy(CHUNK_SIZE - 5, CHUNK_SIZE + 5);
+
+        assertEquals(10, copy.size());
+        for (int i = 0; i < copy.size(); i++) {
+            assertEquals(CHUNK_SIZE - 5 + i, copy.getTime(i));
+            assertEquals(isStopOver(CHUNK_SIZE - 5 + i), copy.isStopOver(i));
+        }
+    }
+
+
+    @Test
+    public void addAllAppendsAfterTruncate() {
+        WayPointStore wayPoints = createStore(30);
+        WayPointStore delta = createStore(30).copy(20, 30);
+
+        wayPoints.truncate(20);
+        wayPoints.addAll(delta);
+
+        assertEquals(30, wayPoints.size());
+        assertUnchanged(wayPoints);
+    }
+
+
+    @Test
+    public void truncateClearsStopOvers() {
+        WayPointStore wayPoints = createStore(10);
+
+        wayPoints.truncate(5);
+        wayPoints.add(0d, 0d, 0L, 0L, 0f, 0f, 0f, WayPointStore.PROVIDER_GPS, (byte) 0, 0, false);
+        wayPoints.add(0d, 0d, 0L, 0L, 0f, 0f, 0f, WayPointStore.PROVIDER_GPS, (byte) 0, 0, false);
+        wayPoints.add(0d, 0d, 0L, 0L, 0f, 0f, 0f, WayPointStore.PROVIDER_GPS, (byte) 0, 0, false);
+
+        assertFalse(wayPoints.isStopOver(7));
+    }
+
+
+    @Test
+    public void emptyStoreHasEmptySnapshotAndCopy() {
+        WayPointStore wayPoints = new WayPointStore(0);
+
+        assertEquals(0, wayPoints.snapshot().size());
+        assertEquals(0, wayPoints.copy(0, 0).size());
+        wayPoints.addAll(new WayPointStore());
+        assertEquals(0, wayPoints.size());
+    }
+
+
+    @Test
+    public void truncateAtChunkBorderKeepsFirstChunk() {
+        WayPointStore wayPoints = createStore(2 * CHUNK_SIZE);
+
+        wayPoints.truncate(CHUNK_SIZE);
+        wayPoints.add(-1d, -1d, -1L, -1L, -1f, -1f, -1f, WayPointStore.PROVIDER_NETWORK, (byte) 0, 0, false);
+
+        assertEquals(CHUNK_SIZE + 1, wayPoints.size());
+        assertEquals(-1L, wayPoints.getTime(CHUNK_SIZE));
+        wayPoints.truncate(CHUNK_SIZE);
+        assertUnchanged(wayPoints);
+    }
+
+
+    @Test
+    public void getFixLeavesOutMissingValues() {
+        WayPointStore wayPoints = new WayPointStore();
+        wayPoints.add(52.5d, 13.4d, 1000L, 2000L, 0f, 0f, 0f, WayPointStore.PROVIDER_NETWORK, (byte) 0, 300, false);
+
+        GeoFix fix = wayPoints.getFix(0);
+
+        assertEquals(GeoFix.PROVIDER_NETWORK, fix.getProvider());
+        assertFalse(fix.hasAltitude());
+        assertFalse(fix.hasAccuracy());
+        assertEquals(255, fix.getNumberSatellites());
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getterChecksIndex() {
+        createStore(CHUNK_SIZE).getLatitude(CHUNK_SIZE);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getterChecksIndexAfterTruncate() {
+        WayPointStore wayPoints = createStore(10);
+        wayPoints.truncate(4);
+        wayPoints.getTime(4);
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void allocateRejectsStoreWithWayPoints() {
+        createStore(1).allocate(10);
+    }
+
+
+    /* Creates a store - the values of every WayPoint are derived from its index */
+    private static WayPointStore createStore(int size) {
+        WayPointStore wayPoints = new WayPointStore();
+        for (int i = 0; i < size; i++) {
+            wayPoints.add(i / 1000d, i / 2000d, i, i * 1000000L, i / 10f, 5f, i * 10f, WayPointStore.PROVIDER_GPS, WayPointStore.FLAG_HAS_ALTITUDE, 7, isStopOver(i));
+        }
+        return wayPoints;
+    }
+
+
+    /* Stop over status of WayPoint with given index - see createStore */
+    private static boolean isStopOver(int index) {
+        return index % 7 == 6;
+    }
+
+
+    /* Checks that the WayPoints still have the values set by createStore */
+    private static void assertUnchanged(WayPointStore wayPoints) {
+        for (int i = 0; i < wayPoints.size(); i++) {
+            assertEquals(i / 1000d, wayPoints.getLatitude(i), 0d);
+            assertEquals(i / 2000d, wayPoints.getLongitude(i), 0d);
+            assertEquals(i, wayPoints.getTime(i));
+            assertEquals(i / 10f, wayPoints.getAltitude(i), 0f);
+            assertEquals(i * 10f, wayPoints.getDistanceToStartingPoint(i), 0f);
+            assertEquals(isStopOver(i), wayPoints.isStopOver(i));
+        }
+    }
+
+}